@@ -0,0 +1,17 @@
+package com.kata.probe.benchmark;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import org.slf4j.LoggerFactory;
+
+final class Benchmarks {
+
+    private Benchmarks() {}
+
+    /**
+     * Outside Spring, logback defaults to DEBUG on the console, which would dominate every measurement.
+     */
+    static void quietLogging() {
+        ((Logger) LoggerFactory.getLogger(Logger.ROOT_LOGGER_NAME)).setLevel(Level.WARN);
+    }
+}
@@ -0,0 +1,24 @@
+package com.kata.probe.benchmark;
+
+import com.kata.probe.domain.commands.Command;
+import com.kata.probe.domain.commands.CommandFactory;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CommandFactoryBenchmark {
+
+    @Param({"F", "r", " L ", "XYZ"})
+    public String raw;
+
+    @Benchmark
+    public Command from() {
+        return CommandFactory.from(raw);
+    }
+}
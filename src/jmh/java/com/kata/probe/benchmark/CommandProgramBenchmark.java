@@ -0,0 +1,56 @@
+package com.kata.probe.benchmark;
+
+import com.kata.probe.controller.response.ExecutionSummary;
+import com.kata.probe.domain.*;
+import com.kata.probe.domain.commands.CommandProgram;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-command cost of the byte-coded executor. Run with {@code -prof gc}:
+ * {@code gc.alloc.rate.norm} divided by {@link #COMMANDS} is the allocation per command,
+ * which should round to zero (the only allocation is one summary per batch).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CommandProgramBenchmark {
+
+    static final int COMMANDS = 1_000;
+
+    private Probe probe;
+    private CommandProgram program;
+    private List<String> rawCommands;
+
+    @Setup
+    public void setUp() {
+        // A 1x1 grid blocks every move, so the path never grows and only the executor is measured
+        Grid grid = new Grid(1, 1);
+        probe = new Probe(new Coordinate(0, 0), Direction.NORTH, grid, new ObstacleMap());
+
+        String[] cycle = {"F", "L", "B", "R", "F", "F", "R", "B"};
+        rawCommands = new ArrayList<>(COMMANDS);
+        for (int i = 0; i < COMMANDS; i++) {
+            rawCommands.add(cycle[i % cycle.length]);
+        }
+        program = CommandProgram.compile(rawCommands);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(COMMANDS)
+    public ExecutionSummary executeCompiled() {
+        return program.execute(probe);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(COMMANDS)
+    public ExecutionSummary compileAndExecute() {
+        return CommandProgram.compile(rawCommands).execute(probe);
+    }
+}
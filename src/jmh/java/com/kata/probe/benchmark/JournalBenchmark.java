@@ -0,0 +1,89 @@
+package com.kata.probe.benchmark;
+
+import com.kata.probe.domain.*;
+import com.kata.probe.domain.commands.CommandProgram;
+import com.kata.probe.repository.ProbeRepository;
+import com.kata.probe.repository.TerrainRepository;
+import com.kata.probe.repository.journal.MappedProbeJournal;
+import com.kata.probe.repository.journal.ProbeJournal;
+import com.kata.probe.service.ProbeStateService;
+import com.kata.probe.service.TerrainService;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * {@link ProbeStateService#apply} from several threads, each on its own probe, with the fleet
+ * in memory only, journaled with background flushes, or journaled with a group fsync per commit.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+public class JournalBenchmark {
+
+    private static final int PROBES = 64;
+
+    @Param({"memory", "async", "sync"})
+    public String journal;
+
+    Path directory;
+    ProbeJournal log;
+    ProbeStateService service;
+    UUID[] ids;
+    final CommandProgram spin = CommandProgram.parse("FRFRFRFR");
+    final AtomicInteger nextThread = new AtomicInteger();
+
+    @Setup
+    public void setUp() throws IOException {
+        Benchmarks.quietLogging();
+        if (journal.equals("memory")) {
+            log = ProbeJournal.NONE;
+        } else {
+            directory = Files.createTempDirectory("probe-journal");
+            log = new MappedProbeJournal(directory, 64 << 20, Duration.ofMillis(1), journal.equals("sync"));
+            log.replay(r -> {});
+        }
+        service = new ProbeStateService(new ProbeRepository(),
+                new TerrainService(new TerrainRepository(), log), log);
+        ids = new UUID[PROBES];
+        for (int i = 0; i < PROBES; i++) {
+            ids[i] = service.create(2, 2, new Coordinate(0, 0), Direction.NORTH);
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        log.close();
+        if (directory != null) {
+            try (var files = Files.walk(directory)) {
+                files.sorted(Comparator.reverseOrder()).forEach(f -> f.toFile().delete());
+            }
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class ThreadState {
+        UUID id;
+
+        @Setup
+        public void setUp(JournalBenchmark bench) {
+            id = bench.ids[bench.nextThread.getAndIncrement() % PROBES];
+        }
+    }
+
+    @Benchmark
+    public ProbeView apply(ThreadState state) {
+        return service.apply(state.id, spin, null);
+    }
+}
@@ -0,0 +1,62 @@
+package com.kata.probe.benchmark;
+
+import com.kata.probe.repository.ProbeLocationIndex;
+import com.kata.probe.repository.ProbeLocationIndex.Location;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Region and nearest-neighbour queries against a fleet spread uniformly over a square,
+ * and the cost of moving one probe in the index.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LocationQueryBenchmark {
+
+    private static final int SIDE = 100_000;
+    private static final String TERRAIN = "plain";
+
+    @Param({"1000000"})
+    public int probes;
+
+    ProbeLocationIndex index;
+    UUID[] ids;
+    Random random;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        index = new ProbeLocationIndex();
+        ids = new UUID[probes];
+        random = new Random(7);
+        for (int i = 0; i < probes; i++) {
+            ids[i] = UUID.randomUUID();
+            index.place(ids[i], TERRAIN, random.nextInt(SIDE), random.nextInt(SIDE));
+        }
+    }
+
+    /** About 100 probes in a 1 000 x 1 000 box. */
+    @Benchmark
+    public List<Location> within() {
+        int x = random.nextInt(SIDE - 1_000);
+        int y = random.nextInt(SIDE - 1_000);
+        return index.within(x, y, x + 999, y + 999, TERRAIN, 10_000);
+    }
+
+    @Benchmark
+    public List<Location> nearest10() {
+        return index.nearest(random.nextInt(SIDE), random.nextInt(SIDE), 10, TERRAIN);
+    }
+
+    @Benchmark
+    public void move() {
+        index.place(ids[random.nextInt(probes)], TERRAIN, random.nextInt(SIDE), random.nextInt(SIDE));
+    }
+}
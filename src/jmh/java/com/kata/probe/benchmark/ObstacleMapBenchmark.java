@@ -0,0 +1,64 @@
+package com.kata.probe.benchmark;
+
+import com.kata.probe.domain.Coordinate;
+import com.kata.probe.domain.DenseObstacleIndex;
+import com.kata.probe.domain.ObstacleMap;
+import com.kata.probe.domain.TiledObstacleIndex;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Random lookups against maps of increasing obstacle density, for each index kind.
+ * The retained footprint of each index is printed during setup.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ObstacleMapBenchmark {
+
+    static final int LOOKUPS = 4_096;
+
+    @Param({"1000"})
+    public int size;
+
+    @Param({"0.0", "0.01", "0.2"})
+    public double density;
+
+    @Param({"dense", "tiled"})
+    public String index;
+
+    private ObstacleMap obstacles;
+    private final int[] xs = new int[LOOKUPS];
+    private final int[] ys = new int[LOOKUPS];
+
+    @Setup
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(42);
+        obstacles = new ObstacleMap(index.equals("dense")
+                ? new DenseObstacleIndex(size, size)
+                : new TiledObstacleIndex());
+        long count = (long) (size * (long) size * density);
+        for (long i = 0; i < count; i++) {
+            obstacles.addObstacle(new Coordinate(random.nextInt(size), random.nextInt(size)));
+        }
+        for (int i = 0; i < LOOKUPS; i++) {
+            xs[i] = random.nextInt(size);
+            ys[i] = random.nextInt(size);
+        }
+        System.out.printf("%n%s index, %d obstacles: %d bytes%n", index, obstacles.size(), obstacles.memoryBytes());
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LOOKUPS)
+    public void hasObstacle(Blackhole bh) {
+        for (int i = 0; i < LOOKUPS; i++) {
+            bh.consume(obstacles.hasObstacle(xs[i], ys[i]));
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.kata.probe.benchmark;
+
+import com.kata.probe.domain.*;
+import com.kata.probe.domain.planning.PathPlanner;
+import com.kata.probe.domain.planning.Plan;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Corner-to-corner planning on a square grid, empty or with random obstacles.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PathPlannerBenchmark {
+
+    @Param({"1000"})
+    public int side;
+
+    @Param({"0", "0.2"})
+    public double density;
+
+    PathPlanner planner;
+    Probe probe;
+    Coordinate target;
+
+    @Setup
+    public void setUp() {
+        Grid grid = new Grid(side, side);
+        ObstacleMap obstacles = new ObstacleMap(grid);
+        Random random = new Random(3);
+        long count = (long) (density * side * side);
+        for (long i = 0; i < count; i++) {
+            int x = random.nextInt(side);
+            int y = random.nextInt(side);
+            if (x + y > 0 && x + y < 2 * side - 2) {
+                obstacles.addObstacle(new Coordinate(x, y));
+            }
+        }
+        planner = new PathPlanner();
+        probe = new Probe(new Coordinate(0, 0), Direction.NORTH, grid, obstacles);
+        target = new Coordinate(side - 1, side - 1);
+    }
+
+    @Benchmark
+    public Plan cornerToCorner() {
+        return planner.plan(probe, target);
+    }
+}
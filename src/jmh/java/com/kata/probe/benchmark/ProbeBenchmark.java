@@ -0,0 +1,53 @@
+package com.kata.probe.benchmark;
+
+import com.kata.probe.domain.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link Probe#moveForward()} including the path append. Each invocation drives a fresh probe
+ * across a row, so the path array grows the way it does for a newly created probe.
+ * {@code moveForwardRun} covers the same row as one {@link Probe#moveForward(int)} jump.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProbeBenchmark {
+
+    static final int MOVES = 1_000;
+
+    private final Grid grid = new Grid(MOVES + 1, 1);
+    private final ObstacleMap obstacles = new ObstacleMap();
+
+    @Benchmark
+    @OperationsPerInvocation(MOVES)
+    public Probe moveForward() {
+        Probe probe = new Probe(new Coordinate(0, 0), Direction.EAST, grid, obstacles);
+        for (int i = 0; i < MOVES; i++) {
+            probe.moveForward();
+        }
+        return probe;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(MOVES)
+    public Probe moveForwardBlocked() {
+        Probe probe = new Probe(new Coordinate(MOVES, 0), Direction.EAST, grid, obstacles);
+        for (int i = 0; i < MOVES; i++) {
+            probe.moveForward();
+        }
+        return probe;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(MOVES)
+    public Probe moveForwardRun() {
+        Probe probe = new Probe(new Coordinate(0, 0), Direction.EAST, grid, obstacles);
+        probe.moveForward(MOVES);
+        return probe;
+    }
+}
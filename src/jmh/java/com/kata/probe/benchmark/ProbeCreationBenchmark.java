@@ -0,0 +1,62 @@
+package com.kata.probe.benchmark;
+
+import com.kata.probe.domain.Coordinate;
+import com.kata.probe.domain.Direction;
+import com.kata.probe.repository.ProbeRepository;
+import com.kata.probe.repository.TerrainRepository;
+import com.kata.probe.service.CreateOutcome;
+import com.kata.probe.service.ProbeSpec;
+import com.kata.probe.service.ProbeStateService;
+import com.kata.probe.service.TerrainService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Spinning up a fleet: {@link ProbeStateService#create} once per probe versus one
+ * {@link ProbeStateService#createAll} call, each into an empty repository.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ProbeCreationBenchmark {
+
+    @Param({"100000"})
+    public int probes;
+
+    private List<ProbeSpec> specs;
+    private ProbeStateService service;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Benchmarks.quietLogging();
+        specs = new ArrayList<>(probes);
+        for (int i = 0; i < probes; i++) {
+            specs.add(new ProbeSpec(null, 1_000, 1_000, new Coordinate(i % 1_000, i / 1_000 % 1_000),
+                    Direction.NORTH, null));
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void freshService() {
+        service = new ProbeStateService(new ProbeRepository(), new TerrainService(new TerrainRepository()));
+    }
+
+    @Benchmark
+    public int createOneByOne() {
+        for (ProbeSpec spec : specs) {
+            service.create(spec);
+        }
+        return specs.size();
+    }
+
+    @Benchmark
+    public List<CreateOutcome> createAll() {
+        return service.createAll(specs);
+    }
+}
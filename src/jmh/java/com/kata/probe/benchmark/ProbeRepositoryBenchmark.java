@@ -0,0 +1,84 @@
+package com.kata.probe.benchmark;
+
+import com.kata.probe.domain.*;
+import com.kata.probe.domain.commands.CommandProgram;
+import com.kata.probe.repository.ProbeRepository;
+import com.kata.probe.repository.TerrainRepository;
+import com.kata.probe.service.ProbeStateService;
+import com.kata.probe.service.TerrainService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Lock-and-read cycles on the repository from several threads, either all on one hot probe
+ * or each on its own probe. The gap between the two is the cost of per-probe contention.
+ * {@code apply} runs whole command batches; comparing {@code -t 1} with the default four
+ * threads on {@code distinct} probes shows how throughput scales with cores.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class ProbeRepositoryBenchmark {
+
+    private static final int PROBES = 1_024;
+
+    @Param({"shared", "distinct"})
+    public String access;
+
+    // Four right turns: the probe ends where it started, so the path never grows
+    private static final CommandProgram SPIN = CommandProgram.parse("4R");
+
+    ProbeRepository repo;
+    ProbeStateService service;
+    UUID[] ids;
+    final AtomicInteger nextThread = new AtomicInteger();
+
+    @Setup
+    public void setUp() {
+        Benchmarks.quietLogging();
+        repo = new ProbeRepository();
+        service = new ProbeStateService(repo, new TerrainService(new TerrainRepository()));
+        ids = new UUID[PROBES];
+        Grid grid = new Grid(10, 10);
+        for (int i = 0; i < PROBES; i++) {
+            Probe probe = new Probe(new Coordinate(0, 0), Direction.NORTH, grid, new ObstacleMap());
+            ids[i] = repo.save(new ProbeAggregate(grid, probe));
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class ThreadState {
+        UUID id;
+
+        @Setup
+        public void setUp(ProbeRepositoryBenchmark bench) {
+            int index = bench.access.equals("shared") ? 0 : bench.nextThread.getAndIncrement() % PROBES;
+            id = bench.ids[index];
+        }
+    }
+
+    @Benchmark
+    public long lockedRead(ThreadState state) {
+        return repo.withLock(state.id, () -> repo.find(state.id).orElseThrow().getVersion());
+    }
+
+    @Benchmark
+    public boolean lockedUpdate(ThreadState state) {
+        return repo.withLock(state.id, () -> {
+            ProbeAggregate agg = repo.find(state.id).orElseThrow();
+            return repo.compareAndUpdate(state.id, agg.getVersion(), agg);
+        });
+    }
+
+    @Benchmark
+    public long apply(ThreadState state) {
+        return service.apply(state.id, SPIN, null).version();
+    }
+}
@@ -0,0 +1,84 @@
+package com.kata.probe.benchmark;
+
+import com.kata.probe.domain.Coordinate;
+import com.kata.probe.domain.Direction;
+import com.kata.probe.domain.ProbeView;
+import com.kata.probe.domain.commands.CommandProgram;
+import com.kata.probe.repository.ProbeRepository;
+import com.kata.probe.repository.TerrainRepository;
+import com.kata.probe.service.ProbeStateService;
+import com.kata.probe.service.Simulation;
+import com.kata.probe.service.TerrainService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end {@link ProbeStateService#apply} for a single probe: compile, lock, execute, commit;
+ * and {@link ProbeStateService#simulate} of the same batch, which only copies the position.
+ * The probe is replaced once its path gets long so memory stays flat across iterations.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProbeStateServiceBenchmark {
+
+    private static final int MAX_PATH = 4_000_000;
+    private static final int SIDE = 1_000;
+
+    @Param({"1", "1000", "1000000"})
+    public int batchSize;
+
+    private ProbeStateService service;
+    private List<String> commands;
+    private CommandProgram program;
+    private UUID id;
+
+    @Setup
+    public void setUp() {
+        Benchmarks.quietLogging();
+        service = new ProbeStateService(new ProbeRepository(), new TerrainService(new TerrainRepository()));
+
+        // Walk the edge of a square; turns and moves interleave like a real program
+        String[] lap = new String[4 * (SIDE + 1)];
+        for (int side = 0, i = 0; side < 4; side++) {
+            for (int step = 0; step < SIDE; step++) {
+                lap[i++] = "F";
+            }
+            lap[i++] = "R";
+        }
+        commands = new ArrayList<>(batchSize);
+        for (int i = 0; i < batchSize; i++) {
+            commands.add(lap[i % lap.length]);
+        }
+        program = CommandProgram.compile(commands);
+        id = newProbe();
+    }
+
+    private UUID newProbe() {
+        return service.create(SIDE + 1, SIDE + 1, new Coordinate(0, 0), Direction.NORTH);
+    }
+
+    @Benchmark
+    public ProbeView apply() {
+        ProbeView view = service.apply(id, commands);
+        if (view.pathLength() > MAX_PATH) {
+            id = newProbe();
+        }
+        return view;
+    }
+
+    /**
+     * Same batch as a dry run; run with {@code -prof gc} to see it allocate nothing per command.
+     */
+    @Benchmark
+    public Simulation simulate() {
+        return service.simulate(id, program);
+    }
+}
@@ -0,0 +1,67 @@
+package com.kata.probe.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kata.probe.controller.request.v1.ApplyCommandsRequest;
+import com.kata.probe.domain.commands.CommandProgram;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Request body to {@link CommandProgram} for a large program, in each wire format.
+ * Compare both time and {@code gc.alloc.rate.norm} with {@code -prof gc}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RequestParsingBenchmark {
+
+    @Param({"1000000"})
+    public int commands;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private String jsonList;
+    private String jsonPacked;
+    private String plainPacked;
+    private String plainRunLength;
+
+    @Setup
+    public void setUp() {
+        String[] lap = {"F", "F", "F", "F", "R", "F", "F", "L", "B"};
+        StringBuilder list = new StringBuilder(commands * 4).append("{\"commands\":[");
+        StringBuilder packed = new StringBuilder(commands);
+        for (int i = 0; i < commands; i++) {
+            String c = lap[i % lap.length];
+            list.append(i == 0 ? "\"" : ",\"").append(c).append('"');
+            packed.append(c);
+        }
+        jsonList = list.append("]}").toString();
+        plainPacked = packed.toString();
+        jsonPacked = "{\"program\":\"" + plainPacked + "\"}";
+        plainRunLength = (commands / 1000) + "F" + (commands / 1000) + "R";
+    }
+
+    @Benchmark
+    public CommandProgram jsonStringList() throws Exception {
+        return mapper.readValue(jsonList, ApplyCommandsRequest.class).toProgram(CommandProgram.MAX_LENGTH);
+    }
+
+    @Benchmark
+    public CommandProgram jsonPackedProgram() throws Exception {
+        return mapper.readValue(jsonPacked, ApplyCommandsRequest.class).toProgram(CommandProgram.MAX_LENGTH);
+    }
+
+    @Benchmark
+    public CommandProgram plainTextStream() {
+        return CommandProgram.parse(new StringReader(plainPacked));
+    }
+
+    @Benchmark
+    public CommandProgram plainTextRunLength() {
+        return CommandProgram.parse(new StringReader(plainRunLength));
+    }
+}
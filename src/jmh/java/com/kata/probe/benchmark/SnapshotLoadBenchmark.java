@@ -0,0 +1,75 @@
+package com.kata.probe.benchmark;
+
+import com.kata.probe.domain.*;
+import com.kata.probe.repository.journal.MappedSnapshot;
+import com.kata.probe.repository.journal.ProbeSnapshot;
+import com.kata.probe.repository.journal.SnapshotStore;
+import com.kata.probe.repository.ProbeRepository;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Startup cost of a snapshot: mapping it and becoming ready ({@code open}) versus decoding
+ * every probe up front ({@code openAndDecodeAll}), which is what a parsed format has to do.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class SnapshotLoadBenchmark {
+
+    @Param({"100000"})
+    public int probes;
+
+    @Param({"100"})
+    public int pathLength;
+
+    Path directory;
+    SnapshotStore store;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("probe-snapshot");
+        store = new SnapshotStore(directory);
+        ProbeRepository repo = new ProbeRepository();
+        Grid grid = new Grid(pathLength + 1, 1);
+        ObstacleMap obstacles = new ObstacleMap();
+        for (int i = 0; i < probes; i++) {
+            Probe probe = new Probe(new Coordinate(0, 0), Direction.EAST, grid, obstacles);
+            probe.moveForward(pathLength - 1);
+            repo.save(new ProbeAggregate(grid, probe));
+        }
+        store.write(1, List.of(), repo);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        try (var files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(f -> f.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public MappedSnapshot open() throws IOException {
+        return store.openLatest();
+    }
+
+    @Benchmark
+    public long openAndDecodeAll() throws IOException {
+        MappedSnapshot snapshot = store.openLatest();
+        long cells = 0;
+        for (int i = 0; i < snapshot.size(); i++) {
+            ProbeSnapshot probe = snapshot.read(i);
+            cells += probe.path().size();
+        }
+        return cells;
+    }
+}
@@ -0,0 +1,74 @@
+package com.kata.probe.benchmark;
+
+import com.kata.probe.domain.*;
+import com.kata.probe.repository.journal.SpillStore;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the cold tier per probe: spilling one ({@code put}) and bringing one back
+ * ({@code load}), for short and long visited paths.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SpillStoreBenchmark {
+
+    private static final int PROBES = 10_000;
+
+    @Param({"100", "10000"})
+    public int pathLength;
+
+    private Path directory;
+    private SpillStore store;
+    private ProbeAggregate agg;
+    private UUID[] ids;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("probe-spill");
+        Grid grid = new Grid(pathLength + 1, 1);
+        store = new SpillStore(directory, 64L << 20, s -> {
+            Probe probe = Probe.restore(s.path(), s.direction(), grid, new ObstacleMap(grid));
+            ProbeAggregate restored = new ProbeAggregate(grid, probe);
+            restored.setVersion(s.version());
+            return restored;
+        });
+        Probe probe = new Probe(new Coordinate(0, 0), Direction.EAST, grid, new ObstacleMap(grid));
+        probe.moveForward(pathLength - 1);
+        agg = new ProbeAggregate(grid, probe);
+        ids = new UUID[PROBES];
+        for (int i = 0; i < PROBES; i++) {
+            ids[i] = UUID.randomUUID();
+            store.put(ids[i], agg);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        store.close();
+        try (var files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(f -> f.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public void put() {
+        store.put(ids[next++ % PROBES], agg);
+    }
+
+    @Benchmark
+    public ProbeAggregate load() {
+        return store.load(ids[next++ % PROBES]);
+    }
+}
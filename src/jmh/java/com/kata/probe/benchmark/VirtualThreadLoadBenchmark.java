@@ -0,0 +1,109 @@
+package com.kata.probe.benchmark;
+
+import com.kata.probe.ProbeApplication;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Load test of the running application over HTTP: many clients, each posting small command
+ * batches to its own probe, against Tomcat on platform threads or on virtual threads.
+ * With {@code commit=sync} every request waits for a journal fsync, which is where a bounded
+ * platform thread pool saturates long before the CPU does.
+ * <p>
+ * Reports throughput and the latency distribution (p50 / p99 / p99.9) per configuration:
+ * <pre>
+ * mvn -Pjmh -DskipTests verify -Djmh.include=VirtualThreadLoadBenchmark -Djmh.args="-t 400"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+@Threads(256)
+public class VirtualThreadLoadBenchmark {
+
+    private static final Pattern ID = Pattern.compile("\"id\"\\s*:\\s*\"([^\"]+)\"");
+
+    @Param({"platform", "virtual"})
+    public String threads;
+
+    @Param({"memory", "sync"})
+    public String commit;
+
+    Path directory;
+    ConfigurableApplicationContext app;
+    String baseUrl;
+    HttpClient http;
+
+    @Setup(Level.Trial)
+    public void start() throws IOException {
+        directory = Files.createTempDirectory("probe-load");
+        app = new SpringApplicationBuilder(ProbeApplication.class)
+                .properties(
+                        "server.port=0",
+                        "logging.level.root=WARN",
+                        "spring.threads.virtual.enabled=" + threads.equals("virtual"),
+                        "probe.persistence.enabled=" + commit.equals("sync"),
+                        "probe.persistence.directory=" + directory,
+                        "probe.persistence.sync-commit=true")
+                .run();
+        baseUrl = "http://localhost:" + app.getEnvironment().getProperty("local.server.port") + "/v1/probe";
+        http = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() throws IOException {
+        app.close();
+        try (var files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(f -> f.toFile().delete());
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Client {
+        HttpRequest apply;
+
+        @Setup(Level.Trial)
+        public void create(VirtualThreadLoadBenchmark load) throws Exception {
+            HttpResponse<String> created = load.http.send(HttpRequest.newBuilder(URI.create(load.baseUrl))
+                            .header("Content-Type", "application/json")
+                            .POST(HttpRequest.BodyPublishers.ofString(
+                                    "{\"gridWidth\":64,\"gridHeight\":64,\"start\":{\"x\":0,\"y\":0},\"direction\":\"NORTH\"}"))
+                            .build(),
+                    HttpResponse.BodyHandlers.ofString());
+            Matcher id = ID.matcher(created.body());
+            if (!id.find()) {
+                throw new IllegalStateException("Unexpected create response: " + created.body());
+            }
+            // Forward and back again, so the probe never leaves the grid; delta keeps responses small
+            apply = HttpRequest.newBuilder(URI.create(load.baseUrl + "/" + id.group(1) + "/commands?delta=true"))
+                    .header("Content-Type", "text/plain")
+                    .POST(HttpRequest.BodyPublishers.ofString("FB"))
+                    .build();
+        }
+    }
+
+    @Benchmark
+    public int applyCommands(Client client) throws Exception {
+        HttpResponse<Void> response = http.send(client.apply, HttpResponse.BodyHandlers.discarding());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException("Request failed with status " + response.statusCode());
+        }
+        return response.statusCode();
+    }
+}
@@ -1,7 +1,24 @@
 package com.kata.probe.controller.request.v1;
 
+import com.kata.probe.domain.commands.CommandProgram;
+
 import java.util.List;
 
 public class ApplyCommandsRequest {
     public List<String> commands;
+    // Packed alternative to commands, e.g. "FFRFFLB" or "10F2R5B"
+    public String program;
+
+    public CommandProgram toProgram(long maxLength) {
+        if (program != null && commands != null) {
+            throw new IllegalArgumentException("Send either commands or program, not both");
+        }
+        if (program != null) {
+            return CommandProgram.parse(program, maxLength);
+        }
+        if (commands == null) {
+            throw new IllegalArgumentException("Commands must not be null");
+        }
+        return CommandProgram.compile(commands, maxLength);
+    }
 }
@@ -0,0 +1,11 @@
+package com.kata.probe.controller.request.v1;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+public class BatchApplyCommandsRequest {
+    public Map<UUID, List<String>> commands;
+    // Packed alternative to commands, one program string per probe
+    public Map<UUID, String> programs;
+}
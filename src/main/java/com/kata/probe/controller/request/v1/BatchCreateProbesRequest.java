@@ -0,0 +1,7 @@
+package com.kata.probe.controller.request.v1;
+
+import java.util.List;
+
+public class BatchCreateProbesRequest {
+    public List<CreateProbeRequest> probes;
+}
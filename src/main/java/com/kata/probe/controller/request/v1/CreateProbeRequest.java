@@ -2,10 +2,20 @@ package com.kata.probe.controller.request.v1;
 
 import com.kata.probe.domain.Coordinate;
 import com.kata.probe.domain.Direction;
+import com.kata.probe.service.ProbeSpec;
+
+import java.util.List;
 
 public class CreateProbeRequest {
     public int gridWidth;
     public int gridHeight;
     public Coordinate start;
     public Direction direction;
+    // Optional: name of a registered terrain, and obstacles only this probe sees
+    public String terrain;
+    public List<Coordinate> obstacles;
+
+    public ProbeSpec toSpec() {
+        return new ProbeSpec(terrain, gridWidth, gridHeight, start, direction, obstacles);
+    }
 }
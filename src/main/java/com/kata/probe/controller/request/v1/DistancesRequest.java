@@ -0,0 +1,9 @@
+package com.kata.probe.controller.request.v1;
+
+import com.kata.probe.domain.Coordinate;
+
+import java.util.List;
+
+public class DistancesRequest {
+    public List<Coordinate> targets;
+}
@@ -0,0 +1,9 @@
+package com.kata.probe.controller.request.v1;
+
+import com.kata.probe.domain.Coordinate;
+
+public class PlanRequest {
+    public Coordinate target;
+    // Apply the plan right away instead of only returning it
+    public boolean execute;
+}
@@ -0,0 +1,12 @@
+package com.kata.probe.controller.request.v1;
+
+import com.kata.probe.domain.Coordinate;
+
+import java.util.List;
+
+public class RegisterTerrainRequest {
+    public String name;
+    public int width;
+    public int height;
+    public List<Coordinate> obstacles;
+}
@@ -12,4 +12,15 @@ public class ExecutionSummary {
         this.blocked = blocked;
         this.invalid = invalid;
     }
+
+    /**
+     * Counts above {@link Integer#MAX_VALUE} are reported as {@link Integer#MAX_VALUE}.
+     */
+    public static ExecutionSummary saturated(long executed, long blocked, long invalid) {
+        return new ExecutionSummary(saturate(executed), saturate(blocked), saturate(invalid));
+    }
+
+    private static int saturate(long count) {
+        return (int) Math.min(count, Integer.MAX_VALUE);
+    }
 }
@@ -0,0 +1,16 @@
+package com.kata.probe.controller.response.v1;
+
+import java.util.Map;
+import java.util.UUID;
+
+public class BatchApplyResponse {
+    public int succeeded;
+    public int failed;
+    public Map<UUID, BatchEntryResponse> results;
+
+    public BatchApplyResponse(int succeeded, int failed, Map<UUID, BatchEntryResponse> results) {
+        this.succeeded = succeeded;
+        this.failed = failed;
+        this.results = results;
+    }
+}
@@ -0,0 +1,30 @@
+package com.kata.probe.controller.response.v1;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.kata.probe.exception.ApiError;
+import com.kata.probe.exception.GlobalExceptionHandler;
+import com.kata.probe.service.CreateOutcome;
+
+import java.util.UUID;
+
+/**
+ * Per-spec entry of a bulk create response: the new ID, or the error that stopped this probe.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BatchCreateEntryResponse {
+    public String status;
+    public UUID id;
+    public ApiError error;
+
+    public static BatchCreateEntryResponse from(CreateOutcome outcome) {
+        BatchCreateEntryResponse entry = new BatchCreateEntryResponse();
+        if (outcome.succeeded()) {
+            entry.status = "OK";
+            entry.id = outcome.id();
+        } else {
+            entry.status = "FAILED";
+            entry.error = GlobalExceptionHandler.toApiError(outcome.error());
+        }
+        return entry;
+    }
+}
@@ -0,0 +1,15 @@
+package com.kata.probe.controller.response.v1;
+
+import java.util.List;
+
+public class BatchCreateResponse {
+    public int created;
+    public int failed;
+    public List<BatchCreateEntryResponse> results;
+
+    public BatchCreateResponse(int created, int failed, List<BatchCreateEntryResponse> results) {
+        this.created = created;
+        this.failed = failed;
+        this.results = results;
+    }
+}
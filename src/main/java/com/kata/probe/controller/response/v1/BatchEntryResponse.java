@@ -0,0 +1,39 @@
+package com.kata.probe.controller.response.v1;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.kata.probe.controller.response.ExecutionSummary;
+import com.kata.probe.domain.Coordinate;
+import com.kata.probe.domain.Direction;
+import com.kata.probe.domain.ProbeView;
+import com.kata.probe.exception.ApiError;
+
+/**
+ * Per-probe entry of a batch response. Successful entries carry the new state without the
+ * visited path; failed entries carry only the error.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BatchEntryResponse {
+    public String status;
+    public Coordinate position;
+    public Direction direction;
+    public ExecutionSummary summary;
+    public Long version;
+    public ApiError error;
+
+    public static BatchEntryResponse ok(ProbeView view) {
+        BatchEntryResponse entry = new BatchEntryResponse();
+        entry.status = "OK";
+        entry.position = view.position();
+        entry.direction = view.direction();
+        entry.summary = view.summary();
+        entry.version = view.version();
+        return entry;
+    }
+
+    public static BatchEntryResponse failed(ApiError error) {
+        BatchEntryResponse entry = new BatchEntryResponse();
+        entry.status = "FAILED";
+        entry.error = error;
+        return entry;
+    }
+}
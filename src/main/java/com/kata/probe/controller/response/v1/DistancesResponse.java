@@ -0,0 +1,19 @@
+package com.kata.probe.controller.response.v1;
+
+import com.kata.probe.domain.Coordinate;
+
+import java.util.List;
+
+/**
+ * Moves from {@code origin} to each requested target, in request order; {@code null} where
+ * the target cannot be reached.
+ */
+public class DistancesResponse {
+    public Coordinate origin;
+    public List<Integer> distances;
+
+    public DistancesResponse(Coordinate origin, List<Integer> distances) {
+        this.origin = origin;
+        this.distances = distances;
+    }
+}
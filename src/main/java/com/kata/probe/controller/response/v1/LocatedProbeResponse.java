@@ -0,0 +1,32 @@
+package com.kata.probe.controller.response.v1;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.kata.probe.domain.Coordinate;
+import com.kata.probe.repository.ProbeLocationIndex.Location;
+
+import java.util.UUID;
+
+/**
+ * A probe found by a location query. {@code distance} is only set by nearest-neighbour queries.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class LocatedProbeResponse {
+    public UUID id;
+    public String terrain;
+    public Coordinate position;
+    public Double distance;
+
+    public static LocatedProbeResponse from(Location location) {
+        LocatedProbeResponse r = new LocatedProbeResponse();
+        r.id = location.id();
+        r.terrain = location.terrain();
+        r.position = new Coordinate(location.x(), location.y());
+        return r;
+    }
+
+    public static LocatedProbeResponse from(Location location, int x, int y) {
+        LocatedProbeResponse r = from(location);
+        r.distance = Math.hypot((double) location.x() - x, (double) location.y() - y);
+        return r;
+    }
+}
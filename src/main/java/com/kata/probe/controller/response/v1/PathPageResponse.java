@@ -0,0 +1,26 @@
+package com.kata.probe.controller.response.v1;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.kata.probe.domain.Coordinate;
+
+import java.util.List;
+
+/**
+ * One page of a probe's visited path. {@code nextOffset} is omitted on the last page.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class PathPageResponse {
+    public int offset;
+    public int pathLength;
+    public List<Coordinate> steps;
+    public Integer nextOffset;
+    public long version;
+
+    public PathPageResponse(int offset, int pathLength, List<Coordinate> steps, long version) {
+        this.offset = offset;
+        this.pathLength = pathLength;
+        this.steps = steps;
+        this.nextOffset = offset + steps.size() < pathLength ? offset + steps.size() : null;
+        this.version = version;
+    }
+}
@@ -0,0 +1,27 @@
+package com.kata.probe.controller.response.v1;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.kata.probe.service.PlanOutcome;
+
+/**
+ * A planned route as a packed program, e.g. {@code "3FR2F"}. {@code state} is only present
+ * when the plan was executed.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class PlanResponse {
+    public String program;
+    public long commands;
+    public int turns;
+    public int expanded;
+    public ProbeSummaryResponse state;
+
+    public static PlanResponse from(PlanOutcome outcome) {
+        PlanResponse response = new PlanResponse();
+        response.program = outcome.plan().program().toPacked();
+        response.commands = outcome.plan().program().length();
+        response.turns = outcome.plan().turns();
+        response.expanded = outcome.plan().expanded();
+        response.state = outcome.view() == null ? null : ProbeSummaryResponse.from(outcome.view());
+        return response;
+    }
+}
@@ -0,0 +1,35 @@
+package com.kata.probe.controller.response.v1;
+
+import com.kata.probe.controller.response.ExecutionSummary;
+import com.kata.probe.domain.Coordinate;
+import com.kata.probe.domain.Direction;
+import com.kata.probe.domain.ProbeView;
+
+import java.util.List;
+
+/**
+ * Result of a command batch carrying only the steps it added. {@code appended} belongs at
+ * {@code pathOffset} in the full path; a client whose copy is shorter than {@code pathOffset}
+ * has missed another batch and can fetch the gap from {@code GET /v1/probe/{id}/path}.
+ */
+public class ProbeDeltaResponse {
+    public Coordinate position;
+    public Direction direction;
+    public ExecutionSummary summary;
+    public long version;
+    public int pathOffset;
+    public List<Coordinate> appended;
+    public int pathLength;
+
+    public static ProbeDeltaResponse from(ProbeView view) {
+        ProbeDeltaResponse response = new ProbeDeltaResponse();
+        response.position = view.position();
+        response.direction = view.direction();
+        response.summary = view.summary();
+        response.version = view.version();
+        response.pathOffset = view.pathStart();
+        response.appended = view.appended();
+        response.pathLength = view.pathLength();
+        return response;
+    }
+}
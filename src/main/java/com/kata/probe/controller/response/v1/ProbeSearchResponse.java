@@ -0,0 +1,16 @@
+package com.kata.probe.controller.response.v1;
+
+import java.util.List;
+
+/**
+ * Probes matching a location query. {@code truncated} is set when more matched than the limit.
+ */
+public class ProbeSearchResponse {
+    public List<LocatedProbeResponse> probes;
+    public boolean truncated;
+
+    public ProbeSearchResponse(List<LocatedProbeResponse> probes, boolean truncated) {
+        this.probes = probes;
+        this.truncated = truncated;
+    }
+}
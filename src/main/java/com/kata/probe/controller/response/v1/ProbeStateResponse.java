@@ -9,11 +9,23 @@ public class ProbeStateResponse {
     public Direction direction;
     public List<Coordinate> visited;
     public ExecutionSummary summary;
+    public long version;
 
-    public ProbeStateResponse(Coordinate p, Direction d, List<Coordinate> v, ExecutionSummary s) {
+    public ProbeStateResponse(Coordinate p, Direction d, List<Coordinate> v, ExecutionSummary s, long version) {
         this.position = p;
         this.direction = d;
         this.visited = v;
         this.summary = s;
+        this.version = version;
+    }
+
+    public static ProbeStateResponse from(ProbeView view) {
+        return new ProbeStateResponse(
+                view.position(),
+                view.direction(),
+                view.visited(),
+                view.summary(),
+                view.version()
+        );
     }
 }
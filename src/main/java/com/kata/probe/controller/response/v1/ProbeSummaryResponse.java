@@ -0,0 +1,28 @@
+package com.kata.probe.controller.response.v1;
+
+import com.kata.probe.controller.response.ExecutionSummary;
+import com.kata.probe.domain.Coordinate;
+import com.kata.probe.domain.Direction;
+import com.kata.probe.domain.ProbeView;
+
+/**
+ * Probe state without the visited path, for polling. {@code pathLength} tells the client
+ * where to resume reading the path.
+ */
+public class ProbeSummaryResponse {
+    public Coordinate position;
+    public Direction direction;
+    public ExecutionSummary summary;
+    public int pathLength;
+    public long version;
+
+    public static ProbeSummaryResponse from(ProbeView view) {
+        ProbeSummaryResponse response = new ProbeSummaryResponse();
+        response.position = view.position();
+        response.direction = view.direction();
+        response.summary = view.summary();
+        response.pathLength = view.pathLength();
+        response.version = view.version();
+        return response;
+    }
+}
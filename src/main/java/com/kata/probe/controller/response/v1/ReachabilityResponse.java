@@ -0,0 +1,35 @@
+package com.kata.probe.controller.response.v1;
+
+import com.kata.probe.domain.Coordinate;
+import com.kata.probe.domain.planning.DistanceField;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Base64;
+
+/**
+ * Cells a probe can reach. {@code bitmap} is base64 of one bit per cell, row-major, lowest bit
+ * of each little-endian 64-bit word first.
+ */
+public class ReachabilityResponse {
+    public Coordinate origin;
+    public int width;
+    public int height;
+    public int reachable;
+    public int maxDistance;
+    public String bitmap;
+
+    public static ReachabilityResponse from(DistanceField field) {
+        ReachabilityResponse response = new ReachabilityResponse();
+        response.origin = new Coordinate(field.originX(), field.originY());
+        response.width = field.width();
+        response.height = field.height();
+        response.reachable = field.reachable();
+        response.maxDistance = field.maxDistance();
+        long[] bits = field.reachableBits();
+        ByteBuffer bytes = ByteBuffer.allocate(bits.length * 8).order(ByteOrder.LITTLE_ENDIAN);
+        bytes.asLongBuffer().put(bits);
+        response.bitmap = Base64.getEncoder().encodeToString(bytes.array());
+        return response;
+    }
+}
@@ -0,0 +1,27 @@
+package com.kata.probe.controller.response.v1;
+
+import com.kata.probe.controller.response.ExecutionSummary;
+import com.kata.probe.domain.Coordinate;
+import com.kata.probe.domain.Direction;
+import com.kata.probe.service.Simulation;
+
+/**
+ * Outcome of a dry run. {@code version} is the probe version it started from; sending the same
+ * program with {@code If-Match} set to it applies exactly this outcome, unless another probe
+ * on a shared terrain has moved into the way since.
+ */
+public class SimulationResponse {
+    public Coordinate position;
+    public Direction direction;
+    public ExecutionSummary summary;
+    public long version;
+
+    public static SimulationResponse from(Simulation simulation) {
+        SimulationResponse response = new SimulationResponse();
+        response.position = simulation.position();
+        response.direction = simulation.direction();
+        response.summary = simulation.summary();
+        response.version = simulation.version();
+        return response;
+    }
+}
@@ -0,0 +1,29 @@
+package com.kata.probe.controller.response.v1;
+
+import com.kata.probe.domain.Terrain;
+
+public class TerrainResponse {
+    public String name;
+    public int width;
+    public int height;
+    public int obstacleCount;
+    public long memoryBytes;
+
+    public TerrainResponse(String name, int width, int height, int obstacleCount, long memoryBytes) {
+        this.name = name;
+        this.width = width;
+        this.height = height;
+        this.obstacleCount = obstacleCount;
+        this.memoryBytes = memoryBytes;
+    }
+
+    public static TerrainResponse from(Terrain terrain) {
+        return new TerrainResponse(
+                terrain.name(),
+                terrain.grid().width(),
+                terrain.grid().height(),
+                terrain.obstacles().size(),
+                terrain.obstacles().memoryBytes()
+        );
+    }
+}
@@ -0,0 +1,187 @@
+package com.kata.probe.controller.v1;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kata.probe.controller.response.v1.ProbeDeltaResponse;
+import com.kata.probe.domain.ProbeView;
+import com.kata.probe.domain.commands.CommandProgram;
+import com.kata.probe.exception.GlobalExceptionHandler;
+import com.kata.probe.service.ProbeStateService;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Feeds a stream of program lines into one probe and writes back an NDJSON update per batch.
+ * <p>
+ * Every complete line that has already arrived when the previous batch finishes is applied
+ * together as one batch, so a fast sender is served in a few large batches and a slow one
+ * (a keystroke at a time) gets an update per line. Nothing more is read until the update for
+ * the current batch is written, so a client that stops reading stops the server reading too.
+ * <p>
+ * Each line is parsed on its own: a malformed line is answered with an error naming its line
+ * number, written after the update for the rest of its batch, and does not hold back the
+ * others. A batch stops short of the service's program length limit; the lines after it form
+ * the next batch. A line longer than {@link #MAX_BATCH_BYTES} is answered with an error and
+ * ends the stream.
+ */
+final class CommandStream {
+
+    private static final Logger log = LoggerFactory.getLogger(CommandStream.class);
+
+    // Upper bound on a single batch; anything beyond waits for the next one
+    static final int MAX_BATCH_BYTES = 64 * 1024;
+
+    private final ProbeStateService service;
+    private final ObjectMapper mapper;
+    private final UUID id;
+    // Lines seen so far, blank ones included, for numbering errors
+    private long lines;
+    private int batches;
+
+    CommandStream(ProbeStateService service, ObjectMapper mapper, UUID id) {
+        this.service = service;
+        this.mapper = mapper;
+        this.id = id;
+    }
+
+    /**
+     * Runs until the client ends its request body. Returns the number of batches applied.
+     */
+    int run(InputStream in, OutputStream out) throws IOException {
+        byte[] buffer = new byte[MAX_BATCH_BYTES];
+        int filled = 0;
+        while (true) {
+            // Block for at least one byte, then take whatever else is already here
+            int n = in.read(buffer, filled, buffer.length - filled);
+            if (n < 0) {
+                applyAll(buffer, filled, out);
+                return batches;
+            }
+            filled += n;
+            while (filled < buffer.length && in.available() > 0) {
+                n = in.read(buffer, filled, Math.min(in.available(), buffer.length - filled));
+                if (n <= 0) {
+                    break;
+                }
+                filled += n;
+            }
+
+            int end = lastLineEnd(buffer, filled);
+            if (end < 0) {
+                if (filled == buffer.length) {
+                    // Nothing after this can be split into lines reliably; answer and stop reading
+                    log.debug("Closing command stream for probe ID={}: line {} is too long", id, lines + 1);
+                    write(lineError(lines + 1, new IllegalArgumentException(
+                            "Program line longer than " + MAX_BATCH_BYTES + " bytes")), out);
+                    return batches;
+                }
+                continue; // a line is still arriving
+            }
+            applyAll(buffer, end, out);
+            System.arraycopy(buffer, end, buffer, 0, filled - end);
+            filled -= end;
+        }
+    }
+
+    private void applyAll(byte[] buffer, int length, OutputStream out) throws IOException {
+        for (int start = 0; start < length; ) {
+            start = apply(buffer, start, length, out);
+        }
+    }
+
+    /**
+     * Applies the lines from {@code start} as one batch, up to {@code end} or the last line that
+     * keeps the batch within the program length limit, and returns where the next batch starts.
+     */
+    private int apply(byte[] buffer, int start, int end, OutputStream out) throws IOException {
+        long maxLength = service.maxProgramLength();
+        CommandProgram batch = new CommandProgram();
+        boolean valid = false;
+        List<Object> errors = new ArrayList<>();
+        int next = start;
+        while (next < end) {
+            int lineEnd = lineEnd(buffer, next, end);
+            String line = new String(buffer, next, lineEnd - next, StandardCharsets.US_ASCII);
+            int after = Math.min(lineEnd + 1, end);
+            if (line.isBlank()) {
+                lines++;
+                next = after;
+                continue; // keep-alive
+            }
+            try {
+                CommandProgram program = CommandProgram.parse(line, maxLength);
+                if (valid && batch.length() + program.length() > maxLength) {
+                    break; // read again as the first line of the next batch
+                }
+                batch.append(program);
+                valid = true;
+                lines++;
+            } catch (IllegalArgumentException e) {
+                // A bad line is reported in the stream; the other lines and the stream carry on
+                lines++;
+                log.debug("Rejected streamed line {} for probe ID={}: {}", lines, id, e.getMessage());
+                errors.add(lineError(lines, e));
+            }
+            next = after;
+        }
+        if (valid) {
+            Object update;
+            try {
+                ProbeView view = service.apply(id, batch, null);
+                update = ProbeDeltaResponse.from(view);
+            } catch (IllegalArgumentException e) {
+                log.debug("Rejected streamed batch for probe ID={}: {}", id, e.getMessage());
+                update = Map.of("error", GlobalExceptionHandler.toApiError(e));
+            }
+            write(update, out);
+        }
+        for (Object error : errors) {
+            write(error, out);
+        }
+        if (valid || !errors.isEmpty()) {
+            batches++;
+        }
+        return next;
+    }
+
+    private static Map<String, Object> lineError(long line, IllegalArgumentException e) {
+        return Map.of("error", GlobalExceptionHandler.toApiError(e), "line", line);
+    }
+
+    private void write(Object update, OutputStream out) throws IOException {
+        out.write(mapper.writeValueAsBytes(update));
+        out.write('\n');
+        out.flush();
+    }
+
+    /**
+     * Index of the line feed ending the line at {@code from}, or {@code end} for an unterminated last
+     * line. A carriage return before it is left in the line, where it counts as whitespace.
+     */
+    private static int lineEnd(byte[] buffer, int from, int end) {
+        for (int i = from; i < end; i++) {
+            if (buffer[i] == '\n') {
+                return i;
+            }
+        }
+        return end;
+    }
+
+    private static int lastLineEnd(byte[] buffer, int length) {
+        for (int i = length - 1; i >= 0; i--) {
+            if (buffer[i] == '\n') {
+                return i + 1;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,35 @@
+package com.kata.probe.controller.v1;
+
+import com.kata.probe.exception.MalformedHeaderException;
+
+/**
+ * Probe versions travel as strong entity tags: version 3 is {@code "3"}.
+ */
+public final class ETags {
+
+    private ETags() {}
+
+    public static String of(long version) {
+        return "\"" + version + "\"";
+    }
+
+    /**
+     * Returns the version required by an {@code If-Match} header, or {@code null} when any version will do.
+     * {@code If-Match} compares strongly (RFC 9110), so a weak tag could never match and is rejected
+     * like an unquoted one.
+     */
+    static Long expectedVersion(String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        String tag = ifMatch.trim();
+        if (tag.length() < 2 || !tag.startsWith("\"") || !tag.endsWith("\"")) {
+            throw new MalformedHeaderException("If-Match", ifMatch);
+        }
+        try {
+            return Long.parseLong(tag.substring(1, tag.length() - 1));
+        } catch (NumberFormatException e) {
+            throw new MalformedHeaderException("If-Match", ifMatch);
+        }
+    }
+}
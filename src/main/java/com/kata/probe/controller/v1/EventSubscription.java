@@ -0,0 +1,100 @@
+package com.kata.probe.controller.v1;
+
+import com.kata.probe.event.EventProperties;
+import com.kata.probe.event.ProbeEvent;
+import com.kata.probe.event.ProbeEventBus;
+import com.kata.probe.event.ProbeEventFilter;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.MediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * One SSE client reading the event bus from its own cursor. Runs on its own virtual thread
+ * until the client goes away; publishers are never slowed down by it.
+ */
+final class EventSubscription implements Runnable {
+
+    private static final Logger log = LoggerFactory.getLogger(EventSubscription.class);
+
+    private static final int DRAIN_BATCH = 256;
+
+    private final ProbeEventBus bus;
+    private final ProbeEventFilter filter;
+    private final long keepAliveNanos;
+    private final SseEmitter emitter = new SseEmitter(0L); // no timeout; ends when the client leaves
+    private volatile boolean closed;
+    private volatile Thread runner;
+    private long cursor;
+    private long lastWrite;
+
+    EventSubscription(ProbeEventBus bus, ProbeEventFilter filter, long cursor, EventProperties properties) {
+        this.bus = bus;
+        this.filter = filter;
+        this.cursor = cursor;
+        this.keepAliveNanos = properties.keepAlive().toNanos();
+        emitter.onCompletion(this::close);
+        emitter.onTimeout(this::close);
+        emitter.onError(e -> close());
+    }
+
+    SseEmitter emitter() {
+        return emitter;
+    }
+
+    @Override
+    public void run() {
+        runner = Thread.currentThread();
+        try {
+            emitter.send(SseEmitter.event().comment("subscribed"));
+            lastWrite = System.nanoTime();
+            while (!closed) {
+                long before = cursor;
+                cursor = bus.drain(cursor, DRAIN_BATCH, this::deliver);
+                if (cursor == before) {
+                    long quiet = System.nanoTime() - lastWrite;
+                    if (quiet >= keepAliveNanos) {
+                        emitter.send(SseEmitter.event().comment("keep-alive"));
+                        lastWrite = System.nanoTime();
+                        quiet = 0;
+                    }
+                    // Woken by the next publish, or when the keep-alive is due
+                    bus.await(cursor, keepAliveNanos - quiet);
+                }
+            }
+        } catch (IOException | UncheckedIOException | IllegalStateException e) {
+            log.debug("Event subscription closed: {}", e.getMessage());
+        } finally {
+            closed = true;
+            emitter.complete();
+        }
+    }
+
+    private void close() {
+        closed = true;
+        Thread thread = runner;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    private void deliver(long sequence, ProbeEvent event) {
+        if (!filter.test(event)) {
+            return;
+        }
+        try {
+            emitter.send(SseEmitter.event()
+                    .id(Long.toString(sequence))
+                    .name(event.type())
+                    .data(event, MediaType.APPLICATION_JSON));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        lastWrite = System.nanoTime();
+    }
+}
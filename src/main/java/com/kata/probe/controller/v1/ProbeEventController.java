@@ -0,0 +1,65 @@
+package com.kata.probe.controller.v1;
+
+import com.kata.probe.event.EventProperties;
+import com.kata.probe.event.ProbeEventBus;
+import com.kata.probe.event.ProbeEventFilter;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.UUID;
+
+@RestController
+@RequestMapping("/v1/probe")
+public class ProbeEventController {
+
+    private static final Logger log = LoggerFactory.getLogger(ProbeEventController.class);
+    private final ProbeEventBus bus;
+    private final EventProperties properties;
+
+    public ProbeEventController(ProbeEventBus bus, EventProperties properties) {
+        this.bus = bus;
+        this.properties = properties;
+    }
+
+    /**
+     * Server-sent events for probes that move or get blocked, optionally only for the given
+     * probes ({@code probe}, repeatable), for those on one {@code terrain} and/or for those ending up
+     * inside a region of it. Reconnecting with {@code Last-Event-ID} resumes after that event if it is still held.
+     */
+    @GetMapping(value = "/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter subscribe(
+            @RequestParam(required = false) List<UUID> probe,
+            @RequestParam(required = false) String terrain,
+            @RequestParam(required = false) Integer minX,
+            @RequestParam(required = false) Integer minY,
+            @RequestParam(required = false) Integer maxX,
+            @RequestParam(required = false) Integer maxY,
+            @RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId
+    ) {
+        ProbeEventFilter filter = new ProbeEventFilter(probe == null ? null : new HashSet<>(probe), terrain,
+                region(minX, minY, maxX, maxY));
+        long head = bus.head();
+        long cursor = lastEventId == null ? head : Math.max(0, Math.min(lastEventId + 1, head));
+        log.info("New event subscription from sequence {}: {}", cursor, filter);
+
+        EventSubscription subscription = new EventSubscription(bus, filter, cursor, properties);
+        Thread.ofVirtual().name("probe-events").start(subscription);
+        return subscription.emitter();
+    }
+
+    private static ProbeEventFilter.Region region(Integer minX, Integer minY, Integer maxX, Integer maxY) {
+        if (minX == null && minY == null && maxX == null && maxY == null) {
+            return null;
+        }
+        if (minX == null || minY == null || maxX == null || maxY == null) {
+            throw new IllegalArgumentException("A region needs minX, minY, maxX and maxY");
+        }
+        return new ProbeEventFilter.Region(minX, minY, maxX, maxY);
+    }
+}
@@ -0,0 +1,93 @@
+package com.kata.probe.controller.v1;
+
+import com.kata.probe.controller.response.v1.LocatedProbeResponse;
+import com.kata.probe.controller.response.v1.ProbeSearchResponse;
+import com.kata.probe.repository.ProbeLocationIndex.Location;
+import com.kata.probe.service.ProbeStateService;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+/**
+ * Finds probes by where they are rather than by ID. Every query names a shared terrain, the only
+ * coordinate space probes have in common; probes on private grids cannot be found this way.
+ */
+@RestController
+@RequestMapping("/v1/probes")
+public class ProbeQueryController {
+
+    private static final Logger log = LoggerFactory.getLogger(ProbeQueryController.class);
+    static final int MAX_RESULTS = 10_000;
+
+    private final ProbeStateService service;
+
+    public ProbeQueryController(ProbeStateService service) {
+        this.service = service;
+    }
+
+    /**
+     * Probes on {@code terrain} inside {@code bbox=minX,minY,maxX,maxY} (inclusive).
+     */
+    @GetMapping
+    public ProbeSearchResponse within(
+            @RequestParam String bbox,
+            @RequestParam String terrain,
+            @RequestParam(defaultValue = "1000") int limit
+    ) {
+        log.debug("Region query bbox={} terrain={} limit={}", bbox, terrain, limit);
+        checkLimit(limit);
+        int[] box = parseBbox(bbox);
+
+        // One extra tells a full page apart from a truncated one
+        List<Location> found = service.within(box[0], box[1], box[2], box[3], terrain, limit + 1);
+        boolean truncated = found.size() > limit;
+        List<LocatedProbeResponse> probes = (truncated ? found.subList(0, limit) : found).stream()
+                .map(LocatedProbeResponse::from)
+                .toList();
+        return new ProbeSearchResponse(probes, truncated);
+    }
+
+    /**
+     * The {@code k} probes on {@code terrain} closest to {@code (x, y)}, nearest first, with their distance.
+     */
+    @GetMapping("/nearest")
+    public ProbeSearchResponse nearest(
+            @RequestParam int x,
+            @RequestParam int y,
+            @RequestParam(defaultValue = "1") int k,
+            @RequestParam String terrain
+    ) {
+        log.debug("Nearest query ({}, {}) k={} terrain={}", x, y, k, terrain);
+        checkLimit(k);
+
+        List<LocatedProbeResponse> probes = service.nearest(x, y, k, terrain).stream()
+                .map(l -> LocatedProbeResponse.from(l, x, y))
+                .toList();
+        return new ProbeSearchResponse(probes, false);
+    }
+
+    private static void checkLimit(int limit) {
+        if (limit < 1 || limit > MAX_RESULTS) {
+            throw new IllegalArgumentException("Limit must be between 1 and " + MAX_RESULTS + ": " + limit);
+        }
+    }
+
+    private static int[] parseBbox(String bbox) {
+        String[] parts = bbox.split(",");
+        if (parts.length != 4) {
+            throw new IllegalArgumentException("bbox must be minX,minY,maxX,maxY: " + bbox);
+        }
+        int[] box = new int[4];
+        try {
+            for (int i = 0; i < 4; i++) {
+                box[i] = Integer.parseInt(parts[i].trim());
+            }
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("bbox must be minX,minY,maxX,maxY: " + bbox);
+        }
+        return box;
+    }
+}
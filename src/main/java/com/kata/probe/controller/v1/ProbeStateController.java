@@ -1,15 +1,50 @@
 package com.kata.probe.controller.v1;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.kata.probe.controller.request.v1.ApplyCommandsRequest;
+import com.kata.probe.controller.request.v1.BatchApplyCommandsRequest;
+import com.kata.probe.controller.request.v1.BatchCreateProbesRequest;
 import com.kata.probe.controller.request.v1.CreateProbeRequest;
+import com.kata.probe.controller.request.v1.PlanRequest;
+import com.kata.probe.controller.response.v1.BatchApplyResponse;
+import com.kata.probe.controller.response.v1.BatchCreateEntryResponse;
+import com.kata.probe.controller.response.v1.BatchCreateResponse;
+import com.kata.probe.controller.response.v1.BatchEntryResponse;
 import com.kata.probe.controller.response.v1.CreateProbeResponse;
+import com.kata.probe.controller.response.v1.PathPageResponse;
+import com.kata.probe.controller.response.v1.PlanResponse;
+import com.kata.probe.controller.response.v1.ProbeDeltaResponse;
 import com.kata.probe.controller.response.v1.ProbeStateResponse;
+import com.kata.probe.controller.response.v1.ProbeSummaryResponse;
+import com.kata.probe.controller.response.v1.SimulationResponse;
+import com.kata.probe.domain.PathStore;
+import com.kata.probe.domain.ProbeView;
+import com.kata.probe.domain.commands.CommandProgram;
+import com.kata.probe.exception.GlobalExceptionHandler;
+import com.kata.probe.service.BatchOutcome;
+import com.kata.probe.service.CreateOutcome;
+import com.kata.probe.service.ProbeSpec;
 import com.kata.probe.service.ProbeStateService;
 
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 @RestController
@@ -17,55 +52,292 @@ import java.util.UUID;
 public class ProbeStateController {
 
     private static final Logger log = LoggerFactory.getLogger(ProbeStateController.class);
+    static final int MAX_PAGE_SIZE = 10_000;
+    static final int MAX_BATCH_CREATE = 100_000;
+    private static final int EXPORT_CHUNK_CHARS = 16 * 1024;
+
     private final ProbeStateService service;
+    private final ObjectMapper mapper;
 
-    public ProbeStateController(ProbeStateService service) {
+    public ProbeStateController(ProbeStateService service, ObjectMapper mapper) {
         this.service = service;
+        this.mapper = mapper;
     }
 
     @PostMapping
     public CreateProbeResponse create(@RequestBody CreateProbeRequest req) {
-        log.info("Received probe creation request: {}", req);
+        log.debug("Received probe creation request: {}", req);
 
-        UUID id = service.create(
-                req.gridWidth,
-                req.gridHeight,
-                req.start,
-                req.direction
-        );
+        UUID id = service.create(req.toSpec());
 
         log.debug("Returning created probe ID={}", id);
         return new CreateProbeResponse(id);
     }
 
+    /**
+     * Creates many probes in one request. Results keep the order of {@code probes}; a spec that
+     * fails validation is reported in its own entry and does not stop the others.
+     */
+    @PostMapping("/batch")
+    public BatchCreateResponse createBatch(@RequestBody BatchCreateProbesRequest req) {
+        log.debug("Request to create {} probes", req.probes == null ? 0 : req.probes.size());
+
+        if (req.probes != null && req.probes.size() > MAX_BATCH_CREATE) {
+            throw new IllegalArgumentException("At most " + MAX_BATCH_CREATE + " probes per request");
+        }
+        List<ProbeSpec> specs = req.probes == null ? null : new ArrayList<>(req.probes.size());
+        if (req.probes != null) {
+            for (CreateProbeRequest probe : req.probes) {
+                specs.add(probe == null ? null : probe.toSpec());
+            }
+        }
+        List<CreateOutcome> outcomes = service.createAll(specs);
+
+        List<BatchCreateEntryResponse> results = new ArrayList<>(outcomes.size());
+        int created = 0;
+        for (CreateOutcome outcome : outcomes) {
+            if (outcome.succeeded()) {
+                created++;
+            }
+            results.add(BatchCreateEntryResponse.from(outcome));
+        }
+        return new BatchCreateResponse(created, outcomes.size() - created, results);
+    }
+
     @GetMapping("/{id}")
-    public ProbeStateResponse get(@PathVariable UUID id) {
-        log.info("Request to fetch probe ID={}", id);
+    public ResponseEntity<ProbeStateResponse> get(@PathVariable UUID id, WebRequest request) {
+        log.debug("Request to fetch probe ID={}", id);
+
+        var view = service.view(id);
+
+        String etag = ETags.of(view.version());
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+        return ResponseEntity.ok().eTag(etag).body(ProbeStateResponse.from(view));
+    }
+
+    /**
+     * Position, direction, summary and version only; cheap enough to poll.
+     */
+    @GetMapping("/{id}/state")
+    public ResponseEntity<ProbeSummaryResponse> state(@PathVariable UUID id, WebRequest request) {
+        log.debug("Request to fetch state of probe ID={}", id);
+
+        var view = service.view(id);
+
+        String etag = ETags.of(view.version());
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+        return ResponseEntity.ok().eTag(etag).body(ProbeSummaryResponse.from(view));
+    }
+
+    /**
+     * Steps {@code [offset, offset + limit)} of the visited path.
+     */
+    @GetMapping("/{id}/path")
+    public ResponseEntity<PathPageResponse> path(
+            @PathVariable UUID id,
+            @RequestParam(defaultValue = "0") int offset,
+            @RequestParam(defaultValue = "1000") int limit,
+            WebRequest request
+    ) {
+        log.debug("Request to fetch path of probe ID={} from {} (limit {})", id, offset, limit);
+
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        var view = service.view(id);
+        if (offset < 0 || offset > view.pathLength()) {
+            throw new IllegalArgumentException("offset must be between 0 and the path length " + view.pathLength());
+        }
+
+        String etag = ETags.of(view.version());
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+        int to = (int) Math.min((long) offset + limit, view.pathLength());
+        var steps = view.path().asList(offset, to);
+        return ResponseEntity.ok().eTag(etag)
+                .body(new PathPageResponse(offset, view.pathLength(), steps, view.version()));
+    }
 
-        var agg = service.get(id);
+    /**
+     * The whole visited path as NDJSON, one {@code {"x":..,"y":..}} line per step, written
+     * straight from the packed path without building a list.
+     */
+    @GetMapping(value = "/{id}/path/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportPath(@PathVariable UUID id) {
+        log.debug("Request to export path of probe ID={}", id);
 
-        return new ProbeStateResponse(
-                agg.getProbe().getPosition(),
-                agg.getProbe().getDirection(),
-                agg.getVisited(),
-                agg.getSummary()
-        );
+        var view = service.view(id);
+        PathStore path = view.path();
+        int length = view.pathLength();
+        StreamingResponseBody body = out -> writeNdjson(path, length, out);
+        return ResponseEntity.ok()
+                .eTag(ETags.of(view.version()))
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+
+    private static void writeNdjson(PathStore path, int length, OutputStream out) throws IOException {
+        StringBuilder chunk = new StringBuilder(EXPORT_CHUNK_CHARS + 64);
+        for (int i = 0; i < length; i++) {
+            long p = path.packedAt(i);
+            chunk.append("{\"x\":").append(PathStore.unpackX(p))
+                    .append(",\"y\":").append(PathStore.unpackY(p)).append("}\n");
+            if (chunk.length() >= EXPORT_CHUNK_CHARS) {
+                out.write(chunk.toString().getBytes(StandardCharsets.US_ASCII));
+                chunk.setLength(0);
+            }
+        }
+        out.write(chunk.toString().getBytes(StandardCharsets.US_ASCII));
+        out.flush();
     }
 
     @PostMapping("/{id}/commands")
-    public ProbeStateResponse apply(
+    public ResponseEntity<ProbeStateResponse> apply(
+            @PathVariable UUID id,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+            @RequestBody ApplyCommandsRequest req
+    ) {
+        var program = req.toProgram(service.maxProgramLength());
+        log.debug("Request to apply {} commands to probe ID={}", program.length(), id);
+
+        return applied(service.apply(id, program, ETags.expectedVersion(ifMatch)));
+    }
+
+    /**
+     * Packed program sent as the raw body, e.g. {@code 10F2R5B}; parsed while it is read.
+     */
+    @PostMapping(value = "/{id}/commands", consumes = MediaType.TEXT_PLAIN_VALUE)
+    public ResponseEntity<ProbeStateResponse> applyPacked(
+            @PathVariable UUID id,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+            Reader body
+    ) {
+        var program = CommandProgram.parse(body, service.maxProgramLength());
+        log.debug("Request to apply {} packed commands to probe ID={}", program.length(), id);
+
+        return applied(service.apply(id, program, ETags.expectedVersion(ifMatch)));
+    }
+
+    /**
+     * Same as {@link #apply} but answers with only the steps this batch added.
+     */
+    @PostMapping(value = "/{id}/commands", params = "delta=true")
+    public ResponseEntity<ProbeDeltaResponse> applyDelta(
             @PathVariable UUID id,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
             @RequestBody ApplyCommandsRequest req
     ) {
-        log.info("Request to apply commands to probe ID={}: {}", id, req.commands);
+        var program = req.toProgram(service.maxProgramLength());
+        log.debug("Request to apply {} commands to probe ID={} (delta)", program.length(), id);
+
+        return appliedDelta(service.apply(id, program, ETags.expectedVersion(ifMatch)));
+    }
+
+    @PostMapping(value = "/{id}/commands", params = "delta=true", consumes = MediaType.TEXT_PLAIN_VALUE)
+    public ResponseEntity<ProbeDeltaResponse> applyPackedDelta(
+            @PathVariable UUID id,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+            Reader body
+    ) {
+        var program = CommandProgram.parse(body, service.maxProgramLength());
+        log.debug("Request to apply {} packed commands to probe ID={} (delta)", program.length(), id);
+
+        return appliedDelta(service.apply(id, program, ETags.expectedVersion(ifMatch)));
+    }
+
+    /**
+     * Dry run: where the batch would leave the probe, without changing it.
+     */
+    @PostMapping("/{id}/simulate")
+    public SimulationResponse simulate(@PathVariable UUID id, @RequestBody ApplyCommandsRequest req) {
+        var program = req.toProgram(service.maxProgramLength());
+        log.debug("Request to simulate {} commands on probe ID={}", program.length(), id);
+
+        return SimulationResponse.from(service.simulate(id, program));
+    }
+
+    @PostMapping(value = "/{id}/simulate", consumes = MediaType.TEXT_PLAIN_VALUE)
+    public SimulationResponse simulatePacked(@PathVariable UUID id, Reader body) {
+        var program = CommandProgram.parse(body, service.maxProgramLength());
+        log.debug("Request to simulate {} packed commands on probe ID={}", program.length(), id);
+
+        return SimulationResponse.from(service.simulate(id, program));
+    }
+
+    /**
+     * Shortest F/B/L/R program from the probe's current position and direction to the target,
+     * planned around known obstacles. With {@code execute} it is applied straight away.
+     */
+    @PostMapping("/{id}/plan")
+    public PlanResponse plan(@PathVariable UUID id, @RequestBody PlanRequest req) {
+        log.debug("Request to plan a route for probe ID={} to {} (execute={})", id, req.target, req.execute);
+
+        return PlanResponse.from(service.plan(id, req.target, req.execute));
+    }
+
+    /**
+     * Long-lived command channel: the request body is a stream of program lines (one keystroke
+     * can be a line of its own) and the response an NDJSON stream of delta updates, one per
+     * micro-batch. See {@link CommandStream}. Holds its request thread for as long as the client
+     * keeps the stream open, which is cheap with virtual threads enabled.
+     */
+    @PostMapping(value = "/{id}/commands/stream", consumes = MediaType.TEXT_PLAIN_VALUE,
+            produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public void stream(@PathVariable UUID id, HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+        // Unknown probes get a plain 404 before the stream starts
+        service.view(id);
+        log.info("Opening command stream for probe ID={}", id);
+
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        response.flushBuffer();
+        int batches = new CommandStream(service, mapper, id).run(request.getInputStream(), response.getOutputStream());
+
+        log.info("Command stream for probe ID={} closed after {} batches", id, batches);
+    }
+
+    private static ResponseEntity<ProbeStateResponse> applied(ProbeView view) {
+        return ResponseEntity.ok()
+                .eTag(ETags.of(view.version()))
+                .body(ProbeStateResponse.from(view));
+    }
+
+    private static ResponseEntity<ProbeDeltaResponse> appliedDelta(ProbeView view) {
+        return ResponseEntity.ok()
+                .eTag(ETags.of(view.version()))
+                .body(ProbeDeltaResponse.from(view));
+    }
+
+    @PostMapping("/batch/commands")
+    public BatchApplyResponse applyBatch(@RequestBody BatchApplyCommandsRequest req) {
+        log.debug("Request to apply commands to {} probes",
+                req.programs != null ? req.programs.size() : req.commands == null ? 0 : req.commands.size());
 
-        var agg = service.apply(id, req.commands);
+        if (req.commands != null && req.programs != null) {
+            throw new IllegalArgumentException("Send either commands or programs, not both");
+        }
+        long maxLength = service.maxProgramLength();
+        var outcomes = req.programs != null
+                ? service.applyBatch(req.programs, program -> CommandProgram.parse(program, maxLength))
+                : service.applyBatch(req.commands, commands -> CommandProgram.compile(commands, maxLength));
 
-        return new ProbeStateResponse(
-                agg.getProbe().getPosition(),
-                agg.getProbe().getDirection(),
-                agg.getVisited(),
-                agg.getSummary()
-        );
+        Map<UUID, BatchEntryResponse> results = new LinkedHashMap<>(outcomes.size() * 4 / 3 + 1);
+        int succeeded = 0;
+        for (var entry : outcomes.entrySet()) {
+            BatchOutcome outcome = entry.getValue();
+            if (outcome.succeeded()) {
+                succeeded++;
+                results.put(entry.getKey(), BatchEntryResponse.ok(outcome.view()));
+            } else {
+                results.put(entry.getKey(),
+                        BatchEntryResponse.failed(GlobalExceptionHandler.toApiError(outcome.error())));
+            }
+        }
+        return new BatchApplyResponse(succeeded, outcomes.size() - succeeded, results);
     }
 }
@@ -0,0 +1,79 @@
+package com.kata.probe.controller.v1;
+
+import com.kata.probe.controller.request.v1.DistancesRequest;
+import com.kata.probe.controller.response.v1.DistancesResponse;
+import com.kata.probe.controller.response.v1.ReachabilityResponse;
+import com.kata.probe.domain.Coordinate;
+import com.kata.probe.domain.planning.DistanceField;
+import com.kata.probe.service.ReachabilityService;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Reachability and move distances from a probe's current cell, answered from cached distance fields.
+ */
+@RestController
+@RequestMapping("/v1/probe")
+public class ReachabilityController {
+
+    private static final Logger log = LoggerFactory.getLogger(ReachabilityController.class);
+    static final int MAX_TARGETS = 10_000;
+
+    private final ReachabilityService service;
+
+    public ReachabilityController(ReachabilityService service) {
+        this.service = service;
+    }
+
+    @GetMapping("/{id}/reachable")
+    public ReachabilityResponse reachable(@PathVariable UUID id) {
+        log.debug("Request for reachable cells of probe ID={}", id);
+
+        return ReachabilityResponse.from(service.distances(id));
+    }
+
+    @PostMapping("/{id}/distances")
+    public DistancesResponse distances(@PathVariable UUID id, @RequestBody DistancesRequest req) {
+        if (req.targets == null || req.targets.isEmpty() || req.targets.size() > MAX_TARGETS) {
+            throw new IllegalArgumentException("Between 1 and " + MAX_TARGETS + " targets are required");
+        }
+        log.debug("Request for distances from probe ID={} to {} targets", id, req.targets.size());
+
+        DistanceField field = service.distances(id);
+        List<Integer> distances = new ArrayList<>(req.targets.size());
+        for (Coordinate target : req.targets) {
+            if (target == null) {
+                throw new IllegalArgumentException("Target must not be null");
+            }
+            int d = field.distance(target.x(), target.y());
+            distances.add(d == DistanceField.UNREACHABLE ? null : d);
+        }
+        return new DistancesResponse(new Coordinate(field.originX(), field.originY()), distances);
+    }
+
+    /**
+     * The whole field as big-endian 32-bit integers, row-major, -1 for unreachable cells.
+     * The grid size comes in the {@code X-Grid-Width} and {@code X-Grid-Height} headers.
+     */
+    @GetMapping(value = "/{id}/distances", produces = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportDistances(@PathVariable UUID id) {
+        log.debug("Request to export the distance field of probe ID={}", id);
+
+        DistanceField field = service.distances(id);
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                .contentLength(4L * field.width() * field.height())
+                .header("X-Grid-Width", String.valueOf(field.width()))
+                .header("X-Grid-Height", String.valueOf(field.height()))
+                .body(field::writeTo);
+    }
+}
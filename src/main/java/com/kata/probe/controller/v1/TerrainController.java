@@ -0,0 +1,33 @@
+package com.kata.probe.controller.v1;
+
+import com.kata.probe.controller.request.v1.RegisterTerrainRequest;
+import com.kata.probe.controller.response.v1.TerrainResponse;
+import com.kata.probe.service.TerrainService;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/v1/terrain")
+public class TerrainController {
+
+    private static final Logger log = LoggerFactory.getLogger(TerrainController.class);
+    private final TerrainService service;
+
+    public TerrainController(TerrainService service) {
+        this.service = service;
+    }
+
+    @PostMapping
+    public TerrainResponse register(@RequestBody RegisterTerrainRequest req) {
+        log.info("Received terrain registration: name={}, grid={}x{}", req.name, req.width, req.height);
+
+        return TerrainResponse.from(service.register(req.name, req.width, req.height, req.obstacles));
+    }
+
+    @GetMapping("/{name}")
+    public TerrainResponse get(@PathVariable String name) {
+        return TerrainResponse.from(service.get(name));
+    }
+}
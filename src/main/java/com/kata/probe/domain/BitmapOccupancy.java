@@ -0,0 +1,53 @@
+package com.kata.probe.domain;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * One bit per grid cell, row-major, set and cleared with CAS on the containing word.
+ */
+public final class BitmapOccupancy implements Occupancy {
+
+    private final int width;
+    private final AtomicLongArray bits;
+
+    public BitmapOccupancy(int width, int height) {
+        this.width = width;
+        this.bits = new AtomicLongArray((int) (((long) width * height + 63) >>> 6));
+    }
+
+    @Override
+    public boolean claim(int x, int y) {
+        long cell = (long) y * width + x;
+        int word = (int) (cell >>> 6);
+        long mask = 1L << cell;
+        long current;
+        do {
+            current = bits.get(word);
+            if ((current & mask) != 0) {
+                return false;
+            }
+        } while (!bits.compareAndSet(word, current, current | mask));
+        return true;
+    }
+
+    @Override
+    public void release(int x, int y) {
+        long cell = (long) y * width + x;
+        bits.getAndAccumulate((int) (cell >>> 6), ~(1L << cell), (word, mask) -> word & mask);
+    }
+
+    @Override
+    public boolean isOccupied(int x, int y) {
+        long cell = (long) y * width + x;
+        return (bits.get((int) (cell >>> 6)) & (1L << cell)) != 0;
+    }
+
+    @Override
+    public long count() {
+        long count = 0;
+        for (int i = 0; i < bits.length(); i++) {
+            count += Long.bitCount(bits.get(i));
+        }
+        return count;
+    }
+}
@@ -0,0 +1,160 @@
+package com.kata.probe.domain;
+
+/**
+ * One bit per grid cell, row-major. The bitset is only allocated when the first obstacle is
+ * added, so probes without obstacles cost nothing.
+ */
+public final class DenseObstacleIndex implements ObstacleIndex {
+
+    private final int width;
+    private final int height;
+    private long[] bits;
+    private int size;
+    private boolean frozen;
+
+    public DenseObstacleIndex(int width, int height) {
+        if ((long) width * height > Integer.MAX_VALUE * 64L) {
+            throw new IllegalArgumentException("Grid too large for a dense obstacle index: " + width + "x" + height);
+        }
+        this.width = width;
+        this.height = height;
+    }
+
+    @Override
+    public boolean contains(int x, int y) {
+        long[] b = bits;
+        if (b == null || x < 0 || x >= width || y < 0 || y >= height) {
+            return false;
+        }
+        long cell = (long) y * width + x;
+        return (b[(int) (cell >>> 6)] & (1L << cell)) != 0;
+    }
+
+    /**
+     * Rows are contiguous in the bitset, so horizontal runs skip 64 cells per word;
+     * vertical runs stride through it one row at a time.
+     */
+    @Override
+    public int freeRun(int x, int y, int dx, int dy, int limit) {
+        long[] b = bits;
+        if (b == null || limit <= 0) {
+            return Math.max(limit, 0);
+        }
+        if (x < 0 || x >= width || y < 0 || y >= height) {
+            return ObstacleIndex.super.freeRun(x, y, dx, dy, limit);
+        }
+        // Cells past the edge are never obstacles
+        int room = dx > 0 ? width - 1 - x : dx < 0 ? x : dy > 0 ? height - 1 - y : y;
+        int steps = Math.min(limit, room);
+        long cell = (long) y * width + x;
+
+        if (dx > 0) {
+            long hit = nextSetBit(b, cell + 1, cell + steps);
+            return hit < 0 ? limit : (int) (hit - cell - 1);
+        }
+        if (dx < 0) {
+            long hit = previousSetBit(b, cell - 1, cell - steps);
+            return hit < 0 ? limit : (int) (cell - 1 - hit);
+        }
+        long stride = (long) dy * width;
+        for (int i = 1; i <= steps; i++) {
+            cell += stride;
+            if ((b[(int) (cell >>> 6)] & (1L << cell)) != 0) {
+                return i - 1;
+            }
+        }
+        return limit;
+    }
+
+    /**
+     * First set bit in {@code [from, to]}, or -1.
+     */
+    private static long nextSetBit(long[] b, long from, long to) {
+        if (from > to) {
+            return -1;
+        }
+        int w = (int) (from >>> 6);
+        int last = (int) (to >>> 6);
+        long word = b[w] & (-1L << from);
+        while (word == 0) {
+            if (++w > last) {
+                return -1;
+            }
+            word = b[w];
+        }
+        long bit = ((long) w << 6) + Long.numberOfTrailingZeros(word);
+        return bit <= to ? bit : -1;
+    }
+
+    /**
+     * Last set bit in {@code [to, from]}, scanning downwards from {@code from}, or -1.
+     */
+    private static long previousSetBit(long[] b, long from, long to) {
+        if (from < to) {
+            return -1;
+        }
+        int w = (int) (from >>> 6);
+        int last = (int) (to >>> 6);
+        long word = b[w] & (-1L >>> (63 - (int) (from & 63)));
+        while (word == 0) {
+            if (--w < last) {
+                return -1;
+            }
+            word = b[w];
+        }
+        long bit = ((long) w << 6) + 63 - Long.numberOfLeadingZeros(word);
+        return bit >= to ? bit : -1;
+    }
+
+    @Override
+    public void add(int x, int y) {
+        if (frozen) {
+            throw new IllegalStateException("Obstacle index is shared and read-only");
+        }
+        if (x < 0 || x >= width || y < 0 || y >= height) {
+            throw new IllegalArgumentException("Obstacle out of bounds: (" + x + ", " + y + ")");
+        }
+        if (bits == null) {
+            bits = new long[(int) (((long) width * height + 63) >>> 6)];
+        }
+        long cell = (long) y * width + x;
+        int word = (int) (cell >>> 6);
+        long mask = 1L << cell;
+        if ((bits[word] & mask) == 0) {
+            bits[word] |= mask;
+            size++;
+        }
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void forEach(PathStore.PointConsumer consumer) {
+        long[] b = bits;
+        if (b == null) {
+            return;
+        }
+        for (int w = 0; w < b.length; w++) {
+            long word = b[w];
+            while (word != 0) {
+                long cell = ((long) w << 6) + Long.numberOfTrailingZeros(word);
+                consumer.accept((int) (cell % width), (int) (cell / width));
+                word &= word - 1;
+            }
+        }
+    }
+
+    @Override
+    public ObstacleIndex freeze() {
+        frozen = true;
+        return this;
+    }
+
+    @Override
+    public long memoryBytes() {
+        return 32L + (bits == null ? 0 : 16L + 8L * bits.length);
+    }
+}
@@ -1,9 +1,37 @@
 package com.kata.probe.domain;
 
+import java.util.concurrent.ConcurrentHashMap;
+
 public record Grid(int width, int height) {
 
+    // Bounded so arbitrary request sizes cannot grow it without limit
+    private static final int SHARED_LIMIT = 4096;
+    private static final ConcurrentHashMap<Long, Grid> SHARED = new ConcurrentHashMap<>();
+
+    /**
+     * The shared grid of this size. Probes of the same size hold one instance instead of one
+     * each; past {@value #SHARED_LIMIT} distinct sizes new ones are simply not shared.
+     */
+    public static Grid of(int width, int height) {
+        long key = ((long) width << 32) | (height & 0xFFFFFFFFL);
+        Grid grid = SHARED.get(key);
+        if (grid != null) {
+            return grid;
+        }
+        grid = new Grid(width, height);
+        if (SHARED.size() >= SHARED_LIMIT) {
+            return grid;
+        }
+        Grid existing = SHARED.putIfAbsent(key, grid);
+        return existing != null ? existing : grid;
+    }
+
     public boolean isWithinBounds(Coordinate c) {
-        return c.x() >= 0 && c.x() < width &&
-                c.y() >= 0 && c.y() < height;
+        return isWithinBounds(c.x(), c.y());
+    }
+
+    public boolean isWithinBounds(int x, int y) {
+        return x >= 0 && x < width &&
+                y >= 0 && y < height;
     }
 }
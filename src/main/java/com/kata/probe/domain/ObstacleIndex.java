@@ -0,0 +1,55 @@
+package com.kata.probe.domain;
+
+/**
+ * Set of blocked cells, looked up by primitive coordinates.
+ */
+public interface ObstacleIndex {
+
+    // Up to 64M cells (8 MB of bits) a flat bitset beats any sparse structure
+    long DENSE_CELL_LIMIT = 1L << 26;
+
+    boolean contains(int x, int y);
+
+    void add(int x, int y);
+
+    int size();
+
+    /**
+     * Number of free cells met when stepping from {@code (x, y)} by the unit vector
+     * {@code (dx, dy)}, stopping before the first obstacle and after at most {@code limit} steps.
+     * The start cell itself is not checked.
+     */
+    default int freeRun(int x, int y, int dx, int dy, int limit) {
+        for (int i = 1; i <= limit; i++) {
+            if (contains(x + dx * i, y + dy * i)) {
+                return i - 1;
+            }
+        }
+        return limit;
+    }
+
+    /**
+     * Visits every obstacle once, in no particular order.
+     */
+    void forEach(PathStore.PointConsumer consumer);
+
+    /**
+     * Makes the index read-only so it can be shared between probes; later {@link #add} calls fail.
+     */
+    ObstacleIndex freeze();
+
+    /**
+     * Approximate heap retained by the index, for footprint comparisons.
+     */
+    long memoryBytes();
+
+    /**
+     * Dense bitset for small and medium grids, tiled sparse bitmap for huge ones.
+     */
+    static ObstacleIndex forGrid(Grid grid) {
+        long cells = (long) grid.width() * grid.height();
+        return cells <= DENSE_CELL_LIMIT
+                ? new DenseObstacleIndex(grid.width(), grid.height())
+                : new TiledObstacleIndex();
+    }
+}
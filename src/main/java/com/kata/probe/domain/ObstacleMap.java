@@ -1,17 +1,108 @@
 package com.kata.probe.domain;
 
-import java.util.HashSet;
-import java.util.Set;
-
+/**
+ * Obstacles seen by one probe: an optional shared, read-only base (a registered terrain)
+ * plus the probe's own obstacles. The probe's own index is only created on its first write,
+ * so probes on a shared terrain cost one reference until they add something.
+ */
 public class ObstacleMap {
 
-    private final Set<Coordinate> obstacles = new HashSet<>();
+    private final ObstacleIndex base;
+    private final Grid grid;
+    private ObstacleIndex overlay;
+    private long version;
+
+    public ObstacleMap() {
+        this(null, null);
+    }
+
+    public ObstacleMap(Grid grid) {
+        this(null, grid);
+    }
+
+    public ObstacleMap(ObstacleIndex index) {
+        this(null, null);
+        this.overlay = index;
+    }
+
+    private ObstacleMap(ObstacleIndex base, Grid grid) {
+        this.base = base;
+        this.grid = grid;
+    }
+
+    public static ObstacleMap sharing(Terrain terrain) {
+        return new ObstacleMap(terrain.obstacles(), terrain.grid());
+    }
 
     public void addObstacle(Coordinate coordinate) {
-        obstacles.add(coordinate);
+        if (hasObstacle(coordinate)) {
+            return;
+        }
+        if (overlay == null) {
+            // Terrain overlays stay sparse; a probe's own map can use the grid-sized index
+            overlay = base != null || grid == null ? new TiledObstacleIndex() : ObstacleIndex.forGrid(grid);
+        }
+        overlay.add(coordinate.x(), coordinate.y());
+        version++;
     }
 
     public boolean hasObstacle(Coordinate coordinate) {
-        return obstacles.contains(coordinate);
+        return hasObstacle(coordinate.x(), coordinate.y());
+    }
+
+    public boolean hasObstacle(int x, int y) {
+        return (base != null && base.contains(x, y))
+                || (overlay != null && overlay.contains(x, y));
+    }
+
+    /**
+     * Free cells ahead of {@code (x, y)} in direction {@code (dx, dy)}, at most {@code limit};
+     * see {@link ObstacleIndex#freeRun}.
+     */
+    public int freeRun(int x, int y, int dx, int dy, int limit) {
+        int run = limit;
+        if (base != null) {
+            run = base.freeRun(x, y, dx, dy, run);
+        }
+        if (overlay != null) {
+            run = overlay.freeRun(x, y, dx, dy, run);
+        }
+        return run;
+    }
+
+    /**
+     * Visits the obstacles added to this map, leaving out the shared base.
+     */
+    public void forEachOwn(PathStore.PointConsumer consumer) {
+        if (overlay != null) {
+            overlay.forEach(consumer);
+        }
+    }
+
+    /**
+     * Bumped by every obstacle added to this map, so results derived from its layout can tell
+     * when they are stale. The shared base is frozen and never changes it.
+     */
+    public long version() {
+        return version;
+    }
+
+    public boolean hasOwnObstacles() {
+        return overlay != null && overlay.size() > 0;
+    }
+
+    public ObstacleIndex getBase() {
+        return base;
+    }
+
+    public int size() {
+        return (base == null ? 0 : base.size()) + (overlay == null ? 0 : overlay.size());
+    }
+
+    /**
+     * Heap owned by this map alone; a shared base is accounted to its terrain.
+     */
+    public long memoryBytes() {
+        return 24L + (overlay == null ? 0 : overlay.memoryBytes());
     }
 }
@@ -0,0 +1,57 @@
+package com.kata.probe.domain;
+
+/**
+ * Cells currently taken by probes on one shared terrain. Each probe claims the cell it moves
+ * into before leaving its old one, so two probes can never stand on the same cell. Claims are
+ * single atomic operations, so probes on different cells never wait for each other.
+ */
+public interface Occupancy {
+
+    /**
+     * No collisions: every claim succeeds and nothing is recorded.
+     */
+    Occupancy NONE = new Occupancy() {
+        @Override public boolean claim(int x, int y) { return true; }
+        @Override public void release(int x, int y) { }
+        @Override public boolean isOccupied(int x, int y) { return false; }
+        @Override public long count() { return 0; }
+    };
+
+    /**
+     * Takes the cell, or returns {@code false} if another probe already holds it.
+     */
+    boolean claim(int x, int y);
+
+    void release(int x, int y);
+
+    boolean isOccupied(int x, int y);
+
+    long count();
+
+    /**
+     * A view of {@code occupancy} for a probe that must not change it: claims succeed only on free
+     * cells and on {@code (ownX, ownY)}, the cell the probe started from, and nothing is recorded.
+     */
+    static Occupancy readOnly(Occupancy occupancy, int ownX, int ownY) {
+        return new Occupancy() {
+            @Override
+            public boolean claim(int x, int y) {
+                return (x == ownX && y == ownY) || !occupancy.isOccupied(x, y);
+            }
+
+            @Override public void release(int x, int y) { }
+            @Override public boolean isOccupied(int x, int y) { return occupancy.isOccupied(x, y); }
+            @Override public long count() { return occupancy.count(); }
+        };
+    }
+
+    /**
+     * Lock-free bitmap up to {@link ObstacleIndex#DENSE_CELL_LIMIT} cells, a concurrent set of cells above.
+     */
+    static Occupancy forGrid(Grid grid) {
+        long cells = (long) grid.width() * grid.height();
+        return cells <= ObstacleIndex.DENSE_CELL_LIMIT
+                ? new BitmapOccupancy(grid.width(), grid.height())
+                : new SparseOccupancy();
+    }
+}
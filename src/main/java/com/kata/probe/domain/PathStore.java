@@ -0,0 +1,187 @@
+package com.kata.probe.domain;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Append-only visited path, stored as packed (x,y) longs instead of one {@link Coordinate} per step.
+ * <p>
+ * One writer (holding the probe's lock) may append while any number of readers iterate:
+ * a reader only looks at the prefix published through {@link #size()}, which never changes.
+ */
+public final class PathStore {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private long[] points;
+    private volatile int size;
+
+    public PathStore() {
+        this(INITIAL_CAPACITY);
+    }
+
+    public PathStore(int initialCapacity) {
+        this.points = new long[Math.max(1, initialCapacity)];
+    }
+
+    /**
+     * Adopts the first {@code size} entries of {@code points} without copying.
+     */
+    public static PathStore wrap(long[] points, int size) {
+        if (size < 0 || size > points.length) {
+            throw new IllegalArgumentException("Path length " + size + " exceeds " + points.length + " points");
+        }
+        PathStore store = new PathStore(0);
+        store.points = points;
+        store.size = size;
+        return store;
+    }
+
+    public static long pack(int x, int y) {
+        return ((long) x << 32) | (y & 0xFFFFFFFFL);
+    }
+
+    public static int unpackX(long packed) { return (int) (packed >> 32); }
+    public static int unpackY(long packed) { return (int) packed; }
+
+    public void add(int x, int y) {
+        int n = size;
+        if (n == points.length) {
+            grow(n + 1);
+        }
+        points[n] = pack(x, y);
+        size = n + 1; // publishes the element (and any grown array) to readers
+    }
+
+    /**
+     * Appends the {@code steps} cells reached from {@code (x, y)} by repeatedly adding
+     * {@code (dx, dy)}, publishing them all at once.
+     */
+    public void addRun(int x, int y, int dx, int dy, int steps) {
+        if (steps <= 0) {
+            return;
+        }
+        int n = size;
+        ensureCapacity(Math.addExact(n, steps));
+        long[] p = points;
+        for (int i = 1; i <= steps; i++) {
+            p[n++] = pack(x + dx * i, y + dy * i);
+        }
+        size = n;
+    }
+
+    public void ensureCapacity(int capacity) {
+        if (capacity > points.length) {
+            grow(capacity);
+        }
+    }
+
+    private void grow(int minCapacity) {
+        int newCapacity = Math.max(minCapacity, points.length + (points.length >> 1));
+        if (newCapacity < 0) {
+            newCapacity = Integer.MAX_VALUE - 8;
+        }
+        points = Arrays.copyOf(points, newCapacity);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int x(int index) {
+        return unpackX(packedAt(index));
+    }
+
+    public int y(int index) {
+        return unpackY(packedAt(index));
+    }
+
+    public long packedAt(int index) {
+        int n = size;
+        if (index < 0 || index >= n) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for path length " + n);
+        }
+        return points[index];
+    }
+
+    public Coordinate get(int index) {
+        long p = packedAt(index);
+        return new Coordinate(unpackX(p), unpackY(p));
+    }
+
+    public Coordinate last() {
+        return get(size - 1);
+    }
+
+    /**
+     * Visits steps {@code [from, to)} without allocating.
+     */
+    public void forEach(int from, int to, PointConsumer consumer) {
+        int n = size;
+        checkRange(from, to, n);
+        long[] p = points;
+        for (int i = from; i < to; i++) {
+            consumer.accept(unpackX(p[i]), unpackY(p[i]));
+        }
+    }
+
+    /**
+     * Read-only list view of steps {@code [from, to)}. Coordinates are created on access,
+     * so nothing is copied; later appends do not change the view.
+     */
+    public List<Coordinate> asList(int from, int to) {
+        checkRange(from, to, size);
+        return new RangeView(points, from, to);
+    }
+
+    public List<Coordinate> asList() {
+        int n = size;
+        return new RangeView(points, 0, n);
+    }
+
+    /**
+     * Approximate heap used by the packed array.
+     */
+    public long memoryBytes() {
+        return 16L + 8L * points.length;
+    }
+
+    private static void checkRange(int from, int to, int size) {
+        if (from < 0 || to > size || from > to) {
+            throw new IndexOutOfBoundsException("Range [" + from + ", " + to + ") out of bounds for path length " + size);
+        }
+    }
+
+    @FunctionalInterface
+    public interface PointConsumer {
+        void accept(int x, int y);
+    }
+
+    private static final class RangeView extends AbstractList<Coordinate> implements RandomAccess {
+        private final long[] points;
+        private final int from;
+        private final int to;
+
+        RangeView(long[] points, int from, int to) {
+            this.points = points;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public Coordinate get(int index) {
+            if (index < 0 || index >= to - from) {
+                throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + (to - from));
+            }
+            long p = points[from + index];
+            return new Coordinate(unpackX(p), unpackY(p));
+        }
+
+        @Override
+        public int size() {
+            return to - from;
+        }
+    }
+}
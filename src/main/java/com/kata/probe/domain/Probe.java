@@ -1,65 +1,177 @@
 package com.kata.probe.domain;
 
-import java.util.ArrayList;
 import java.util.List;
 
 public class Probe {
-    private Coordinate position;
+    // Position is kept as primitives; a Coordinate is only built when someone asks for it
+    private int x;
+    private int y;
     private Direction direction;
     private final Grid grid;
     private final ObstacleMap obstacleMap;
-    private final List<Coordinate> visited = new ArrayList<>();
+    private final Occupancy occupancy;
+    // null for a detached probe, which does not record where it goes
+    private final PathStore path;
 
     public Probe(Coordinate start, Direction direction, Grid grid, ObstacleMap obstacleMap) {
+        this(start, direction, grid, obstacleMap, Occupancy.NONE);
+    }
+
+    /**
+     * @param occupancy cells held by other probes on the same terrain; the start cell is claimed here
+     */
+    public Probe(Coordinate start, Direction direction, Grid grid, ObstacleMap obstacleMap, Occupancy occupancy) {
         if (!grid.isWithinBounds(start)) {
             throw new IllegalArgumentException("Start position out of bounds: " + start);
         }
         if (direction == null) {
             throw new IllegalArgumentException("Direction cannot be null");
         }
-        this.position = start;
+        if (obstacleMap.hasObstacle(start)) {
+            throw new IllegalArgumentException("Start position is an obstacle: " + start);
+        }
+        if (!occupancy.claim(start.x(), start.y())) {
+            throw new IllegalArgumentException("Start position is occupied by another probe: " + start);
+        }
+        this.x = start.x();
+        this.y = start.y();
         this.direction = direction;
         this.grid = grid;
         this.obstacleMap = obstacleMap;
-        this.visited.add(start);
+        this.occupancy = occupancy;
+        this.path = new PathStore();
+        this.path.add(x, y);
     }
 
+    private Probe(PathStore path, Direction direction, Grid grid, ObstacleMap obstacleMap, Occupancy occupancy) {
+        this(PathStore.unpackX(path.packedAt(path.size() - 1)), PathStore.unpackY(path.packedAt(path.size() - 1)),
+                direction, grid, obstacleMap, occupancy, path);
+    }
+
+    private Probe(int x, int y, Direction direction, Grid grid, ObstacleMap obstacleMap, Occupancy occupancy,
+                  PathStore path) {
+        this.x = x;
+        this.y = y;
+        this.direction = direction;
+        this.grid = grid;
+        this.obstacleMap = obstacleMap;
+        this.occupancy = occupancy;
+        this.path = path;
+    }
 
-    private Coordinate nextForward() {
-        return new Coordinate(
-                position.x() + direction.dxForward(),
-                position.y() + direction.dyForward()
-        );
+    /**
+     * Rebuilds a probe from a recorded path; its position is the last visited cell.
+     */
+    public static Probe restore(PathStore path, Direction direction, Grid grid, ObstacleMap obstacleMap) {
+        return restore(path, direction, grid, obstacleMap, Occupancy.NONE);
     }
 
-    private Coordinate nextBackward() {
-        return new Coordinate(
-                position.x() - direction.dxForward(),
-                position.y() - direction.dyForward()
-        );
+    /**
+     * As {@link #restore(PathStore, Direction, Grid, ObstacleMap)}, moving within {@code occupancy}.
+     * The probe's cell is expected to be claimed already.
+     */
+    public static Probe restore(PathStore path, Direction direction, Grid grid, ObstacleMap obstacleMap,
+                                Occupancy occupancy) {
+        if (path.size() == 0) {
+            throw new IllegalArgumentException("Path must contain the start position");
+        }
+        if (direction == null) {
+            throw new IllegalArgumentException("Direction cannot be null");
+        }
+        return new Probe(path, direction, grid, obstacleMap, occupancy);
+    }
+
+    /**
+     * A stand-in that starts where {@code probe} is and moves under the same rules, for trying out
+     * commands. It shares the grid and obstacles, records no path, and treats cells held by other
+     * probes as blocked without claiming any, so nothing it does is visible to anyone else.
+     */
+    public static Probe detached(Probe probe) {
+        Occupancy occupancy = probe.occupancy == Occupancy.NONE
+                ? Occupancy.NONE
+                : Occupancy.readOnly(probe.occupancy, probe.x, probe.y);
+        return new Probe(probe.x, probe.y, probe.direction, probe.grid, probe.obstacleMap, occupancy, null);
     }
 
     public boolean moveForward() {
-        return applyMove(nextForward());
+        return applyMove(x + direction.dxForward(), y + direction.dyForward());
     }
 
     public boolean moveBackward() {
-        return applyMove(nextBackward());
+        return applyMove(x - direction.dxForward(), y - direction.dyForward());
+    }
+
+    /**
+     * Same outcome as calling {@link #moveForward()} {@code count} times, computed in one jump.
+     * Returns how many of the moves succeeded; the rest were blocked.
+     */
+    public int moveForward(int count) {
+        return applyRun(direction.dxForward(), direction.dyForward(), count);
+    }
+
+    public int moveBackward(int count) {
+        return applyRun(-direction.dxForward(), -direction.dyForward(), count);
     }
 
     public void turnLeft()  { direction = direction.left(); }
     public void turnRight() { direction = direction.right(); }
 
-    private boolean applyMove(Coordinate next) {
-        if (!grid.isWithinBounds(next)) return false;       // blocked: out of bounds
-        if (obstacleMap.hasObstacle(next)) return false;    // blocked: obstacle
-        this.position = next;
-        visited.add(next);
+    /**
+     * Gives up the probe's cell so others can move into it, e.g. when the probe is discarded.
+     */
+    public void releaseCell() {
+        occupancy.release(x, y);
+    }
+
+    private boolean applyMove(int nx, int ny) {
+        if (!grid.isWithinBounds(nx, ny)) return false;       // blocked: out of bounds
+        if (obstacleMap.hasObstacle(nx, ny)) return false;    // blocked: obstacle
+        if (!occupancy.claim(nx, ny)) return false;           // blocked: another probe
+        occupancy.release(x, y);
+        this.x = nx;
+        this.y = ny;
+        if (path != null) {
+            path.add(nx, ny);
+        }
         return true;
     }
 
+    private int applyRun(int dx, int dy, int count) {
+        if (occupancy != Occupancy.NONE) {
+            // Other probes move meanwhile, so the run is walked cell by cell; it ends at the first one in the way
+            int steps = 0;
+            while (steps < count && applyMove(x + dx, y + dy)) {
+                steps++;
+            }
+            return steps;
+        }
+        // Once a move is blocked every later one in the run is too, so only the first stop matters
+        int room = dx > 0 ? grid.width() - 1 - x
+                : dx < 0 ? x
+                : dy > 0 ? grid.height() - 1 - y
+                : y;
+        int steps = obstacleMap.freeRun(x, y, dx, dy, Math.min(count, room));
+        if (steps > 0) {
+            if (path != null) {
+                path.addRun(x, y, dx, dy, steps);
+            }
+            x += dx * steps;
+            y += dy * steps;
+        }
+        return steps;
+    }
+
 
-    public Coordinate getPosition() { return position; }
+    public int getX() { return x; }
+    public int getY() { return y; }
+    public Coordinate getPosition() { return new Coordinate(x, y); }
     public Direction getDirection() { return direction; }
-    public List<Coordinate> getVisited() { return List.copyOf(visited); }
+    public Grid getGrid() { return grid; }
+    public ObstacleMap getObstacleMap() { return obstacleMap; }
+    public Occupancy getOccupancy() { return occupancy; }
+    /**
+     * Visited cells; {@code null} for a {@link #detached} probe.
+     */
+    public PathStore getPath() { return path; }
+    public List<Coordinate> getVisited() { return path.asList(); }
 }
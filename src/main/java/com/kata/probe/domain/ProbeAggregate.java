@@ -1,32 +1,101 @@
 package com.kata.probe.domain;
 
 import com.kata.probe.controller.response.ExecutionSummary;
-import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
 
 public class ProbeAggregate {
 
+    private static final AtomicLongFieldUpdater<ProbeAggregate> VERSION =
+            AtomicLongFieldUpdater.newUpdater(ProbeAggregate.class, "version");
+    private static final AtomicLongFieldUpdater<ProbeAggregate> ACCOUNTED =
+            AtomicLongFieldUpdater.newUpdater(ProbeAggregate.class, "accountedBytes");
+
+    private final String terrain;
     private final Grid grid;
-    private Probe probe;
-    private ExecutionSummary summary;
-    private final List<Coordinate> visited = new ArrayList<>();
+    private volatile Probe probe;
+    private volatile ExecutionSummary summary;
+    private volatile long version;
+    // Set on use, cleared by the repository's eviction sweep; new aggregates count as just used
+    private volatile boolean referenced = true;
+    // Size last added to the repository's running total; 0 while not counted there
+    private volatile long accountedBytes;
 
     public ProbeAggregate(Grid grid, Probe probe) {
+        this(null, grid, probe);
+    }
+
+    /**
+     * @param terrain name of the shared terrain the probe runs on, or {@code null}
+     */
+    public ProbeAggregate(String terrain, Grid grid, Probe probe) {
+        this.terrain = terrain;
         this.grid = grid;
         this.probe = probe;
         this.summary = new ExecutionSummary(0,0,0);
-        this.visited.addAll(probe.getVisited());
     }
 
+    public String getTerrain() { return terrain; }
     public Grid getGrid() { return grid; }
     public Probe getProbe() { return probe; }
     public ExecutionSummary getSummary() { return summary; }
-    public List<Coordinate> getVisited() { return List.copyOf(visited); }
+    public PathStore getPath() { return probe.getPath(); }
+    public List<Coordinate> getVisited() { return probe.getVisited(); }
+    public long getVersion() { return version; }
+
+    public void setVersion(long version) { this.version = version; }
+
+    public boolean compareAndSetVersion(long expected, long next) {
+        return VERSION.compareAndSet(this, expected, next);
+    }
+
+    public void touch() {
+        if (!referenced) {
+            referenced = true;
+        }
+    }
+
+    /**
+     * Clears the use mark and returns whether it was set.
+     */
+    public boolean clearReferenced() {
+        if (!referenced) {
+            return false;
+        }
+        referenced = false;
+        return true;
+    }
+
+    /**
+     * Approximate heap held by this probe: its path, its own obstacles and a fixed allowance
+     * for the aggregate, the probe and the repository entry. Shared terrains are not counted.
+     */
+    public long memoryBytes() {
+        return 256L + probe.getPath().memoryBytes() + probe.getObstacleMap().memoryBytes();
+    }
+
+    /**
+     * Records {@code bytes} as this probe's share of the repository's memory total and returns
+     * the share recorded before.
+     */
+    public long swapAccountedBytes(long bytes) {
+        return ACCOUNTED.getAndSet(this, bytes);
+    }
 
     public void update(Probe probe, ExecutionSummary summary) {
         this.probe = probe;
         this.summary = summary;
-        visited.clear();
-        visited.addAll(probe.getVisited());
+    }
+
+    public ProbeView view() {
+        return view(0);
+    }
+
+    /**
+     * @param pathStart path length before the batch this view reports on
+     */
+    public ProbeView view(int pathStart) {
+        PathStore path = probe.getPath();
+        return new ProbeView(probe.getPosition(), probe.getDirection(), path, pathStart, path.size(), summary, version);
     }
 }
@@ -0,0 +1,29 @@
+package com.kata.probe.domain;
+
+import com.kata.probe.controller.response.ExecutionSummary;
+
+import java.util.List;
+
+/**
+ * Consistent read of a probe's state, taken while its lock stripe is held.
+ * The path is shared, not copied; {@code pathLength} pins the prefix that belongs to this view.
+ * {@code pathStart} is where the steps added by the batch that produced the view begin
+ * (0 for a plain read).
+ */
+public record ProbeView(
+        Coordinate position,
+        Direction direction,
+        PathStore path,
+        int pathStart,
+        int pathLength,
+        ExecutionSummary summary,
+        long version
+) {
+    public List<Coordinate> visited() {
+        return path.asList(0, pathLength);
+    }
+
+    public List<Coordinate> appended() {
+        return path.asList(pathStart, pathLength);
+    }
+}
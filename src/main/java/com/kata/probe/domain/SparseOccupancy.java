@@ -0,0 +1,33 @@
+package com.kata.probe.domain;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Occupied cells of a grid too large for a bitmap, as packed coordinates in a concurrent set.
+ * Memory grows with the number of probes rather than with the grid.
+ */
+public final class SparseOccupancy implements Occupancy {
+
+    private final Set<Long> cells = ConcurrentHashMap.newKeySet();
+
+    @Override
+    public boolean claim(int x, int y) {
+        return cells.add(PathStore.pack(x, y));
+    }
+
+    @Override
+    public void release(int x, int y) {
+        cells.remove(PathStore.pack(x, y));
+    }
+
+    @Override
+    public boolean isOccupied(int x, int y) {
+        return cells.contains(PathStore.pack(x, y));
+    }
+
+    @Override
+    public long count() {
+        return cells.size();
+    }
+}
@@ -0,0 +1,6 @@
+package com.kata.probe.domain;
+
+/**
+ * A named, immutable obstacle layout that many probes can share.
+ */
+public record Terrain(String name, Grid grid, ObstacleIndex obstacles) {}
@@ -0,0 +1,215 @@
+package com.kata.probe.domain;
+
+import java.util.Arrays;
+
+/**
+ * Sparse obstacle bitmap for huge grids, in the spirit of Roaring bitmaps.
+ * <p>
+ * The plane is cut into 64x64 tiles. Only tiles with obstacles exist, kept in an
+ * open-addressing table keyed by tile coordinates. A tile starts as a sorted array of
+ * cell offsets and turns into a 4096-bit bitmap once that is smaller.
+ */
+public final class TiledObstacleIndex implements ObstacleIndex {
+
+    private static final int TILE_SHIFT = 6;
+    private static final int TILE_SIZE = 1 << TILE_SHIFT;
+    private static final int TILE_MASK = TILE_SIZE - 1;
+    private static final int BITMAP_WORDS = (1 << (2 * TILE_SHIFT)) / 64;
+    // An array tile of this many chars takes the same space as a bitmap tile
+    private static final int ARRAY_LIMIT = BITMAP_WORDS * 4;
+
+    private long[] keys = new long[16];
+    // Either a char[] (sorted offsets) or a long[] (bitmap); null marks an empty slot
+    private Object[] tiles = new Object[16];
+    private int tileCount;
+    private int size;
+    private boolean frozen;
+
+    @Override
+    public boolean contains(int x, int y) {
+        if (size == 0) {
+            return false;
+        }
+        Object tile = tiles[slotOf(tileKey(x, y))];
+        if (tile == null) {
+            return false;
+        }
+        return tileContains(tile, offset(x, y));
+    }
+
+    /**
+     * Walks the ray one tile at a time: a missing tile clears up to 64 cells with one lookup.
+     */
+    @Override
+    public int freeRun(int x, int y, int dx, int dy, int limit) {
+        if (size == 0 || limit <= 0) {
+            return Math.max(limit, 0);
+        }
+        int done = 0;
+        while (done < limit) {
+            int cx = x + dx * (done + 1);
+            int cy = y + dy * (done + 1);
+            // Cells left in this tile along the ray, (cx, cy) included
+            int inTile = dx > 0 ? TILE_SIZE - (cx & TILE_MASK)
+                    : dx < 0 ? (cx & TILE_MASK) + 1
+                    : dy > 0 ? TILE_SIZE - (cy & TILE_MASK)
+                    : (cy & TILE_MASK) + 1;
+            int span = Math.min(inTile, limit - done);
+            Object tile = tiles[slotOf(tileKey(cx, cy))];
+            if (tile != null) {
+                for (int k = 0; k < span; k++) {
+                    if (tileContains(tile, offset(cx + dx * k, cy + dy * k))) {
+                        return done + k;
+                    }
+                }
+            }
+            done += span;
+        }
+        return limit;
+    }
+
+    private static boolean tileContains(Object tile, int offset) {
+        if (tile instanceof long[] bitmap) {
+            return (bitmap[offset >>> 6] & (1L << offset)) != 0;
+        }
+        return Arrays.binarySearch((char[]) tile, (char) offset) >= 0;
+    }
+
+    @Override
+    public void add(int x, int y) {
+        if (frozen) {
+            throw new IllegalStateException("Obstacle index is shared and read-only");
+        }
+        long key = tileKey(x, y);
+        int slot = slotOf(key);
+        int offset = offset(x, y);
+        Object tile = tiles[slot];
+
+        if (tile == null) {
+            keys[slot] = key;
+            tiles[slot] = new char[] {(char) offset};
+            size++;
+            if (++tileCount * 2 > tiles.length) {
+                rehash();
+            }
+            return;
+        }
+        if (tile instanceof long[] bitmap) {
+            long mask = 1L << offset;
+            if ((bitmap[offset >>> 6] & mask) == 0) {
+                bitmap[offset >>> 6] |= mask;
+                size++;
+            }
+            return;
+        }
+
+        char[] array = (char[]) tile;
+        int pos = Arrays.binarySearch(array, (char) offset);
+        if (pos >= 0) {
+            return;
+        }
+        size++;
+        if (array.length >= ARRAY_LIMIT) {
+            long[] bitmap = new long[BITMAP_WORDS];
+            for (char c : array) {
+                bitmap[c >>> 6] |= 1L << c;
+            }
+            bitmap[offset >>> 6] |= 1L << offset;
+            tiles[slot] = bitmap;
+            return;
+        }
+        int insert = -pos - 1;
+        char[] grown = new char[array.length + 1];
+        System.arraycopy(array, 0, grown, 0, insert);
+        grown[insert] = (char) offset;
+        System.arraycopy(array, insert, grown, insert + 1, array.length - insert);
+        tiles[slot] = grown;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void forEach(PathStore.PointConsumer consumer) {
+        for (int slot = 0; slot < tiles.length; slot++) {
+            Object tile = tiles[slot];
+            if (tile == null) {
+                continue;
+            }
+            int originX = PathStore.unpackX(keys[slot]) << TILE_SHIFT;
+            int originY = PathStore.unpackY(keys[slot]) << TILE_SHIFT;
+            if (tile instanceof long[] bitmap) {
+                for (int w = 0; w < bitmap.length; w++) {
+                    for (long word = bitmap[w]; word != 0; word &= word - 1) {
+                        int offset = (w << 6) + Long.numberOfTrailingZeros(word);
+                        consumer.accept(originX | (offset & TILE_MASK), originY | (offset >>> TILE_SHIFT));
+                    }
+                }
+            } else {
+                for (char offset : (char[]) tile) {
+                    consumer.accept(originX | (offset & TILE_MASK), originY | (offset >>> TILE_SHIFT));
+                }
+            }
+        }
+    }
+
+    @Override
+    public ObstacleIndex freeze() {
+        frozen = true;
+        return this;
+    }
+
+    @Override
+    public long memoryBytes() {
+        long bytes = 48L + (16L + 8L * keys.length) + (16L + 4L * tiles.length);
+        for (Object tile : tiles) {
+            if (tile instanceof long[] bitmap) {
+                bytes += 16L + 8L * bitmap.length;
+            } else if (tile instanceof char[] array) {
+                bytes += 16L + (2L * array.length + 7) / 8 * 8;
+            }
+        }
+        return bytes;
+    }
+
+    private static long tileKey(int x, int y) {
+        return PathStore.pack(x >> TILE_SHIFT, y >> TILE_SHIFT);
+    }
+
+    private static int offset(int x, int y) {
+        return ((y & TILE_MASK) << TILE_SHIFT) | (x & TILE_MASK);
+    }
+
+    /**
+     * Slot holding {@code key}, or the empty slot where it would go.
+     */
+    private int slotOf(long key) {
+        int mask = keys.length - 1;
+        int slot = mix(key) & mask;
+        while (tiles[slot] != null && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private static int mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private void rehash() {
+        long[] oldKeys = keys;
+        Object[] oldTiles = tiles;
+        keys = new long[oldKeys.length * 2];
+        tiles = new Object[oldTiles.length * 2];
+        for (int i = 0; i < oldTiles.length; i++) {
+            if (oldTiles[i] != null) {
+                int slot = slotOf(oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                tiles[slot] = oldTiles[i];
+            }
+        }
+    }
+}
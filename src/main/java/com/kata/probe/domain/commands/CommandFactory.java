@@ -2,16 +2,49 @@ package com.kata.probe.domain.commands;
 
 public class CommandFactory {
 
+    // Commands are stateless, so one instance of each is shared by every probe
+    public static final Command FORWARD = new ForwardCommand();
+    public static final Command BACKWARD = new BackwardCommand();
+    public static final Command TURN_LEFT = new TurnLeftCommand();
+    public static final Command TURN_RIGHT = new TurnRightCommand();
+    public static final Command INVALID = new InvalidCommand();
+
     public static Command from(String raw) {
-        if (raw == null || raw.isBlank()) return new InvalidCommand();
-
-        String cmd = raw.trim().toUpperCase();
-        return switch (cmd) {
-            case "F" -> new ForwardCommand();
-            case "B" -> new BackwardCommand();
-            case "L" -> new TurnLeftCommand();
-            case "R" -> new TurnRightCommand();
-            default -> new InvalidCommand();
+        return forCode(codeOf(raw));
+    }
+
+    public static Command forCode(byte code) {
+        return switch (code) {
+            case CommandProgram.FORWARD -> FORWARD;
+            case CommandProgram.BACKWARD -> BACKWARD;
+            case CommandProgram.TURN_LEFT -> TURN_LEFT;
+            case CommandProgram.TURN_RIGHT -> TURN_RIGHT;
+            default -> INVALID;
+        };
+    }
+
+    /**
+     * Maps a raw command to its program code without trimming or upper-casing the string.
+     */
+    public static byte codeOf(String raw) {
+        if (raw == null) return CommandProgram.INVALID;
+
+        int start = 0;
+        int end = raw.length();
+        while (start < end && Character.isWhitespace(raw.charAt(start))) start++;
+        while (end > start && Character.isWhitespace(raw.charAt(end - 1))) end--;
+
+        if (end - start != 1) return CommandProgram.INVALID;
+        return codeOf(raw.charAt(start));
+    }
+
+    public static byte codeOf(char c) {
+        return switch (c) {
+            case 'F', 'f' -> CommandProgram.FORWARD;
+            case 'B', 'b' -> CommandProgram.BACKWARD;
+            case 'L', 'l' -> CommandProgram.TURN_LEFT;
+            case 'R', 'r' -> CommandProgram.TURN_RIGHT;
+            default -> CommandProgram.INVALID;
         };
     }
 }
@@ -0,0 +1,254 @@
+package com.kata.probe.domain.commands;
+
+import com.kata.probe.controller.response.ExecutionSummary;
+import com.kata.probe.domain.Probe;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A command batch compiled to byte codes. Consecutive identical commands are
+ * stored as one run, so executing the program allocates nothing per command,
+ * and a run of moves is resolved in one jump instead of step by step.
+ */
+public final class CommandProgram {
+
+    public static final byte INVALID = 0;
+    public static final byte FORWARD = 1;
+    public static final byte BACKWARD = 2;
+    public static final byte TURN_LEFT = 3;
+    public static final byte TURN_RIGHT = 4;
+
+    /**
+     * Longest program that can be built, so the counts in its {@link ExecutionSummary} cannot wrap.
+     */
+    public static final long MAX_LENGTH = Integer.MAX_VALUE;
+
+    private static final Command[] BY_CODE = {
+            CommandFactory.INVALID,
+            CommandFactory.FORWARD,
+            CommandFactory.BACKWARD,
+            CommandFactory.TURN_LEFT,
+            CommandFactory.TURN_RIGHT
+    };
+
+    private static final char[] LETTERS = {'?', 'F', 'B', 'L', 'R'};
+
+    private byte[] codes;
+    private int[] counts;
+    private int runs;
+    private long length;
+
+    public CommandProgram() {
+        this(8);
+    }
+
+    public CommandProgram(int expectedRuns) {
+        int capacity = Math.max(1, expectedRuns);
+        this.codes = new byte[capacity];
+        this.counts = new int[capacity];
+    }
+
+    public static CommandProgram compile(List<String> rawCommands) {
+        return compile(rawCommands, MAX_LENGTH);
+    }
+
+    /**
+     * @throws IllegalArgumentException if there are more than {@code maxLength} commands
+     */
+    public static CommandProgram compile(List<String> rawCommands, long maxLength) {
+        if (rawCommands.size() > maxLength) {
+            throw tooLong(maxLength);
+        }
+        CommandProgram program = new CommandProgram(rawCommands.size());
+        for (String raw : rawCommands) {
+            program.append(CommandFactory.codeOf(raw), 1);
+        }
+        return program;
+    }
+
+    /**
+     * Parses a packed program such as {@code "FFRFFLB"} or its run-length form {@code "10F2R5B"}
+     * in one pass. Whitespace and commas are ignored; unknown letters count as invalid commands.
+     */
+    public static CommandProgram parse(CharSequence packed) {
+        return parse(packed, MAX_LENGTH);
+    }
+
+    /**
+     * @throws IllegalArgumentException as soon as the program runs past {@code maxLength} commands
+     */
+    public static CommandProgram parse(CharSequence packed, long maxLength) {
+        Parser parser = new Parser(Math.max(8, packed.length() / 4), maxLength);
+        for (int i = 0; i < packed.length(); i++) {
+            parser.accept(packed.charAt(i));
+        }
+        return parser.finish();
+    }
+
+    /**
+     * Streaming variant of {@link #parse(CharSequence)}: the program is never held as a string.
+     */
+    public static CommandProgram parse(Reader packed) {
+        return parse(packed, MAX_LENGTH);
+    }
+
+    /**
+     * Stops reading as soon as the program runs past {@code maxLength} commands.
+     */
+    public static CommandProgram parse(Reader packed, long maxLength) {
+        Parser parser = new Parser(64, maxLength);
+        char[] buffer = new char[8192];
+        try {
+            int n;
+            while ((n = packed.read(buffer)) != -1) {
+                for (int i = 0; i < n; i++) {
+                    parser.accept(buffer[i]);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return parser.finish();
+    }
+
+    public CommandProgram append(byte code, int count) {
+        if (count <= 0) {
+            return this;
+        }
+        if (runs > 0 && codes[runs - 1] == code && counts[runs - 1] <= Integer.MAX_VALUE - count) {
+            counts[runs - 1] += count;
+        } else {
+            if (runs == codes.length) {
+                int newCapacity = runs + (runs >> 1) + 1;
+                codes = Arrays.copyOf(codes, newCapacity);
+                counts = Arrays.copyOf(counts, newCapacity);
+            }
+            codes[runs] = code;
+            counts[runs] = count;
+            runs++;
+        }
+        length += count;
+        return this;
+    }
+
+    /**
+     * Appends every run of {@code other}, so several programs can run as one batch.
+     */
+    public CommandProgram append(CommandProgram other) {
+        for (int r = 0; r < other.runs; r++) {
+            append(other.codes[r], other.counts[r]);
+        }
+        return this;
+    }
+
+    /**
+     * Run-length text form such as {@code "3FR2F"}, which {@link #parse(CharSequence)} reads back.
+     * Invalid commands are written as {@code ?}.
+     */
+    public String toPacked() {
+        StringBuilder out = new StringBuilder(runs * 3);
+        for (int r = 0; r < runs; r++) {
+            if (counts[r] > 1) {
+                out.append(counts[r]);
+            }
+            out.append(LETTERS[codes[r]]);
+        }
+        return out.toString();
+    }
+
+    public int runs() { return runs; }
+    public long length() { return length; }
+    public byte codeAt(int run) { return codes[run]; }
+    public int countAt(int run) { return counts[run]; }
+
+    public ExecutionSummary execute(Probe probe) {
+        return execute(probe, null);
+    }
+
+    /**
+     * As {@link #execute(Probe)}, also appending to {@code outcome} the moves and turns that took
+     * effect: each run of moves cut to the steps actually taken, turns reduced to a quarter circle
+     * and invalid commands left out. Run on the probe's last position, {@code outcome} retraces the
+     * same path whatever else stands on the terrain.
+     */
+    public ExecutionSummary execute(Probe probe, CommandProgram outcome) {
+        // Long, so a program appended together past MAX_LENGTH saturates instead of wrapping
+        long executed = 0;
+        long blocked = 0;
+        long invalid = 0;
+
+        for (int r = 0; r < runs; r++) {
+            byte code = codes[r];
+            int count = counts[r];
+            if (code == INVALID) {
+                invalid += count;
+                continue;
+            }
+            if (code == FORWARD || code == BACKWARD) {
+                int moved = code == FORWARD ? probe.moveForward(count) : probe.moveBackward(count);
+                executed += moved;
+                blocked += count - moved;
+                if (outcome != null) {
+                    outcome.append(code, moved);
+                }
+                continue;
+            }
+            // Four turns are a full circle
+            Command cmd = BY_CODE[code];
+            for (int i = count & 3; i > 0; i--) {
+                cmd.execute(probe);
+            }
+            if (outcome != null) {
+                outcome.append(code, count & 3);
+            }
+            executed += count;
+        }
+        return ExecutionSummary.saturated(executed, blocked, invalid);
+    }
+
+    private static IllegalArgumentException tooLong(long maxLength) {
+        return new IllegalArgumentException("Command program longer than " + maxLength + " commands");
+    }
+
+    private static final class Parser {
+        private final CommandProgram program;
+        private final long maxLength;
+        private long repeat = -1;
+
+        Parser(int expectedRuns, long maxLength) {
+            this.program = new CommandProgram(expectedRuns);
+            this.maxLength = Math.min(maxLength, MAX_LENGTH);
+        }
+
+        void accept(char c) {
+            if (c >= '0' && c <= '9') {
+                repeat = (repeat < 0 ? 0 : repeat * 10) + (c - '0');
+                if (repeat > Integer.MAX_VALUE) {
+                    throw new IllegalArgumentException("Repeat count too large in command program");
+                }
+            } else if (c == ',' || Character.isWhitespace(c)) {
+                if (repeat >= 0) {
+                    throw new IllegalArgumentException("Repeat count must be followed by a command");
+                }
+            } else {
+                int count = repeat < 0 ? 1 : (int) repeat;
+                if (program.length() + count > maxLength) {
+                    throw tooLong(maxLength);
+                }
+                program.append(CommandFactory.codeOf(c), count);
+                repeat = -1;
+            }
+        }
+
+        CommandProgram finish() {
+            if (repeat >= 0) {
+                throw new IllegalArgumentException("Repeat count must be followed by a command");
+            }
+            return program;
+        }
+    }
+}
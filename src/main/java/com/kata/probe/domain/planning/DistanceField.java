@@ -0,0 +1,139 @@
+package com.kata.probe.domain.planning;
+
+import com.kata.probe.domain.Grid;
+import com.kata.probe.domain.ObstacleMap;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Number of moves from one cell to every cell of a grid, found by breadth-first search around
+ * obstacles. Turning is free here: a distance counts cells, not commands. Held as one
+ * {@code int} per cell, row-major, {@link #UNREACHABLE} where no route exists.
+ */
+public final class DistanceField {
+
+    public static final int UNREACHABLE = -1;
+    // 64 MB of distances; larger grids are refused rather than filled
+    public static final long MAX_CELLS = 1L << 24;
+
+    private static final int EXPORT_CHUNK_BYTES = 64 * 1024;
+
+    private static final int[] DX = {0, 1, 0, -1};
+    private static final int[] DY = {1, 0, -1, 0};
+
+    private final int width;
+    private final int height;
+    private final int originX;
+    private final int originY;
+    private final int[] distances;
+    private final int reachable;
+    private final int maxDistance;
+
+    private DistanceField(int width, int height, int originX, int originY, int[] distances,
+                          int reachable, int maxDistance) {
+        this.width = width;
+        this.height = height;
+        this.originX = originX;
+        this.originY = originY;
+        this.distances = distances;
+        this.reachable = reachable;
+        this.maxDistance = maxDistance;
+    }
+
+    public static DistanceField compute(Grid grid, ObstacleMap obstacles, int x, int y) {
+        int width = grid.width();
+        int height = grid.height();
+        if ((long) width * height > MAX_CELLS) {
+            throw new IllegalArgumentException("Grid too large for a distance field: " + width + "x" + height);
+        }
+        if (!grid.isWithinBounds(x, y)) {
+            throw new IllegalArgumentException("Origin out of bounds: (" + x + ", " + y + ")");
+        }
+        int[] distances = new int[width * height];
+        Arrays.fill(distances, UNREACHABLE);
+        // Cells in visiting order; a cell's distance is never below that of any cell queued before it
+        int[] queue = new int[distances.length];
+        int head = 0;
+        int tail = 0;
+        distances[y * width + x] = 0;
+        queue[tail++] = y * width + x;
+        int maxDistance = 0;
+        while (head < tail) {
+            int cell = queue[head++];
+            int cx = cell % width;
+            int cy = cell / width;
+            int next = distances[cell] + 1;
+            for (int i = 0; i < 4; i++) {
+                int nx = cx + DX[i];
+                int ny = cy + DY[i];
+                if (nx < 0 || nx >= width || ny < 0 || ny >= height) {
+                    continue;
+                }
+                int n = ny * width + nx;
+                if (distances[n] == UNREACHABLE && !obstacles.hasObstacle(nx, ny)) {
+                    distances[n] = next;
+                    maxDistance = next;
+                    queue[tail++] = n;
+                }
+            }
+        }
+        return new DistanceField(width, height, x, y, distances, tail, maxDistance);
+    }
+
+    public int width() { return width; }
+    public int height() { return height; }
+    public int originX() { return originX; }
+    public int originY() { return originY; }
+
+    /**
+     * Cells reachable from the origin, the origin included.
+     */
+    public int reachable() { return reachable; }
+
+    public int maxDistance() { return maxDistance; }
+
+    /**
+     * Moves to {@code (x, y)}, or {@link #UNREACHABLE} if it cannot be reached or lies off the grid.
+     */
+    public int distance(int x, int y) {
+        if (x < 0 || x >= width || y < 0 || y >= height) {
+            return UNREACHABLE;
+        }
+        return distances[y * width + x];
+    }
+
+    /**
+     * One bit per cell, row-major, lowest bit first; set where the cell is reachable.
+     */
+    public long[] reachableBits() {
+        long[] bits = new long[(distances.length + 63) >>> 6];
+        for (int i = 0; i < distances.length; i++) {
+            if (distances[i] != UNREACHABLE) {
+                bits[i >>> 6] |= 1L << i;
+            }
+        }
+        return bits;
+    }
+
+    /**
+     * Writes every distance as a big-endian 32-bit integer, row-major.
+     */
+    public void writeTo(OutputStream out) throws IOException {
+        ByteBuffer chunk = ByteBuffer.allocate(EXPORT_CHUNK_BYTES);
+        for (int d : distances) {
+            if (!chunk.hasRemaining()) {
+                out.write(chunk.array(), 0, chunk.position());
+                chunk.clear();
+            }
+            chunk.putInt(d);
+        }
+        out.write(chunk.array(), 0, chunk.position());
+    }
+
+    public long memoryBytes() {
+        return 48L + 4L * distances.length;
+    }
+}
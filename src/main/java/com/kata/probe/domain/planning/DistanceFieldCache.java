@@ -0,0 +1,153 @@
+package com.kata.probe.domain.planning;
+
+import com.kata.probe.domain.Grid;
+import com.kata.probe.domain.ObstacleMap;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Recently used distance fields, evicted least recently used first once their total size
+ * passes a byte budget. A field is keyed by the obstacle layout it was computed on and that
+ * layout's version, so adding an obstacle makes older fields unreachable; they age out.
+ * <p>
+ * Probes that share a terrain without obstacles of their own share one layout, as do
+ * obstacle-free probes on grids of the same size, so they also share cached fields.
+ */
+public final class DistanceFieldCache {
+
+    private final long maxBytes;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final LinkedHashMap<Key, DistanceField> fields = new LinkedHashMap<>(16, 0.75f, true);
+    // Searches under way, so later misses on the same key wait for them
+    private final HashMap<Key, CompletableFuture<DistanceField>> computing = new HashMap<>();
+    private long bytes;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public DistanceFieldCache(long maxBytes) {
+        if (maxBytes < 0) {
+            throw new IllegalArgumentException("Cache size must not be negative: " + maxBytes);
+        }
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * @param layout  identity of the obstacles: the map itself, its shared base, or the grid when there are none
+     * @param version layout version the field was computed at
+     */
+    private record Key(Object layout, long version, int x, int y) {}
+
+    /**
+     * The field from {@code (x, y)}, computed on a miss. Computing happens outside the cache
+     * lock; concurrent misses on one key wait for the first one's search instead of starting
+     * their own, and count as hits.
+     */
+    public DistanceField get(Grid grid, ObstacleMap obstacles, int x, int y) {
+        Key key = keyOf(grid, obstacles, x, y);
+        CompletableFuture<DistanceField> pending;
+        lock.lock();
+        try {
+            DistanceField cached = fields.get(key);
+            if (cached != null) {
+                hits.increment();
+                return cached;
+            }
+            pending = computing.get(key);
+            if (pending == null) {
+                computing.put(key, new CompletableFuture<>());
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (pending != null) {
+            hits.increment();
+            return await(pending);
+        }
+        misses.increment();
+        DistanceField field;
+        try {
+            field = DistanceField.compute(grid, obstacles, x, y);
+        } catch (RuntimeException | Error e) {
+            finish(key, null).completeExceptionally(e);
+            throw e;
+        }
+        finish(key, field).complete(field);
+        return field;
+    }
+
+    public long hits() {
+        return hits.sum();
+    }
+
+    public long misses() {
+        return misses.sum();
+    }
+
+    public long bytes() {
+        lock.lock();
+        try {
+            return bytes;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Stores {@code field}, if there is one, and returns the future the key's waiters hold.
+     */
+    private CompletableFuture<DistanceField> finish(Key key, DistanceField field) {
+        lock.lock();
+        try {
+            if (field != null) {
+                put(key, field);
+            }
+            return computing.remove(key);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static DistanceField await(CompletableFuture<DistanceField> pending) {
+        try {
+            return pending.join();
+        } catch (CompletionException e) {
+            // The waiters see the failure the computing caller got
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    // Called with the lock held
+    private void put(Key key, DistanceField field) {
+        if (field.memoryBytes() > maxBytes) {
+            return; // would evict everything else and still not fit
+        }
+        DistanceField previous = fields.put(key, field);
+            bytes += field.memoryBytes() - (previous == null ? 0 : previous.memoryBytes());
+            Iterator<Map.Entry<Key, DistanceField>> eldest = fields.entrySet().iterator();
+        while (bytes > maxBytes && eldest.hasNext()) {
+            bytes -= eldest.next().getValue().memoryBytes();
+            eldest.remove();
+        }
+    }
+
+    private static Key keyOf(Grid grid, ObstacleMap obstacles, int x, int y) {
+        if (obstacles.hasOwnObstacles()) {
+            return new Key(obstacles, obstacles.version(), x, y);
+        }
+        // Shared terrains are frozen, and a grid without obstacles never changes
+        return new Key(obstacles.getBase() != null ? obstacles.getBase() : grid, 0, x, y);
+    }
+}
@@ -0,0 +1,161 @@
+package com.kata.probe.domain.planning;
+
+import com.kata.probe.domain.Coordinate;
+import com.kata.probe.domain.Direction;
+import com.kata.probe.domain.Grid;
+import com.kata.probe.domain.ObstacleMap;
+import com.kata.probe.domain.Occupancy;
+import com.kata.probe.domain.Probe;
+import com.kata.probe.domain.commands.CommandProgram;
+
+/**
+ * Finds the shortest F/B/L/R program that brings a probe to a target cell, every command
+ * costing one. A* over (cell, direction) states, with the Manhattan distance plus one turn
+ * when the probe faces the wrong axis as heuristic; both are lower bounds, so the plan is optimal.
+ * <p>
+ * Nodes live in primitive arrays reused by each thread (see {@link SearchBuffers}), so a search
+ * allocates nothing per node. Cells held by other probes count as obstacles at planning time.
+ */
+public final class PathPlanner {
+
+    public static final int DEFAULT_MAX_NODES = 1 << 22;
+    // Buffers that grew past this are dropped after the search rather than kept per thread
+    private static final long RETAINED_BYTES = 8L << 20;
+
+    private static final ThreadLocal<SearchBuffers> BUFFERS = ThreadLocal.withInitial(SearchBuffers::new);
+    private static final Direction[] DIRECTIONS = Direction.values();
+    private static final byte[] MOVES = {
+            CommandProgram.FORWARD, CommandProgram.BACKWARD, CommandProgram.TURN_LEFT, CommandProgram.TURN_RIGHT
+    };
+
+    private final int maxNodes;
+
+    public PathPlanner() {
+        this(DEFAULT_MAX_NODES);
+    }
+
+    /**
+     * @param maxNodes states a search may visit before giving up
+     */
+    public PathPlanner(int maxNodes) {
+        if (maxNodes <= 0) {
+            throw new IllegalArgumentException("Node budget must be positive: " + maxNodes);
+        }
+        this.maxNodes = maxNodes;
+    }
+
+    public Plan plan(Probe probe, Coordinate target) {
+        Grid grid = probe.getGrid();
+        ObstacleMap obstacles = probe.getObstacleMap();
+        if (target == null || !grid.isWithinBounds(target)) {
+            throw new IllegalArgumentException("Target out of bounds: " + target);
+        }
+        if (obstacles.hasObstacle(target)) {
+            throw new IllegalArgumentException("Target is an obstacle: " + target);
+        }
+
+        // Virtual threads are many and short-lived; a per-thread buffer would rarely be reused
+        boolean virtual = Thread.currentThread().isVirtual();
+        SearchBuffers b = virtual ? new SearchBuffers() : BUFFERS.get();
+        try {
+            return search(b, probe, target.x(), target.y());
+        } finally {
+            if (!virtual && b.memoryBytes() > RETAINED_BYTES) {
+                BUFFERS.remove();
+            }
+        }
+    }
+
+    private Plan search(SearchBuffers b, Probe probe, int tx, int ty) {
+        Grid grid = probe.getGrid();
+        ObstacleMap obstacles = probe.getObstacleMap();
+        Occupancy occupancy = probe.getOccupancy();
+        int sx = probe.getX();
+        int sy = probe.getY();
+
+        b.reset(grid);
+        int start = b.lookup(sx, sy, probe.getDirection().ordinal());
+        b.g[start] = 0;
+        b.parent[start] = -1;
+        b.push(start, heuristic(sx, sy, probe.getDirection().ordinal(), tx, ty));
+
+        int expanded = 0;
+        while (b.hasOpen()) {
+            int node = b.pop();
+            if (b.closed[node]) {
+                continue; // reached again more cheaply after it was queued
+            }
+            b.closed[node] = true;
+            expanded++;
+            int x = b.x[node];
+            int y = b.y[node];
+            int d = b.direction[node];
+            if (x == tx && y == ty) {
+                return reconstruct(b, node, expanded);
+            }
+            if (b.size >= maxNodes) {
+                return new Plan(null, 0, expanded, true);
+            }
+
+            for (byte move : MOVES) {
+                int nx = x;
+                int ny = y;
+                int nd = d;
+                switch (move) {
+                    case CommandProgram.FORWARD -> {
+                        nx += DIRECTIONS[d].dxForward();
+                        ny += DIRECTIONS[d].dyForward();
+                    }
+                    case CommandProgram.BACKWARD -> {
+                        nx -= DIRECTIONS[d].dxForward();
+                        ny -= DIRECTIONS[d].dyForward();
+                    }
+                    case CommandProgram.TURN_LEFT -> nd = (d + 3) & 3;
+                    default -> nd = (d + 1) & 3;
+                }
+                if (nd == d && (!grid.isWithinBounds(nx, ny) || obstacles.hasObstacle(nx, ny)
+                        || (occupancy.isOccupied(nx, ny) && (nx != sx || ny != sy)))) {
+                    continue;
+                }
+                int next = b.lookup(nx, ny, nd);
+                int cost = b.g[node] + 1;
+                if (b.closed[next] || cost >= b.g[next]) {
+                    continue;
+                }
+                b.g[next] = cost;
+                b.parent[next] = node;
+                b.move[next] = move;
+                b.push(next, cost + heuristic(nx, ny, nd, tx, ty));
+            }
+        }
+        return new Plan(null, 0, expanded, false);
+    }
+
+    /**
+     * Each move changes the Manhattan distance by at most one; reaching a cell off the facing
+     * axis needs at least one turn.
+     */
+    private static int heuristic(int x, int y, int d, int tx, int ty) {
+        int dx = Math.abs(tx - x);
+        int dy = Math.abs(ty - y);
+        boolean facingX = DIRECTIONS[d].dxForward() != 0;
+        return dx + dy + ((facingX ? dy != 0 : dx != 0) ? 1 : 0);
+    }
+
+    private static Plan reconstruct(SearchBuffers b, int goal, int expanded) {
+        int length = b.g[goal];
+        byte[] moves = new byte[length];
+        int turns = 0;
+        for (int node = goal, i = length - 1; i >= 0; node = b.parent[node], i--) {
+            moves[i] = b.move[node];
+            if (moves[i] == CommandProgram.TURN_LEFT || moves[i] == CommandProgram.TURN_RIGHT) {
+                turns++;
+            }
+        }
+        CommandProgram program = new CommandProgram();
+        for (byte move : moves) {
+            program.append(move, 1);
+        }
+        return new Plan(program, turns, expanded, false);
+    }
+}
@@ -0,0 +1,17 @@
+package com.kata.probe.domain.planning;
+
+import com.kata.probe.domain.commands.CommandProgram;
+
+/**
+ * Outcome of a search. {@code program} is {@code null} when the target cannot be reached, or
+ * when the search stopped at its node budget first ({@code exhausted}).
+ *
+ * @param turns    L and R commands in the program
+ * @param expanded states taken off the open set
+ */
+public record Plan(CommandProgram program, int turns, int expanded, boolean exhausted) {
+
+    public boolean reachable() {
+        return program != null;
+    }
+}
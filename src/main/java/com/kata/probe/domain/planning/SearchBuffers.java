@@ -0,0 +1,190 @@
+package com.kata.probe.domain.planning;
+
+import com.kata.probe.domain.Grid;
+
+import java.util.Arrays;
+
+/**
+ * Node storage of one A* search as parallel primitive arrays, reused from search to search.
+ * A node is a (cell, direction) state; its ID indexes every array. States are found through a
+ * hash table cleared by bumping a generation stamp, so a reset costs nothing however large the
+ * last search was; searches that outgrow it on a moderate grid move to a grid-sized array.
+ */
+final class SearchBuffers {
+
+    private static final int INITIAL_NODES = 1 << 12;
+    // States of a 2048 x 2048 grid; above that the hash table takes over
+    private static final long DENSE_STATE_LIMIT = 1L << 24;
+    // Below this many nodes the hash table is cheaper than allocating a grid-sized array
+    private static final int DENSE_SWITCH_NODES = 1 << 15;
+
+    int[] x = new int[INITIAL_NODES];
+    int[] y = new int[INITIAL_NODES];
+    byte[] direction = new byte[INITIAL_NODES];
+    int[] g = new int[INITIAL_NODES];
+    int[] parent = new int[INITIAL_NODES];
+    byte[] move = new byte[INITIAL_NODES];
+    boolean[] closed = new boolean[INITIAL_NODES];
+    int size;
+
+    private int[] table = new int[INITIAL_NODES * 2];
+    private int[] stamps = new int[INITIAL_NODES * 2];
+    private int generation = 1;
+    private int width;
+    // Node ID by row-major state number, which large searches on grids small enough switch to.
+    // Never cleared: an entry only counts if the node it names still holds that state.
+    private int[] dense;
+    private boolean useDense;
+    private long states;
+
+    // Open set as a bucket queue: one LIFO list of entries per f value. Every step costs one
+    // and the heuristic is consistent, so f never drops below the bucket last popped from.
+    private int[] bucketHeads = new int[256];
+    private int[] entryNodes = new int[INITIAL_NODES];
+    private int[] entryNext = new int[INITIAL_NODES];
+    private int entries;
+    private int open;
+    private int fBase;
+    private int current;
+
+    void reset(Grid grid) {
+        this.width = grid.width();
+        this.states = 4L * grid.width() * grid.height();
+        useDense = false;
+        size = 0;
+        entries = 0;
+        open = 0;
+        Arrays.fill(bucketHeads, -1);
+        if (++generation == 0) {
+            Arrays.fill(stamps, 0);
+            generation = 1;
+        }
+    }
+
+    /**
+     * Heap held by the buffers, to decide whether they are worth keeping for the next search.
+     */
+    long memoryBytes() {
+        return 19L * x.length + 8L * table.length + 8L * entryNodes.length + (dense == null ? 0 : 4L * dense.length);
+    }
+
+    /**
+     * ID of the state, added with an unknown cost if it has not been seen in this search.
+     */
+    int lookup(int nx, int ny, int nd) {
+        if (useDense) {
+            int state = ((ny * width + nx) << 2) | nd;
+            int id = dense[state];
+            if (id < size && x[id] == nx && y[id] == ny && direction[id] == nd) {
+                return id;
+            }
+            dense[state] = size;
+            return add(nx, ny, nd);
+        }
+        if (2 * (size + 1) > table.length) {
+            if (states <= DENSE_STATE_LIMIT && size >= DENSE_SWITCH_NODES) {
+                switchToDense();
+                return lookup(nx, ny, nd);
+            }
+            grow();
+        }
+        int mask = table.length - 1;
+        for (int slot = hash(nx, ny, nd) & mask; ; slot = (slot + 1) & mask) {
+            if (stamps[slot] != generation) {
+                stamps[slot] = generation;
+                table[slot] = size;
+                return add(nx, ny, nd);
+            }
+            int id = table[slot];
+            if (x[id] == nx && y[id] == ny && direction[id] == nd) {
+                return id;
+            }
+        }
+    }
+
+    void push(int node, int f) {
+        if (open == 0 && entries == 0) {
+            fBase = f;
+            current = 0;
+        }
+        int bucket = f - fBase;
+        if (bucket >= bucketHeads.length) {
+            int old = bucketHeads.length;
+            bucketHeads = Arrays.copyOf(bucketHeads, Math.max(old * 2, bucket + 1));
+            Arrays.fill(bucketHeads, old, bucketHeads.length, -1);
+        }
+        if (entries == entryNodes.length) {
+            entryNodes = Arrays.copyOf(entryNodes, entries * 2);
+            entryNext = Arrays.copyOf(entryNext, entries * 2);
+        }
+        // Last in, first out: within one f the deepest node comes first and heads straight for the target
+        entryNodes[entries] = node;
+        entryNext[entries] = bucketHeads[bucket];
+        bucketHeads[bucket] = entries++;
+        open++;
+    }
+
+    boolean hasOpen() {
+        return open > 0;
+    }
+
+    int pop() {
+        while (bucketHeads[current] < 0) {
+            current++;
+        }
+        int entry = bucketHeads[current];
+        bucketHeads[current] = entryNext[entry];
+        open--;
+        return entryNodes[entry];
+    }
+
+    private int add(int nx, int ny, int nd) {
+        if (size == x.length) {
+            int capacity = size * 2;
+            x = Arrays.copyOf(x, capacity);
+            y = Arrays.copyOf(y, capacity);
+            direction = Arrays.copyOf(direction, capacity);
+            g = Arrays.copyOf(g, capacity);
+            parent = Arrays.copyOf(parent, capacity);
+            move = Arrays.copyOf(move, capacity);
+            closed = Arrays.copyOf(closed, capacity);
+        }
+        int id = size++;
+        x[id] = nx;
+        y[id] = ny;
+        direction[id] = (byte) nd;
+        g[id] = Integer.MAX_VALUE;
+        closed[id] = false;
+        return id;
+    }
+
+    private void switchToDense() {
+        if (dense == null || dense.length < states) {
+            dense = new int[(int) states];
+        }
+        for (int id = 0; id < size; id++) {
+            dense[((y[id] * width + x[id]) << 2) | direction[id]] = id;
+        }
+        useDense = true;
+    }
+
+    private void grow() {
+        table = new int[table.length * 2];
+        stamps = new int[stamps.length * 2];
+        generation = 1;
+        int mask = table.length - 1;
+        for (int id = 0; id < size; id++) {
+            int slot = hash(x[id], y[id], direction[id]) & mask;
+            while (stamps[slot] == generation) {
+                slot = (slot + 1) & mask;
+            }
+            stamps[slot] = generation;
+            table[slot] = id;
+        }
+    }
+
+    private static int hash(int x, int y, int d) {
+        long h = (((long) x << 32) ^ (y & 0xFFFFFFFFL) ^ ((long) d << 62)) * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
@@ -0,0 +1,15 @@
+package com.kata.probe.event;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableConfigurationProperties(EventProperties.class)
+public class EventConfiguration {
+
+    @Bean
+    public ProbeEventBus probeEventBus(EventProperties properties) {
+        return properties.enabled() ? new RingBufferEventBus(properties.capacity()) : ProbeEventBus.NONE;
+    }
+}
@@ -0,0 +1,19 @@
+package com.kata.probe.event;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * {@code probe.events.*} settings.
+ *
+ * @param enabled   whether command batches publish events at all
+ * @param capacity  events kept for readers, a power of two; a reader further behind loses the oldest
+ * @param keepAlive time between SSE comments sent on a quiet subscription
+ */
+@ConfigurationProperties("probe.events")
+public record EventProperties(
+        @DefaultValue("true") boolean enabled,
+        @DefaultValue("65536") int capacity,
+        @DefaultValue("15s") Duration keepAlive) {}
@@ -0,0 +1,53 @@
+package com.kata.probe.event;
+
+import com.kata.probe.domain.Coordinate;
+import com.kata.probe.domain.Direction;
+
+import java.util.UUID;
+
+/**
+ * Something that happened to a probe, published once per command batch that caused it.
+ * {@code version} is the probe version the batch produced.
+ */
+public sealed interface ProbeEvent {
+
+    UUID id();
+
+    /**
+     * Shared terrain the probe runs on, or {@code null} for a probe on its own grid.
+     */
+    String terrain();
+
+    long version();
+
+    Coordinate position();
+
+    Direction direction();
+
+    /**
+     * Event name used on the wire, e.g. as the SSE {@code event:} field.
+     */
+    String type();
+
+    /**
+     * The probe moved or turned. {@code steps} is the number of cells added to its path.
+     */
+    record ProbeMoved(UUID id, String terrain, long version, Coordinate position, Direction direction,
+                      int steps) implements ProbeEvent {
+        @Override
+        public String type() {
+            return "moved";
+        }
+    }
+
+    /**
+     * Some moves of the batch were refused by an obstacle or the grid edge.
+     */
+    record ProbeBlocked(UUID id, String terrain, long version, Coordinate position, Direction direction,
+                        int blocked) implements ProbeEvent {
+        @Override
+        public String type() {
+            return "blocked";
+        }
+    }
+}
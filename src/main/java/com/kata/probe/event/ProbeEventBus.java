@@ -0,0 +1,64 @@
+package com.kata.probe.event;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * In-process stream of {@link ProbeEvent}s. Every event gets the next sequence number; readers
+ * keep their own cursor and {@link #drain} from it, so publishing never waits for a reader.
+ */
+public interface ProbeEventBus {
+
+    /**
+     * Bus that drops everything; readers never see an event.
+     */
+    ProbeEventBus NONE = new ProbeEventBus() {
+        @Override
+        public long publish(ProbeEvent event) {
+            return 0;
+        }
+
+        @Override
+        public long head() {
+            return 0;
+        }
+
+        @Override
+        public long drain(long cursor, int max, EventConsumer consumer) {
+            return cursor;
+        }
+
+        @Override
+        public void await(long cursor, long maxNanos) {
+            LockSupport.parkNanos(this, maxNanos);
+        }
+    };
+
+    /**
+     * Publishes {@code event} and returns its sequence number.
+     */
+    long publish(ProbeEvent event);
+
+    /**
+     * Sequence number the next event will get; a reader starting here sees only new events.
+     */
+    long head();
+
+    /**
+     * Passes up to {@code max} events from {@code cursor} on to {@code consumer}, in sequence
+     * order, and returns the cursor to continue from. A reader that fell so far behind that its
+     * events were overwritten skips ahead to the oldest one still held; the jump shows in the
+     * sequence numbers.
+     */
+    long drain(long cursor, int max, EventConsumer consumer);
+
+    /**
+     * Blocks until the event at {@code cursor} is published, at most {@code maxNanos}. May return
+     * early, e.g. when the thread is unparked; callers drain and check again.
+     */
+    void await(long cursor, long maxNanos);
+
+    @FunctionalInterface
+    interface EventConsumer {
+        void accept(long sequence, ProbeEvent event);
+    }
+}
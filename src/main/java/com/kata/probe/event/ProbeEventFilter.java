@@ -0,0 +1,46 @@
+package com.kata.probe.event;
+
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Selects events by probe ID, by terrain and/or by the region the probe is in afterwards. An empty
+ * {@code ids} set, a {@code null} terrain and a {@code null} region each match everything. A region
+ * needs a terrain: cells of different terrains, or of probes on their own grids, are unrelated.
+ */
+public record ProbeEventFilter(Set<UUID> ids, String terrain, Region region) {
+
+    public static final ProbeEventFilter ALL = new ProbeEventFilter(Set.of(), null, null);
+
+    public ProbeEventFilter {
+        ids = ids == null ? Set.of() : Set.copyOf(ids);
+        if (region != null && terrain == null) {
+            throw new IllegalArgumentException("A region needs a terrain");
+        }
+    }
+
+    public boolean test(ProbeEvent event) {
+        if (!ids.isEmpty() && !ids.contains(event.id())) {
+            return false;
+        }
+        if (terrain != null && !terrain.equals(event.terrain())) {
+            return false;
+        }
+        return region == null || region.contains(event.position().x(), event.position().y());
+    }
+
+    /**
+     * Inclusive rectangle of grid cells.
+     */
+    public record Region(int minX, int minY, int maxX, int maxY) {
+        public Region {
+            if (minX > maxX || minY > maxY) {
+                throw new IllegalArgumentException("Region minimum must not exceed its maximum");
+            }
+        }
+
+        boolean contains(int x, int y) {
+            return x >= minX && x <= maxX && y >= minY && y <= maxY;
+        }
+    }
+}
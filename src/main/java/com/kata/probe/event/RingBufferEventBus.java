@@ -0,0 +1,87 @@
+package com.kata.probe.event;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Lock-free, multi-producer ring of the most recent events.
+ * <p>
+ * A publisher claims a sequence number with one atomic increment and stores the event with its
+ * number in slot {@code sequence & mask} with one volatile write. A reader at cursor {@code c}
+ * finds in that slot either an older event (not published yet: wait), event {@code c} itself,
+ * or a newer one (the ring wrapped past the reader: skip ahead).
+ * <p>
+ * Readers that have caught up park in {@link #await} and are unparked by the next publish,
+ * so an idle reader costs nothing.
+ */
+public final class RingBufferEventBus implements ProbeEventBus {
+
+    private final AtomicReferenceArray<Entry> slots;
+    private final int mask;
+    private final AtomicLong next = new AtomicLong();
+    private final Set<Thread> waiting = ConcurrentHashMap.newKeySet();
+
+    public RingBufferEventBus(int capacity) {
+        if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Capacity must be a positive power of two: " + capacity);
+        }
+        this.slots = new AtomicReferenceArray<>(capacity);
+        this.mask = capacity - 1;
+    }
+
+    @Override
+    public long publish(ProbeEvent event) {
+        long sequence = next.getAndIncrement();
+        slots.set((int) sequence & mask, new Entry(sequence, event));
+        // Checked after the store: a reader registers before it looks, so either it sees the event or it is woken
+        if (!waiting.isEmpty()) {
+            for (Thread reader : waiting) {
+                LockSupport.unpark(reader);
+            }
+        }
+        return sequence;
+    }
+
+    @Override
+    public long head() {
+        return next.get();
+    }
+
+    @Override
+    public long drain(long cursor, int max, EventConsumer consumer) {
+        for (int delivered = 0; delivered < max; ) {
+            Entry entry = slots.get((int) cursor & mask);
+            if (entry == null || entry.sequence < cursor) {
+                return cursor; // caught up, or the publisher of this slot has not stored it yet
+            }
+            if (entry.sequence > cursor) {
+                // Lapped: everything older than one ring behind the head is gone
+                cursor = Math.max(cursor + 1, next.get() - mask);
+                continue;
+            }
+            consumer.accept(cursor, entry.event);
+            cursor++;
+            delivered++;
+        }
+        return cursor;
+    }
+
+    @Override
+    public void await(long cursor, long maxNanos) {
+        Thread reader = Thread.currentThread();
+        waiting.add(reader);
+        try {
+            Entry entry = slots.get((int) cursor & mask);
+            if (entry == null || entry.sequence < cursor) {
+                LockSupport.parkNanos(this, maxNanos);
+            }
+        } finally {
+            waiting.remove(reader);
+        }
+    }
+
+    private record Entry(long sequence, ProbeEvent event) {}
+}
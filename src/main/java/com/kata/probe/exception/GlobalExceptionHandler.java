@@ -1,5 +1,7 @@
 package com.kata.probe.exception;
 
+import com.kata.probe.controller.v1.ETags;
+
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.converter.HttpMessageNotReadableException;
 import org.springframework.web.bind.MethodArgumentNotValidException;
@@ -14,43 +16,52 @@ public class GlobalExceptionHandler {
     @ExceptionHandler(MethodArgumentNotValidException.class)
     public ResponseEntity<Map<String, Object>> handleValidation(MethodArgumentNotValidException ex) {
         return ResponseEntity.badRequest().body(
-                Map.of("error",
-                        Map.of(
-                                "code", "VALIDATION_ERROR",
-                                "message", "Request validation failed"
-                        )
-                )
-        );
+                Map.of("error", new ApiError("VALIDATION_ERROR", "Request validation failed")));
     }
 
     @ExceptionHandler(HttpMessageNotReadableException.class)
     public ResponseEntity<Map<String, Object>> handleMalformedJson(HttpMessageNotReadableException ex) {
         return ResponseEntity.badRequest().body(
-                Map.of("error",
-                        Map.of(
-                                "code", "VALIDATION_ERROR",
-                                "message", "Malformed JSON request"
-                        )
-                )
-        );
+                Map.of("error", new ApiError("VALIDATION_ERROR", "Malformed JSON request")));
+    }
+
+    @ExceptionHandler(MalformedHeaderException.class)
+    public ResponseEntity<Map<String, Object>> handleMalformedHeader(MalformedHeaderException ex) {
+        return ResponseEntity.badRequest().body(Map.of("error", toApiError(ex)));
     }
 
     @ExceptionHandler(IllegalArgumentException.class)
     public ResponseEntity<Map<String, Object>> handleIllegalArgument(IllegalArgumentException ex) {
-        return ResponseEntity.unprocessableEntity().body(
-                Map.of("error",
-                        Map.of(
-                                "code", "VALIDATION_ERROR",
-                                "message", ex.getMessage()
-                        )
-                )
-        );
+        return ResponseEntity.unprocessableEntity().body(Map.of("error", toApiError(ex)));
+    }
+
+    @ExceptionHandler({ProbeNotFoundException.class, TerrainNotFoundException.class})
+    public ResponseEntity<ApiError> handleNotFound(RuntimeException ex) {
+        return ResponseEntity.status(404).body(toApiError(ex));
+    }
+
+    @ExceptionHandler(ProbeVersionConflictException.class)
+    public ResponseEntity<ApiError> handleVersionConflict(ProbeVersionConflictException ex) {
+        return ResponseEntity.status(412)
+                .eTag(ETags.of(ex.getCurrentVersion()))
+                .body(toApiError(ex));
     }
 
-    @ExceptionHandler(ProbeNotFoundException.class)
-    public ResponseEntity<ApiError> handleNotFound(ProbeNotFoundException ex) {
-        return ResponseEntity.status(404)
-                .body(new ApiError("NOT_FOUND", ex.getMessage()));
+    /**
+     * Maps a failure to the code its standalone request gets; the handlers above and per-entry
+     * batch reporting both build their bodies from it.
+     */
+    public static ApiError toApiError(RuntimeException ex) {
+        if (ex instanceof ProbeNotFoundException || ex instanceof TerrainNotFoundException) {
+            return new ApiError("NOT_FOUND", ex.getMessage());
+        }
+        if (ex instanceof ProbeVersionConflictException) {
+            return new ApiError("PRECONDITION_FAILED", ex.getMessage());
+        }
+        if (ex instanceof IllegalArgumentException || ex instanceof MalformedHeaderException) {
+            return new ApiError("VALIDATION_ERROR", ex.getMessage());
+        }
+        return new ApiError("INTERNAL_ERROR", "Unexpected error");
     }
 
 }
\ No newline at end of file
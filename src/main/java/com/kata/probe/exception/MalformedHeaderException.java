@@ -0,0 +1,10 @@
+package com.kata.probe.exception;
+
+/**
+ * A request header that cannot be parsed; answered with 400, unlike a well-formed request that breaks a rule.
+ */
+public class MalformedHeaderException extends RuntimeException {
+    public MalformedHeaderException(String header, String value) {
+        super("Invalid " + header + " header: " + value);
+    }
+}
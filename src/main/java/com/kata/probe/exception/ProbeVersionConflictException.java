@@ -0,0 +1,18 @@
+package com.kata.probe.exception;
+
+import java.util.UUID;
+
+public class ProbeVersionConflictException extends RuntimeException {
+
+    private final long currentVersion;
+
+    public ProbeVersionConflictException(UUID id, long expectedVersion, long currentVersion) {
+        super("Probe version conflict: " + id + " expected version " + expectedVersion
+                + " but was " + currentVersion);
+        this.currentVersion = currentVersion;
+    }
+
+    public long getCurrentVersion() {
+        return currentVersion;
+    }
+}
@@ -0,0 +1,7 @@
+package com.kata.probe.exception;
+
+public class TerrainNotFoundException extends RuntimeException {
+    public TerrainNotFoundException(String name) {
+        super("Terrain not found: " + name);
+    }
+}
@@ -0,0 +1,39 @@
+package com.kata.probe.metrics;
+
+import com.kata.probe.domain.planning.DistanceFieldCache;
+import com.kata.probe.service.ReachabilityService;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.stereotype.Component;
+
+/**
+ * Distance field cache meters: {@code probe.distances.cache.requests} tagged {@code result} =
+ * {@code hit} / {@code miss}, and {@code probe.distances.cache.size} in bytes.
+ */
+@Component
+public class DistanceCacheMetrics implements MeterBinder {
+
+    private final DistanceFieldCache cache;
+
+    public DistanceCacheMetrics(ReachabilityService reachability) {
+        this.cache = reachability.cache();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("probe.distances.cache.requests", cache, DistanceFieldCache::hits)
+                .tag("result", "hit")
+                .description("Distance field lookups answered from the cache")
+                .register(registry);
+        FunctionCounter.builder("probe.distances.cache.requests", cache, DistanceFieldCache::misses)
+                .tag("result", "miss")
+                .description("Distance field lookups that ran a search")
+                .register(registry);
+        Gauge.builder("probe.distances.cache.size", cache, DistanceFieldCache::bytes)
+                .description("Heap held by cached distance fields")
+                .baseUnit("bytes")
+                .register(registry);
+    }
+}
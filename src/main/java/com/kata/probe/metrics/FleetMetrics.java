@@ -0,0 +1,76 @@
+package com.kata.probe.metrics;
+
+import com.kata.probe.repository.ProbeRepository;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fleet-wide meters, read from the repository when scraped rather than updated per request.
+ * <ul>
+ *   <li>{@code probe.repository.size}: probes stored, including any not yet loaded from a snapshot</li>
+ *   <li>{@code probe.path.memory}: bytes held by the visited paths of loaded probes</li>
+ *   <li>{@code probe.lock.wait}: time spent waiting for a contended probe lock</li>
+ *   <li>{@code probe.lock.acquisitions}: all probe lock acquisitions, contended or not</li>
+ *   <li>{@code probe.repository.requests}: lookups tagged {@code result} = {@code hit} (in memory) or
+ *       {@code miss} (brought back from spill files); only counted with tiering on</li>
+ *   <li>{@code probe.repository.evictions}: probes moved from memory to spill files</li>
+ *   <li>{@code probe.repository.memory}: estimated heap of the probes in memory, the figure the budget applies to</li>
+ *   <li>{@code probe.repository.spilled}: probes held only in spill files, and {@code probe.repository.spill.size} their bytes</li>
+ * </ul>
+ */
+@Component
+public class FleetMetrics implements MeterBinder {
+
+    private final ProbeRepository repo;
+
+    public FleetMetrics(ProbeRepository repo) {
+        this.repo = repo;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("probe.repository.size", repo, ProbeRepository::size)
+                .description("Probes in the repository")
+                .register(registry);
+        // Walks the loaded probes, so it costs one pass over the fleet per scrape
+        Gauge.builder("probe.path.memory", repo, ProbeRepository::pathMemoryBytes)
+                .description("Heap used by visited paths")
+                .baseUnit("bytes")
+                .register(registry);
+        FunctionTimer.builder("probe.lock.wait", repo,
+                        ProbeRepository::contendedLocks, ProbeRepository::lockWaitNanos, TimeUnit.NANOSECONDS)
+                .description("Waits for a probe lock held by another request")
+                .register(registry);
+        FunctionCounter.builder("probe.lock.acquisitions", repo, ProbeRepository::lockAcquisitions)
+                .description("Probe lock acquisitions")
+                .register(registry);
+        FunctionCounter.builder("probe.repository.requests", repo, ProbeRepository::tierHits)
+                .tag("result", "hit")
+                .description("Probe lookups answered from memory")
+                .register(registry);
+        FunctionCounter.builder("probe.repository.requests", repo, ProbeRepository::tierMisses)
+                .tag("result", "miss")
+                .description("Probe lookups that reloaded a spilled probe")
+                .register(registry);
+        FunctionCounter.builder("probe.repository.evictions", repo, ProbeRepository::evictions)
+                .description("Probes spilled from memory")
+                .register(registry);
+        Gauge.builder("probe.repository.memory", repo, ProbeRepository::residentBytes)
+                .description("Estimated heap of the probes in memory")
+                .baseUnit("bytes")
+                .register(registry);
+        Gauge.builder("probe.repository.spilled", repo, ProbeRepository::coldSize)
+                .description("Probes held only in spill files")
+                .register(registry);
+        Gauge.builder("probe.repository.spill.size", repo, ProbeRepository::coldBytes)
+                .description("Disk used by spill files")
+                .baseUnit("bytes")
+                .register(registry);
+    }
+}
@@ -0,0 +1,72 @@
+package com.kata.probe.metrics;
+
+import com.kata.probe.controller.response.ExecutionSummary;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Meters updated on every command batch. All meters are created up front, so recording a batch
+ * is a few adder increments with no registry lookup.
+ * <ul>
+ *   <li>{@code probe.commands} (counter, tag {@code outcome}: executed / blocked / invalid)</li>
+ *   <li>{@code probe.apply} (timer, tag {@code batch}: size bucket of the batch), including the
+ *       wait for the probe lock and for the journal</li>
+ * </ul>
+ */
+@Component
+public class ProbeMetrics {
+
+    // Upper bounds of the batch size buckets; the last bucket is open-ended
+    private static final int[] BATCH_LIMITS = {1, 16, 256, 4096};
+    private static final String[] BATCH_TAGS = {"1", "2-16", "17-256", "257-4096", "4097+"};
+
+    /**
+     * Metrics that go nowhere, for services built outside Spring.
+     */
+    public static final ProbeMetrics NONE = new ProbeMetrics(new CompositeMeterRegistry());
+
+    private final Counter executed;
+    private final Counter blocked;
+    private final Counter invalid;
+    private final Timer[] applyTimers = new Timer[BATCH_TAGS.length];
+
+    public ProbeMetrics(MeterRegistry registry) {
+        this.executed = commands(registry, "executed");
+        this.blocked = commands(registry, "blocked");
+        this.invalid = commands(registry, "invalid");
+        for (int i = 0; i < BATCH_TAGS.length; i++) {
+            applyTimers[i] = Timer.builder("probe.apply")
+                    .description("Time to apply a command batch to one probe")
+                    .tag("batch", BATCH_TAGS[i])
+                    .register(registry);
+        }
+    }
+
+    public void recordApply(long commands, ExecutionSummary summary, long nanos) {
+        executed.increment(summary.executed);
+        blocked.increment(summary.blocked);
+        invalid.increment(summary.invalid);
+        applyTimers[bucket(commands)].record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    private static int bucket(long commands) {
+        for (int i = 0; i < BATCH_LIMITS.length; i++) {
+            if (commands <= BATCH_LIMITS[i]) {
+                return i;
+            }
+        }
+        return BATCH_LIMITS.length;
+    }
+
+    private static Counter commands(MeterRegistry registry, String outcome) {
+        return Counter.builder("probe.commands")
+                .description("Commands applied to probes")
+                .tag("outcome", outcome)
+                .register(registry);
+    }
+}
@@ -0,0 +1,46 @@
+package com.kata.probe.repository;
+
+import com.kata.probe.domain.ProbeAggregate;
+
+import java.util.UUID;
+
+/**
+ * Where the repository keeps probes it has evicted from memory, such as spill files on local
+ * disk. A copy may outlive its probe's return to memory: as long as the probe does not change,
+ * evicting it again costs nothing. See {@link ProbeRepository#enableTiering}.
+ */
+public interface ColdTier {
+
+    /**
+     * Stores a copy of {@code agg}, replacing any older one.
+     */
+    void put(UUID id, ProbeAggregate agg);
+
+    /**
+     * Builds the stored copy, or returns {@code null} if there is none.
+     */
+    ProbeAggregate load(UUID id);
+
+    boolean contains(UUID id);
+
+    /**
+     * Version of the stored copy, or {@code -1} if there is none.
+     */
+    long storedVersion(UUID id);
+
+    /**
+     * Drops the stored copy; returns whether there was one.
+     */
+    boolean remove(UUID id);
+
+    /**
+     * Space taken on the medium, including copies that are no longer current.
+     */
+    long bytes();
+
+    /**
+     * Reclaims space held by copies that are no longer current. Called by the repository while
+     * it holds no probe lock, since it may copy many entries.
+     */
+    default void compact() {}
+}
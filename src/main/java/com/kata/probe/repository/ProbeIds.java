@@ -0,0 +1,26 @@
+package com.kata.probe.repository;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Time-ordered probe IDs in the UUID version 7 layout: 48 bits of epoch milliseconds, then
+ * 74 random bits. The random part comes from {@link ThreadLocalRandom}, so unlike
+ * {@link UUID#randomUUID()} no thread waits on a shared {@code SecureRandom}. IDs are not
+ * meant to be unguessable; they only need to be unique.
+ */
+public final class ProbeIds {
+
+    private ProbeIds() {}
+
+    public static UUID next() {
+        return next(System.currentTimeMillis());
+    }
+
+    static UUID next(long epochMillis) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long msb = (epochMillis << 16) | 0x7000L | (random.nextLong() & 0x0FFFL);
+        long lsb = (random.nextLong() & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L;
+        return new UUID(msb, lsb);
+    }
+}
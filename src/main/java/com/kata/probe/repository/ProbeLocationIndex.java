@@ -0,0 +1,235 @@
+package com.kata.probe.repository;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Where every probe is, bucketed in a uniform grid of square cells, so region and nearest
+ * queries only look at the cells they cover instead of the whole fleet.
+ * <p>
+ * Cells are kept per shared terrain, and every query names one: coordinates on different
+ * terrains are unrelated. Probes on a private grid, without a terrain, are counted but not
+ * bucketed, since no two of them share a coordinate space.
+ * <p>
+ * Kept up to date by {@link ProbeRepository} whenever a probe is stored. A query sees each
+ * probe at most once, at its old or its new position while it is being moved.
+ */
+public final class ProbeLocationIndex {
+
+    public static final int DEFAULT_CELL_SHIFT = 6; // 64 x 64 cells
+
+    private final int cellShift;
+    private final long cellSize;
+    // Cells by terrain. Buckets are only changed inside compute(), so an emptied bucket is never written to again
+    private final ConcurrentHashMap<String, ConcurrentHashMap<Long, Map<UUID, Location>>> terrains =
+            new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<UUID, Location> locations = new ConcurrentHashMap<>();
+
+    public ProbeLocationIndex() {
+        this(DEFAULT_CELL_SHIFT);
+    }
+
+    public ProbeLocationIndex(int cellShift) {
+        if (cellShift < 0 || cellShift > 20) {
+            throw new IllegalArgumentException("Cell shift must be between 0 and 20: " + cellShift);
+        }
+        this.cellShift = cellShift;
+        this.cellSize = 1L << cellShift;
+    }
+
+    /**
+     * @param terrain shared terrain the probe is on, or {@code null}
+     */
+    public record Location(UUID id, String terrain, int x, int y) {}
+
+    public int size() {
+        return locations.size();
+    }
+
+    public void forEachId(Consumer<UUID> action) {
+        locations.keySet().forEach(action);
+    }
+
+    public void place(UUID id, String terrain, int x, int y) {
+        Location previous = locations.get(id);
+        if (previous != null && previous.x == x && previous.y == y) {
+            return;
+        }
+        Location next = new Location(id, terrain, x, y);
+        long key = cellKey(x, y);
+        if (terrain != null) {
+            // New bucket first: until locations points at it, queries still accept the old entry
+            terrains.computeIfAbsent(terrain, t -> new ConcurrentHashMap<>()).compute(key, (k, bucket) -> {
+                if (bucket == null) {
+                    bucket = new ConcurrentHashMap<>();
+                }
+                bucket.put(id, next);
+                return bucket;
+            });
+        }
+        previous = locations.put(id, next);
+        if (previous != null && (cellKey(previous.x, previous.y) != key || !Objects.equals(previous.terrain, terrain))) {
+            removeFromCell(previous);
+        }
+    }
+
+    public void remove(UUID id) {
+        Location previous = locations.remove(id);
+        if (previous != null) {
+            removeFromCell(previous);
+        }
+    }
+
+    /**
+     * Up to {@code limit} probes on {@code terrain} inside the inclusive rectangle.
+     */
+    public List<Location> within(int minX, int minY, int maxX, int maxY, String terrain, int limit) {
+        List<Location> result = new ArrayList<>();
+        Map<Long, Map<UUID, Location>> cells = cellsOf(terrain);
+        int cx0 = minX >> cellShift;
+        int cy0 = minY >> cellShift;
+        int cx1 = maxX >> cellShift;
+        int cy1 = maxY >> cellShift;
+        long covered = ((long) cx1 - cx0 + 1) * ((long) cy1 - cy0 + 1);
+        if (covered <= cells.size()) {
+            // Long counters so a box touching Integer.MAX_VALUE cannot wrap around
+            for (long cx = cx0; cx <= cx1 && result.size() < limit; cx++) {
+                for (long cy = cy0; cy <= cy1 && result.size() < limit; cy++) {
+                    collect(cells.get(pack((int) cx, (int) cy)), minX, minY, maxX, maxY, limit, result);
+                }
+            }
+        } else {
+            // A region wider than the occupied cells: walk those instead
+            for (var cell : cells.entrySet()) {
+                int cx = (int) (cell.getKey() >> 32);
+                int cy = (int) (long) cell.getKey();
+                if (cx >= cx0 && cx <= cx1 && cy >= cy0 && cy <= cy1) {
+                    collect(cell.getValue(), minX, minY, maxX, maxY, limit, result);
+                    if (result.size() >= limit) {
+                        break;
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * The {@code k} probes on {@code terrain} closest to {@code (x, y)}, nearest first. Searches
+     * rings of cells outwards and stops once no unvisited cell can hold anything closer than the
+     * k-th found.
+     */
+    public List<Location> nearest(int x, int y, int k, String terrain) {
+        Map<Long, Map<UUID, Location>> cells = cellsOf(terrain);
+        PriorityQueue<Candidate> best = new PriorityQueue<>(Comparator.comparingLong(Candidate::distance).reversed());
+        int cx0 = x >> cellShift;
+        int cy0 = y >> cellShift;
+        for (int r = 0; ; r++) {
+            if ((2L * r + 1) * (2L * r + 1) > 4L * cells.size() + 16) {
+                // The rings now cover more cells than are occupied; finish with one pass over those
+                best.clear();
+                cells.values().forEach(bucket -> offer(bucket, x, y, k, best));
+                break;
+            }
+            for (int cx = cx0 - r; cx <= cx0 + r; cx++) {
+                offer(cells.get(pack(cx, cy0 - r)), x, y, k, best);
+                if (r > 0) {
+                    offer(cells.get(pack(cx, cy0 + r)), x, y, k, best);
+                }
+            }
+            for (int cy = cy0 - r + 1; cy <= cy0 + r - 1; cy++) {
+                offer(cells.get(pack(cx0 - r, cy)), x, y, k, best);
+                offer(cells.get(pack(cx0 + r, cy)), x, y, k, best);
+            }
+            // Every cell in ring r + 1 is at least r cells away from (x, y)
+            long reach = r * cellSize;
+            if (best.size() == k && reach * reach >= best.peek().distance()) {
+                break;
+            }
+        }
+        List<Location> result = new ArrayList<>(best.size());
+        while (!best.isEmpty()) {
+            result.add(best.poll().location());
+        }
+        return result.reversed();
+    }
+
+    private void collect(Map<UUID, Location> bucket, int minX, int minY, int maxX, int maxY,
+                         int limit, List<Location> result) {
+        if (bucket == null) {
+            return;
+        }
+        for (Location l : bucket.values()) {
+            if (result.size() >= limit) {
+                return;
+            }
+            if (l.x >= minX && l.x <= maxX && l.y >= minY && l.y <= maxY && isCurrent(l)) {
+                result.add(l);
+            }
+        }
+    }
+
+    private void offer(Map<UUID, Location> bucket, int x, int y, int k, PriorityQueue<Candidate> best) {
+        if (bucket == null) {
+            return;
+        }
+        for (Location l : bucket.values()) {
+            if (!isCurrent(l)) {
+                continue;
+            }
+            long dx = (long) l.x - x;
+            long dy = (long) l.y - y;
+            long distance = dx * dx + dy * dy;
+            if (best.size() < k) {
+                best.add(new Candidate(l, distance));
+            } else if (distance < best.peek().distance()) {
+                best.poll();
+                best.add(new Candidate(l, distance));
+            }
+        }
+    }
+
+    private Map<Long, Map<UUID, Location>> cellsOf(String terrain) {
+        if (terrain == null) {
+            throw new IllegalArgumentException("Location queries need a terrain; probes on private grids are not comparable");
+        }
+        Map<Long, Map<UUID, Location>> cells = terrains.get(terrain);
+        return cells == null ? Map.of() : cells;
+    }
+
+    // An entry left in its old bucket while the probe moves is no longer the current one
+    private boolean isCurrent(Location l) {
+        return locations.get(l.id) == l;
+    }
+
+    private void removeFromCell(Location location) {
+        if (location.terrain == null) {
+            return;
+        }
+        ConcurrentHashMap<Long, Map<UUID, Location>> cells = terrains.get(location.terrain);
+        if (cells == null) {
+            return;
+        }
+        cells.computeIfPresent(cellKey(location.x, location.y), (k, bucket) -> {
+            bucket.remove(location.id, location);
+            return bucket.isEmpty() ? null : bucket;
+        });
+    }
+
+    private long cellKey(int x, int y) {
+        return pack(x >> cellShift, y >> cellShift);
+    }
+
+    private static long pack(int cx, int cy) {
+        return ((long) cx << 32) | (cy & 0xFFFFFFFFL);
+    }
+
+    private record Candidate(Location location, long distance) {}
+}
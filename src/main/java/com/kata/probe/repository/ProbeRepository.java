@@ -4,23 +4,448 @@ import com.kata.probe.domain.ProbeAggregate;
 import org.springframework.stereotype.Repository;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
 
 @Repository
 public class ProbeRepository {
 
-    private final Map<UUID, ProbeAggregate> store = new HashMap<>();
+    // Power of two so a stripe can be picked with a mask
+    private static final int DEFAULT_STRIPES = 256;
+
+    private final Map<UUID, ProbeAggregate> store = new ConcurrentHashMap<>();
+    private final ProbeLocationIndex locations = new ProbeLocationIndex();
+    private final ReentrantLock[] stripes;
+    private final LongAdder lockAcquisitions = new LongAdder();
+    private final LongAdder contendedLocks = new LongAdder();
+    private final LongAdder lockWaitNanos = new LongAdder();
+
+    // Probes not yet loaded from an attached source; null once all of them are in the map
+    private volatile ProbeSource source;
+    private final AtomicInteger unloaded = new AtomicInteger();
+
+    // Where evicted probes go; null unless tiering is on
+    private volatile ColdTier cold;
+    private final AtomicInteger coldOnly = new AtomicInteger();
+    private final LongAdder tierHits = new LongAdder();
+    private final LongAdder tierMisses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    // Sum of memoryBytes over the probes in the map, kept up to date on every change to it
+    private final LongAdder residentBytes = new LongAdder();
+    // Clock hand of the eviction sweep; only used under evictionLock
+    private final ReentrantLock evictionLock = new ReentrantLock();
+    private Iterator<Map.Entry<UUID, ProbeAggregate>> hand;
+
+    public ProbeRepository() {
+        this(DEFAULT_STRIPES);
+    }
+
+    ProbeRepository(int stripeCount) {
+        if (stripeCount <= 0 || Integer.bitCount(stripeCount) != 1) {
+            throw new IllegalArgumentException("Stripe count must be a positive power of two: " + stripeCount);
+        }
+        this.stripes = new ReentrantLock[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
 
     public UUID save(ProbeAggregate agg) {
-        UUID id = UUID.randomUUID();
+        UUID id = ProbeIds.next();
         store.put(id, agg);
+        account(agg);
+        index(id, agg);
         return id;
     }
 
+    /**
+     * Stores every aggregate under a new ID and returns the IDs in the same order. The map is
+     * grown once for the whole batch rather than resized step by step as entries arrive.
+     */
+    public List<UUID> saveAll(List<ProbeAggregate> aggs) {
+        List<UUID> ids = new ArrayList<>(aggs.size());
+        Map<UUID, ProbeAggregate> batch = new HashMap<>(aggs.size() * 4 / 3 + 1);
+        for (ProbeAggregate agg : aggs) {
+            UUID id = ProbeIds.next();
+            ids.add(id);
+            batch.put(id, agg);
+        }
+        // ConcurrentHashMap.putAll presizes the table for the incoming entries
+        store.putAll(batch);
+        for (int i = 0; i < ids.size(); i++) {
+            account(aggs.get(i));
+            index(ids.get(i), aggs.get(i));
+        }
+        return ids;
+    }
+
     public Optional<ProbeAggregate> find(UUID id) {
-        return Optional.ofNullable(store.get(id));
+        ProbeAggregate agg = store.get(id);
+        ColdTier c = cold;
+        if (c != null) {
+            if (agg != null) {
+                agg.touch();
+                tierHits.increment();
+                return Optional.of(agg);
+            }
+            if (c.contains(id)) {
+                return Optional.ofNullable(reload(id, c));
+            }
+        }
+        if (agg == null && source != null) {
+            agg = load(id);
+        }
+        return Optional.ofNullable(agg);
+    }
+
+    /**
+     * Moves probes to {@code cold} when told to by {@link #evict}, and brings them back on
+     * {@link #find}. Probes stay in the location index and keep their cells while they are out.
+     */
+    public void enableTiering(ColdTier cold) {
+        this.cold = cold;
+    }
+
+    private ProbeAggregate reload(UUID id, ColdTier c) {
+        // Read under the probe's lock rather than in computeIfAbsent, whose bin lock is a monitor
+        // that would pin a virtual thread and stall the rest of the bin for the whole read
+        return withLock(id, () -> {
+            ProbeAggregate agg = store.get(id);
+            if (agg == null) {
+                ProbeAggregate copy = c.load(id);
+                if (copy == null) {
+                    return null;
+                }
+                agg = store.putIfAbsent(id, copy);
+                if (agg == null) {
+                    copy.touch();
+                    account(copy);
+                    coldOnly.decrementAndGet();
+                    tierMisses.increment();
+                    return copy;
+                }
+            }
+            // Another thread brought it back first
+            agg.touch();
+            tierHits.increment();
+            return agg;
+        });
+    }
+
+    /**
+     * Serves the probes of {@code source} as if they were stored here. Each one is built on its
+     * first lookup and kept from then on, so startup does not wait for the whole fleet.
+     */
+    public void attach(ProbeSource source) {
+        source.forEachLocation(locations::place);
+        unloaded.set(source.size());
+        this.source = source.size() == 0 ? null : source;
+    }
+
+    private ProbeAggregate load(UUID id) {
+        ProbeSource s = source;
+        if (s == null) {
+            return store.get(id);
+        }
+        // Built under the probe's lock and only stored if absent, so a probe is never rebuilt over later changes
+        return withLock(id, () -> {
+            ProbeAggregate agg = store.get(id);
+            if (agg != null) {
+                return agg;
+            }
+            ProbeAggregate loaded = s.load(id);
+            if (loaded == null) {
+                return null;
+            }
+            agg = store.putIfAbsent(id, loaded);
+            if (agg != null) {
+                return agg;
+            }
+            account(loaded);
+            if (unloaded.decrementAndGet() == 0) {
+                source = null;
+            }
+            return loaded;
+        });
     }
 
     public void update(UUID id, ProbeAggregate agg) {
-        store.put(id, agg);
+        ProbeAggregate previous = store.put(id, agg);
+        if (previous != null && previous != agg) {
+            unaccount(previous);
+        }
+        account(agg);
+        ColdTier c = cold;
+        // The stored copy may be of the aggregate just replaced
+        if (c != null && c.remove(id) && previous == null) {
+            coldOnly.decrementAndGet();
+        }
+        index(id, agg);
+    }
+
+    public void remove(UUID id) {
+        ProbeAggregate previous = store.remove(id);
+        if (previous != null) {
+            unaccount(previous);
+        }
+        ColdTier c = cold;
+        if (c != null && c.remove(id) && previous == null) {
+            coldOnly.decrementAndGet();
+        }
+        locations.remove(id);
+    }
+
+    /**
+     * If the probes in memory take more than {@code maxBytes} (see {@link ProbeAggregate#memoryBytes}),
+     * moves probes to the cold tier until they take at most {@code targetBytes}. Candidates come
+     * in second-chance (CLOCK) order, an approximation of least recently used: the sweep passes
+     * over probes used since its last visit, clearing their mark, and evicts the first one that
+     * was not. Each probe is stored and dropped under its lock; probes whose lock is busy are
+     * skipped. A probe that has not changed since it was last stored is not written again.
+     * The cold tier is compacted at the end of the pass, once no probe lock is held.
+     *
+     * @return how many probes were evicted
+     */
+    public int evict(long maxBytes, long targetBytes) {
+        ColdTier c = cold;
+        if (c == null) {
+            return 0;
+        }
+        int evicted;
+        evictionLock.lock();
+        try {
+            evicted = sweep(maxBytes, targetBytes, c);
+        } finally {
+            evictionLock.unlock();
+        }
+        if (evicted > 0) {
+            c.compact();
+        }
+        return evicted;
+    }
+
+    private int sweep(long maxBytes, long targetBytes, ColdTier c) {
+        if (residentBytes() <= maxBytes) {
+            return 0;
+        }
+        int evicted = 0;
+        // Enough for the rest of the previous lap plus two more, the first of which may only clear marks
+        long budget = 3L * store.size() + 1;
+        while (residentBytes() > targetBytes && budget-- > 0) {
+            if (hand == null || !hand.hasNext()) {
+                hand = store.entrySet().iterator();
+                if (!hand.hasNext()) {
+                    break;
+                }
+            }
+            Map.Entry<UUID, ProbeAggregate> entry = hand.next();
+            ProbeAggregate agg = entry.getValue();
+            if (agg.clearReferenced()) {
+                continue;
+            }
+            if (evict(entry.getKey(), agg, c)) {
+                evicted++;
+            }
+        }
+        return evicted;
+    }
+
+    private boolean evict(UUID id, ProbeAggregate agg, ColdTier c) {
+        ReentrantLock lock = stripeFor(id);
+        if (!lock.tryLock()) {
+            return false;
+        }
+        try {
+            if (store.get(id) != agg) {
+                return false;
+            }
+            if (c.storedVersion(id) != agg.getVersion()) {
+                c.put(id, agg);
+            }
+            if (!store.remove(id, agg)) {
+                // Replaced without the lock; the copy just stored is not the current one
+                c.remove(id);
+                return false;
+            }
+            unaccount(agg);
+            coldOnly.incrementAndGet();
+            evictions.increment();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Where every probe is, including those still held by an attached source. Follows each
+     * {@code save}, {@code update} and successful {@code compareAndUpdate}.
+     */
+    public ProbeLocationIndex locations() {
+        return locations;
+    }
+
+    /**
+     * Visits every probe, loading any still held by an attached source first. Weakly consistent:
+     * probes saved before the call are always seen, concurrent saves may or may not be.
+     */
+    public void forEach(BiConsumer<UUID, ProbeAggregate> action) {
+        ColdTier c = cold;
+        if (c != null) {
+            // Every probe is in the location index once, wherever it is kept. Evicted probes are
+            // built one at a time for the call and not brought back into memory.
+            locations.forEachId(id -> {
+                ProbeAggregate agg = store.get(id);
+                if (agg == null) {
+                    agg = c.contains(id) ? c.load(id) : find(id).orElse(null);
+                }
+                if (agg != null) {
+                    action.accept(id, agg);
+                }
+            });
+            return;
+        }
+        ProbeSource s = source;
+        if (s != null) {
+            s.forEachId(this::find);
+        }
+        store.forEach(action);
+    }
+
+    /**
+     * Commits {@code agg} only if the stored aggregate is still at {@code expectedVersion}.
+     * The version is claimed with a CAS, so at most one writer wins each version.
+     * On success {@code agg} carries {@code expectedVersion + 1}.
+     */
+    public boolean compareAndUpdate(UUID id, long expectedVersion, ProbeAggregate agg) {
+        while (true) {
+            ProbeAggregate current = store.get(id);
+            if (current == null || !current.compareAndSetVersion(expectedVersion, expectedVersion + 1)) {
+                return false;
+            }
+            if (current == agg) {
+                // The aggregate may have grown in place
+                account(agg);
+                index(id, agg);
+                return true;
+            }
+            agg.setVersion(expectedVersion + 1);
+            if (store.replace(id, current, agg)) {
+                unaccount(current);
+                account(agg);
+                index(id, agg);
+                return true;
+            }
+            // A blind update() swapped the entry in between; retry against the new one
+        }
+    }
+
+    /**
+     * Runs {@code action} while holding the lock stripe of the given probe.
+     * Work on one probe is serialized; probes on different stripes run in parallel.
+     */
+    public <T> T withLock(UUID id, Supplier<T> action) {
+        ReentrantLock lock = stripeFor(id);
+        if (!lock.tryLock()) {
+            // Only contended acquisitions pay for the clock reads
+            long start = System.nanoTime();
+            lock.lock();
+            contendedLocks.increment();
+            lockWaitNanos.add(System.nanoTime() - start);
+        }
+        lockAcquisitions.increment();
+        try {
+            return action.get();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int size() {
+        return store.size() + coldOnly.get() + (source == null ? 0 : unloaded.get());
+    }
+
+    /**
+     * Approximate heap held by the probes in memory, the figure {@link #evict} works against.
+     * A running total, so reading it is cheap; changes made to a probe in place are counted
+     * once it is next stored.
+     */
+    public long residentBytes() {
+        return residentBytes.sum();
+    }
+
+    /**
+     * Probes whose only copy is in the cold tier.
+     */
+    public int coldSize() {
+        return coldOnly.get();
+    }
+
+    public long coldBytes() {
+        ColdTier c = cold;
+        return c == null ? 0 : c.bytes();
+    }
+
+    /**
+     * Lookups of a probe held in memory, counted while tiering is on.
+     */
+    public long tierHits() {
+        return tierHits.sum();
+    }
+
+    /**
+     * Lookups that had to bring a probe back from the cold tier.
+     */
+    public long tierMisses() {
+        return tierMisses.sum();
+    }
+
+    public long evictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * Heap held by the paths of probes in memory; probes still in an attached source are not counted.
+     */
+    public long pathMemoryBytes() {
+        long bytes = 0;
+        for (ProbeAggregate agg : store.values()) {
+            bytes += agg.getPath().memoryBytes();
+        }
+        return bytes;
+    }
+
+    public long lockAcquisitions() {
+        return lockAcquisitions.sum();
+    }
+
+    public long contendedLocks() {
+        return contendedLocks.sum();
+    }
+
+    public long lockWaitNanos() {
+        return lockWaitNanos.sum();
+    }
+
+    private void account(ProbeAggregate agg) {
+        long bytes = agg.memoryBytes();
+        residentBytes.add(bytes - agg.swapAccountedBytes(bytes));
+    }
+
+    private void unaccount(ProbeAggregate agg) {
+        residentBytes.add(-agg.swapAccountedBytes(0));
+    }
+
+    private void index(UUID id, ProbeAggregate agg) {
+        locations.place(id, agg.getTerrain(), agg.getProbe().getX(), agg.getProbe().getY());
+    }
+
+    ReentrantLock stripeFor(UUID id) {
+        int h = id.hashCode();
+        h ^= (h >>> 16);
+        return stripes[h & (stripes.length - 1)];
     }
 }
@@ -0,0 +1,32 @@
+package com.kata.probe.repository;
+
+import com.kata.probe.domain.ProbeAggregate;
+
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * Probes held outside the repository's map until first asked for, such as the records of a
+ * memory-mapped snapshot. See {@link ProbeRepository#attach}.
+ */
+public interface ProbeSource {
+
+    /**
+     * Builds the probe with this ID, or returns {@code null} if the source does not have it.
+     */
+    ProbeAggregate load(UUID id);
+
+    int size();
+
+    void forEachId(Consumer<UUID> action);
+
+    /**
+     * Reports where each probe is without building it, so the location index covers the whole source.
+     */
+    void forEachLocation(LocationConsumer action);
+
+    @FunctionalInterface
+    interface LocationConsumer {
+        void accept(UUID id, String terrain, int x, int y);
+    }
+}
@@ -0,0 +1,113 @@
+package com.kata.probe.repository;
+
+import com.kata.probe.domain.Grid;
+import com.kata.probe.domain.ObstacleIndex;
+import com.kata.probe.domain.PathStore;
+import com.kata.probe.domain.Terrain;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Registered terrains by name. Terrains with identical dimensions and obstacles share one
+ * frozen {@link ObstacleIndex}, so memory grows with distinct layouts, not with names or probes.
+ */
+@Repository
+public class TerrainRepository {
+
+    private final Map<String, Terrain> byName = new ConcurrentHashMap<>();
+    private final Map<Fingerprint, ObstacleIndex> byContent = new ConcurrentHashMap<>();
+
+    /**
+     * Registers {@code name} with the given distinct, in-bounds packed cells, reusing the index
+     * of an identical layout when one exists. Registering a name again with the same layout is a no-op.
+     * A layout is only published for sharing once its name is taken, so a rejected registration
+     * leaves nothing behind.
+     */
+    public Terrain register(String name, Grid grid, long[] cells) {
+        Terrain existing = byName.get(name);
+        if (existing != null) {
+            return requireSameLayout(existing, grid, cells);
+        }
+
+        Fingerprint fingerprint = Fingerprint.of(grid, cells);
+        ObstacleIndex known = byContent.get(fingerprint);
+        ObstacleIndex index = known != null && sameCells(known, cells) ? known : build(grid, cells);
+
+        Terrain terrain = new Terrain(name, grid, index);
+        Terrain winner = byName.putIfAbsent(name, terrain);
+        if (winner != null) {
+            return requireSameLayout(winner, grid, cells);
+        }
+        if (index == known) {
+            return terrain;
+        }
+        // A different layout with the same fingerprint keeps its entry; this one is then not shared
+        ObstacleIndex published = byContent.computeIfAbsent(fingerprint, key -> index);
+        if (published != index && sameCells(published, cells)) {
+            // The same layout was registered under another name meanwhile; share that one
+            Terrain shared = new Terrain(name, grid, published);
+            return byName.replace(name, terrain, shared) ? shared : byName.get(name);
+        }
+        return terrain;
+    }
+
+    public Optional<Terrain> find(String name) {
+        return Optional.ofNullable(byName.get(name));
+    }
+
+    public Collection<Terrain> findAll() {
+        return byName.values();
+    }
+
+    public int distinctLayouts() {
+        return byContent.size();
+    }
+
+    private static ObstacleIndex build(Grid grid, long[] cells) {
+        ObstacleIndex index = ObstacleIndex.forGrid(grid);
+        for (long cell : cells) {
+            index.add(PathStore.unpackX(cell), PathStore.unpackY(cell));
+        }
+        return index.freeze();
+    }
+
+    private static Terrain requireSameLayout(Terrain terrain, Grid grid, long[] cells) {
+        if (!terrain.grid().equals(grid) || !sameCells(terrain.obstacles(), cells)) {
+            throw new IllegalArgumentException("Terrain already registered with a different layout: " + terrain.name());
+        }
+        return terrain;
+    }
+
+    private static boolean sameCells(ObstacleIndex index, long[] cells) {
+        if (index.size() != cells.length) {
+            return false;
+        }
+        for (long cell : cells) {
+            if (!index.contains(PathStore.unpackX(cell), PathStore.unpackY(cell))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Order-independent digest of a layout; equal fingerprints are confirmed cell by cell.
+     */
+    private record Fingerprint(int width, int height, int count, long sum, long mixed) {
+
+        static Fingerprint of(Grid grid, long[] cells) {
+            long sum = 0;
+            long mixed = 0;
+            for (long cell : cells) {
+                long h = cell * 0x9E3779B97F4A7C15L;
+                sum += h;
+                mixed ^= Long.rotateLeft(h, 31) * 0xBF58476D1CE4E5B9L;
+            }
+            return new Fingerprint(grid.width(), grid.height(), cells.length, sum, mixed);
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.kata.probe.repository.journal;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+
+import static java.nio.file.StandardOpenOption.READ;
+
+/**
+ * Creating, renaming or deleting a file changes its directory, which {@link FileChannel#force}
+ * on the file itself does not make durable.
+ */
+final class Directories {
+
+    private Directories() {}
+
+    /**
+     * Makes the entries of {@code directory} durable, so files created or renamed in it survive a crash.
+     */
+    static void force(Path directory) throws IOException {
+        try (FileChannel channel = FileChannel.open(directory, READ)) {
+            channel.force(true);
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package com.kata.probe.repository.journal;
+
+import com.kata.probe.controller.response.ExecutionSummary;
+import com.kata.probe.domain.Direction;
+import com.kata.probe.domain.commands.CommandProgram;
+import com.kata.probe.repository.journal.JournalRecord.CommandsApplied;
+import com.kata.probe.repository.journal.JournalRecord.CommandsResolved;
+import com.kata.probe.repository.journal.JournalRecord.ProbeCreated;
+import com.kata.probe.repository.journal.JournalRecord.TerrainRegistered;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+/**
+ * Binary layout of journal records: a type byte followed by big-endian fields.
+ * Program runs are written as a code byte plus a varint count, so {@code 10000F} takes 3 bytes.
+ */
+final class JournalCodec {
+
+    static final byte TERRAIN = 1;
+    static final byte CREATE = 2;
+    static final byte APPLY = 3;
+    static final byte RESOLVE = 4;
+
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    // Each thread encodes into its own buffer, which is copied into the log before the next encode.
+    // Virtual threads are not reused, so caching one per thread would only add a map entry each.
+    private static final int INITIAL_BUFFER = 256;
+    private static final ThreadLocal<ByteBuffer> BUFFERS = ThreadLocal.withInitial(() -> ByteBuffer.allocate(INITIAL_BUFFER));
+
+    private JournalCodec() {}
+
+    /**
+     * Encodes {@code record} into a thread-local buffer, ready to be read. Valid until the next call.
+     */
+    static ByteBuffer encode(JournalRecord record) {
+        Writer out = new Writer(Thread.currentThread().isVirtual() ? ByteBuffer.allocate(INITIAL_BUFFER) : BUFFERS.get());
+        switch (record) {
+            case TerrainRegistered t -> {
+                out.ensure(16 + 3 * t.name().length() + 8 * t.cells().length);
+                out.buffer.put(TERRAIN);
+                out.putString(t.name());
+                out.buffer.putInt(t.width()).putInt(t.height());
+                out.putCells(t.cells());
+            }
+            case ProbeCreated c -> {
+                int terrain = c.terrain() == null ? 0 : 3 * c.terrain().length();
+                out.ensure(48 + terrain + 8 * c.obstacles().length);
+                out.buffer.put(CREATE);
+                out.putId(c.id());
+                out.putString(c.terrain());
+                out.buffer.putInt(c.width()).putInt(c.height())
+                        .putInt(c.x()).putInt(c.y())
+                        .put((byte) c.direction().ordinal());
+                out.putCells(c.obstacles());
+            }
+            case CommandsApplied a -> {
+                CommandProgram program = a.program();
+                out.ensure(32 + 6L * program.runs());
+                out.buffer.put(APPLY);
+                out.putId(a.id());
+                out.buffer.putLong(a.version());
+                out.putProgram(program);
+            }
+            case CommandsResolved r -> {
+                CommandProgram moves = r.moves();
+                out.ensure(52 + 6L * moves.runs());
+                out.buffer.put(RESOLVE);
+                out.putId(r.id());
+                out.buffer.putLong(r.version());
+                out.putProgram(moves);
+                ExecutionSummary summary = r.summary();
+                out.buffer.putInt(r.x()).putInt(r.y())
+                        .putInt(summary.executed).putInt(summary.blocked).putInt(summary.invalid);
+            }
+        }
+        BUFFERS.set(out.buffer);
+        return out.buffer.flip();
+    }
+
+    static JournalRecord decode(ByteBuffer in) {
+        byte type = in.get();
+        return switch (type) {
+            case TERRAIN -> new TerrainRegistered(getString(in), in.getInt(), in.getInt(), getCells(in));
+            case CREATE -> new ProbeCreated(getId(in), getString(in), in.getInt(), in.getInt(),
+                    in.getInt(), in.getInt(), DIRECTIONS[in.get()], getCells(in));
+            case APPLY -> new CommandsApplied(getId(in), in.getLong(), getProgram(in));
+            case RESOLVE -> new CommandsResolved(getId(in), in.getLong(), getProgram(in), in.getInt(), in.getInt(),
+                    new ExecutionSummary(in.getInt(), in.getInt(), in.getInt()));
+            default -> throw new IllegalStateException("Unknown journal record type " + type);
+        };
+    }
+
+    private static UUID getId(ByteBuffer in) {
+        return new UUID(in.getLong(), in.getLong());
+    }
+
+    private static String getString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static long[] getCells(ByteBuffer in) {
+        long[] cells = new long[in.getInt()];
+        in.asLongBuffer().get(cells);
+        in.position(in.position() + 8 * cells.length);
+        return cells;
+    }
+
+    private static CommandProgram getProgram(ByteBuffer in) {
+        int runs = in.getInt();
+        CommandProgram program = new CommandProgram(runs);
+        for (int r = 0; r < runs; r++) {
+            byte code = in.get();
+            program.append(code, getVarint(in));
+        }
+        return program;
+    }
+
+    private static int getVarint(ByteBuffer in) {
+        int value = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = in.get();
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+    }
+
+    private static final class Writer {
+        ByteBuffer buffer;
+
+        Writer(ByteBuffer buffer) {
+            this.buffer = buffer.clear();
+        }
+
+        void ensure(long bytes) {
+            if (bytes > buffer.capacity()) {
+                buffer = ByteBuffer.allocate((int) Math.min(Integer.MAX_VALUE - 8, Math.max(bytes, 2L * buffer.capacity())));
+            }
+        }
+
+        void putId(UUID id) {
+            buffer.putLong(id.getMostSignificantBits()).putLong(id.getLeastSignificantBits());
+        }
+
+        void putString(String value) {
+            if (value == null) {
+                buffer.putInt(-1);
+                return;
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            buffer.putInt(bytes.length).put(bytes);
+        }
+
+        void putCells(long[] cells) {
+            buffer.putInt(cells.length);
+            buffer.asLongBuffer().put(cells);
+            buffer.position(buffer.position() + 8 * cells.length);
+        }
+
+        void putProgram(CommandProgram program) {
+            buffer.putInt(program.runs());
+            for (int r = 0; r < program.runs(); r++) {
+                buffer.put(program.codeAt(r));
+                putVarint(program.countAt(r));
+            }
+        }
+
+        void putVarint(int value) {
+            while ((value & ~0x7F) != 0) {
+                buffer.put((byte) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            buffer.put((byte) value);
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.kata.probe.repository.journal;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableConfigurationProperties({PersistenceProperties.class, TieringProperties.class})
+public class JournalConfiguration {
+
+    @Bean(destroyMethod = "close")
+    public ProbeJournal probeJournal(PersistenceProperties properties) {
+        if (!properties.enabled()) {
+            return ProbeJournal.NONE;
+        }
+        return new MappedProbeJournal(properties.directory(),
+                (int) properties.segmentSize().toBytes(), properties.flushInterval(), properties.syncCommit());
+    }
+
+    @Bean
+    public SnapshotStore snapshotStore(PersistenceProperties properties) {
+        return new SnapshotStore(properties.directory());
+    }
+}
@@ -0,0 +1,38 @@
+package com.kata.probe.repository.journal;
+
+import com.kata.probe.controller.response.ExecutionSummary;
+import com.kata.probe.domain.Direction;
+import com.kata.probe.domain.commands.CommandProgram;
+
+import java.util.UUID;
+
+/**
+ * A state change written to the journal. Replaying the records in order rebuilds the fleet.
+ * A batch on a probe that moves alone is logged as its program, as re-running it gives the same
+ * outcome; with collisions on, the outcome depends on where other probes stood, so it is logged
+ * instead. Obstacles and cells are packed with {@link com.kata.probe.domain.PathStore#pack}.
+ */
+public sealed interface JournalRecord {
+
+    record TerrainRegistered(String name, int width, int height, long[] cells) implements JournalRecord {}
+
+    record ProbeCreated(UUID id, String terrain, int width, int height, int x, int y,
+                        Direction direction, long[] obstacles) implements JournalRecord {}
+
+    /**
+     * {@code version} is the probe version the batch produced.
+     */
+    record CommandsApplied(UUID id, long version, CommandProgram program) implements JournalRecord {}
+
+    /**
+     * What a batch did to a probe on a terrain with collisions on.
+     *
+     * @param version the probe version the batch produced
+     * @param moves   the moves and turns that took effect, see {@link CommandProgram#execute(com.kata.probe.domain.Probe, CommandProgram)}
+     * @param x       column of the cell the probe ended on, to check the replayed path against
+     * @param y       row of that cell
+     * @param summary the batch's summary as reported to the caller
+     */
+    record CommandsResolved(UUID id, long version, CommandProgram moves, int x, int y,
+                            ExecutionSummary summary) implements JournalRecord {}
+}
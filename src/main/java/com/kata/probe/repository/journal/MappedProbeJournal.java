@@ -0,0 +1,369 @@
+package com.kata.probe.repository.journal;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+import static java.nio.file.StandardOpenOption.CREATE_NEW;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * Journal kept in memory-mapped segment files ({@code journal-<n>.wal}).
+ * <p>
+ * Segments are mapped at full size up front, so they start zero-filled and an append is a copy
+ * into the mapping under a short lock. Each record is framed as
+ * {@code [int length][int crc32c][payload]}; a zero length marks the end of a segment.
+ * <p>
+ * A single flusher thread forces written pages to disk and then wakes the waiting writers.
+ * Everything appended while one force runs is covered by the next one (group commit), so the
+ * number of fsyncs does not grow with the number of writers.
+ */
+public final class MappedProbeJournal implements ProbeJournal {
+
+    private static final Logger log = LoggerFactory.getLogger(MappedProbeJournal.class);
+
+    private static final int HEADER = 8;
+    private static final String PREFIX = "journal-";
+    private static final String SUFFIX = ".wal";
+
+    private final Path directory;
+    private final int segmentBytes;
+    private final long flushIntervalNanos;
+    private final boolean syncCommit;
+
+    private final ReentrantLock appendLock = new ReentrantLock();
+    // Guarded by appendLock
+    private Segment current;
+    private long nextSegment;
+    private final List<Segment> retired = new ArrayList<>();
+    private volatile long written;
+
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final Condition flushRequested = flushLock.newCondition();
+    private final Condition flushed = flushLock.newCondition();
+    private volatile long durable;
+    private volatile RuntimeException failure;
+    private volatile boolean closed;
+    private final Thread flusher;
+
+    /**
+     * @param syncCommit when false, {@link #awaitDurable} returns at once and records reach the
+     *                   disk within {@code flushInterval}; a crash can lose that window
+     */
+    public MappedProbeJournal(Path directory, int segmentBytes, Duration flushInterval, boolean syncCommit) {
+        if (segmentBytes < 1024) {
+            throw new IllegalArgumentException("Journal segments must be at least 1 KB: " + segmentBytes);
+        }
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        this.flushIntervalNanos = flushInterval.toNanos();
+        this.syncCommit = syncCommit;
+        try {
+            Files.createDirectories(directory);
+            List<Path> existing = segments();
+            this.nextSegment = existing.isEmpty() ? 0 : sequenceOf(existing.get(existing.size() - 1)) + 1;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open journal in " + directory, e);
+        }
+        this.flusher = Thread.ofPlatform().name("probe-journal-flusher").daemon().start(this::flushLoop);
+    }
+
+    @Override
+    public long append(JournalRecord record) {
+        ByteBuffer payload = JournalCodec.encode(record);
+        int length = payload.remaining();
+        CRC32C crc = new CRC32C();
+        crc.update(payload.duplicate());
+
+        appendLock.lock();
+        try {
+            checkOpen();
+            if (current == null || current.capacity - current.position < HEADER + length) {
+                startSegment(length);
+            }
+            MappedByteBuffer buffer = current.buffer;
+            int at = current.position;
+            buffer.putInt(at + 4, (int) crc.getValue());
+            buffer.put(at + HEADER, payload, payload.position(), length);
+            buffer.putInt(at, length);
+            current.position = at + HEADER + length;
+            written += HEADER + length;
+            return written;
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    @Override
+    public void awaitDurable(long position) {
+        if (!syncCommit || durable >= position) {
+            return;
+        }
+        flushLock.lock();
+        try {
+            flushRequested.signal();
+            while (durable < position) {
+                if (failure != null) {
+                    throw failure;
+                }
+                checkOpen();
+                flushed.awaitUninterruptibly();
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    @Override
+    public void replay(Consumer<JournalRecord> sink) {
+        appendLock.lock();
+        try {
+            if (current != null) {
+                throw new IllegalStateException("Journal must be replayed before it is appended to");
+            }
+            List<Path> files = segments();
+            for (int i = 0; i < files.size(); i++) {
+                if (!replaySegment(files.get(i), sink)) {
+                    // Nothing after a torn record was acknowledged, later segments included
+                    for (Path later : files.subList(i + 1, files.size())) {
+                        log.warn("Discarding journal segment {} written after a torn record", later);
+                        Files.delete(later);
+                    }
+                    break;
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot replay journal in " + directory, e);
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    @Override
+    public long roll() {
+        appendLock.lock();
+        try {
+            checkOpen();
+            startSegment(0);
+            return current.sequence;
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    @Override
+    public void deleteBefore(long segment) {
+        try {
+            for (Path file : segments()) {
+                if (sequenceOf(file) < segment) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot delete old journal segments in " + directory, e);
+        }
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        flushLock.lock();
+        try {
+            flushRequested.signal();
+        } finally {
+            flushLock.unlock();
+        }
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Returns false if the segment ends in a torn or corrupt record; the rest of it is zeroed
+     * so later runs read straight past it.
+     */
+    private boolean replaySegment(Path file, Consumer<JournalRecord> sink) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, READ, WRITE)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+            int size = buffer.capacity();
+            int offset = 0;
+            CRC32C crc = new CRC32C();
+            while (offset + HEADER <= size) {
+                int length = buffer.getInt(offset);
+                if (length == 0) {
+                    return true;
+                }
+                if (length < 0 || length > size - offset - HEADER) {
+                    return truncate(file, buffer, offset);
+                }
+                ByteBuffer payload = buffer.slice(offset + HEADER, length);
+                crc.reset();
+                crc.update(payload.duplicate());
+                if ((int) crc.getValue() != buffer.getInt(offset + 4)) {
+                    return truncate(file, buffer, offset);
+                }
+                sink.accept(JournalCodec.decode(payload));
+                offset += HEADER + length;
+            }
+            return true;
+        }
+    }
+
+    private static boolean truncate(Path file, MappedByteBuffer buffer, int offset) {
+        log.warn("Journal segment {} has a torn record at offset {}; dropping the rest of it", file, offset);
+        for (int i = offset; i < buffer.capacity(); i++) {
+            buffer.put(i, (byte) 0);
+        }
+        buffer.force();
+        return false;
+    }
+
+    // Called with appendLock held
+    private void startSegment(int minPayload) {
+        long sequence = nextSegment++;
+        int capacity = Math.max(segmentBytes, HEADER + minPayload);
+        Path file = directory.resolve(PREFIX + String.format("%020d", sequence) + SUFFIX);
+        try (FileChannel channel = FileChannel.open(file, CREATE_NEW, READ, WRITE)) {
+            // Mapping past the end grows the file; the new pages read as zeros
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+            if (current != null) {
+                retired.add(current);
+            }
+            current = new Segment(sequence, file, buffer, capacity);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot create journal segment " + file, e);
+        }
+    }
+
+    private void flushLoop() {
+        while (!closed) {
+            flushLock.lock();
+            try {
+                if ((durable >= written || failure != null) && !closed) {
+                    flushRequested.awaitNanos(flushIntervalNanos);
+                }
+            } catch (InterruptedException e) {
+                break;
+            } finally {
+                flushLock.unlock();
+            }
+            flush();
+        }
+        flush();
+    }
+
+    private void flush() {
+        long target;
+        Segment segment;
+        int end;
+        List<Segment> done;
+        appendLock.lock();
+        try {
+            target = written;
+            segment = current;
+            end = segment == null ? 0 : segment.position;
+            done = new ArrayList<>(retired);
+            retired.clear();
+        } finally {
+            appendLock.unlock();
+        }
+
+        try {
+            for (Segment s : done) {
+                s.force(s.position);
+            }
+            if (segment != null) {
+                segment.force(end);
+            }
+            durable = target;
+        } catch (RuntimeException e) {
+            log.error("Journal flush failed; rejecting further writes", e);
+            failure = e;
+        }
+
+        flushLock.lock();
+        try {
+            flushed.signalAll();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private void checkOpen() {
+        if (failure != null) {
+            throw failure;
+        }
+        if (closed) {
+            throw new IllegalStateException("Journal is closed");
+        }
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(f -> f.getFileName().toString().startsWith(PREFIX)
+                            && f.getFileName().toString().endsWith(SUFFIX))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private static long sequenceOf(Path file) {
+        String name = file.getFileName().toString();
+        return Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+    }
+
+    private static final class Segment {
+        final long sequence;
+        final Path file;
+        final MappedByteBuffer buffer;
+        final int capacity;
+        int position;     // guarded by appendLock
+        int forced;       // touched by the flusher only
+        boolean created;  // touched by the flusher only
+
+        Segment(long sequence, Path file, MappedByteBuffer buffer, int capacity) {
+            this.sequence = sequence;
+            this.file = file;
+            this.buffer = buffer;
+            this.capacity = capacity;
+        }
+
+        void force(int end) {
+            if (!created) {
+                // Make the new file and its directory entry durable before relying on its pages
+                try (FileChannel channel = FileChannel.open(file, READ)) {
+                    channel.force(true);
+                    Directories.force(file.getParent());
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                created = true;
+            }
+            if (end > forced) {
+                buffer.force(forced, end - forced);
+                forced = end;
+            }
+        }
+    }
+}
@@ -0,0 +1,217 @@
+package com.kata.probe.repository.journal;
+
+import com.kata.probe.controller.response.ExecutionSummary;
+import com.kata.probe.domain.Direction;
+import com.kata.probe.domain.PathStore;
+import com.kata.probe.repository.journal.JournalRecord.TerrainRegistered;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.zip.CRC32C;
+
+import static java.nio.file.StandardOpenOption.READ;
+
+/**
+ * A snapshot file mapped into memory. Opening it only checks the header, terrains and record
+ * table; probes are decoded one at a time by {@link #read}, straight from the mapping.
+ * See {@link SnapshotStore} for the layout.
+ */
+public final class MappedSnapshot {
+
+    // Mappings are capped at 2 GB, so large files are mapped in 1 GB chunks
+    private static final int CHUNK_SHIFT = 30;
+    private static final long CHUNK_MASK = (1L << CHUNK_SHIFT) - 1;
+
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    private final Path file;
+    private final MappedByteBuffer[] chunks;
+    private final int probeCount;
+    private final long recordsOffset;
+    private final long tableOffset;
+    private final int tableMask;
+    private final List<TerrainRegistered> terrains;
+
+    private MappedSnapshot(Path file, MappedByteBuffer[] chunks) throws IOException {
+        this.file = file;
+        this.chunks = chunks;
+        if (length() < SnapshotStore.HEADER_BYTES || getInt(0) != SnapshotStore.MAGIC
+                || getInt(4) != SnapshotStore.FORMAT) {
+            throw new IOException("Not a probe snapshot: " + file);
+        }
+        this.probeCount = getInt(8);
+        int terrainCount = getInt(12);
+        long terrainsOffset = getLong(16);
+        this.recordsOffset = getLong(24);
+        this.tableOffset = getLong(32);
+        int tableSlots = getInt(40);
+        long pathsOffset = getLong(48);
+        this.tableMask = tableSlots - 1;
+
+        if (checksum(terrainsOffset, pathsOffset) != getInt(44)
+                || checksum(recordsOffset, tableOffset + 4L * tableSlots) != getInt(56)) {
+            throw new IOException("Corrupt snapshot " + file + ": checksum mismatch");
+        }
+        this.terrains = readTerrains(terrainsOffset, terrainCount);
+    }
+
+    public static MappedSnapshot open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, READ)) {
+            long size = channel.size();
+            MappedByteBuffer[] chunks = new MappedByteBuffer[(int) ((size + CHUNK_MASK) >>> CHUNK_SHIFT)];
+            for (int i = 0; i < chunks.length; i++) {
+                long from = (long) i << CHUNK_SHIFT;
+                chunks[i] = channel.map(FileChannel.MapMode.READ_ONLY, from, Math.min(size - from, 1L << CHUNK_SHIFT));
+            }
+            return new MappedSnapshot(file, chunks);
+        }
+    }
+
+    public Path file() {
+        return file;
+    }
+
+    public List<TerrainRegistered> terrains() {
+        return terrains;
+    }
+
+    public int size() {
+        return probeCount;
+    }
+
+    public UUID idAt(int index) {
+        long record = recordsOffset + (long) index * SnapshotStore.RECORD_BYTES;
+        return new UUID(getLong(record), getLong(record + 8));
+    }
+
+    /**
+     * Packed cell the probe stands on: the last point of its path.
+     */
+    public long positionAt(int index) {
+        long r = recordsOffset + (long) index * SnapshotStore.RECORD_BYTES;
+        return getLong(getLong(r + 24) + 8L * (getInt(r + 40) - 1));
+    }
+
+    /**
+     * Name of the shared terrain the probe is on, or {@code null}.
+     */
+    public String terrainAt(int index) {
+        int terrainIndex = getInt(recordsOffset + (long) index * SnapshotStore.RECORD_BYTES + 56);
+        return terrainIndex < 0 ? null : terrains.get(terrainIndex).name();
+    }
+
+    /**
+     * Position of the probe in the record table, or -1.
+     */
+    public int indexOf(UUID id) {
+        long msb = id.getMostSignificantBits();
+        long lsb = id.getLeastSignificantBits();
+        for (int slot = SnapshotStore.slotHash(msb, lsb) & tableMask; ; slot = (slot + 1) & tableMask) {
+            int entry = getInt(tableOffset + 4L * slot);
+            if (entry == 0) {
+                return -1;
+            }
+            long record = recordsOffset + (long) (entry - 1) * SnapshotStore.RECORD_BYTES;
+            if (getLong(record) == msb && getLong(record + 8) == lsb) {
+                return entry - 1;
+            }
+        }
+    }
+
+    /**
+     * Decodes one probe. Its path is copied out of the mapping into a store it can keep growing.
+     */
+    public ProbeSnapshot read(int index) {
+        long r = recordsOffset + (long) index * SnapshotStore.RECORD_BYTES;
+        UUID id = new UUID(getLong(r), getLong(r + 8));
+        long version = getLong(r + 16);
+        long pathOffset = getLong(r + 24);
+        long obstaclesOffset = getLong(r + 32);
+        int pathLength = getInt(r + 40);
+        int obstacleCount = getInt(r + 44);
+        int terrainIndex = getInt(r + 56);
+        ExecutionSummary summary = new ExecutionSummary(getInt(r + 60), getInt(r + 64), getInt(r + 68));
+        Direction direction = DIRECTIONS[chunk(r + 72).get(offset(r + 72))];
+
+        // Room to grow, so the first batch after loading does not copy the path again
+        long[] points = new long[pathLength + Math.max(16, pathLength >> 3)];
+        getLongs(pathOffset, points, pathLength);
+        long[] obstacles = new long[obstacleCount];
+        getLongs(obstaclesOffset, obstacles, obstacleCount);
+
+        return new ProbeSnapshot(id, version, terrainIndex < 0 ? null : terrains.get(terrainIndex).name(),
+                getInt(r + 48), getInt(r + 52), direction, summary, obstacles,
+                PathStore.wrap(points, pathLength));
+    }
+
+    private List<TerrainRegistered> readTerrains(long at, int count) {
+        List<TerrainRegistered> result = new ArrayList<>(count);
+        for (int t = 0; t < count; t++) {
+            int nameLength = getInt(at);
+            byte[] name = new byte[nameLength];
+            for (int i = 0; i < nameLength; i++) {
+                name[i] = chunk(at + 4 + i).get(offset(at + 4 + i));
+            }
+            at = SnapshotStore.align(at + 4 + nameLength);
+            int width = getInt(at);
+            int height = getInt(at + 4);
+            long[] cells = new long[getInt(at + 8)];
+            at = SnapshotStore.align(at + 12);
+            getLongs(at, cells, cells.length);
+            at += 8L * cells.length;
+            result.add(new TerrainRegistered(new String(name, StandardCharsets.UTF_8), width, height, cells));
+        }
+        return result;
+    }
+
+    private int checksum(long from, long to) {
+        CRC32C crc = new CRC32C();
+        while (from < to) {
+            int n = (int) Math.min(to - from, (1L << CHUNK_SHIFT) - offset(from));
+            crc.update(chunk(from).slice(offset(from), n));
+            from += n;
+        }
+        return (int) crc.getValue();
+    }
+
+    private void getLongs(long at, long[] dst, int count) {
+        int done = 0;
+        while (done < count) {
+            // Longs are 8-byte aligned and chunks a multiple of 8, so none straddles two chunks
+            int n = (int) Math.min(count - done, ((1L << CHUNK_SHIFT) - offset(at)) >>> 3);
+            chunk(at).slice(offset(at), n * 8).asLongBuffer().get(dst, done, n);
+            done += n;
+            at += 8L * n;
+        }
+    }
+
+    private long length() {
+        long total = 0;
+        for (MappedByteBuffer chunk : chunks) {
+            total += chunk.capacity();
+        }
+        return total;
+    }
+
+    private long getLong(long at) {
+        return chunk(at).getLong(offset(at));
+    }
+
+    private int getInt(long at) {
+        return chunk(at).getInt(offset(at));
+    }
+
+    private MappedByteBuffer chunk(long at) {
+        return chunks[(int) (at >>> CHUNK_SHIFT)];
+    }
+
+    private static int offset(long at) {
+        return (int) (at & CHUNK_MASK);
+    }
+}
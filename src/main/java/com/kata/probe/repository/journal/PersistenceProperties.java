@@ -0,0 +1,26 @@
+package com.kata.probe.repository.journal;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * {@code probe.persistence.*} settings. Persistence is off by default and the fleet lives in memory only.
+ *
+ * @param directory        where journal segments and snapshots are kept
+ * @param segmentSize      size of each memory-mapped journal segment
+ * @param flushInterval    longest time written records wait for the next group fsync
+ * @param syncCommit       whether a request waits for its records to be on disk before answering
+ * @param snapshotInterval time between snapshots; each one lets older journal segments be deleted
+ */
+@ConfigurationProperties("probe.persistence")
+public record PersistenceProperties(
+        @DefaultValue("false") boolean enabled,
+        @DefaultValue("data") Path directory,
+        @DefaultValue("64MB") DataSize segmentSize,
+        @DefaultValue("5ms") Duration flushInterval,
+        @DefaultValue("true") boolean syncCommit,
+        @DefaultValue("5m") Duration snapshotInterval) {}
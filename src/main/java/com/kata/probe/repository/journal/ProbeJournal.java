@@ -0,0 +1,72 @@
+package com.kata.probe.repository.journal;
+
+import java.util.function.Consumer;
+
+/**
+ * Write-ahead log of fleet changes.
+ * <p>
+ * Writers call {@link #append} while holding the lock of the probe they change, so records of
+ * one probe are logged in execution order, and call {@link #awaitDurable} after releasing it,
+ * so a slow disk never holds a probe lock.
+ */
+public interface ProbeJournal extends AutoCloseable {
+
+    /**
+     * Journal used when persistence is off: nothing is written and nothing is replayed.
+     */
+    ProbeJournal NONE = new ProbeJournal() {
+        @Override
+        public long append(JournalRecord record) {
+            return 0;
+        }
+
+        @Override
+        public void awaitDurable(long position) {
+        }
+
+        @Override
+        public void replay(Consumer<JournalRecord> sink) {
+        }
+
+        @Override
+        public long roll() {
+            return 0;
+        }
+
+        @Override
+        public void deleteBefore(long segment) {
+        }
+
+        @Override
+        public void close() {
+        }
+    };
+
+    /**
+     * Adds a record to the log and returns the log position just past it.
+     */
+    long append(JournalRecord record);
+
+    /**
+     * Blocks until every record up to {@code position} is on disk.
+     */
+    void awaitDurable(long position);
+
+    /**
+     * Feeds every intact record to {@code sink}, oldest first. Must be called before the first append.
+     */
+    void replay(Consumer<JournalRecord> sink);
+
+    /**
+     * Starts a new segment and returns its number; later records land in it or after it.
+     */
+    long roll();
+
+    /**
+     * Removes segments numbered below {@code segment}, once a snapshot covers them.
+     */
+    void deleteBefore(long segment);
+
+    @Override
+    void close();
+}
@@ -0,0 +1,17 @@
+package com.kata.probe.repository.journal;
+
+import com.kata.probe.controller.response.ExecutionSummary;
+import com.kata.probe.domain.Direction;
+import com.kata.probe.domain.PathStore;
+
+import java.util.UUID;
+
+/**
+ * One probe as read back from a snapshot; the probe's position is the last cell of {@code path}.
+ *
+ * @param terrain   shared terrain the probe runs on, or {@code null}
+ * @param obstacles the probe's own obstacles, packed, without the terrain's
+ */
+public record ProbeSnapshot(UUID id, long version, String terrain, int width, int height,
+                            Direction direction, ExecutionSummary summary, long[] obstacles,
+                            PathStore path) {}
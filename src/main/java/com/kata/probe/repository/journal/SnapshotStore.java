@@ -0,0 +1,312 @@
+package com.kata.probe.repository.journal;
+
+import com.kata.probe.controller.response.ExecutionSummary;
+import com.kata.probe.domain.PathStore;
+import com.kata.probe.domain.ProbeAggregate;
+import com.kata.probe.domain.Terrain;
+import com.kata.probe.repository.ProbeRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+import static java.nio.file.StandardOpenOption.*;
+
+/**
+ * Full copies of the fleet in {@code snapshot-<segment>.bin} files. A snapshot named after
+ * journal segment {@code n} reflects every record in segments below {@code n}; records from
+ * {@code n} on may or may not be in it, so replay skips those a probe's version already covers.
+ * <p>
+ * The file is laid out to be memory-mapped rather than parsed (see {@link MappedSnapshot}):
+ * <pre>
+ * header    64 bytes: counts, section offsets, CRC-32C of the terrain and record sections
+ * terrains  name, size and packed obstacle cells of each terrain
+ * paths     packed path cells and own obstacles of every probe, back to back
+ * records   one 80-byte record per probe: id, version, offsets into the path area, summary, ...
+ * table     open-addressing hash table from probe ID to record number
+ * </pre>
+ */
+public final class SnapshotStore {
+
+    private static final Logger log = LoggerFactory.getLogger(SnapshotStore.class);
+
+    static final int MAGIC = 0x50524253; // "PRBS"
+    static final int FORMAT = 2;
+    static final int HEADER_BYTES = 64;
+    static final int RECORD_BYTES = 80;
+
+    private static final String PREFIX = "snapshot-";
+    private static final String SUFFIX = ".bin";
+
+    private final Path directory;
+
+    public SnapshotStore(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Writes a snapshot covering journal segments below {@code segment} and removes older ones.
+     * Each probe is copied under its own lock, so writers are only paused one probe at a time.
+     */
+    public Path write(long segment, Collection<Terrain> terrains, ProbeRepository probes) throws IOException {
+        Files.createDirectories(directory);
+        Path target = directory.resolve(PREFIX + String.format("%020d", segment) + SUFFIX);
+        Path temp = directory.resolve(target.getFileName() + ".tmp");
+        Path recordsTemp = directory.resolve(target.getFileName() + ".records.tmp");
+
+        try (FileChannel main = FileChannel.open(temp, CREATE, TRUNCATE_EXISTING, READ, WRITE);
+             FileChannel recordsChannel = FileChannel.open(recordsTemp, CREATE, TRUNCATE_EXISTING, READ, WRITE)) {
+            Output out = new Output(main, HEADER_BYTES);
+            long terrainsOffset = out.position;
+
+            CRC32C terrainCrc = new CRC32C();
+            out.crc = terrainCrc;
+            Map<String, Integer> terrainIndex = new HashMap<>();
+            for (Terrain terrain : terrains) {
+                terrainIndex.put(terrain.name(), terrainIndex.size());
+                writeTerrain(out, terrain);
+            }
+            out.flush();
+            out.crc = null;
+            long pathsOffset = out.position;
+
+            // Paths stream into the main file while the fixed records collect in a side file
+            CRC32C recordCrc = new CRC32C();
+            Output records = new Output(recordsChannel, 0);
+            records.crc = recordCrc;
+            IdList ids = new IdList();
+            probes.forEach((id, agg) -> probes.withLock(id, () -> {
+                try {
+                    writeProbe(out, records, terrainIndex, id, agg);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                ids.add(id);
+                return null;
+            }));
+            records.flush();
+            out.flush();
+
+            long recordsOffset = out.position;
+            long recordBytes = records.position;
+            for (long copied = 0; copied < recordBytes; ) {
+                copied += recordsChannel.transferTo(copied, recordBytes - copied, main.position(recordsOffset + copied));
+            }
+            out.position = recordsOffset + recordBytes;
+
+            long tableOffset = out.position;
+            int[] table = ids.table();
+            out.crc = recordCrc;
+            for (int entry : table) {
+                out.ensure(4).putInt(entry);
+            }
+            out.flush();
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            header.putInt(MAGIC).putInt(FORMAT).putInt(ids.size).putInt(terrainIndex.size())
+                    .putLong(terrainsOffset).putLong(recordsOffset).putLong(tableOffset)
+                    .putInt(table.length).putInt((int) terrainCrc.getValue())
+                    .putLong(pathsOffset).putInt((int) recordCrc.getValue());
+            main.write(header.flip(), 0);
+            main.force(true);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            Files.deleteIfExists(recordsTemp);
+        }
+
+        Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        // The rename must reach the disk before anything it replaces is deleted, here or in the journal
+        Directories.force(directory);
+        for (Path older : snapshots()) {
+            if (!older.equals(target)) {
+                // A still-mapped older file stays readable until it is unmapped
+                Files.deleteIfExists(older);
+            }
+        }
+        return target;
+    }
+
+    /**
+     * Maps the newest snapshot, or returns {@code null} if there is none. Nothing is decoded
+     * beyond the terrains, so this takes about as long as reading the record table once.
+     */
+    public MappedSnapshot openLatest() throws IOException {
+        List<Path> files = snapshots();
+        if (files.isEmpty()) {
+            return null;
+        }
+        MappedSnapshot snapshot = MappedSnapshot.open(files.get(files.size() - 1));
+        log.info("Mapped snapshot {} with {} probes", snapshot.file(), snapshot.size());
+        return snapshot;
+    }
+
+    private static void writeTerrain(Output out, Terrain terrain) throws IOException {
+        byte[] name = terrain.name().getBytes(StandardCharsets.UTF_8);
+        out.ensure(4 + name.length).putInt(name.length).put(name);
+        out.pad();
+        LongList cells = new LongList();
+        terrain.obstacles().forEach((x, y) -> cells.add(PathStore.pack(x, y)));
+        long[] sorted = cells.toArray();
+        Arrays.sort(sorted);
+        out.ensure(12).putInt(terrain.grid().width()).putInt(terrain.grid().height()).putInt(sorted.length);
+        out.pad();
+        for (long cell : sorted) {
+            out.ensure(8).putLong(cell);
+        }
+    }
+
+    private static void writeProbe(Output paths, Output records, Map<String, Integer> terrainIndex,
+                                   UUID id, ProbeAggregate agg) throws IOException {
+        PathStore path = agg.getPath();
+        int pathLength = path.size();
+        long pathOffset = paths.position;
+        for (int i = 0; i < pathLength; i++) {
+            paths.ensure(8).putLong(path.packedAt(i));
+        }
+        long obstaclesOffset = paths.position;
+        int[] obstacleCount = new int[1];
+        agg.getProbe().getObstacleMap().forEachOwn((x, y) -> {
+            try {
+                paths.ensure(8).putLong(PathStore.pack(x, y));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            obstacleCount[0]++;
+        });
+
+        ExecutionSummary summary = agg.getSummary();
+        Integer terrain = agg.getTerrain() == null ? null : terrainIndex.get(agg.getTerrain());
+        records.ensure(RECORD_BYTES)
+                .putLong(id.getMostSignificantBits()).putLong(id.getLeastSignificantBits())
+                .putLong(agg.getVersion())
+                .putLong(pathOffset).putLong(obstaclesOffset)
+                .putInt(pathLength).putInt(obstacleCount[0])
+                .putInt(agg.getGrid().width()).putInt(agg.getGrid().height())
+                .putInt(terrain == null ? -1 : terrain)
+                .putInt(summary.executed).putInt(summary.blocked).putInt(summary.invalid)
+                .put((byte) agg.getProbe().getDirection().ordinal())
+                .put(new byte[7]);
+    }
+
+    static int slotHash(long msb, long lsb) {
+        long h = (msb ^ lsb) * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    static long align(long position) {
+        return (position + 7) & ~7L;
+    }
+
+    private List<Path> snapshots() throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(f -> f.getFileName().toString().startsWith(PREFIX)
+                            && f.getFileName().toString().endsWith(SUFFIX))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    /**
+     * Buffered sequential writer that tracks its file position and feeds an optional checksum.
+     */
+    private static final class Output {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+        long position;
+        CRC32C crc;
+
+        Output(FileChannel channel, long position) {
+            this.channel = channel;
+            this.position = position;
+        }
+
+        ByteBuffer ensure(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                flush();
+            }
+            position += bytes;
+            return buffer;
+        }
+
+        void pad() throws IOException {
+            int padding = (int) (align(position) - position);
+            ensure(padding).put(new byte[padding]);
+        }
+
+        void flush() throws IOException {
+            buffer.flip();
+            long at = position - buffer.remaining();
+            if (crc != null) {
+                crc.update(buffer.duplicate());
+            }
+            while (buffer.hasRemaining()) {
+                at += channel.write(buffer, at);
+            }
+            buffer.clear();
+        }
+    }
+
+    private static final class LongList {
+        private long[] values = new long[16];
+        private int size;
+
+        void add(long value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        long[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+
+    /**
+     * Probe IDs in record order, turned into the lookup table at the end.
+     */
+    private static final class IdList {
+        private long[] bits = new long[32];
+        int size;
+
+        void add(UUID id) {
+            if (2 * size == bits.length) {
+                bits = Arrays.copyOf(bits, bits.length * 2);
+            }
+            bits[2 * size] = id.getMostSignificantBits();
+            bits[2 * size + 1] = id.getLeastSignificantBits();
+            size++;
+        }
+
+        /**
+         * Slots hold record number + 1; 0 is empty. At most half full, so probes stay short.
+         */
+        int[] table() {
+            int slots = Integer.highestOneBit(Math.max(1, size) * 2 - 1) << 1;
+            int[] table = new int[slots];
+            int mask = slots - 1;
+            for (int i = 0; i < size; i++) {
+                int slot = slotHash(bits[2 * i], bits[2 * i + 1]) & mask;
+                while (table[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                table[slot] = i + 1;
+            }
+            return table;
+        }
+    }
+}
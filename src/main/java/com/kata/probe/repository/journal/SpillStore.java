@@ -0,0 +1,406 @@
+package com.kata.probe.repository.journal;
+
+import com.kata.probe.controller.response.ExecutionSummary;
+import com.kata.probe.domain.Direction;
+import com.kata.probe.domain.PathStore;
+import com.kata.probe.domain.ProbeAggregate;
+import com.kata.probe.repository.ColdTier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+import static java.nio.file.StandardOpenOption.*;
+
+/**
+ * Evicted probes in {@code spill-<n>.bin} files on local disk. Copies are appended to the
+ * newest file; an in-memory table maps each probe to its copy. On {@link #compact}, older
+ * files with less than half of their bytes still current are copied forward and deleted.
+ * <p>
+ * Spill files are a cache for the life of the process, not a record: they carry no checksums
+ * and are deleted on open. After a restart probes come back from snapshots and the journal.
+ * <p>
+ * Each copy is laid out as:
+ * <pre>
+ * id (16) version (8) width height executed blocked invalid (5 x 4) direction (1)
+ * terrain name length (4, -1 for none) and UTF-8 bytes
+ * path length (4) own obstacle count (4), then packed path cells and obstacle cells (8 each)
+ * </pre>
+ */
+public final class SpillStore implements ColdTier, AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(SpillStore.class);
+
+    private static final String PREFIX = "spill-";
+    private static final String SUFFIX = ".bin";
+
+    private final Path directory;
+    private final long segmentBytes;
+    private final Function<ProbeSnapshot, ProbeAggregate> rebuild;
+    private final Map<UUID, Slot> slots = new ConcurrentHashMap<>();
+    // Guards appends, segment rolls and compaction; reads take no lock
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final List<Segment> segments = new ArrayList<>();
+    private final AtomicLong fileBytes = new AtomicLong();
+    private Segment active;
+    private long nextSegment;
+    private volatile boolean closed;
+
+    private record Slot(Segment segment, long offset, int length, long version) {}
+
+    /**
+     * @param rebuild turns a stored copy back into a probe; its cell is still claimed
+     */
+    public SpillStore(Path directory, long segmentBytes, Function<ProbeSnapshot, ProbeAggregate> rebuild)
+            throws IOException {
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        this.rebuild = rebuild;
+        Files.createDirectories(directory);
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path stale : files.filter(SpillStore::isSpillFile).toList()) {
+                Files.delete(stale);
+            }
+        }
+        active = newSegment();
+    }
+
+    @Override
+    public void put(UUID id, ProbeAggregate agg) {
+        ByteBuffer copy = encode(id, agg);
+        writeLock.lock();
+        try {
+            if (active.end > 0 && active.end + copy.remaining() > segmentBytes) {
+                active = newSegment();
+            }
+            release(slots.put(id, append(copy, agg.getVersion())));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot spill probe " + id, e);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public ProbeAggregate load(UUID id) {
+        while (true) {
+            Slot slot = slots.get(id);
+            if (slot == null) {
+                return null;
+            }
+            ByteBuffer copy = ByteBuffer.allocate(slot.length());
+            try {
+                slot.segment().read(copy, slot.offset());
+            } catch (ClosedByInterruptException e) {
+                throw new UncheckedIOException("Interrupted while reading spilled probe " + id, e);
+            } catch (ClosedChannelException e) {
+                if (closed) {
+                    throw new IllegalStateException("Spill store is closed", e);
+                }
+                // The file was compacted away meanwhile; the probe's copy has moved
+                continue;
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot read spilled probe " + id, e);
+            }
+            return rebuild.apply(decode(copy.flip()));
+        }
+    }
+
+    @Override
+    public boolean contains(UUID id) {
+        return slots.containsKey(id);
+    }
+
+    @Override
+    public long storedVersion(UUID id) {
+        Slot slot = slots.get(id);
+        return slot == null ? -1 : slot.version();
+    }
+
+    @Override
+    public boolean remove(UUID id) {
+        writeLock.lock();
+        try {
+            Slot slot = slots.remove(id);
+            release(slot);
+            return slot != null;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot release spilled probe " + id, e);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public long bytes() {
+        return fileBytes.get();
+    }
+
+    public int size() {
+        return slots.size();
+    }
+
+    /**
+     * Number of spill files, including the one being appended to.
+     */
+    public int segments() {
+        writeLock.lock();
+        try {
+            return segments.size();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        writeLock.lock();
+        try {
+            closed = true;
+            for (Segment segment : segments) {
+                segment.delete();
+            }
+            segments.clear();
+            slots.clear();
+            fileBytes.set(0);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private Slot append(ByteBuffer copy, long version) throws IOException {
+        int length = copy.remaining();
+        long offset = active.end;
+        active.write(copy, offset);
+        active.end += length;
+        active.live += length;
+        fileBytes.addAndGet(length);
+        return new Slot(active, offset, length, version);
+    }
+
+    private void release(Slot slot) throws IOException {
+        if (slot == null) {
+            return;
+        }
+        Segment segment = slot.segment();
+        segment.live -= slot.length();
+        if (segment.live == 0 && segment != active) {
+            retire(segment);
+        }
+    }
+
+    /**
+     * Copies the current entries of mostly stale files to the active one and deletes them.
+     * Readers holding an old slot find its file closed and look the probe up again.
+     * Not done by {@link #put}, which runs under the lock of the probe being evicted.
+     */
+    @Override
+    public void compact() {
+        writeLock.lock();
+        try {
+            compactSegments();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot compact spill files in " + directory, e);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private void compactSegments() throws IOException {
+        for (Segment segment : List.copyOf(segments)) {
+            if (segment == active || segment.retired || 2 * segment.live >= segment.end) {
+                continue;
+            }
+            int moved = 0;
+            for (Map.Entry<UUID, Slot> entry : slots.entrySet()) {
+                Slot slot = entry.getValue();
+                if (slot.segment() != segment) {
+                    continue;
+                }
+                ByteBuffer copy = ByteBuffer.allocate(slot.length());
+                segment.read(copy, slot.offset());
+                // Stays in the active file even if that runs over; the next put rolls it
+                slots.put(entry.getKey(), append(copy.flip(), slot.version()));
+                segment.live -= slot.length();
+                moved++;
+            }
+            log.debug("Compacted spill file {}: {} probes moved", segment.file, moved);
+            retire(segment);
+        }
+    }
+
+    private Segment newSegment() throws IOException {
+        Path file = directory.resolve(PREFIX + String.format("%08d", nextSegment++) + SUFFIX);
+        Segment segment = new Segment(file);
+        segments.add(segment);
+        return segment;
+    }
+
+    private void retire(Segment segment) throws IOException {
+        segments.remove(segment);
+        fileBytes.addAndGet(-segment.end);
+        segment.delete();
+    }
+
+    private static boolean isSpillFile(Path file) {
+        String name = file.getFileName().toString();
+        return name.startsWith(PREFIX) && name.endsWith(SUFFIX);
+    }
+
+    private static ByteBuffer encode(UUID id, ProbeAggregate agg) {
+        PathStore path = agg.getPath();
+        long[] obstacles = ownObstacles(agg);
+        byte[] terrain = agg.getTerrain() == null ? null : agg.getTerrain().getBytes(StandardCharsets.UTF_8);
+        ExecutionSummary summary = agg.getSummary();
+        int length = 16 + 8 + 5 * 4 + 1 + 4 + (terrain == null ? 0 : terrain.length)
+                + 8 + 8 * (path.size() + obstacles.length);
+
+        ByteBuffer out = ByteBuffer.allocate(length);
+        out.putLong(id.getMostSignificantBits()).putLong(id.getLeastSignificantBits())
+                .putLong(agg.getVersion())
+                .putInt(agg.getGrid().width()).putInt(agg.getGrid().height())
+                .putInt(summary.executed).putInt(summary.blocked).putInt(summary.invalid)
+                .put((byte) agg.getProbe().getDirection().ordinal());
+        if (terrain == null) {
+            out.putInt(-1);
+        } else {
+            out.putInt(terrain.length).put(terrain);
+        }
+        out.putInt(path.size()).putInt(obstacles.length);
+        for (int i = 0; i < path.size(); i++) {
+            out.putLong(path.packedAt(i));
+        }
+        for (long cell : obstacles) {
+            out.putLong(cell);
+        }
+        return out.flip();
+    }
+
+    private static long[] ownObstacles(ProbeAggregate agg) {
+        long[][] cells = {new long[0]};
+        int[] count = new int[1];
+        agg.getProbe().getObstacleMap().forEachOwn((x, y) -> {
+            if (count[0] == cells[0].length) {
+                cells[0] = Arrays.copyOf(cells[0], Math.max(8, count[0] * 2));
+            }
+            cells[0][count[0]++] = PathStore.pack(x, y);
+        });
+        return Arrays.copyOf(cells[0], count[0]);
+    }
+
+    static ProbeSnapshot decode(ByteBuffer in) {
+        UUID id = new UUID(in.getLong(), in.getLong());
+        long version = in.getLong();
+        int width = in.getInt();
+        int height = in.getInt();
+        ExecutionSummary summary = new ExecutionSummary(in.getInt(), in.getInt(), in.getInt());
+        Direction direction = Direction.values()[in.get()];
+        int terrainLength = in.getInt();
+        String terrain = null;
+        if (terrainLength >= 0) {
+            byte[] name = new byte[terrainLength];
+            in.get(name);
+            terrain = new String(name, StandardCharsets.UTF_8);
+        }
+        long[] points = new long[in.getInt()];
+        long[] obstacles = new long[in.getInt()];
+        in.asLongBuffer().get(points).get(obstacles);
+        return new ProbeSnapshot(id, version, terrain, width, height, direction, summary, obstacles,
+                PathStore.wrap(points, points.length));
+    }
+
+    /**
+     * One spill file. {@code end} and {@code live} are only touched under the store's write lock.
+     */
+    private static final class Segment {
+        final Path file;
+        // Not a monitor: file I/O while holding one would pin a virtual thread to its carrier
+        final ReentrantLock lock = new ReentrantLock();
+        volatile FileChannel channel;
+        volatile boolean retired;
+        long end;
+        long live;
+
+        Segment(Path file) throws IOException {
+            this.file = file;
+            this.channel = FileChannel.open(file, CREATE_NEW, READ, WRITE);
+        }
+
+        void write(ByteBuffer buffer, long position) throws IOException {
+            while (buffer.hasRemaining()) {
+                try {
+                    position += channel.write(buffer, position);
+                } catch (ClosedByInterruptException e) {
+                    throw e;
+                } catch (ClosedChannelException e) {
+                    reopen(e);
+                }
+            }
+        }
+
+        void read(ByteBuffer buffer, long position) throws IOException {
+            while (buffer.hasRemaining()) {
+                int read;
+                try {
+                    read = channel.read(buffer, position);
+                } catch (ClosedByInterruptException e) {
+                    throw e;
+                } catch (ClosedChannelException e) {
+                    reopen(e);
+                    continue;
+                }
+                if (read < 0) {
+                    throw new IOException("Spill file " + file + " ends at " + position);
+                }
+                position += read;
+            }
+        }
+
+        /**
+         * An interrupt during any read or write closes the channel for every thread; the file
+         * is opened again unless it was closed on purpose.
+         */
+        private void reopen(ClosedChannelException cause) throws IOException {
+            lock.lock();
+            try {
+                if (retired) {
+                    throw cause;
+                }
+                if (!channel.isOpen()) {
+                    channel = FileChannel.open(file, READ, WRITE);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void delete() throws IOException {
+            lock.lock();
+            try {
+                retired = true;
+                channel.close();
+                Files.deleteIfExists(file);
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.kata.probe.repository.journal;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * {@code probe.tiering.*} settings. Tiering is off by default and every probe stays in memory.
+ *
+ * @param memoryBudget  heap the probes in memory may take before the least recently used are spilled
+ * @param directory     where spill files are kept; emptied on startup
+ * @param segmentSize   size at which a new spill file is started
+ * @param checkInterval time between checks of the memory budget
+ */
+@ConfigurationProperties("probe.tiering")
+public record TieringProperties(
+        @DefaultValue("false") boolean enabled,
+        @DefaultValue("256MB") DataSize memoryBudget,
+        @DefaultValue("data/spill") Path directory,
+        @DefaultValue("64MB") DataSize segmentSize,
+        @DefaultValue("1s") Duration checkInterval) {}
@@ -0,0 +1,21 @@
+package com.kata.probe.service;
+
+import com.kata.probe.domain.ProbeView;
+
+/**
+ * Result for one probe of a batch: either its new state or the failure that stopped it.
+ */
+public record BatchOutcome(ProbeView view, RuntimeException error) {
+
+    public static BatchOutcome success(ProbeView view) {
+        return new BatchOutcome(view, null);
+    }
+
+    public static BatchOutcome failure(RuntimeException error) {
+        return new BatchOutcome(null, error);
+    }
+
+    public boolean succeeded() {
+        return error == null;
+    }
+}
@@ -0,0 +1,21 @@
+package com.kata.probe.service;
+
+import java.util.UUID;
+
+/**
+ * Result for one spec of a bulk create: either the new probe's ID or the reason it was not created.
+ */
+public record CreateOutcome(UUID id, RuntimeException error) {
+
+    public static CreateOutcome success(UUID id) {
+        return new CreateOutcome(id, null);
+    }
+
+    public static CreateOutcome failure(RuntimeException error) {
+        return new CreateOutcome(null, error);
+    }
+
+    public boolean succeeded() {
+        return error == null;
+    }
+}
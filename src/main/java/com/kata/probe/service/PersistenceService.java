@@ -0,0 +1,273 @@
+package com.kata.probe.service;
+
+import com.kata.probe.controller.response.ExecutionSummary;
+import com.kata.probe.domain.*;
+import com.kata.probe.repository.ProbeRepository;
+import com.kata.probe.repository.ProbeSource;
+import com.kata.probe.repository.TerrainRepository;
+import com.kata.probe.repository.journal.JournalRecord;
+import com.kata.probe.repository.journal.JournalRecord.CommandsApplied;
+import com.kata.probe.repository.journal.JournalRecord.CommandsResolved;
+import com.kata.probe.repository.journal.JournalRecord.ProbeCreated;
+import com.kata.probe.repository.journal.JournalRecord.TerrainRegistered;
+import com.kata.probe.repository.journal.MappedSnapshot;
+import com.kata.probe.repository.journal.PersistenceProperties;
+import com.kata.probe.repository.journal.ProbeSnapshot;
+import com.kata.probe.repository.journal.ProbeJournal;
+import com.kata.probe.repository.journal.SnapshotStore;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Rebuilds the fleet on startup from the latest snapshot plus the journal written after it,
+ * and takes snapshots periodically so the journal stays short. Does nothing unless
+ * {@code probe.persistence.enabled} is set.
+ */
+@Service
+public class PersistenceService {
+
+    private static final Logger log = LoggerFactory.getLogger(PersistenceService.class);
+
+    private final PersistenceProperties properties;
+    private final ProbeJournal journal;
+    private final SnapshotStore snapshots;
+    private final ProbeRepository probes;
+    private final TerrainRepository terrains;
+    private final ProbeStateService probeService;
+    private final TerrainService terrainService;
+    private final ReentrantLock snapshotLock = new ReentrantLock();
+    private ScheduledExecutorService scheduler;
+
+    public PersistenceService(PersistenceProperties properties, ProbeJournal journal, SnapshotStore snapshots,
+                              ProbeRepository probes, TerrainRepository terrains,
+                              ProbeStateService probeService, TerrainService terrainService) {
+        this.properties = properties;
+        this.journal = journal;
+        this.snapshots = snapshots;
+        this.probes = probes;
+        this.terrains = terrains;
+        this.probeService = probeService;
+        this.terrainService = terrainService;
+    }
+
+    @PostConstruct
+    void start() {
+        if (!properties.enabled()) {
+            return;
+        }
+        recover();
+        long interval = properties.snapshotInterval().toMillis();
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "probe-snapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::snapshotQuietly, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void stop() {
+        if (scheduler == null) {
+            return;
+        }
+        scheduler.shutdownNow();
+        // A final snapshot makes the next start a plain load with no journal to replay
+        snapshotQuietly();
+    }
+
+    /**
+     * Maps the latest snapshot, then replays the journal on top of it. Probes in the snapshot
+     * are only decoded when first looked up, so only those the journal touches are built here.
+     */
+    public void recover() {
+        long start = System.nanoTime();
+        MappedSnapshot snapshot;
+        try {
+            snapshot = snapshots.openLatest();
+            if (snapshot != null) {
+                snapshot.terrains().forEach(this::restoreTerrain);
+                probes.attach(new SnapshotSource(snapshot));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot load snapshot", e);
+        }
+        int[] replayed = new int[1];
+        Set<UUID> moved = new HashSet<>();
+        journal.replay(record -> {
+            replay(record, moved);
+            replayed[0]++;
+        });
+        claimCells(snapshot, moved);
+        log.info("Recovered {} probes and {} terrains in {} ms ({} journal records replayed)",
+                probes.size(), terrains.findAll().size(), (System.nanoTime() - start) / 1_000_000, replayed[0]);
+    }
+
+    /**
+     * Writes a snapshot and drops the journal segments it covers.
+     */
+    public void snapshot() {
+        snapshotLock.lock();
+        try {
+            // Every record before this segment has already been applied in memory
+            long segment = journal.roll();
+            List<Terrain> registered = terrainService.registered();
+            snapshots.write(segment, registered, probes);
+            journal.deleteBefore(segment);
+            log.info("Snapshot taken at journal segment {}: {} probes", segment, probes.size());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot write snapshot", e);
+        } finally {
+            snapshotLock.unlock();
+        }
+    }
+
+    private void snapshotQuietly() {
+        try {
+            snapshot();
+        } catch (RuntimeException e) {
+            log.error("Snapshot failed; the journal keeps growing until the next one succeeds", e);
+        }
+    }
+
+    /**
+     * Applies one record without looking at which cells are taken: every probe is rebuilt where it
+     * ended, and the cells are claimed once all of them are in place. {@code moved} collects the
+     * probes the journal created or moved.
+     */
+    private void replay(JournalRecord record, Set<UUID> moved) {
+        switch (record) {
+            case TerrainRegistered t -> restoreTerrain(t);
+            case ProbeCreated c -> {
+                if (probes.find(c.id()).isPresent()) {
+                    return; // already in the snapshot
+                }
+                // Built like a stored copy, so the start cell is not claimed yet
+                PathStore path = new PathStore();
+                path.add(c.x(), c.y());
+                probes.update(c.id(), probeService.restore(new ProbeSnapshot(c.id(), 0, c.terrain(),
+                        c.width(), c.height(), c.direction(), new ExecutionSummary(0, 0, 0), c.obstacles(), path)));
+                moved.add(c.id());
+            }
+            // A program is re-run ignoring other probes. Only probes that move alone are logged
+            // that way, apart from batches written before outcomes were logged
+            case CommandsApplied a -> replayBatch(a.id(), a.version(), moved, probe -> a.program().execute(probe));
+            case CommandsResolved r -> replayBatch(r.id(), r.version(), moved, probe -> {
+                r.moves().execute(probe);
+                if (probe.getX() != r.x() || probe.getY() != r.y()) {
+                    log.warn("Probe {} replayed to ({},{}) but batch {} ended at ({},{})",
+                            r.id(), probe.getX(), probe.getY(), r.version(), r.x(), r.y());
+                }
+                return r.summary();
+            });
+        }
+    }
+
+    private void replayBatch(UUID id, long version, Set<UUID> moved, Function<Probe, ExecutionSummary> batch) {
+        // Under the probe's lock, as eviction may already be running
+        probes.withLock(id, () -> {
+            ProbeAggregate agg = probes.find(id).orElse(null);
+            if (agg == null || version <= agg.getVersion()) {
+                return null; // unknown probe, or a batch the snapshot already contains
+            }
+            if (version != agg.getVersion() + 1) {
+                log.warn("Skipping batch for probe {}: version {} does not follow {}",
+                        id, version, agg.getVersion());
+                return null;
+            }
+            // Moved on a copy that shares the path but not the occupancy, so no cell is claimed or released
+            Probe probe = agg.getProbe();
+            Probe free = Probe.restore(probe.getPath(), probe.getDirection(), probe.getGrid(), probe.getObstacleMap());
+            ExecutionSummary summary = batch.apply(free);
+            agg.update(Probe.restore(free.getPath(), free.getDirection(), probe.getGrid(), probe.getObstacleMap(),
+                    probe.getOccupancy()), summary);
+            agg.setVersion(version);
+            probes.update(id, agg);
+            moved.add(id);
+            return null;
+        });
+    }
+
+    /**
+     * Claims the cell of every probe on a terrain once replay is done: where the snapshot put it,
+     * unless the journal created or moved it since. Two probes can only end on one cell if a batch
+     * that moved one of them away was lost, e.g. in a crash before its flush; both are kept there.
+     */
+    private void claimCells(MappedSnapshot snapshot, Set<UUID> moved) {
+        if (snapshot != null) {
+            for (int i = 0; i < snapshot.size(); i++) {
+                String terrain = snapshot.terrainAt(i);
+                UUID id = snapshot.idAt(i);
+                if (terrain != null && !moved.contains(id)) {
+                    long cell = snapshot.positionAt(i);
+                    claimCell(id, terrain, PathStore.unpackX(cell), PathStore.unpackY(cell));
+                }
+            }
+        }
+        for (UUID id : moved) {
+            probes.find(id)
+                    .filter(agg -> agg.getTerrain() != null)
+                    .ifPresent(agg -> claimCell(id, agg.getTerrain(), agg.getProbe().getX(), agg.getProbe().getY()));
+        }
+    }
+
+    private void claimCell(UUID id, String terrain, int x, int y) {
+        if (!terrainService.occupancy(terrainService.get(terrain)).claim(x, y)) {
+            log.warn("Probe {} recovered onto ({},{}) of terrain {}, which another probe holds", id, x, y, terrain);
+        }
+    }
+
+    private void restoreTerrain(TerrainRegistered t) {
+        terrains.register(t.name(), Grid.of(t.width(), t.height()), t.cells());
+    }
+
+    private final class SnapshotSource implements ProbeSource {
+        private final MappedSnapshot snapshot;
+
+        SnapshotSource(MappedSnapshot snapshot) {
+            this.snapshot = snapshot;
+        }
+
+        @Override
+        public ProbeAggregate load(UUID id) {
+            int index = snapshot.indexOf(id);
+            return index < 0 ? null : probeService.restore(snapshot.read(index));
+        }
+
+        @Override
+        public int size() {
+            return snapshot.size();
+        }
+
+        @Override
+        public void forEachId(Consumer<UUID> action) {
+            for (int i = 0; i < snapshot.size(); i++) {
+                action.accept(snapshot.idAt(i));
+            }
+        }
+
+        @Override
+        public void forEachLocation(LocationConsumer action) {
+            for (int i = 0; i < snapshot.size(); i++) {
+                long cell = snapshot.positionAt(i);
+                action.accept(snapshot.idAt(i), snapshot.terrainAt(i), PathStore.unpackX(cell), PathStore.unpackY(cell));
+            }
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package com.kata.probe.service;
+
+import com.kata.probe.domain.ProbeView;
+import com.kata.probe.domain.planning.Plan;
+
+/**
+ * A planned route and, if it was executed, the probe's state afterwards; otherwise {@code view} is {@code null}.
+ */
+public record PlanOutcome(Plan plan, ProbeView view) {}
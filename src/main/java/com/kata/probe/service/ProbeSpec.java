@@ -0,0 +1,19 @@
+package com.kata.probe.service;
+
+import com.kata.probe.domain.Coordinate;
+import com.kata.probe.domain.Direction;
+
+import java.util.List;
+
+/**
+ * What a new probe starts with. {@code terrain} is optional; without it the probe gets
+ * its own {@code width x height} grid. {@code obstacles} are private to this probe.
+ */
+public record ProbeSpec(
+        String terrain,
+        int width,
+        int height,
+        Coordinate start,
+        Direction direction,
+        List<Coordinate> obstacles
+) {}
@@ -1,92 +1,506 @@
 package com.kata.probe.service;
 
 import com.kata.probe.domain.*;
+import com.kata.probe.event.ProbeEvent;
+import com.kata.probe.event.ProbeEventBus;
 import com.kata.probe.exception.ProbeNotFoundException;
+import com.kata.probe.metrics.ProbeMetrics;
+import com.kata.probe.exception.ProbeVersionConflictException;
+import com.kata.probe.exception.TerrainNotFoundException;
+import com.kata.probe.repository.ProbeLocationIndex.Location;
 import com.kata.probe.repository.ProbeRepository;
+import com.kata.probe.repository.journal.JournalRecord;
+import com.kata.probe.repository.journal.ProbeJournal;
+import com.kata.probe.repository.journal.ProbeSnapshot;
 
-import com.kata.probe.domain.commands.CommandFactory;
-import com.kata.probe.domain.commands.InvalidCommand;
+import com.kata.probe.domain.commands.CommandProgram;
+import com.kata.probe.domain.planning.PathPlanner;
+import com.kata.probe.domain.planning.Plan;
 import com.kata.probe.controller.response.ExecutionSummary;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.core.env.Environment;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.function.Function;
 
 @Service
 public class ProbeStateService {
 
     private static final Logger log = LoggerFactory.getLogger(ProbeStateService.class);
+    private static final Executor VIRTUAL_FAN_OUT = task -> Thread.ofVirtual().name("probe-batch").start(task);
+    // Each command can add a step to the path, 8 bytes each, all allocated under the probe's lock
+    static final long DEFAULT_MAX_PROGRAM_LENGTH = 10_000_000;
 
     private final ProbeRepository repo;
+    private final TerrainService terrains;
+    private final ProbeJournal journal;
+    private final Executor fanOut;
+    private final ProbeEventBus events;
+    private final ProbeMetrics metrics;
+    private final PathPlanner planner = new PathPlanner();
+    private final long maxProgramLength;
 
-    public ProbeStateService(ProbeRepository repo) {
-        this.repo = repo;
+    public ProbeStateService(ProbeRepository repo, TerrainService terrains) {
+        this(repo, terrains, ProbeJournal.NONE);
     }
 
-    public UUID create(int width, int height, Coordinate start, Direction direction) {
-        log.info("Creating new probe: grid={}x{}, start={}, direction={}",
-                width, height, start, direction);
+    public ProbeStateService(ProbeRepository repo, TerrainService terrains, ProbeJournal journal) {
+        this(repo, terrains, journal, ForkJoinPool.commonPool(), ProbeEventBus.NONE, ProbeMetrics.NONE);
+    }
 
-        Grid grid = new Grid(width, height);
+    /**
+     * With virtual threads enabled ({@code spring.threads.virtual.enabled}), each entry of a batch
+     * gets its own virtual thread, so entries waiting for the journal do not hold on to a platform thread.
+     * Otherwise they run on the common pool, which makes up for each entry blocked on the journal with
+     * another thread, so one large batch cannot stall the pool.
+     * Programs are limited to {@code probe.commands.max-length} commands.
+     */
+    @Autowired
+    public ProbeStateService(ProbeRepository repo, TerrainService terrains, ProbeJournal journal,
+                             ProbeEventBus events, ProbeMetrics metrics, Environment environment) {
+        this(repo, terrains, journal,
+                Threading.VIRTUAL.isActive(environment) ? VIRTUAL_FAN_OUT : ForkJoinPool.commonPool(),
+                events, metrics,
+                environment.getProperty("probe.commands.max-length", Long.class, DEFAULT_MAX_PROGRAM_LENGTH));
+    }
+
+    public ProbeStateService(ProbeRepository repo, TerrainService terrains, ProbeJournal journal,
+                             Executor fanOut, ProbeEventBus events, ProbeMetrics metrics) {
+        this(repo, terrains, journal, fanOut, events, metrics, DEFAULT_MAX_PROGRAM_LENGTH);
+    }
 
-        // NEW: stateful probes always use an empty obstacle map
-        ObstacleMap obstacleMap = new ObstacleMap();
+    public ProbeStateService(ProbeRepository repo, TerrainService terrains, ProbeJournal journal,
+                             Executor fanOut, ProbeEventBus events, ProbeMetrics metrics, long maxProgramLength) {
+        if (maxProgramLength <= 0 || maxProgramLength > CommandProgram.MAX_LENGTH) {
+            throw new IllegalArgumentException("Maximum program length must be between 1 and "
+                    + CommandProgram.MAX_LENGTH + ": " + maxProgramLength);
+        }
+        this.maxProgramLength = maxProgramLength;
+        this.repo = repo;
+        this.terrains = terrains;
+        this.journal = journal;
+        this.fanOut = fanOut;
+        this.events = events;
+        this.metrics = metrics;
+    }
+
+    public UUID create(int width, int height, Coordinate start, Direction direction) {
+        return create(new ProbeSpec(null, width, height, start, direction, null));
+    }
 
-        Probe probe = new Probe(start, direction, grid, obstacleMap);
-        ProbeAggregate agg = new ProbeAggregate(grid, probe);
+    public UUID create(ProbeSpec spec) {
+        log.debug("Creating new probe: terrain={}, grid={}x{}, start={}, direction={}",
+                spec.terrain(), spec.width(), spec.height(), spec.start(), spec.direction());
 
+        ProbeAggregate agg = newAggregate(spec);
         UUID id = repo.save(agg);
 
+        // Logged under the probe's lock, so its first batch can never be logged before it
+        long position = repo.withLock(id, () -> {
+            try {
+                return journal.append(createdRecord(id, agg, spec));
+            } catch (RuntimeException e) {
+                repo.remove(id);
+                agg.getProbe().releaseCell();
+                throw e;
+            }
+        });
+        awaitDurable(position);
+
         log.debug("Probe created with ID={}", id);
         return id;
     }
 
+    /**
+     * Creates one probe per spec. Specs are validated one by one, so a bad spec fails only its
+     * own outcome. The probes built are stored in one step and the journal is waited on once
+     * for the whole batch rather than once per probe. Outcomes keep the order of {@code specs}.
+     */
+    public List<CreateOutcome> createAll(List<ProbeSpec> specs) {
+        if (specs == null || specs.isEmpty()) {
+            throw new IllegalArgumentException("Probes must not be empty");
+        }
+        log.debug("Creating {} probes", specs.size());
+
+        CreateOutcome[] outcomes = new CreateOutcome[specs.size()];
+        List<ProbeAggregate> built = new ArrayList<>(specs.size());
+        int[] specIndex = new int[specs.size()];
+        for (int i = 0; i < outcomes.length; i++) {
+            try {
+                if (specs.get(i) == null) {
+                    throw new IllegalArgumentException("Probe spec must not be null");
+                }
+                ProbeAggregate agg = newAggregate(specs.get(i));
+                specIndex[built.size()] = i;
+                built.add(agg);
+            } catch (IllegalArgumentException | TerrainNotFoundException e) {
+                outcomes[i] = CreateOutcome.failure(e);
+            } catch (RuntimeException e) {
+                log.error("Unexpected error creating probe {} of batch", i, e);
+                outcomes[i] = CreateOutcome.failure(e);
+            }
+        }
+
+        List<UUID> ids = repo.saveAll(built);
+        long position = 0;
+        int created = 0;
+        for (int j = 0; j < ids.size(); j++) {
+            UUID id = ids.get(j);
+            ProbeAggregate agg = built.get(j);
+            ProbeSpec spec = specs.get(specIndex[j]);
+            try {
+                position = Math.max(position, repo.withLock(id, () -> journal.append(createdRecord(id, agg, spec))));
+                outcomes[specIndex[j]] = CreateOutcome.success(id);
+                created++;
+            } catch (RuntimeException e) {
+                // Only the journal can fail here, and that is never the caller's fault
+                log.error("Cannot journal creation of probe {}", id, e);
+                repo.remove(id);
+                agg.getProbe().releaseCell();
+                outcomes[specIndex[j]] = CreateOutcome.failure(e);
+            }
+        }
+        awaitDurable(position);
+
+        log.debug("Created {} of {} probes", created, specs.size());
+        return List.of(outcomes);
+    }
+
+    /**
+     * Builds and validates a probe without storing it.
+     */
+    ProbeAggregate newAggregate(ProbeSpec spec) {
+        if (spec.start() == null) {
+            throw new IllegalArgumentException("Start position is required");
+        }
+
+        Grid grid;
+        ObstacleMap obstacleMap;
+        Occupancy occupancy = Occupancy.NONE;
+        if (spec.terrain() != null) {
+            // Probes on a registered terrain share its obstacles; their own go into an overlay
+            Terrain terrain = terrains.get(spec.terrain());
+            grid = terrain.grid();
+            if ((spec.width() != 0 || spec.height() != 0)
+                    && (spec.width() != grid.width() || spec.height() != grid.height())) {
+                throw new IllegalArgumentException("Grid " + spec.width() + "x" + spec.height()
+                        + " does not match terrain " + terrain.name());
+            }
+            obstacleMap = ObstacleMap.sharing(terrain);
+            occupancy = terrains.occupancy(terrain);
+        } else {
+            grid = Grid.of(spec.width(), spec.height());
+            obstacleMap = new ObstacleMap(grid);
+        }
+
+        if (spec.obstacles() != null) {
+            for (Coordinate obstacle : spec.obstacles()) {
+                if (obstacle == null || !grid.isWithinBounds(obstacle)) {
+                    throw new IllegalArgumentException("Obstacle out of bounds: " + obstacle);
+                }
+                obstacleMap.addObstacle(obstacle);
+            }
+        }
+
+        Probe probe = new Probe(spec.start(), spec.direction(), grid, obstacleMap, occupancy);
+        return new ProbeAggregate(spec.terrain(), grid, probe);
+    }
+
+    /**
+     * Rebuilds a probe from a stored copy, such as a snapshot record or a spilled probe.
+     * Its cell is expected to be claimed already.
+     */
+    ProbeAggregate restore(ProbeSnapshot s) {
+        Grid grid = Grid.of(s.width(), s.height());
+        Terrain terrain = s.terrain() != null ? terrains.get(s.terrain()) : null;
+        ObstacleMap obstacleMap = terrain != null ? ObstacleMap.sharing(terrain) : new ObstacleMap(grid);
+        Occupancy occupancy = terrain != null ? terrains.occupancy(terrain) : Occupancy.NONE;
+        for (long cell : s.obstacles()) {
+            obstacleMap.addObstacle(new Coordinate(PathStore.unpackX(cell), PathStore.unpackY(cell)));
+        }
+        Probe probe = Probe.restore(s.path(), s.direction(), grid, obstacleMap, occupancy);
+        ProbeAggregate agg = new ProbeAggregate(s.terrain(), grid, probe);
+        agg.update(probe, s.summary());
+        agg.setVersion(s.version());
+        return agg;
+    }
+
+    private static JournalRecord createdRecord(UUID id, ProbeAggregate agg, ProbeSpec spec) {
+        List<Coordinate> obstacles = spec.obstacles() == null ? List.of() : spec.obstacles();
+        long[] cells = new long[obstacles.size()];
+        for (int i = 0; i < cells.length; i++) {
+            cells[i] = PathStore.pack(obstacles.get(i).x(), obstacles.get(i).y());
+        }
+        Grid grid = agg.getGrid();
+        return new JournalRecord.ProbeCreated(id, spec.terrain(), grid.width(), grid.height(),
+                spec.start().x(), spec.start().y(), spec.direction(), cells);
+    }
+
     public ProbeAggregate get(UUID id) {
         log.debug("Fetching probe with ID={}", id);
 
         return repo.find(id)
                 .orElseThrow(() -> {
-                    log.warn("Probe not found: {}", id);
+                    log.debug("Probe not found: {}", id);
                     return new ProbeNotFoundException(id);
                 });
     }
 
-    public ProbeAggregate apply(UUID id, List<String> rawCommands) {
-        log.info("Applying {} commands to probe ID={}", rawCommands.size(), id);
+    public ProbeView view(UUID id) {
+        return repo.withLock(id, () -> get(id).view());
+    }
 
-        var agg = get(id);
+    /**
+     * Probes inside the inclusive rectangle, answered from the location index without visiting the fleet.
+     */
+    public List<Location> within(int minX, int minY, int maxX, int maxY, String terrain, int limit) {
+        if (minX > maxX || minY > maxY) {
+            throw new IllegalArgumentException("Bounding box min must not exceed max");
+        }
+        return repo.locations().within(minX, minY, maxX, maxY, terrain, limit);
+    }
+
+    public List<Location> nearest(int x, int y, int k, String terrain) {
+        return repo.locations().nearest(x, y, k, terrain);
+    }
 
-        // OLD: Probe probe = agg.getProbe();
-        // But agg.getProbe() returns a Probe constructed earlier — OK
-        Probe probe = agg.getProbe();
+    public ProbeView apply(UUID id, List<String> rawCommands) {
+        return apply(id, rawCommands, null);
+    }
 
-        int executed = 0;
-        int blocked = 0;
-        int invalid = 0;
+    public ProbeView apply(UUID id, List<String> rawCommands, Long expectedVersion) {
+        log.debug("Applying {} commands to probe ID={}", rawCommands.size(), id);
+        return apply(id, CommandProgram.compile(rawCommands, maxProgramLength), expectedVersion);
+    }
 
-        for (String raw : rawCommands) {
-            var cmd = CommandFactory.from(raw);
-            boolean success = cmd.execute(probe);
+    /**
+     * Most commands one program may hold. Parse with this limit, so an oversized program is
+     * rejected while it is read; programs built any other way are checked before they run.
+     */
+    public long maxProgramLength() {
+        return maxProgramLength;
+    }
 
-            if (cmd instanceof InvalidCommand) {
-                invalid++;
-            } else if (!success) {
-                blocked++;
-            } else {
-                executed++;
+    /**
+     * Applies a command batch. When {@code expectedVersion} is given the batch only runs
+     * if the probe is still at that version, otherwise a conflict is reported.
+     */
+    public ProbeView apply(UUID id, CommandProgram program, Long expectedVersion) {
+        checkLength(program);
+        long start = System.nanoTime();
+        // Commands for one probe run one batch at a time; other probes are not blocked
+        Committed committed = repo.withLock(id, () -> {
+            var agg = get(id);
+            long version = agg.getVersion();
+            if (expectedVersion != null && expectedVersion != version) {
+                throw new ProbeVersionConflictException(id, expectedVersion, version);
             }
+
+            Probe probe = agg.getProbe();
+            // With collisions on the outcome depends on other probes, whose locks are not held here,
+            // so replaying the program could end elsewhere; what the batch did is logged instead
+            boolean logOutcome = probe.getOccupancy() != Occupancy.NONE;
+            // Logged before it runs: if the log cannot take it, the probe is left untouched
+            long position = logOutcome ? 0 : journal.append(new JournalRecord.CommandsApplied(id, version + 1, program));
+
+            int pathStart = probe.getPath().size();
+            Direction directionBefore = probe.getDirection();
+            CommandProgram moves = logOutcome ? new CommandProgram(program.runs()) : null;
+            ExecutionSummary summary = program.execute(probe, moves);
+
+            agg.update(probe, summary);
+            if (!repo.compareAndUpdate(id, version, agg)) {
+                // Nothing else commits this probe while its lock is held, and the batch has already
+                // run and been logged, so this is a broken invariant rather than a conflict to retry
+                throw new IllegalStateException("Probe " + id + " left version " + version + " while locked");
+            }
+
+            log.debug("Command summary for probe ID={}: executed={}, blocked={}, invalid={}",
+                    id, summary.executed, summary.blocked, summary.invalid);
+
+            ProbeView view = agg.view(pathStart);
+            // Published under the lock, so a probe's events appear in version order
+            publish(id, agg.getTerrain(), view, directionBefore);
+            if (logOutcome) {
+                // Only known once it has run. By then other probes may have taken the cells it left,
+                // so a batch the log cannot take stays applied and is lost on restart
+                try {
+                    position = journal.append(new JournalRecord.CommandsResolved(id, version + 1, moves,
+                            probe.getX(), probe.getY(), summary));
+                } catch (RuntimeException e) {
+                    log.error("Cannot journal batch {} of probe {}; it is applied but will not survive a restart",
+                            version + 1, id, e);
+                    throw e;
+                }
+            }
+            return new Committed(view, position);
+        });
+        // Wait for the disk outside the lock, so the next batch can run meanwhile
+        awaitDurable(committed.position());
+        metrics.recordApply(program.length(), committed.view().summary(), System.nanoTime() - start);
+        return committed.view();
+    }
+
+    private record Committed(ProbeView view, long position) {}
+
+    /**
+     * Waits for the journal as a {@link ForkJoinPool.ManagedBlocker}: batch entries fanned out on a
+     * fork-join pool, the common pool by default, then let the pool add a thread for each one waiting
+     * on an fsync instead of tying up every worker. On any other thread it is a plain wait.
+     */
+    private void awaitDurable(long position) {
+        if (!(Thread.currentThread() instanceof ForkJoinWorkerThread)) {
+            journal.awaitDurable(position);
+            return;
         }
+        try {
+            ForkJoinPool.managedBlock(new ForkJoinPool.ManagedBlocker() {
+                private boolean durable;
 
-        ExecutionSummary summary = new ExecutionSummary(executed, blocked, invalid);
-        agg.update(probe, summary);
-        repo.update(id, agg);
+                @Override
+                public boolean block() {
+                    journal.awaitDurable(position);
+                    durable = true;
+                    return true;
+                }
 
-        log.debug("Command summary for probe ID={}: executed={}, blocked={}, invalid={}",
-                id, executed, blocked, invalid);
+                @Override
+                public boolean isReleasable() {
+                    return durable;
+                }
+            });
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the journal", e);
+        }
+    }
 
-        return agg;
+    /**
+     * Runs {@code program} on a detached copy of the probe (see {@link Probe#detached}) and reports
+     * where it would end up. Only the copy is made under the probe's lock; nothing is stored,
+     * journaled or published, and the probe's path is neither copied nor extended.
+     */
+    public Simulation simulate(UUID id, CommandProgram program) {
+        checkLength(program);
+        record Start(Probe probe, long version) {}
+        Start start = repo.withLock(id, () -> {
+            var agg = get(id);
+            return new Start(Probe.detached(agg.getProbe()), agg.getVersion());
+        });
+        ExecutionSummary summary = program.execute(start.probe());
+        log.debug("Simulated {} commands on probe ID={}: executed={}, blocked={}, invalid={}",
+                program.length(), id, summary.executed, summary.blocked, summary.invalid);
+        return new Simulation(start.probe().getPosition(), start.probe().getDirection(), summary, start.version());
+    }
+
+    /**
+     * Plans the shortest program from the probe's current state to {@code target} and, if asked,
+     * applies it. Only a detached copy of the probe is taken under its lock; the search runs
+     * outside it, so other batches on the stripe are not held up. The plan is only applied if the
+     * probe has not changed since it was copied; otherwise a version conflict is reported and
+     * nothing runs.
+     */
+    public PlanOutcome plan(UUID id, Coordinate target, boolean execute) {
+        record Start(Probe probe, long version) {}
+        Start start = repo.withLock(id, () -> {
+            var agg = get(id);
+            return new Start(Probe.detached(agg.getProbe()), agg.getVersion());
+        });
+        Plan plan = planner.plan(start.probe(), target);
+        log.debug("Planned route for probe ID={} to {}: reachable={}, expanded={}",
+                id, target, plan.reachable(), plan.expanded());
+        if (!plan.reachable()) {
+            throw new IllegalArgumentException(plan.exhausted()
+                    ? "No route to " + target + " found within " + plan.expanded() + " search steps"
+                    : "No route to " + target);
+        }
+        if (!execute) {
+            return new PlanOutcome(plan, null);
+        }
+        return new PlanOutcome(plan, apply(id, plan.program(), start.version()));
+    }
+
+    private void checkLength(CommandProgram program) {
+        if (program.length() > maxProgramLength) {
+            throw new IllegalArgumentException("Command program longer than " + maxProgramLength + " commands");
+        }
+    }
+
+    private void publish(UUID id, String terrain, ProbeView view, Direction directionBefore) {
+        int steps = view.pathLength() - view.pathStart();
+        if (steps > 0 || view.direction() != directionBefore) {
+            events.publish(new ProbeEvent.ProbeMoved(id, terrain, view.version(), view.position(), view.direction(),
+                    steps));
+        }
+        if (view.summary().blocked > 0) {
+            events.publish(new ProbeEvent.ProbeBlocked(id, terrain, view.version(), view.position(), view.direction(),
+                    view.summary().blocked));
+        }
+    }
+
+    /**
+     * Applies independent command batches to many probes in parallel. Each input is compiled
+     * by {@code compiler} inside its own task, so a malformed entry, like an unknown ID, is
+     * reported in its own outcome and does not affect the others.
+     * Results keep the iteration order of {@code inputById}.
+     */
+    public <T> Map<UUID, BatchOutcome> applyBatch(Map<UUID, T> inputById, Function<T, CommandProgram> compiler) {
+        if (inputById == null) {
+            throw new IllegalArgumentException("Batch must not be empty");
+        }
+        log.debug("Applying command batch to {} probes", inputById.size());
+
+        List<Map.Entry<UUID, T>> entries = new ArrayList<>(inputById.entrySet());
+        BatchOutcome[] outcomes = new BatchOutcome[entries.size()];
+        CountDownLatch done = new CountDownLatch(outcomes.length);
+        for (int i = 0; i < outcomes.length; i++) {
+            int index = i;
+            fanOut.execute(() -> {
+                try {
+                    outcomes[index] = applyEntry(entries.get(index).getKey(), entries.get(index).getValue(), compiler);
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        try {
+            done.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while applying a batch", e);
+        }
+
+        Map<UUID, BatchOutcome> results = new LinkedHashMap<>(outcomes.length * 4 / 3 + 1);
+        for (int i = 0; i < outcomes.length; i++) {
+            results.put(entries.get(i).getKey(), outcomes[i]);
+        }
+        return results;
+    }
+
+    private <T> BatchOutcome applyEntry(UUID id, T input, Function<T, CommandProgram> compiler) {
+        try {
+            if (input == null) {
+                throw new IllegalArgumentException("Commands must not be null");
+            }
+            return BatchOutcome.success(apply(id, compiler.apply(input), null));
+        } catch (IllegalArgumentException | ProbeNotFoundException | ProbeVersionConflictException e) {
+            return BatchOutcome.failure(e);
+        } catch (RuntimeException e) {
+            log.error("Unexpected error applying batch entry for probe {}", id, e);
+            return BatchOutcome.failure(e);
+        }
     }
 }
@@ -0,0 +1,63 @@
+package com.kata.probe.service;
+
+import com.kata.probe.domain.Grid;
+import com.kata.probe.domain.ObstacleMap;
+import com.kata.probe.domain.planning.DistanceField;
+import com.kata.probe.domain.planning.DistanceFieldCache;
+import com.kata.probe.repository.ProbeRepository;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import java.util.UUID;
+
+/**
+ * Which cells a probe can reach from where it stands, and how many moves away each one is.
+ * Fields are cached (see {@link DistanceFieldCache}), so probes polling from the same cell of
+ * the same layout share one search.
+ */
+@Service
+public class ReachabilityService {
+
+    private static final Logger log = LoggerFactory.getLogger(ReachabilityService.class);
+    // Room for a few fields of the largest grid, about 64MB each; those searches are the ones worth keeping
+    private static final DataSize DEFAULT_CACHE_SIZE = DataSize.ofMegabytes(256);
+
+    private final ProbeRepository repo;
+    private final ProbeStateService probes;
+    private final DistanceFieldCache cache;
+
+    @Autowired
+    public ReachabilityService(ProbeRepository repo, ProbeStateService probes, Environment environment) {
+        this(repo, probes, environment.getProperty("probe.planning.field-cache-size", DataSize.class,
+                DEFAULT_CACHE_SIZE).toBytes());
+    }
+
+    public ReachabilityService(ProbeRepository repo, ProbeStateService probes, long cacheBytes) {
+        this.repo = repo;
+        this.probes = probes;
+        this.cache = new DistanceFieldCache(cacheBytes);
+    }
+
+    /**
+     * Distances from the probe's current cell. Only the position is read under the probe's lock;
+     * the search runs outside it, as a probe's obstacles are fixed once it is created.
+     */
+    public DistanceField distances(UUID id) {
+        record Origin(Grid grid, ObstacleMap obstacles, int x, int y) {}
+        Origin origin = repo.withLock(id, () -> {
+            var probe = probes.get(id).getProbe();
+            return new Origin(probe.getGrid(), probe.getObstacleMap(), probe.getX(), probe.getY());
+        });
+        log.debug("Distance field for probe ID={} from ({}, {})", id, origin.x(), origin.y());
+        return cache.get(origin.grid(), origin.obstacles(), origin.x(), origin.y());
+    }
+
+    public DistanceFieldCache cache() {
+        return cache;
+    }
+}
@@ -0,0 +1,12 @@
+package com.kata.probe.service;
+
+import com.kata.probe.controller.response.ExecutionSummary;
+import com.kata.probe.domain.Coordinate;
+import com.kata.probe.domain.Direction;
+
+/**
+ * Where a simulated batch would leave a probe.
+ *
+ * @param version version of the probe the batch was simulated against
+ */
+public record Simulation(Coordinate position, Direction direction, ExecutionSummary summary, long version) {}
@@ -0,0 +1,136 @@
+package com.kata.probe.service;
+
+import com.kata.probe.domain.Coordinate;
+import com.kata.probe.domain.Grid;
+import com.kata.probe.domain.Occupancy;
+import com.kata.probe.domain.PathStore;
+import com.kata.probe.domain.Terrain;
+import com.kata.probe.exception.TerrainNotFoundException;
+import com.kata.probe.repository.TerrainRepository;
+import com.kata.probe.repository.journal.JournalRecord;
+import com.kata.probe.repository.journal.ProbeJournal;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+@Service
+public class TerrainService {
+
+    private static final Logger log = LoggerFactory.getLogger(TerrainService.class);
+
+    private final TerrainRepository repo;
+    private final ProbeJournal journal;
+    // Registrations are rare; one at a time keeps the journal in registration order
+    private final ReentrantLock registrations = new ReentrantLock();
+    private final boolean collisions;
+    private final Map<String, Occupancy> occupancies = new ConcurrentHashMap<>();
+
+    public TerrainService(TerrainRepository repo) {
+        this(repo, ProbeJournal.NONE);
+    }
+
+    public TerrainService(TerrainRepository repo, ProbeJournal journal) {
+        this(repo, journal, false);
+    }
+
+    @Autowired
+    public TerrainService(TerrainRepository repo, ProbeJournal journal, Environment environment) {
+        this(repo, journal, environment.getProperty("probe.collisions.enabled", Boolean.class, false));
+    }
+
+    /**
+     * @param collisions whether probes on the same terrain block each other
+     */
+    public TerrainService(TerrainRepository repo, ProbeJournal journal, boolean collisions) {
+        this.repo = repo;
+        this.journal = journal;
+        this.collisions = collisions;
+    }
+
+    public Terrain register(String name, int width, int height, List<Coordinate> obstacles) {
+        if (name == null || name.isBlank()) {
+            throw new IllegalArgumentException("Terrain name must not be blank");
+        }
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("Grid dimensions must be positive: " + width + "x" + height);
+        }
+        Grid grid = Grid.of(width, height);
+        long[] cells = distinctCells(grid, obstacles == null ? List.of() : obstacles);
+
+        log.info("Registering terrain '{}': grid={}x{}, obstacles={}", name, width, height, cells.length);
+
+        Terrain terrain;
+        long position;
+        registrations.lock();
+        try {
+            if (repo.find(name).isPresent()) {
+                // Same layout again is a no-op, a different one is rejected; neither is logged
+                return repo.register(name, grid, cells);
+            }
+            // Logged before it becomes visible, so no probe on it can be logged ahead of it
+            position = journal.append(new JournalRecord.TerrainRegistered(name, width, height, cells));
+            terrain = repo.register(name, grid, cells);
+        } finally {
+            registrations.unlock();
+        }
+        journal.awaitDurable(position);
+        return terrain;
+    }
+
+    /**
+     * All registered terrains. Waits for a registration in progress, so every terrain already
+     * in the journal is included.
+     */
+    public List<Terrain> registered() {
+        registrations.lock();
+        try {
+            return new ArrayList<>(repo.findAll());
+        } finally {
+            registrations.unlock();
+        }
+    }
+
+    public Terrain get(String name) {
+        return repo.find(name).orElseThrow(() -> new TerrainNotFoundException(name));
+    }
+
+    /**
+     * Cells taken by probes on the terrain, shared by all of them; {@link Occupancy#NONE} when
+     * collisions are off. Created on first use, after the terrain is registered.
+     */
+    public Occupancy occupancy(Terrain terrain) {
+        if (!collisions) {
+            return Occupancy.NONE;
+        }
+        return occupancies.computeIfAbsent(terrain.name(), name -> Occupancy.forGrid(terrain.grid()));
+    }
+
+    private static long[] distinctCells(Grid grid, List<Coordinate> obstacles) {
+        long[] cells = new long[obstacles.size()];
+        for (int i = 0; i < cells.length; i++) {
+            Coordinate c = obstacles.get(i);
+            if (c == null || !grid.isWithinBounds(c)) {
+                throw new IllegalArgumentException("Obstacle out of bounds: " + c);
+            }
+            cells[i] = PathStore.pack(c.x(), c.y());
+        }
+        Arrays.sort(cells);
+        int distinct = 0;
+        for (int i = 0; i < cells.length; i++) {
+            if (i == 0 || cells[i] != cells[i - 1]) {
+                cells[distinct++] = cells[i];
+            }
+        }
+        return Arrays.copyOf(cells, distinct);
+    }
+}
@@ -0,0 +1,93 @@
+package com.kata.probe.service;
+
+import com.kata.probe.repository.ProbeRepository;
+import com.kata.probe.repository.journal.SpillStore;
+import com.kata.probe.repository.journal.TieringProperties;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the probes held in memory within {@code probe.tiering.memory-budget} by spilling the
+ * least recently used ones to local files (see {@link ProbeRepository#evict}); looking one up
+ * brings it back. Does nothing unless {@code probe.tiering.enabled} is set.
+ */
+@Service
+public class TieringService {
+
+    private static final Logger log = LoggerFactory.getLogger(TieringService.class);
+
+    private final TieringProperties properties;
+    private final ProbeRepository probes;
+    private final ProbeStateService probeService;
+    private SpillStore spill;
+    private ScheduledExecutorService scheduler;
+
+    public TieringService(TieringProperties properties, ProbeRepository probes, ProbeStateService probeService) {
+        this.properties = properties;
+        this.probes = probes;
+        this.probeService = probeService;
+    }
+
+    @PostConstruct
+    void start() {
+        if (!properties.enabled()) {
+            return;
+        }
+        try {
+            spill = new SpillStore(properties.directory(), properties.segmentSize().toBytes(), probeService::restore);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open spill directory " + properties.directory(), e);
+        }
+        probes.enableTiering(spill);
+        long interval = properties.checkInterval().toMillis();
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "probe-evictor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::evictQuietly, interval, interval, TimeUnit.MILLISECONDS);
+        log.info("Tiering on: memory budget {}, spilling to {}", properties.memoryBudget(), properties.directory());
+    }
+
+    @PreDestroy
+    void stop() {
+        if (scheduler != null) {
+            // Spill files stay open: a final snapshot may still read evicted probes. They are
+            // cleared on the next start.
+            scheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * Spills probes if those in memory are over budget, down to 90% of it so the next few
+     * creates do not start another round straight away.
+     */
+    public int evict() {
+        long budget = properties.memoryBudget().toBytes();
+        long start = System.nanoTime();
+        int evicted = probes.evict(budget, budget - budget / 10);
+        if (evicted > 0) {
+            log.debug("Spilled {} probes in {} ms; {} now on disk, {} bytes of spill files",
+                    evicted, (System.nanoTime() - start) / 1_000_000, probes.coldSize(), probes.coldBytes());
+        }
+        return evicted;
+    }
+
+    private void evictQuietly() {
+        try {
+            evict();
+        } catch (RuntimeException e) {
+            log.error("Eviction failed; probes stay in memory until the next round succeeds", e);
+        }
+    }
+}
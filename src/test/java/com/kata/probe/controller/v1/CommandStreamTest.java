@@ -0,0 +1,136 @@
+package com.kata.probe.controller.v1;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kata.probe.domain.Coordinate;
+import com.kata.probe.domain.Direction;
+import com.kata.probe.event.ProbeEventBus;
+import com.kata.probe.metrics.ProbeMetrics;
+import com.kata.probe.repository.ProbeRepository;
+import com.kata.probe.repository.TerrainRepository;
+import com.kata.probe.repository.journal.ProbeJournal;
+import com.kata.probe.service.ProbeStateService;
+import com.kata.probe.service.TerrainService;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CommandStreamTest {
+
+    final ObjectMapper mapper = new ObjectMapper();
+    final ProbeStateService service = new ProbeStateService(new ProbeRepository(),
+            new TerrainService(new TerrainRepository()));
+
+    @Test
+    void lines_already_received_are_applied_as_one_batch() throws Exception {
+        UUID id = service.create(5, 5, new Coordinate(0, 0), Direction.NORTH);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // Each chunk arrives on its own; a line split across chunks waits for its end
+        int batches = new CommandStream(service, mapper, id).run(chunks("F\nF\n", "R\nF", "\n", "\n", "3F\n"), out);
+
+        List<JsonNode> updates = lines(out);
+        assertEquals(4, batches);
+        assertEquals(4, updates.size());
+        assertEquals(1, updates.get(0).get("version").asLong());
+        assertEquals(2, updates.get(0).get("appended").size());
+        assertEquals("EAST", updates.get(1).get("direction").asText());
+        assertEquals(3, updates.get(2).get("pathOffset").asInt());
+        assertEquals(1, updates.get(2).get("position").get("x").asInt());
+        assertEquals(4, updates.get(3).get("version").asLong());
+        assertEquals(4, service.view(id).version());
+    }
+
+    @Test
+    void a_bad_line_is_reported_on_its_own_and_the_rest_of_its_batch_runs() throws Exception {
+        UUID id = service.create(5, 5, new Coordinate(0, 0), Direction.NORTH);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        new CommandStream(service, mapper, id).run(chunks("FF\nF3\n\nR\n", "4\nF\n"), out);
+
+        List<JsonNode> updates = lines(out);
+        assertEquals(4, updates.size());
+        assertEquals(1, updates.get(0).get("version").asLong());
+        assertEquals(2, updates.get(0).get("position").get("y").asInt());
+        assertEquals("EAST", updates.get(0).get("direction").asText());
+        assertEquals("VALIDATION_ERROR", updates.get(1).get("error").get("code").asText());
+        assertEquals(2, updates.get(1).get("line").asLong());
+        // Line numbers carry on across batches, blank lines included
+        assertEquals(2, updates.get(2).get("version").asLong());
+        assertEquals(5, updates.get(3).get("line").asLong());
+        assertEquals(2, service.view(id).version());
+    }
+
+    @Test
+    void an_over_long_line_is_answered_and_ends_the_stream() throws Exception {
+        UUID id = service.create(5, 5, new Coordinate(0, 0), Direction.NORTH);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        int batches = new CommandStream(service, mapper, id)
+                .run(chunks("F\n", "R".repeat(CommandStream.MAX_BATCH_BYTES + 1) + "\n", "F\n"), out);
+
+        List<JsonNode> updates = lines(out);
+        assertEquals(1, batches);
+        assertEquals(2, updates.size());
+        assertEquals("VALIDATION_ERROR", updates.get(1).get("error").get("code").asText());
+        assertEquals(2, updates.get(1).get("line").asLong());
+        assertEquals(1, service.view(id).version());
+    }
+
+    @Test
+    void unterminated_last_line_is_applied_when_the_stream_ends() throws Exception {
+        UUID id = service.create(5, 5, new Coordinate(0, 0), Direction.NORTH);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        new CommandStream(service, mapper, id).run(chunks("2F"), out);
+
+        assertEquals(2, lines(out).get(0).get("position").get("y").asInt());
+    }
+
+    @Test
+    void lines_past_the_program_length_limit_go_into_the_next_batch() throws Exception {
+        ProbeStateService limited = new ProbeStateService(new ProbeRepository(),
+                new TerrainService(new TerrainRepository()), ProbeJournal.NONE, Runnable::run,
+                ProbeEventBus.NONE, ProbeMetrics.NONE, 5);
+        UUID id = limited.create(10, 10, new Coordinate(0, 0), Direction.NORTH);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // Each line fits, but all of them together do not
+        int batches = new CommandStream(limited, mapper, id).run(chunks("3F\n3F\nF\n6F\nF\n"), out);
+
+        List<JsonNode> updates = lines(out);
+        assertEquals(2, batches);
+        assertEquals(3, updates.size());
+        assertEquals(3, updates.get(0).get("position").get("y").asInt());
+        // The over-long line is rejected on its own; the line after it still fits the second batch
+        assertEquals(8, updates.get(1).get("position").get("y").asInt());
+        assertEquals(4, updates.get(2).get("line").asLong());
+        assertEquals(8, limited.view(id).position().y());
+    }
+
+    private static InputStream chunks(String... chunks) {
+        List<InputStream> streams = new ArrayList<>();
+        for (String chunk : chunks) {
+            streams.add(new ByteArrayInputStream(chunk.getBytes(StandardCharsets.US_ASCII)));
+        }
+        return new SequenceInputStream(Collections.enumeration(streams));
+    }
+
+    private List<JsonNode> lines(ByteArrayOutputStream out) throws Exception {
+        List<JsonNode> nodes = new ArrayList<>();
+        for (String line : out.toString(StandardCharsets.UTF_8).split("\n")) {
+            nodes.add(mapper.readTree(line));
+        }
+        return nodes;
+    }
+}
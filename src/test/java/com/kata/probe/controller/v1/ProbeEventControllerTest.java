@@ -0,0 +1,115 @@
+package com.kata.probe.controller.v1;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kata.probe.controller.request.v1.CreateProbeRequest;
+import com.kata.probe.controller.request.v1.RegisterTerrainRequest;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.http.MediaType.APPLICATION_JSON;
+import static org.springframework.http.MediaType.TEXT_PLAIN;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest @AutoConfigureMockMvc
+class ProbeEventControllerTest {
+
+    @Autowired
+    MockMvc mvc;
+    @Autowired ObjectMapper mapper;
+
+    @Test
+    void subscriber_receives_events_of_the_probes_it_asked_for() throws Exception {
+        String watched = createProbe();
+        String other = createProbe();
+
+        MockHttpServletResponse stream = mvc.perform(get("/v1/probe/events").param("probe", watched))
+                .andExpect(request().asyncStarted())
+                .andReturn()
+                .getResponse();
+        awaitContaining(stream, ":subscribed");
+
+        applyCommands(other, "F");
+        applyCommands(watched, "3F");  // blocked at the top edge of the 3x3 grid
+        // The event name is written before its data, so wait for the data
+        String body = awaitContaining(stream, "\"blocked\":1");
+
+        assertFalse(body.contains(other));
+        assertTrue(body.contains("event:moved"));
+        assertTrue(body.contains("event:blocked"));
+        assertTrue(body.contains("\"y\":2"));
+    }
+
+    @Test
+    void region_matches_only_probes_on_its_terrain() throws Exception {
+        RegisterTerrainRequest terrain = new RegisterTerrainRequest();
+        terrain.name = "event-field";
+        terrain.width = 10;
+        terrain.height = 10;
+        terrain.obstacles = List.of();
+        mvc.perform(post("/v1/terrain").contentType(APPLICATION_JSON).content(mapper.writeValueAsString(terrain)))
+                .andExpect(status().isOk());
+        String onTerrain = ProbeFixtures.createProbe(mvc, mapper, ProbeFixtures.probeRequest("event-field"));
+        String ownGrid = createProbe();
+
+        MockHttpServletResponse stream = mvc.perform(get("/v1/probe/events").param("terrain", "event-field")
+                        .param("minX", "0").param("minY", "0").param("maxX", "2").param("maxY", "2"))
+                .andExpect(request().asyncStarted())
+                .andReturn()
+                .getResponse();
+        awaitContaining(stream, ":subscribed");
+
+        applyCommands(ownGrid, "F");
+        applyCommands(onTerrain, "F");
+        String body = awaitContaining(stream, onTerrain);
+
+        assertFalse(body.contains(ownGrid));
+        assertTrue(body.contains("\"terrain\":\"event-field\""));
+    }
+
+    @Test
+    void incomplete_region_is_rejected() throws Exception {
+        mvc.perform(get("/v1/probe/events").param("minX", "0"))
+                .andExpect(status().isUnprocessableEntity());
+    }
+
+    @Test
+    void region_without_terrain_is_rejected() throws Exception {
+        mvc.perform(get("/v1/probe/events")
+                        .param("minX", "0").param("minY", "0").param("maxX", "2").param("maxY", "2"))
+                .andExpect(status().isUnprocessableEntity());
+    }
+
+    private static String awaitContaining(MockHttpServletResponse response, String text) throws Exception {
+        long deadline = System.currentTimeMillis() + 5_000;
+        String body = response.getContentAsString();
+        while (!body.contains(text)) {
+            assertTrue(System.currentTimeMillis() < deadline, "Timed out waiting for " + text + " in " + body);
+            Thread.sleep(10);
+            body = response.getContentAsString();
+        }
+        return body;
+    }
+
+    private void applyCommands(String id, String program) throws Exception {
+        mvc.perform(post("/v1/probe/" + id + "/commands")
+                        .contentType(TEXT_PLAIN)
+                        .content(program))
+                .andExpect(status().isOk());
+    }
+
+    private String createProbe() throws Exception {
+        CreateProbeRequest req = ProbeFixtures.probeRequest();
+        req.gridWidth = 3;
+        req.gridHeight = 3;
+        return ProbeFixtures.createProbe(mvc, mapper, req);
+    }
+}
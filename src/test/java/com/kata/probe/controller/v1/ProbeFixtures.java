@@ -0,0 +1,62 @@
+package com.kata.probe.controller.v1;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kata.probe.controller.request.v1.CreateProbeRequest;
+import com.kata.probe.domain.Coordinate;
+import com.kata.probe.domain.Direction;
+
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.springframework.http.MediaType.APPLICATION_JSON;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Creates probes through the API for the controller tests.
+ */
+final class ProbeFixtures {
+
+    private ProbeFixtures() {}
+
+    /**
+     * A probe at (0,0) facing north on an empty 5 x 5 grid; tests adjust the fields they care about.
+     */
+    static CreateProbeRequest probeRequest() {
+        CreateProbeRequest req = new CreateProbeRequest();
+        req.gridWidth = 5;
+        req.gridHeight = 5;
+        req.start = new Coordinate(0,0);
+        req.direction = Direction.NORTH;
+        return req;
+    }
+
+    /**
+     * A probe at (0,0) facing north on a registered terrain, which sets the grid.
+     */
+    static CreateProbeRequest probeRequest(String terrain) {
+        CreateProbeRequest req = new CreateProbeRequest();
+        req.terrain = terrain;
+        req.start = new Coordinate(0,0);
+        req.direction = Direction.NORTH;
+        return req;
+    }
+
+    static String createProbe(MockMvc mvc, ObjectMapper mapper) throws Exception {
+        return createProbe(mvc, mapper, probeRequest());
+    }
+
+    /**
+     * Creates the probe and returns its ID.
+     */
+    static String createProbe(MockMvc mvc, ObjectMapper mapper, CreateProbeRequest req) throws Exception {
+        var result = mvc.perform(post("/v1/probe")
+                        .contentType(APPLICATION_JSON)
+                        .content(mapper.writeValueAsString(req)))
+                .andExpect(status().isOk())
+                .andReturn();
+
+        JsonNode json = mapper.readTree(result.getResponse().getContentAsString());
+        return json.get("id").asText();
+    }
+}
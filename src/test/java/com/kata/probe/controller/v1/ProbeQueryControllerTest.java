@@ -0,0 +1,123 @@
+package com.kata.probe.controller.v1;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kata.probe.controller.request.v1.CreateProbeRequest;
+import com.kata.probe.controller.request.v1.RegisterTerrainRequest;
+import com.kata.probe.domain.Coordinate;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.List;
+
+import static org.springframework.http.MediaType.APPLICATION_JSON;
+import static org.springframework.http.MediaType.TEXT_PLAIN;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest @AutoConfigureMockMvc
+class ProbeQueryControllerTest {
+
+    private static final String TERRAIN = "survey";
+    // Spreads the tests apart, since they share the application context and the terrain
+    private static final int BASE = 500_000;
+
+    @Autowired
+    MockMvc mvc;
+    @Autowired ObjectMapper mapper;
+
+    @BeforeEach
+    void registerTerrain() throws Exception {
+        RegisterTerrainRequest req = new RegisterTerrainRequest();
+        req.name = TERRAIN;
+        req.width = 1_000_000;
+        req.height = 1_000_000;
+        req.obstacles = List.of();
+        mvc.perform(post("/v1/terrain").contentType(APPLICATION_JSON).content(mapper.writeValueAsString(req)))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void bbox_returns_probes_inside_the_region_after_they_move() throws Exception {
+        String inside = createProbe(BASE, BASE);
+        String moved = createProbe(BASE + 100, BASE);
+        createProbe(BASE + 300, BASE);
+
+        mvc.perform(post("/v1/probe/" + moved + "/commands").contentType(TEXT_PLAIN).content("L90F"))
+                .andExpect(status().isOk());
+
+        mvc.perform(get("/v1/probes").param("terrain", TERRAIN).param("bbox", (BASE - 5) + "," + (BASE - 5) + "," + (BASE + 50) + "," + (BASE + 5)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.probes.length()").value(2))
+                .andExpect(jsonPath("$.probes[?(@.id == '" + inside + "')]").exists())
+                .andExpect(jsonPath("$.probes[?(@.id == '" + moved + "')].position.x").value(BASE + 10))
+                .andExpect(jsonPath("$.truncated").value(false));
+    }
+
+    @Test
+    void bbox_reports_truncation_past_the_limit() throws Exception {
+        createProbe(BASE + 2000, BASE + 2000);
+        createProbe(BASE + 2001, BASE + 2000);
+
+        mvc.perform(get("/v1/probes")
+                        .param("terrain", TERRAIN)
+                        .param("bbox", (BASE + 1990) + "," + (BASE + 1990) + "," + (BASE + 2010) + "," + (BASE + 2010))
+                        .param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.probes.length()").value(1))
+                .andExpect(jsonPath("$.truncated").value(true));
+    }
+
+    @Test
+    void nearest_returns_closest_first_with_distance() throws Exception {
+        String far = createProbe(BASE + 5000, BASE + 5040);
+        String near = createProbe(BASE + 5003, BASE + 5004);
+
+        mvc.perform(get("/v1/probes/nearest")
+                        .param("terrain", TERRAIN)
+                        .param("x", String.valueOf(BASE + 5000))
+                        .param("y", String.valueOf(BASE + 5000))
+                        .param("k", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.probes[0].id").value(near))
+                .andExpect(jsonPath("$.probes[0].distance").value(5.0))
+                .andExpect(jsonPath("$.probes[1].id").value(far))
+                .andExpect(jsonPath("$.probes[1].distance").value(40.0));
+    }
+
+    @Test
+    void malformed_bbox_is_rejected() throws Exception {
+        mvc.perform(get("/v1/probes").param("terrain", TERRAIN).param("bbox", "0,0,5"))
+                .andExpect(status().isUnprocessableEntity())
+                .andExpect(jsonPath("$.error.code").value("VALIDATION_ERROR"));
+    }
+
+    @Test
+    void probes_on_private_grids_and_other_terrains_are_not_found() throws Exception {
+        CreateProbeRequest req = ProbeFixtures.probeRequest();
+        req.gridWidth = 1_000_000;
+        req.gridHeight = 1_000_000;
+        req.start = new Coordinate(BASE + 8000, BASE + 8000);
+        ProbeFixtures.createProbe(mvc, mapper, req);
+
+        mvc.perform(get("/v1/probes").param("terrain", TERRAIN)
+                        .param("bbox", (BASE + 7990) + "," + (BASE + 7990) + "," + (BASE + 8010) + "," + (BASE + 8010)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.probes.length()").value(0));
+        mvc.perform(get("/v1/probes").param("terrain", "nowhere").param("bbox", "0,0,1000000,1000000"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.probes.length()").value(0));
+        mvc.perform(get("/v1/probes").param("bbox", "0,0,5,5"))
+                .andExpect(status().isBadRequest());
+    }
+
+    private String createProbe(int x, int y) throws Exception {
+        CreateProbeRequest req = ProbeFixtures.probeRequest(TERRAIN);
+        req.start = new Coordinate(x, y);
+        return ProbeFixtures.createProbe(mvc, mapper, req);
+    }
+}
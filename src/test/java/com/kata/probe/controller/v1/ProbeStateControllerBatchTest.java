@@ -0,0 +1,61 @@
+package com.kata.probe.controller.v1;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kata.probe.controller.request.v1.BatchApplyCommandsRequest;
+import com.kata.probe.controller.request.v1.CreateProbeRequest;
+import com.kata.probe.domain.Direction;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.UUID;
+
+import static org.springframework.http.MediaType.APPLICATION_JSON;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest @AutoConfigureMockMvc
+class ProbeStateControllerBatchTest {
+
+    @Autowired
+    MockMvc mvc;
+    @Autowired ObjectMapper mapper;
+
+    @Test
+    void batch_applies_per_probe_and_reports_unknown_ids_per_entry() throws Exception {
+        String north = createProbe(Direction.NORTH);
+        String east = createProbe(Direction.EAST);
+        UUID unknown = UUID.randomUUID();
+
+        BatchApplyCommandsRequest req = new BatchApplyCommandsRequest();
+        req.commands = new LinkedHashMap<>();
+        req.commands.put(UUID.fromString(north), List.of("F", "F"));
+        req.commands.put(UUID.fromString(east), List.of("F", "X"));
+        req.commands.put(unknown, List.of("F"));
+
+        mvc.perform(post("/v1/probe/batch/commands")
+                        .contentType(APPLICATION_JSON)
+                        .content(mapper.writeValueAsString(req)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.succeeded").value(2))
+                .andExpect(jsonPath("$.failed").value(1))
+                .andExpect(jsonPath("$.results['" + north + "'].status").value("OK"))
+                .andExpect(jsonPath("$.results['" + north + "'].position.y").value(2))
+                .andExpect(jsonPath("$.results['" + north + "'].version").value(1))
+                .andExpect(jsonPath("$.results['" + east + "'].position.x").value(1))
+                .andExpect(jsonPath("$.results['" + east + "'].summary.invalid").value(1))
+                .andExpect(jsonPath("$.results['" + unknown + "'].status").value("FAILED"))
+                .andExpect(jsonPath("$.results['" + unknown + "'].error.code").value("NOT_FOUND"));
+    }
+
+    private String createProbe(Direction direction) throws Exception {
+        CreateProbeRequest req = ProbeFixtures.probeRequest();
+        req.direction = direction;
+        return ProbeFixtures.createProbe(mvc, mapper, req);
+    }
+}
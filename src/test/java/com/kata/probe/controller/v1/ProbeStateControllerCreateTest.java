@@ -15,6 +15,7 @@ import org.springframework.test.web.servlet.MockMvc;
 import java.util.UUID;
 
 import static org.springframework.http.MediaType.APPLICATION_JSON;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
@@ -45,4 +46,38 @@ class ProbeStateControllerCreateTest {
 
         UUID.fromString(id); // succeeds now
     }
+
+    @Test
+    void batch_create_reports_each_spec_in_order() throws Exception {
+        String body = """
+                { "probes": [
+                    { "gridWidth": 5, "gridHeight": 5, "start": { "x": 1, "y": 2 }, "direction": "EAST" },
+                    { "gridWidth": 5, "gridHeight": 5, "start": { "x": 9, "y": 9 }, "direction": "EAST" },
+                    { "gridWidth": 5, "gridHeight": 5, "start": { "x": 3, "y": 3 }, "direction": "SOUTH" }
+                ] }
+                """;
+
+        var result = mvc.perform(post("/v1/probe/batch").contentType(APPLICATION_JSON).content(body))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.created").value(2))
+                .andExpect(jsonPath("$.failed").value(1))
+                .andExpect(jsonPath("$.results[0].status").value("OK"))
+                .andExpect(jsonPath("$.results[1].status").value("FAILED"))
+                .andExpect(jsonPath("$.results[1].error.code").value("VALIDATION_ERROR"))
+                .andExpect(jsonPath("$.results[2].status").value("OK"))
+                .andReturn();
+
+        JsonNode json = mapper.readTree(result.getResponse().getContentAsString());
+        String last = json.get("results").get(2).get("id").asText();
+        mvc.perform(get("/v1/probe/" + last))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.position.x").value(3))
+                .andExpect(jsonPath("$.direction").value("SOUTH"));
+    }
+
+    @Test
+    void batch_create_needs_at_least_one_probe() throws Exception {
+        mvc.perform(post("/v1/probe/batch").contentType(APPLICATION_JSON).content("{ \"probes\": [] }"))
+                .andExpect(status().isUnprocessableEntity());
+    }
 }
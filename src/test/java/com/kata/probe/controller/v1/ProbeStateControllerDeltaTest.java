@@ -0,0 +1,60 @@
+package com.kata.probe.controller.v1;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.springframework.http.MediaType.APPLICATION_JSON;
+import static org.springframework.http.MediaType.TEXT_PLAIN;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest @AutoConfigureMockMvc
+class ProbeStateControllerDeltaTest {
+
+    @Autowired
+    MockMvc mvc;
+    @Autowired ObjectMapper mapper;
+
+    @Test
+    void delta_carries_only_the_steps_of_each_batch() throws Exception {
+        String id = ProbeFixtures.createProbe(mvc, mapper);
+
+        mvc.perform(post("/v1/probe/" + id + "/commands").param("delta", "true")
+                        .contentType(APPLICATION_JSON)
+                        .content("{\"commands\":[\"F\",\"F\"]}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.pathOffset").value(1))
+                .andExpect(jsonPath("$.appended.length()").value(2))
+                .andExpect(jsonPath("$.appended[1].y").value(2))
+                .andExpect(jsonPath("$.pathLength").value(3))
+                .andExpect(jsonPath("$.version").value(1))
+                .andExpect(jsonPath("$.visited").doesNotExist());
+
+        mvc.perform(post("/v1/probe/" + id + "/commands").param("delta", "true")
+                        .contentType(TEXT_PLAIN)
+                        .content("RF"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.pathOffset").value(3))
+                .andExpect(jsonPath("$.appended.length()").value(1))
+                .andExpect(jsonPath("$.appended[0].x").value(1))
+                .andExpect(jsonPath("$.pathLength").value(4))
+                .andExpect(jsonPath("$.version").value(2));
+    }
+
+    @Test
+    void without_delta_the_full_path_is_returned() throws Exception {
+        String id = ProbeFixtures.createProbe(mvc, mapper);
+
+        mvc.perform(post("/v1/probe/" + id + "/commands").param("delta", "false")
+                        .contentType(APPLICATION_JSON)
+                        .content("{\"commands\":[\"F\"]}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.visited.length()").value(2))
+                .andExpect(jsonPath("$.appended").doesNotExist());
+    }
+}
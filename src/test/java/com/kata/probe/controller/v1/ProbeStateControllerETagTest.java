@@ -0,0 +1,96 @@
+package com.kata.probe.controller.v1;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kata.probe.controller.request.v1.ApplyCommandsRequest;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.List;
+
+import static org.springframework.http.MediaType.APPLICATION_JSON;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest @AutoConfigureMockMvc
+class ProbeStateControllerETagTest {
+
+    @Autowired
+    MockMvc mvc;
+    @Autowired ObjectMapper mapper;
+
+    @Test
+    void get_returns_etag_and_honours_if_none_match() throws Exception {
+        String id = ProbeFixtures.createProbe(mvc, mapper);
+
+        mvc.perform(get("/v1/probe/" + id))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"0\""))
+                .andExpect(jsonPath("$.version").value(0));
+
+        mvc.perform(get("/v1/probe/" + id).header("If-None-Match", "\"0\""))
+                .andExpect(status().isNotModified());
+    }
+
+    @Test
+    void commands_with_stale_if_match_are_rejected() throws Exception {
+        String id = ProbeFixtures.createProbe(mvc, mapper);
+
+        ApplyCommandsRequest cmd = new ApplyCommandsRequest();
+        cmd.commands = List.of("F");
+
+        mvc.perform(post("/v1/probe/" + id + "/commands")
+                        .header("If-Match", "\"0\"")
+                        .contentType(APPLICATION_JSON)
+                        .content(mapper.writeValueAsString(cmd)))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"1\""))
+                .andExpect(jsonPath("$.position.y").value(1));
+
+        mvc.perform(post("/v1/probe/" + id + "/commands")
+                        .header("If-Match", "\"0\"")
+                        .contentType(APPLICATION_JSON)
+                        .content(mapper.writeValueAsString(cmd)))
+                .andExpect(status().isPreconditionFailed())
+                .andExpect(header().string("ETag", "\"1\""))
+                .andExpect(jsonPath("$.code").value("PRECONDITION_FAILED"));
+
+        mvc.perform(get("/v1/probe/" + id))
+                .andExpect(jsonPath("$.position.y").value(1))
+                .andExpect(jsonPath("$.version").value(1));
+    }
+
+    @Test
+    void malformed_if_match_is_a_bad_request() throws Exception {
+        String id = ProbeFixtures.createProbe(mvc, mapper);
+
+        mvc.perform(post("/v1/probe/" + id + "/commands")
+                        .header("If-Match", "\"abc\"")
+                        .contentType(APPLICATION_JSON)
+                        .content("{\"commands\":[\"F\"]}"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error.code").value("VALIDATION_ERROR"));
+
+        mvc.perform(get("/v1/probe/" + id))
+                .andExpect(jsonPath("$.version").value(0));
+    }
+
+    @Test
+    void weak_or_unquoted_if_match_is_a_bad_request() throws Exception {
+        String id = ProbeFixtures.createProbe(mvc, mapper);
+
+        for (String ifMatch : List.of("W/\"0\"", "0")) {
+            mvc.perform(post("/v1/probe/" + id + "/commands")
+                            .header("If-Match", ifMatch)
+                            .contentType(APPLICATION_JSON)
+                            .content("{\"commands\":[\"F\"]}"))
+                    .andExpect(status().isBadRequest());
+        }
+
+        mvc.perform(get("/v1/probe/" + id))
+                .andExpect(jsonPath("$.version").value(0));
+    }
+}
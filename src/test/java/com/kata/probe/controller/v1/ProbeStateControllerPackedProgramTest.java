@@ -0,0 +1,72 @@
+package com.kata.probe.controller.v1;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.springframework.http.MediaType.APPLICATION_JSON;
+import static org.springframework.http.MediaType.TEXT_PLAIN;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest @AutoConfigureMockMvc
+class ProbeStateControllerPackedProgramTest {
+
+    @Autowired
+    MockMvc mvc;
+    @Autowired ObjectMapper mapper;
+
+    @Test
+    void json_program_field_is_accepted() throws Exception {
+        String id = ProbeFixtures.createProbe(mvc, mapper);
+
+        mvc.perform(post("/v1/probe/" + id + "/commands")
+                        .contentType(APPLICATION_JSON)
+                        .content("{\"program\":\"3FR2F\"}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.position.x").value(2))
+                .andExpect(jsonPath("$.position.y").value(3))
+                .andExpect(jsonPath("$.summary.executed").value(6));
+    }
+
+    @Test
+    void plain_text_body_is_parsed_as_a_program() throws Exception {
+        String id = ProbeFixtures.createProbe(mvc, mapper);
+
+        mvc.perform(post("/v1/probe/" + id + "/commands")
+                        .contentType(TEXT_PLAIN)
+                        .content("10F"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.position.y").value(4))
+                .andExpect(jsonPath("$.summary.executed").value(4))
+                .andExpect(jsonPath("$.summary.blocked").value(6));
+    }
+
+    @Test
+    void dangling_repeat_count_is_rejected() throws Exception {
+        String id = ProbeFixtures.createProbe(mvc, mapper);
+
+        mvc.perform(post("/v1/probe/" + id + "/commands")
+                        .contentType(APPLICATION_JSON)
+                        .content("{\"program\":\"FF3\"}"))
+                .andExpect(status().isUnprocessableEntity())
+                .andExpect(jsonPath("$.error.code").value("VALIDATION_ERROR"));
+    }
+
+    @Test
+    void program_past_the_length_limit_is_rejected_before_it_runs() throws Exception {
+        String id = ProbeFixtures.createProbe(mvc, mapper);
+
+        mvc.perform(post("/v1/probe/" + id + "/commands")
+                        .contentType(TEXT_PLAIN)
+                        .content("2000000000F"))
+                .andExpect(status().isUnprocessableEntity())
+                .andExpect(jsonPath("$.error.code").value("VALIDATION_ERROR"));
+        mvc.perform(get("/v1/probe/" + id + "/state"))
+                .andExpect(jsonPath("$.version").value(0));
+    }
+}
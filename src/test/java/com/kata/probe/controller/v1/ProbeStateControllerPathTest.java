@@ -0,0 +1,85 @@
+package com.kata.probe.controller.v1;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.springframework.http.MediaType.APPLICATION_NDJSON;
+import static org.springframework.http.MediaType.TEXT_PLAIN;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest @AutoConfigureMockMvc
+class ProbeStateControllerPathTest {
+
+    @Autowired
+    MockMvc mvc;
+    @Autowired ObjectMapper mapper;
+
+    @Test
+    void state_omits_the_visited_path() throws Exception {
+        String id = createProbe("4F");
+
+        mvc.perform(get("/v1/probe/" + id + "/state"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"1\""))
+                .andExpect(jsonPath("$.position.y").value(4))
+                .andExpect(jsonPath("$.pathLength").value(5))
+                .andExpect(jsonPath("$.visited").doesNotExist());
+    }
+
+    @Test
+    void path_is_returned_in_pages() throws Exception {
+        String id = createProbe("4F");
+
+        mvc.perform(get("/v1/probe/" + id + "/path").param("offset", "1").param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.steps.length()").value(2))
+                .andExpect(jsonPath("$.steps[0].y").value(1))
+                .andExpect(jsonPath("$.steps[1].y").value(2))
+                .andExpect(jsonPath("$.pathLength").value(5))
+                .andExpect(jsonPath("$.nextOffset").value(3));
+
+        mvc.perform(get("/v1/probe/" + id + "/path").param("offset", "3"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.steps.length()").value(2))
+                .andExpect(jsonPath("$.nextOffset").doesNotExist());
+    }
+
+    @Test
+    void offset_past_the_end_is_rejected() throws Exception {
+        String id = createProbe("4F");
+
+        mvc.perform(get("/v1/probe/" + id + "/path").param("offset", "6"))
+                .andExpect(status().isUnprocessableEntity())
+                .andExpect(jsonPath("$.error.code").value("VALIDATION_ERROR"));
+    }
+
+    @Test
+    void export_streams_one_line_per_step() throws Exception {
+        String id = createProbe("2F");
+
+        var started = mvc.perform(get("/v1/probe/" + id + "/path/export"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(APPLICATION_NDJSON))
+                .andExpect(content().string("{\"x\":0,\"y\":0}\n{\"x\":0,\"y\":1}\n{\"x\":0,\"y\":2}\n"));
+    }
+
+    private String createProbe(String program) throws Exception {
+        String id = ProbeFixtures.createProbe(mvc, mapper);
+
+        mvc.perform(post("/v1/probe/" + id + "/commands")
+                        .contentType(TEXT_PLAIN)
+                        .content(program))
+                .andExpect(status().isOk());
+        return id;
+    }
+}
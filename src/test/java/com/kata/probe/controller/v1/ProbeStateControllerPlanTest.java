@@ -0,0 +1,75 @@
+package com.kata.probe.controller.v1;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kata.probe.controller.request.v1.CreateProbeRequest;
+import com.kata.probe.domain.Coordinate;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.List;
+
+import static org.springframework.http.MediaType.APPLICATION_JSON;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest @AutoConfigureMockMvc
+class ProbeStateControllerPlanTest {
+
+    @Autowired
+    MockMvc mvc;
+    @Autowired ObjectMapper mapper;
+
+    @Test
+    void plan_is_returned_without_moving_the_probe() throws Exception {
+        String id = createProbe();
+
+        mvc.perform(post("/v1/probe/" + id + "/plan")
+                        .contentType(APPLICATION_JSON)
+                        .content("{\"target\":{\"x\":2,\"y\":2}}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.commands").value(6))
+                .andExpect(jsonPath("$.turns").value(2))
+                .andExpect(jsonPath("$.state").doesNotExist());
+
+        mvc.perform(get("/v1/probe/" + id + "/state"))
+                .andExpect(jsonPath("$.position.x").value(0))
+                .andExpect(jsonPath("$.version").value(0));
+    }
+
+    @Test
+    void executed_plan_avoids_obstacles_and_reaches_the_target() throws Exception {
+        String id = createProbe();
+
+        mvc.perform(post("/v1/probe/" + id + "/plan")
+                        .contentType(APPLICATION_JSON)
+                        .content("{\"target\":{\"x\":0,\"y\":4},\"execute\":true}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.state.position.x").value(0))
+                .andExpect(jsonPath("$.state.position.y").value(4))
+                .andExpect(jsonPath("$.state.summary.blocked").value(0))
+                .andExpect(jsonPath("$.state.version").value(1));
+    }
+
+    @Test
+    void target_on_an_obstacle_is_rejected() throws Exception {
+        String id = createProbe();
+
+        mvc.perform(post("/v1/probe/" + id + "/plan")
+                        .contentType(APPLICATION_JSON)
+                        .content("{\"target\":{\"x\":0,\"y\":2}}"))
+                .andExpect(status().isUnprocessableEntity())
+                .andExpect(jsonPath("$.error.code").value("VALIDATION_ERROR"));
+    }
+
+    // 5x5 grid, probe at (0,0) facing north; row 2 is blocked except at x = 2 (a dead end) and x = 4
+    private String createProbe() throws Exception {
+        CreateProbeRequest req = ProbeFixtures.probeRequest();
+        req.obstacles = List.of(new Coordinate(0, 2), new Coordinate(1, 2), new Coordinate(2, 3),
+                new Coordinate(3, 2));
+        return ProbeFixtures.createProbe(mvc, mapper, req);
+    }
+}
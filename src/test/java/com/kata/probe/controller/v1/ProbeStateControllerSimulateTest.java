@@ -0,0 +1,59 @@
+package com.kata.probe.controller.v1;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.springframework.http.MediaType.APPLICATION_JSON;
+import static org.springframework.http.MediaType.TEXT_PLAIN;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest @AutoConfigureMockMvc
+class ProbeStateControllerSimulateTest {
+
+    @Autowired
+    MockMvc mvc;
+    @Autowired ObjectMapper mapper;
+
+    @Test
+    void simulation_reports_the_outcome_without_changing_the_probe() throws Exception {
+        String id = ProbeFixtures.createProbe(mvc, mapper);
+
+        mvc.perform(post("/v1/probe/" + id + "/simulate").contentType(TEXT_PLAIN).content("6FR2F"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.position.x").value(2))
+                .andExpect(jsonPath("$.position.y").value(4))
+                .andExpect(jsonPath("$.direction").value("EAST"))
+                .andExpect(jsonPath("$.summary.executed").value(7))
+                .andExpect(jsonPath("$.summary.blocked").value(2))
+                .andExpect(jsonPath("$.version").value(0));
+
+        mvc.perform(get("/v1/probe/" + id + "/state"))
+                .andExpect(jsonPath("$.position.y").value(0))
+                .andExpect(jsonPath("$.pathLength").value(1))
+                .andExpect(jsonPath("$.version").value(0));
+    }
+
+    @Test
+    void simulation_accepts_a_command_list() throws Exception {
+        String id = ProbeFixtures.createProbe(mvc, mapper);
+
+        mvc.perform(post("/v1/probe/" + id + "/simulate")
+                        .contentType(APPLICATION_JSON)
+                        .content("{\"commands\":[\"F\",\"X\"]}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.position.y").value(1))
+                .andExpect(jsonPath("$.summary.invalid").value(1));
+    }
+
+    @Test
+    void simulating_an_unknown_probe_is_not_found() throws Exception {
+        mvc.perform(post("/v1/probe/" + java.util.UUID.randomUUID() + "/simulate").contentType(TEXT_PLAIN).content("F"))
+                .andExpect(status().isNotFound());
+    }
+}
@@ -0,0 +1,54 @@
+package com.kata.probe.controller.v1;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.http.MediaType.APPLICATION_NDJSON;
+import static org.springframework.http.MediaType.TEXT_PLAIN;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest @AutoConfigureMockMvc
+class ProbeStateControllerStreamTest {
+
+    @Autowired
+    MockMvc mvc;
+    @Autowired ObjectMapper mapper;
+
+    @Test
+    void streamed_lines_come_back_as_ndjson_updates() throws Exception {
+        String id = ProbeFixtures.createProbe(mvc, mapper);
+
+        var result = mvc.perform(post("/v1/probe/" + id + "/commands/stream")
+                        .contentType(TEXT_PLAIN)
+                        .content("F\nF\nR\n"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(APPLICATION_NDJSON))
+                .andReturn();
+
+        String[] lines = result.getResponse().getContentAsString().split("\n");
+        assertEquals(1, lines.length);
+        JsonNode update = mapper.readTree(lines[0]);
+        assertEquals(2, update.get("position").get("y").asInt());
+        assertEquals("EAST", update.get("direction").asText());
+        assertEquals(1, update.get("version").asLong());
+    }
+
+    @Test
+    void stream_for_unknown_probe_is_not_found() throws Exception {
+        mvc.perform(post("/v1/probe/" + UUID.randomUUID() + "/commands/stream")
+                        .contentType(TEXT_PLAIN)
+                        .content("F\n"))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.code").value("NOT_FOUND"));
+    }
+}
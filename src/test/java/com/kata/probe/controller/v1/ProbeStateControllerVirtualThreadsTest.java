@@ -0,0 +1,61 @@
+package com.kata.probe.controller.v1;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kata.probe.domain.commands.CommandProgram;
+import com.kata.probe.service.BatchOutcome;
+import com.kata.probe.service.ProbeStateService;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.http.MediaType.APPLICATION_JSON;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest(properties = "spring.threads.virtual.enabled=true") @AutoConfigureMockMvc
+class ProbeStateControllerVirtualThreadsTest {
+
+    @Autowired
+    MockMvc mvc;
+    @Autowired ObjectMapper mapper;
+    @Autowired ProbeStateService service;
+
+    @Test
+    void batch_entries_run_on_virtual_threads() throws Exception {
+        Map<UUID, String> programs = new LinkedHashMap<>();
+        for (int i = 0; i < 32; i++) {
+            programs.put(UUID.fromString(ProbeFixtures.createProbe(mvc, mapper)), "2F");
+        }
+        AtomicInteger onVirtualThreads = new AtomicInteger();
+
+        var outcomes = service.applyBatch(programs, program -> {
+            if (Thread.currentThread().isVirtual()) {
+                onVirtualThreads.incrementAndGet();
+            }
+            return CommandProgram.parse(program);
+        });
+
+        assertThat(outcomes.values()).allMatch(BatchOutcome::succeeded);
+        assertThat(onVirtualThreads.get()).isEqualTo(programs.size());
+    }
+
+    @Test
+    void commands_are_applied_with_virtual_threads_enabled() throws Exception {
+        String id = ProbeFixtures.createProbe(mvc, mapper);
+
+        mvc.perform(post("/v1/probe/" + id + "/commands")
+                        .contentType(APPLICATION_JSON)
+                        .content("{\"program\":\"3F\"}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.position.y").value(3));
+    }
+}
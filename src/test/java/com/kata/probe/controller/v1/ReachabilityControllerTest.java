@@ -0,0 +1,83 @@
+package com.kata.probe.controller.v1;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kata.probe.controller.request.v1.CreateProbeRequest;
+import com.kata.probe.domain.Coordinate;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.http.MediaType.APPLICATION_JSON;
+import static org.springframework.http.MediaType.TEXT_PLAIN;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest @AutoConfigureMockMvc
+class ReachabilityControllerTest {
+
+    @Autowired
+    MockMvc mvc;
+    @Autowired ObjectMapper mapper;
+
+    @Test
+    void reachable_cells_exclude_walled_off_ones() throws Exception {
+        String id = createProbe();
+
+        mvc.perform(get("/v1/probe/" + id + "/reachable"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.width").value(5))
+                .andExpect(jsonPath("$.reachable").value(22))
+                .andExpect(jsonPath("$.bitmap").isString());
+    }
+
+    @Test
+    void distances_follow_the_probe_as_it_moves() throws Exception {
+        String id = createProbe();
+        String body = "{\"targets\":[{\"x\":0,\"y\":4},{\"x\":4,\"y\":4},{\"x\":9,\"y\":9}]}";
+
+        mvc.perform(post("/v1/probe/" + id + "/distances").contentType(APPLICATION_JSON).content(body))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.distances[0]").value(4))
+                .andExpect(jsonPath("$.distances[1]").doesNotExist())
+                .andExpect(jsonPath("$.distances.length()").value(3));
+
+        mvc.perform(post("/v1/probe/" + id + "/commands").contentType(TEXT_PLAIN).content("2F"))
+                .andExpect(status().isOk());
+
+        mvc.perform(post("/v1/probe/" + id + "/distances").contentType(APPLICATION_JSON).content(body))
+                .andExpect(jsonPath("$.origin.y").value(2))
+                .andExpect(jsonPath("$.distances[0]").value(2));
+    }
+
+    @Test
+    void field_is_exported_as_binary() throws Exception {
+        String id = createProbe();
+
+        var started = mvc.perform(get("/v1/probe/" + id + "/distances"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        byte[] body = mvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andExpect(header().string("X-Grid-Width", "5"))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        assertEquals(4 * 25, body.length);
+        assertEquals(1, ByteBuffer.wrap(body).getInt(4 * 5)); // (0, 1)
+        assertEquals(-1, ByteBuffer.wrap(body).getInt(4 * (4 * 5 + 4))); // (4, 4)
+    }
+
+    // 5x5 grid, probe at (0,0); the corner (4,4) is walled off by (3,4) and (4,3)
+    private String createProbe() throws Exception {
+        CreateProbeRequest req = ProbeFixtures.probeRequest();
+        req.obstacles = List.of(new Coordinate(3, 4), new Coordinate(4, 3));
+        return ProbeFixtures.createProbe(mvc, mapper, req);
+    }
+}
@@ -0,0 +1,108 @@
+package com.kata.probe.controller.v1;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kata.probe.controller.request.v1.ApplyCommandsRequest;
+import com.kata.probe.controller.request.v1.CreateProbeRequest;
+import com.kata.probe.controller.request.v1.RegisterTerrainRequest;
+import com.kata.probe.domain.Coordinate;
+import com.kata.probe.repository.TerrainRepository;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.springframework.http.MediaType.APPLICATION_JSON;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest @AutoConfigureMockMvc
+class TerrainControllerTest {
+
+    @Autowired
+    MockMvc mvc;
+    @Autowired ObjectMapper mapper;
+    @Autowired TerrainRepository terrains;
+
+    @Test
+    void identical_layouts_are_stored_once() throws Exception {
+        register("crater-a", List.of(new Coordinate(1, 1), new Coordinate(2, 2)));
+        register("crater-b", List.of(new Coordinate(2, 2), new Coordinate(1, 1), new Coordinate(1, 1)))
+                .andExpect(jsonPath("$.obstacleCount").value(2));
+
+        assertSame(terrains.find("crater-a").orElseThrow().obstacles(),
+                terrains.find("crater-b").orElseThrow().obstacles());
+    }
+
+    @Test
+    void probes_share_terrain_but_not_each_others_obstacles() throws Exception {
+        register("canyon", List.of(new Coordinate(0, 2)));
+
+        String withWall = createProbe("canyon", List.of(new Coordinate(0, 1)));
+        String open = createProbe("canyon", null);
+
+        applyForward(withWall)
+                .andExpect(jsonPath("$.position.y").value(0))
+                .andExpect(jsonPath("$.summary.blocked").value(2));
+        applyForward(open)
+                .andExpect(jsonPath("$.position.y").value(1))
+                .andExpect(jsonPath("$.summary.executed").value(1))
+                .andExpect(jsonPath("$.summary.blocked").value(1));
+    }
+
+    @Test
+    void re_registering_a_name_with_another_layout_is_rejected() throws Exception {
+        register("mesa", List.of(new Coordinate(3, 3)));
+
+        RegisterTerrainRequest req = terrain("mesa", List.of(new Coordinate(4, 4)));
+        mvc.perform(post("/v1/terrain")
+                        .contentType(APPLICATION_JSON)
+                        .content(mapper.writeValueAsString(req)))
+                .andExpect(status().isUnprocessableEntity());
+    }
+
+    @Test
+    void unknown_terrain_returns_404() throws Exception {
+        mvc.perform(get("/v1/terrain/nowhere"))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.code").value("NOT_FOUND"));
+    }
+
+    private RegisterTerrainRequest terrain(String name, List<Coordinate> obstacles) {
+        RegisterTerrainRequest req = new RegisterTerrainRequest();
+        req.name = name;
+        req.width = 5;
+        req.height = 5;
+        req.obstacles = obstacles;
+        return req;
+    }
+
+    private ResultActions register(String name, List<Coordinate> obstacles) throws Exception {
+        return mvc.perform(post("/v1/terrain")
+                        .contentType(APPLICATION_JSON)
+                        .content(mapper.writeValueAsString(terrain(name, obstacles))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name").value(name));
+    }
+
+    private String createProbe(String terrain, List<Coordinate> obstacles) throws Exception {
+        CreateProbeRequest req = ProbeFixtures.probeRequest(terrain);
+        req.obstacles = obstacles;
+        return ProbeFixtures.createProbe(mvc, mapper, req);
+    }
+
+    private ResultActions applyForward(String id) throws Exception {
+        ApplyCommandsRequest cmd = new ApplyCommandsRequest();
+        cmd.commands = List.of("F", "F");
+
+        return mvc.perform(post("/v1/probe/" + id + "/commands")
+                        .contentType(APPLICATION_JSON)
+                        .content(mapper.writeValueAsString(cmd)))
+                .andExpect(status().isOk());
+    }
+}
@@ -15,4 +15,9 @@ class GridTest {
         assertFalse(grid.isWithinBounds(new Coordinate(3,0)));
         assertFalse(grid.isWithinBounds(new Coordinate(0,3)));
     }
-}
\ No newline at end of file
+    @Test void same_size_grids_are_shared() {
+        assertSame(Grid.of(7, 9), Grid.of(7, 9));
+        assertEquals(new Grid(7, 9), Grid.of(7, 9));
+        assertNotEquals(Grid.of(7, 9), Grid.of(9, 7));
+    }
+}
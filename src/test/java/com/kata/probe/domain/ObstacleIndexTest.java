@@ -0,0 +1,106 @@
+package com.kata.probe.domain;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ObstacleIndexTest {
+
+    @Test
+    void dense_and_tiled_agree_with_a_hash_set() {
+        int size = 300;
+        SplittableRandom random = new SplittableRandom(7);
+        Set<Coordinate> expected = new HashSet<>();
+        ObstacleIndex dense = new DenseObstacleIndex(size, size);
+        ObstacleIndex tiled = new TiledObstacleIndex();
+
+        for (int i = 0; i < 20_000; i++) {
+            int x = random.nextInt(size);
+            int y = random.nextInt(size);
+            expected.add(new Coordinate(x, y));
+            dense.add(x, y);
+            tiled.add(x, y);
+        }
+
+        assertEquals(expected.size(), dense.size());
+        assertEquals(expected.size(), tiled.size());
+        for (int x = 0; x < size; x++) {
+            for (int y = 0; y < size; y++) {
+                boolean blocked = expected.contains(new Coordinate(x, y));
+                assertEquals(blocked, dense.contains(x, y));
+                assertEquals(blocked, tiled.contains(x, y));
+            }
+        }
+    }
+
+    @Test
+    void free_runs_match_stepping_in_every_direction() {
+        int size = 200;
+        SplittableRandom random = new SplittableRandom(11);
+        ObstacleIndex dense = new DenseObstacleIndex(size, size);
+        ObstacleIndex tiled = new TiledObstacleIndex();
+        Set<Coordinate> expected = new HashSet<>();
+        for (int i = 0; i < 400; i++) {
+            int x = random.nextInt(size);
+            int y = random.nextInt(size);
+            expected.add(new Coordinate(x, y));
+            dense.add(x, y);
+            tiled.add(x, y);
+        }
+        int[][] directions = {{1, 0}, {-1, 0}, {0, 1}, {0, -1}};
+
+        for (int i = 0; i < 5_000; i++) {
+            int x = random.nextInt(size);
+            int y = random.nextInt(size);
+            int[] d = directions[random.nextInt(4)];
+            int limit = random.nextInt(size);
+            int steps = 0;
+            while (steps < limit && !expected.contains(new Coordinate(x + d[0] * (steps + 1), y + d[1] * (steps + 1)))) {
+                steps++;
+            }
+            assertEquals(steps, dense.freeRun(x, y, d[0], d[1], limit));
+            assertEquals(steps, tiled.freeRun(x, y, d[0], d[1], limit));
+        }
+    }
+
+    @Test
+    void tiled_index_handles_negative_and_far_apart_cells() {
+        ObstacleIndex tiled = new TiledObstacleIndex();
+        tiled.add(-1, -1);
+        tiled.add(2_000_000_000, 5);
+
+        assertTrue(tiled.contains(-1, -1));
+        assertTrue(tiled.contains(2_000_000_000, 5));
+        assertFalse(tiled.contains(-1, 0));
+        assertFalse(tiled.contains(63, 63));
+    }
+
+    @Test
+    void dense_index_allocates_nothing_until_first_obstacle() {
+        ObstacleIndex dense = new DenseObstacleIndex(1_000, 1_000);
+        long empty = dense.memoryBytes();
+
+        dense.add(3, 4);
+
+        assertTrue(empty < 64);
+        assertTrue(dense.memoryBytes() > 1_000 * 1_000 / 8);
+        assertThrows(IllegalArgumentException.class, () -> dense.add(1_000, 0));
+    }
+
+    @Test
+    void huge_grids_get_a_sparse_index_with_a_small_footprint() {
+        Grid huge = new Grid(1_000_000, 1_000_000);
+        ObstacleIndex index = ObstacleIndex.forGrid(huge);
+        for (int i = 0; i < 1_000; i++) {
+            index.add(i * 997, i * 991);
+        }
+
+        assertInstanceOf(TiledObstacleIndex.class, index);
+        assertInstanceOf(DenseObstacleIndex.class, ObstacleIndex.forGrid(new Grid(1_000, 1_000)));
+        assertTrue(index.memoryBytes() < 256 * 1024, "footprint " + index.memoryBytes());
+    }
+}
@@ -0,0 +1,46 @@
+package com.kata.probe.domain;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ObstacleMapTest {
+
+    private static Terrain terrainWithObstacleAt(int x, int y) {
+        Grid grid = new Grid(5, 5);
+        ObstacleIndex index = ObstacleIndex.forGrid(grid);
+        index.add(x, y);
+        return new Terrain("ridge", grid, index.freeze());
+    }
+
+    @Test
+    void probe_obstacles_go_to_an_overlay_and_leave_the_terrain_untouched() {
+        Terrain terrain = terrainWithObstacleAt(2, 2);
+        ObstacleMap first = ObstacleMap.sharing(terrain);
+        ObstacleMap second = ObstacleMap.sharing(terrain);
+
+        first.addObstacle(new Coordinate(1, 1));
+
+        assertTrue(first.hasObstacle(2, 2));
+        assertTrue(first.hasObstacle(1, 1));
+        assertTrue(second.hasObstacle(2, 2));
+        assertFalse(second.hasObstacle(1, 1));
+        assertEquals(1, terrain.obstacles().size());
+        assertSame(first.getBase(), second.getBase());
+    }
+
+    @Test
+    void shared_index_rejects_writes() {
+        Terrain terrain = terrainWithObstacleAt(0, 0);
+
+        assertThrows(IllegalStateException.class, () -> terrain.obstacles().add(1, 1));
+    }
+
+    @Test
+    void probe_cannot_start_on_a_terrain_obstacle() {
+        Terrain terrain = terrainWithObstacleAt(0, 0);
+
+        assertThrows(IllegalArgumentException.class,
+                () -> new Probe(new Coordinate(0, 0), Direction.NORTH, terrain.grid(), ObstacleMap.sharing(terrain)));
+    }
+}
@@ -0,0 +1,78 @@
+package com.kata.probe.domain;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OccupancyTest {
+
+    @Test
+    void probes_sharing_an_occupancy_block_each_other() {
+        Grid grid = new Grid(5, 1);
+        Occupancy occupancy = Occupancy.forGrid(grid);
+        Probe first = new Probe(new Coordinate(0, 0), Direction.EAST, grid, new ObstacleMap(), occupancy);
+        Probe second = new Probe(new Coordinate(2, 0), Direction.WEST, grid, new ObstacleMap(), occupancy);
+
+        assertTrue(first.moveForward());
+        assertFalse(first.moveForward());
+        assertEquals(new Coordinate(1, 0), first.getPosition());
+        assertFalse(occupancy.isOccupied(0, 0));
+        assertEquals(2, occupancy.count());
+
+        assertEquals(0, second.moveForward(3));
+        assertEquals(2, second.moveBackward(5));
+        assertEquals(new Coordinate(4, 0), second.getPosition());
+    }
+
+    @Test
+    void run_stops_in_front_of_another_probe() {
+        Grid grid = new Grid(10, 1);
+        Occupancy occupancy = Occupancy.forGrid(grid);
+        new Probe(new Coordinate(6, 0), Direction.EAST, grid, new ObstacleMap(), occupancy);
+        Probe probe = new Probe(new Coordinate(0, 0), Direction.EAST, grid, new ObstacleMap(), occupancy);
+
+        assertEquals(5, probe.moveForward(9));
+        assertEquals(new Coordinate(5, 0), probe.getPosition());
+        assertEquals(6, probe.getVisited().size());
+    }
+
+    @Test
+    void start_on_an_occupied_cell_is_rejected() {
+        Grid grid = new Grid(3, 3);
+        Occupancy occupancy = Occupancy.forGrid(grid);
+        Probe probe = new Probe(new Coordinate(1, 1), Direction.NORTH, grid, new ObstacleMap(), occupancy);
+
+        assertThrows(IllegalArgumentException.class,
+                () -> new Probe(new Coordinate(1, 1), Direction.NORTH, grid, new ObstacleMap(), occupancy));
+
+        probe.releaseCell();
+        assertDoesNotThrow(() -> new Probe(new Coordinate(1, 1), Direction.NORTH, grid, new ObstacleMap(), occupancy));
+    }
+
+    @Test
+    void detached_probe_is_blocked_by_others_but_claims_nothing() {
+        Grid grid = new Grid(5, 1);
+        Occupancy occupancy = Occupancy.forGrid(grid);
+        new Probe(new Coordinate(3, 0), Direction.WEST, grid, new ObstacleMap(), occupancy);
+        Probe probe = new Probe(new Coordinate(0, 0), Direction.EAST, grid, new ObstacleMap(), occupancy);
+
+        Probe copy = Probe.detached(probe);
+
+        assertEquals(2, copy.moveForward(4));
+        assertEquals(2, copy.moveBackward(2));
+        assertTrue(occupancy.isOccupied(0, 0));
+        assertFalse(occupancy.isOccupied(2, 0));
+        assertEquals(2, occupancy.count());
+    }
+
+    @Test
+    void huge_grids_use_a_sparse_set() {
+        Occupancy occupancy = Occupancy.forGrid(new Grid(1_000_000, 1_000_000));
+
+        assertInstanceOf(SparseOccupancy.class, occupancy);
+        assertTrue(occupancy.claim(999_999, 999_999));
+        assertFalse(occupancy.claim(999_999, 999_999));
+        occupancy.release(999_999, 999_999);
+        assertEquals(0, occupancy.count());
+    }
+}
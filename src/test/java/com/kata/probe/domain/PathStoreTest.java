@@ -0,0 +1,58 @@
+package com.kata.probe.domain;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PathStoreTest {
+
+    @Test
+    void grows_past_initial_capacity() {
+        PathStore path = new PathStore(2);
+        for (int i = 0; i < 100; i++) {
+            path.add(i, -i);
+        }
+
+        assertEquals(100, path.size());
+        assertEquals(new Coordinate(99, -99), path.last());
+        assertEquals(42, path.x(42));
+        assertEquals(-42, path.y(42));
+    }
+
+    @Test
+    void packing_round_trips_negative_and_extreme_values() {
+        long p = PathStore.pack(Integer.MIN_VALUE, -1);
+        assertEquals(Integer.MIN_VALUE, PathStore.unpackX(p));
+        assertEquals(-1, PathStore.unpackY(p));
+    }
+
+    @Test
+    void list_view_is_pinned_to_its_range() {
+        PathStore path = new PathStore();
+        path.add(0, 0);
+        path.add(0, 1);
+
+        List<Coordinate> view = path.asList();
+        path.add(0, 2);
+
+        assertEquals(List.of(new Coordinate(0,0), new Coordinate(0,1)), view);
+        assertEquals(List.of(new Coordinate(0,1), new Coordinate(0,2)), path.asList(1, 3));
+        assertThrows(UnsupportedOperationException.class, () -> view.add(new Coordinate(9,9)));
+    }
+
+    @Test
+    void for_each_visits_requested_range() {
+        PathStore path = new PathStore();
+        for (int i = 0; i < 5; i++) {
+            path.add(i, i);
+        }
+
+        int[] sum = new int[1];
+        path.forEach(1, 4, (x, y) -> sum[0] += x + y);
+
+        assertEquals(12, sum[0]);
+        assertThrows(IndexOutOfBoundsException.class, () -> path.forEach(0, 6, (x, y) -> {}));
+    }
+}
@@ -67,4 +67,56 @@ class ProbeTest {
         assertEquals(1, probe.getVisited().size());
     }
 
+    @Test
+    void run_of_moves_matches_single_steps() {
+        Grid grid = new Grid(40, 40);
+        java.util.SplittableRandom random = new java.util.SplittableRandom(3);
+        ObstacleMap obstacles = new ObstacleMap(grid);
+        Coordinate start = new Coordinate(20, 20);
+        for (int i = 0; i < 120; i++) {
+            Coordinate c = new Coordinate(random.nextInt(40), random.nextInt(40));
+            if (!c.equals(start)) {
+                obstacles.addObstacle(c);
+            }
+        }
+        Probe stepped = new Probe(start, Direction.NORTH, grid, obstacles);
+        Probe jumped = new Probe(start, Direction.NORTH, grid, obstacles);
+
+        for (int i = 0; i < 500; i++) {
+            int count = random.nextInt(30);
+            boolean forward = random.nextBoolean();
+            int moved = 0;
+            for (int c = 0; c < count; c++) {
+                if (forward ? stepped.moveForward() : stepped.moveBackward()) {
+                    moved++;
+                }
+            }
+            assertEquals(moved, forward ? jumped.moveForward(count) : jumped.moveBackward(count));
+            assertEquals(stepped.getPosition(), jumped.getPosition());
+            if (random.nextBoolean()) {
+                stepped.turnRight();
+                jumped.turnRight();
+            }
+        }
+        assertEquals(stepped.getVisited(), jumped.getVisited());
+    }
+
+    @Test
+    void detached_probe_moves_without_touching_the_original() {
+        Grid grid = new Grid(5, 5);
+        ObstacleMap obstacles = new ObstacleMap();
+        obstacles.addObstacle(new Coordinate(0, 3));
+        Probe probe = new Probe(new Coordinate(0, 0), Direction.NORTH, grid, obstacles);
+
+        Probe copy = Probe.detached(probe);
+        assertEquals(2, copy.moveForward(4));
+        copy.turnRight();
+
+        assertEquals(new Coordinate(0, 2), copy.getPosition());
+        assertEquals(Direction.EAST, copy.getDirection());
+        assertNull(copy.getPath());
+        assertEquals(new Coordinate(0, 0), probe.getPosition());
+        assertEquals(Direction.NORTH, probe.getDirection());
+        assertEquals(1, probe.getVisited().size());
+    }
 }
@@ -0,0 +1,154 @@
+package com.kata.probe.domain.commands;
+
+import com.kata.probe.controller.response.ExecutionSummary;
+import com.kata.probe.domain.*;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class CommandProgramTest {
+
+    @Test
+    void factory_returns_shared_instances_without_normalising_strings() {
+        assertSame(CommandFactory.FORWARD, CommandFactory.from("F"));
+        assertSame(CommandFactory.FORWARD, CommandFactory.from(" f "));
+        assertSame(CommandFactory.TURN_RIGHT, CommandFactory.from("r"));
+        assertSame(CommandFactory.INVALID, CommandFactory.from("FF"));
+        assertSame(CommandFactory.INVALID, CommandFactory.from(""));
+        assertSame(CommandFactory.INVALID, CommandFactory.from(null));
+    }
+
+    @Test
+    void compile_merges_identical_neighbours_into_runs() {
+        CommandProgram program = CommandProgram.compile(List.of("F", "F", "R", "X", "", "F"));
+
+        assertEquals(6, program.length());
+        assertEquals(4, program.runs());
+        assertEquals(CommandProgram.INVALID, program.codeAt(2));
+        assertEquals(2, program.countAt(2));
+    }
+
+    @Test
+    void parse_accepts_plain_and_run_length_programs() {
+        CommandProgram plain = CommandProgram.parse("FFRffLB");
+        CommandProgram packed = CommandProgram.parse("10F 2R,5b");
+
+        assertEquals(7, plain.length());
+        assertEquals(CommandProgram.FORWARD, plain.codeAt(0));
+        assertEquals(2, plain.countAt(0));
+        assertEquals(4, plain.runs() - 1);
+
+        assertEquals(17, packed.length());
+        assertEquals(3, packed.runs());
+        assertEquals(10, packed.countAt(0));
+        assertEquals(CommandProgram.BACKWARD, packed.codeAt(2));
+    }
+
+    @Test
+    void packed_form_round_trips_through_parse() {
+        CommandProgram program = CommandProgram.parse("FFFRFF");
+
+        assertEquals("3FR2F", program.toPacked());
+        assertEquals(program.toPacked(), CommandProgram.parse(program.toPacked()).toPacked());
+    }
+
+    @Test
+    void parse_streams_from_a_reader_and_counts_unknown_letters_as_invalid() {
+        CommandProgram program = CommandProgram.parse(new java.io.StringReader("3X2F"));
+
+        assertEquals(CommandProgram.INVALID, program.codeAt(0));
+        assertEquals(3, program.countAt(0));
+        assertEquals(5, program.length());
+    }
+
+    @Test
+    void parse_rejects_dangling_or_oversized_repeat_counts() {
+        assertThrows(IllegalArgumentException.class, () -> CommandProgram.parse("FF10"));
+        assertThrows(IllegalArgumentException.class, () -> CommandProgram.parse("3 F"));
+        assertThrows(IllegalArgumentException.class, () -> CommandProgram.parse("99999999999F"));
+    }
+
+    @Test
+    void parse_and_compile_reject_programs_past_the_length_limit() {
+        assertThrows(IllegalArgumentException.class, () -> CommandProgram.parse("2147483647L2147483647L"));
+        assertThrows(IllegalArgumentException.class, () -> CommandProgram.parse("5F5B", 9));
+        assertThrows(IllegalArgumentException.class,
+                () -> CommandProgram.parse(new java.io.StringReader("5F5B"), 9));
+        assertThrows(IllegalArgumentException.class, () -> CommandProgram.compile(List.of("F", "F", "F"), 2));
+
+        assertEquals(9, CommandProgram.parse("5F4B", 9).length());
+    }
+
+    @Test
+    void execute_saturates_counts_instead_of_wrapping() {
+        Grid grid = new Grid(3, 3);
+        Probe probe = new Probe(new Coordinate(0,0), Direction.NORTH, grid, new ObstacleMap());
+        CommandProgram program = new CommandProgram()
+                .append(CommandProgram.TURN_LEFT, Integer.MAX_VALUE)
+                .append(CommandProgram.TURN_RIGHT, Integer.MAX_VALUE);
+
+        ExecutionSummary summary = program.execute(probe);
+
+        assertEquals(Integer.MAX_VALUE, summary.executed);
+        assertEquals(Direction.NORTH, probe.getDirection());
+    }
+
+    @Test
+    void execute_counts_executed_blocked_and_invalid() {
+        Grid grid = new Grid(3, 3);
+        Probe probe = new Probe(new Coordinate(0,0), Direction.NORTH, grid, new ObstacleMap());
+
+        ExecutionSummary summary = CommandProgram.compile(List.of("F", "F", "F", "R", "?")).execute(probe);
+
+        assertEquals(3, summary.executed);
+        assertEquals(1, summary.blocked);
+        assertEquals(1, summary.invalid);
+        assertEquals(new Coordinate(0,2), probe.getPosition());
+        assertEquals(Direction.EAST, probe.getDirection());
+    }
+
+    @Test
+    void execute_records_only_what_took_effect() {
+        Grid grid = new Grid(3, 3);
+        Probe probe = new Probe(new Coordinate(0,0), Direction.NORTH, grid, new ObstacleMap());
+        CommandProgram outcome = new CommandProgram();
+
+        CommandProgram.parse("5F?6RF").execute(probe, outcome);
+
+        assertEquals("2F2RF", outcome.toPacked());
+        Probe replayed = new Probe(new Coordinate(0,0), Direction.NORTH, grid, new ObstacleMap());
+        outcome.execute(replayed);
+        assertEquals(probe.getPosition(), replayed.getPosition());
+        assertEquals(probe.getDirection(), replayed.getDirection());
+    }
+
+    @Test
+    void execution_does_not_allocate_per_command() {
+        var threads = ManagementFactory.getThreadMXBean();
+        assumeTrue(threads instanceof com.sun.management.ThreadMXBean);
+        var allocations = (com.sun.management.ThreadMXBean) threads;
+
+        // Every move is blocked on a 1x1 grid, so the path never grows
+        Probe probe = new Probe(new Coordinate(0,0), Direction.NORTH, new Grid(1, 1), new ObstacleMap());
+        CommandProgram program = new CommandProgram();
+        for (int i = 0; i < 250_000; i++) {
+            program.append(CommandProgram.FORWARD, 1)
+                    .append(CommandProgram.TURN_LEFT, 1)
+                    .append(CommandProgram.BACKWARD, 1)
+                    .append(CommandProgram.TURN_RIGHT, 1);
+        }
+        program.execute(probe); // warm-up
+
+        long threadId = Thread.currentThread().threadId();
+        long before = allocations.getThreadAllocatedBytes(threadId);
+        ExecutionSummary summary = program.execute(probe);
+        long allocated = allocations.getThreadAllocatedBytes(threadId) - before;
+
+        assertEquals(1_000_000, summary.executed + summary.blocked);
+        assertTrue(allocated < 64 * 1024, "allocated " + allocated + " bytes for 1M commands");
+    }
+}
@@ -0,0 +1,135 @@
+package com.kata.probe.domain.planning;
+
+import com.kata.probe.domain.Coordinate;
+import com.kata.probe.domain.Grid;
+import com.kata.probe.domain.ObstacleMap;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DistanceFieldTest {
+
+    @Test
+    void distances_count_moves_around_obstacles() {
+        Grid grid = new Grid(4, 3);
+        ObstacleMap obstacles = new ObstacleMap(grid);
+        obstacles.addObstacle(new Coordinate(1, 0));
+        obstacles.addObstacle(new Coordinate(1, 1));
+
+        DistanceField field = DistanceField.compute(grid, obstacles, 0, 0);
+
+        assertEquals(0, field.distance(0, 0));
+        assertEquals(4, field.distance(2, 2));
+        assertEquals(5, field.distance(2, 1));
+        assertEquals(DistanceField.UNREACHABLE, field.distance(1, 0));
+        assertEquals(DistanceField.UNREACHABLE, field.distance(4, 0));
+        assertEquals(10, field.reachable());
+        assertEquals(7, field.maxDistance());
+    }
+
+    @Test
+    void walled_off_cells_are_unreachable_in_the_bitmap() {
+        Grid grid = new Grid(3, 3);
+        ObstacleMap obstacles = new ObstacleMap(grid);
+        obstacles.addObstacle(new Coordinate(1, 2));
+        obstacles.addObstacle(new Coordinate(2, 1));
+
+        DistanceField field = DistanceField.compute(grid, obstacles, 0, 0);
+        long bits = field.reachableBits()[0];
+
+        assertEquals(6, field.reachable());
+        assertEquals(0, bits & (1L << (2 * 3 + 2))); // (2, 2) is cut off
+        assertNotEquals(0, bits & (1L << (1 * 3 + 1)));
+    }
+
+    @Test
+    void export_writes_one_int_per_cell() throws Exception {
+        DistanceField field = DistanceField.compute(new Grid(3, 2), new ObstacleMap(), 0, 0);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        field.writeTo(out);
+
+        ByteBuffer written = ByteBuffer.wrap(out.toByteArray());
+        assertEquals(24, written.remaining());
+        assertEquals(0, written.getInt(0));
+        assertEquals(3, written.getInt(4 * (1 * 3 + 2)));
+    }
+
+    @Test
+    void cache_reuses_fields_until_the_obstacles_change() {
+        Grid grid = new Grid(10, 10);
+        ObstacleMap obstacles = new ObstacleMap(grid);
+        obstacles.addObstacle(new Coordinate(5, 5));
+        DistanceFieldCache cache = new DistanceFieldCache(1 << 20);
+
+        DistanceField first = cache.get(grid, obstacles, 0, 0);
+        assertSame(first, cache.get(grid, obstacles, 0, 0));
+        assertEquals(1, cache.hits());
+
+        obstacles.addObstacle(new Coordinate(0, 1));
+        DistanceField second = cache.get(grid, obstacles, 0, 0);
+        assertNotSame(first, second);
+        assertEquals(4, second.distance(0, 2));
+    }
+
+    @Test
+    void cache_evicts_least_recently_used_fields_past_its_budget() {
+        Grid grid = new Grid(100, 100);
+        ObstacleMap obstacles = new ObstacleMap();
+        long fieldBytes = DistanceField.compute(grid, obstacles, 0, 0).memoryBytes();
+        DistanceFieldCache cache = new DistanceFieldCache(2 * fieldBytes);
+
+        DistanceField a = cache.get(grid, obstacles, 0, 0);
+        cache.get(grid, obstacles, 1, 0);
+        cache.get(grid, obstacles, 0, 0); // a is now the most recent
+        cache.get(grid, obstacles, 2, 0);
+
+        assertEquals(2 * fieldBytes, cache.bytes());
+        assertSame(a, cache.get(grid, obstacles, 0, 0));
+        long misses = cache.misses();
+        cache.get(grid, obstacles, 1, 0);
+        assertEquals(misses + 1, cache.misses());
+    }
+
+    @Test
+    void probes_on_grids_of_the_same_size_without_obstacles_share_fields() {
+        DistanceFieldCache cache = new DistanceFieldCache(1 << 20);
+
+        DistanceField first = cache.get(new Grid(8, 8), new ObstacleMap(), 3, 3);
+
+        assertSame(first, cache.get(new Grid(8, 8), new ObstacleMap(new Grid(8, 8)), 3, 3));
+    }
+
+    @Test
+    void concurrent_misses_on_one_key_share_a_single_search() throws Exception {
+        Grid grid = new Grid(1000, 1000);
+        DistanceFieldCache cache = new DistanceFieldCache(64L << 20);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<DistanceField>> results = new ArrayList<>();
+
+        try (ExecutorService pool = Executors.newFixedThreadPool(8)) {
+            for (int i = 0; i < 8; i++) {
+                results.add(pool.submit(() -> {
+                    start.await();
+                    return cache.get(grid, new ObstacleMap(grid), 500, 500);
+                }));
+            }
+            start.countDown();
+            for (Future<DistanceField> result : results) {
+                assertSame(results.get(0).get(), result.get());
+            }
+        }
+
+        assertEquals(1, cache.misses());
+        assertEquals(7, cache.hits());
+    }
+}
@@ -0,0 +1,169 @@
+package com.kata.probe.domain.planning;
+
+import com.kata.probe.domain.*;
+import com.kata.probe.domain.commands.CommandProgram;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayDeque;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PathPlannerTest {
+
+    private final PathPlanner planner = new PathPlanner();
+
+    @Test
+    void straight_route_needs_no_turns() {
+        Probe probe = new Probe(new Coordinate(0, 0), Direction.NORTH, new Grid(10, 10), new ObstacleMap());
+
+        Plan plan = planner.plan(probe, new Coordinate(0, 7));
+
+        assertEquals("7F", plan.program().toPacked());
+        assertEquals(0, plan.turns());
+    }
+
+    @Test
+    void backing_up_is_cheaper_than_turning_around() {
+        Probe probe = new Probe(new Coordinate(5, 5), Direction.NORTH, new Grid(10, 10), new ObstacleMap());
+
+        assertEquals("3B", planner.plan(probe, new Coordinate(5, 2)).program().toPacked());
+    }
+
+    @Test
+    void route_goes_around_a_wall_and_reaches_the_target() {
+        Grid grid = new Grid(7, 7);
+        ObstacleMap obstacles = new ObstacleMap(grid);
+        for (int x = 0; x < 6; x++) {
+            obstacles.addObstacle(new Coordinate(x, 3));
+        }
+        Probe probe = new Probe(new Coordinate(0, 0), Direction.NORTH, grid, obstacles);
+
+        Plan plan = planner.plan(probe, new Coordinate(0, 6));
+        var summary = plan.program().execute(probe);
+
+        assertEquals(new Coordinate(0, 6), probe.getPosition());
+        assertEquals(0, summary.blocked);
+        // 6 east, 6 north, 6 west; facing north at first, so a turn before each leg
+        assertEquals(18 + 3, plan.program().length());
+        assertEquals(3, plan.turns());
+    }
+
+    @Test
+    void plans_are_as_short_as_a_breadth_first_search() {
+        Random random = new Random(11);
+        for (int round = 0; round < 50; round++) {
+            Grid grid = new Grid(12, 12);
+            ObstacleMap obstacles = new ObstacleMap(grid);
+            for (int i = 0; i < 35; i++) {
+                int x = random.nextInt(12);
+                int y = random.nextInt(12);
+                if (x + y > 0) {
+                    obstacles.addObstacle(new Coordinate(x, y));
+                }
+            }
+            Probe probe = new Probe(new Coordinate(0, 0), Direction.values()[random.nextInt(4)], grid, obstacles);
+            Coordinate target = new Coordinate(random.nextInt(12), random.nextInt(12));
+            if (obstacles.hasObstacle(target)) {
+                continue;
+            }
+
+            int expected = shortest(probe, target);
+            Plan plan = planner.plan(probe, target);
+            if (expected < 0) {
+                assertFalse(plan.reachable());
+            } else {
+                assertEquals(expected, plan.program().length());
+            }
+        }
+    }
+
+    @Test
+    void large_searches_stay_optimal() {
+        // Big enough for the search to outgrow its hash table and move to the grid-sized index
+        Random random = new Random(5);
+        Grid grid = new Grid(200, 200);
+        ObstacleMap obstacles = new ObstacleMap(grid);
+        for (int i = 0; i < 10_000; i++) {
+            int x = random.nextInt(200);
+            int y = random.nextInt(200);
+            if (x + y > 0 && x + y < 398) {
+                obstacles.addObstacle(new Coordinate(x, y));
+            }
+        }
+        Probe probe = new Probe(new Coordinate(0, 0), Direction.SOUTH, grid, obstacles);
+        Coordinate target = new Coordinate(199, 199);
+
+        Plan plan = planner.plan(probe, target);
+
+        assertEquals(shortest(probe, target), plan.program().length());
+        assertTrue(plan.expanded() > 1 << 15);
+    }
+
+    @Test
+    void walled_in_target_is_unreachable() {
+        Grid grid = new Grid(5, 5);
+        ObstacleMap obstacles = new ObstacleMap(grid);
+        obstacles.addObstacle(new Coordinate(3, 4));
+        obstacles.addObstacle(new Coordinate(4, 3));
+        Probe probe = new Probe(new Coordinate(0, 0), Direction.EAST, grid, obstacles);
+
+        Plan plan = planner.plan(probe, new Coordinate(4, 4));
+
+        assertFalse(plan.reachable());
+        assertFalse(plan.exhausted());
+    }
+
+    @Test
+    void search_gives_up_at_its_node_budget() {
+        Probe probe = new Probe(new Coordinate(0, 0), Direction.EAST, new Grid(1000, 1000), new ObstacleMap());
+
+        Plan plan = new PathPlanner(100).plan(probe, new Coordinate(999, 999));
+
+        assertFalse(plan.reachable());
+        assertTrue(plan.exhausted());
+    }
+
+    @Test
+    void target_outside_the_grid_is_rejected() {
+        Probe probe = new Probe(new Coordinate(0, 0), Direction.EAST, new Grid(5, 5), new ObstacleMap());
+
+        assertThrows(IllegalArgumentException.class, () -> planner.plan(probe, new Coordinate(5, 0)));
+    }
+
+    // Plain BFS over (x, y, direction) states; every command costs one
+    private static int shortest(Probe probe, Coordinate target) {
+        Grid grid = probe.getGrid();
+        int[][][] distance = new int[grid.width()][grid.height()][4];
+        for (int[][] column : distance) {
+            for (int[] cell : column) {
+                java.util.Arrays.fill(cell, -1);
+            }
+        }
+        ArrayDeque<int[]> queue = new ArrayDeque<>();
+        distance[probe.getX()][probe.getY()][probe.getDirection().ordinal()] = 0;
+        queue.add(new int[]{probe.getX(), probe.getY(), probe.getDirection().ordinal()});
+        while (!queue.isEmpty()) {
+            int[] s = queue.poll();
+            int here = distance[s[0]][s[1]][s[2]];
+            if (s[0] == target.x() && s[1] == target.y()) {
+                return here;
+            }
+            Direction d = Direction.values()[s[2]];
+            int[][] next = {
+                    {s[0] + d.dxForward(), s[1] + d.dyForward(), s[2]},
+                    {s[0] - d.dxForward(), s[1] - d.dyForward(), s[2]},
+                    {s[0], s[1], d.left().ordinal()},
+                    {s[0], s[1], d.right().ordinal()}
+            };
+            for (int[] n : next) {
+                if (grid.isWithinBounds(n[0], n[1]) && !probe.getObstacleMap().hasObstacle(n[0], n[1])
+                        && distance[n[0]][n[1]][n[2]] < 0) {
+                    distance[n[0]][n[1]][n[2]] = here + 1;
+                    queue.add(n);
+                }
+            }
+        }
+        return -1;
+    }
+}
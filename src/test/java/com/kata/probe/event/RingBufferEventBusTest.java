@@ -0,0 +1,107 @@
+package com.kata.probe.event;
+
+import com.kata.probe.domain.Coordinate;
+import com.kata.probe.domain.Direction;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RingBufferEventBusTest {
+
+    @Test
+    void reader_sees_events_from_its_cursor_in_order() {
+        RingBufferEventBus bus = new RingBufferEventBus(8);
+        bus.publish(moved(1));
+        long cursor = bus.head();
+        bus.publish(moved(2));
+        bus.publish(moved(3));
+
+        List<Long> versions = new ArrayList<>();
+        cursor = bus.drain(cursor, 10, (seq, e) -> versions.add(e.version()));
+
+        assertEquals(List.of(2L, 3L), versions);
+        assertEquals(3, cursor);
+        assertEquals(3, bus.drain(cursor, 10, (seq, e) -> fail("nothing new")));
+    }
+
+    @Test
+    void lapped_reader_skips_to_the_oldest_event_still_held() {
+        RingBufferEventBus bus = new RingBufferEventBus(4);
+        for (int i = 0; i < 10; i++) {
+            bus.publish(moved(i));
+        }
+
+        List<Long> sequences = new ArrayList<>();
+        long cursor = bus.drain(0, 10, (seq, e) -> {
+            assertEquals(seq, e.version());
+            sequences.add(seq);
+        });
+
+        assertEquals(List.of(7L, 8L, 9L), sequences);
+        assertEquals(10, cursor);
+    }
+
+    @Test
+    void concurrent_publishers_each_get_a_distinct_sequence() throws Exception {
+        RingBufferEventBus bus = new RingBufferEventBus(1 << 16);
+        int threads = 4;
+        int perThread = 10_000;
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> publishers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < perThread; i++) {
+                    bus.publish(moved(i));
+                }
+            });
+            thread.start();
+            publishers.add(thread);
+        }
+        start.countDown();
+        for (Thread thread : publishers) {
+            thread.join();
+        }
+
+        long[] seen = new long[1];
+        long cursor = bus.drain(0, Integer.MAX_VALUE, (seq, e) -> {
+            assertEquals(seen[0], seq);
+            seen[0]++;
+        });
+        assertEquals(threads * perThread, cursor);
+    }
+
+    @Test
+    void waiting_reader_is_woken_by_the_next_publish() throws Exception {
+        RingBufferEventBus bus = new RingBufferEventBus(8);
+        long cursor = bus.head();
+        CountDownLatch woken = new CountDownLatch(1);
+        Thread reader = Thread.ofVirtual().start(() -> {
+            bus.await(cursor, TimeUnit.MINUTES.toNanos(1));
+            woken.countDown();
+        });
+
+        while (reader.getState() != Thread.State.WAITING && reader.getState() != Thread.State.TIMED_WAITING) {
+            Thread.onSpinWait();
+        }
+        bus.publish(moved(1));
+
+        assertTrue(woken.await(5, TimeUnit.SECONDS));
+        // Already published: no wait at all
+        bus.await(cursor, TimeUnit.MINUTES.toNanos(1));
+    }
+
+    private static ProbeEvent moved(long version) {
+        return new ProbeEvent.ProbeMoved(UUID.randomUUID(), null, version, new Coordinate(0, 0), Direction.NORTH, 1);
+    }
+}
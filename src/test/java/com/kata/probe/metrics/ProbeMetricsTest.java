@@ -0,0 +1,56 @@
+package com.kata.probe.metrics;
+
+import com.kata.probe.controller.response.ExecutionSummary;
+import com.kata.probe.domain.Coordinate;
+import com.kata.probe.domain.Direction;
+import com.kata.probe.domain.commands.CommandProgram;
+import com.kata.probe.event.ProbeEventBus;
+import com.kata.probe.repository.ProbeRepository;
+import com.kata.probe.repository.TerrainRepository;
+import com.kata.probe.repository.journal.ProbeJournal;
+import com.kata.probe.service.ProbeStateService;
+import com.kata.probe.service.TerrainService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProbeMetricsTest {
+
+    @Test
+    void batches_are_counted_by_outcome_and_timed_by_size() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        ProbeMetrics metrics = new ProbeMetrics(registry);
+
+        metrics.recordApply(1, new ExecutionSummary(1, 0, 0), 1_000);
+        metrics.recordApply(100, new ExecutionSummary(90, 8, 2), 50_000);
+
+        assertEquals(91, registry.get("probe.commands").tag("outcome", "executed").counter().count());
+        assertEquals(8, registry.get("probe.commands").tag("outcome", "blocked").counter().count());
+        assertEquals(2, registry.get("probe.commands").tag("outcome", "invalid").counter().count());
+        assertEquals(1, registry.get("probe.apply").tag("batch", "1").timer().count());
+        assertEquals(50, registry.get("probe.apply").tag("batch", "17-256").timer().totalTime(TimeUnit.MICROSECONDS));
+    }
+
+    @Test
+    void fleet_meters_read_the_repository() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        ProbeRepository repo = new ProbeRepository();
+        new FleetMetrics(repo).bindTo(registry);
+        ProbeStateService service = new ProbeStateService(repo, new TerrainService(new TerrainRepository()),
+                ProbeJournal.NONE, ForkJoinPool.commonPool(), ProbeEventBus.NONE, new ProbeMetrics(registry));
+
+        UUID id = service.create(10, 10, new Coordinate(0, 0), Direction.NORTH);
+        service.apply(id, CommandProgram.parse("5F"), null);
+
+        assertEquals(1, registry.get("probe.repository.size").gauge().value());
+        assertTrue(registry.get("probe.path.memory").gauge().value() > 0);
+        assertTrue(registry.get("probe.lock.acquisitions").functionCounter().count() >= 1);
+        assertEquals(0, registry.get("probe.lock.wait").functionTimer().count());
+        assertEquals(5, registry.get("probe.commands").tag("outcome", "executed").counter().count());
+    }
+}
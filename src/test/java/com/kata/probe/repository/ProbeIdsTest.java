@@ -0,0 +1,39 @@
+package com.kata.probe.repository;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProbeIdsTest {
+
+    @Test
+    void ids_are_version_7_and_carry_their_timestamp() {
+        UUID id = ProbeIds.next(1_700_000_000_123L);
+
+        assertEquals(7, id.version());
+        assertEquals(2, id.variant());
+        assertEquals(1_700_000_000_123L, id.getMostSignificantBits() >>> 16);
+    }
+
+    @Test
+    void later_ids_sort_after_earlier_ones() {
+        UUID earlier = ProbeIds.next(1_000L);
+        UUID later = ProbeIds.next(1_001L);
+
+        assertTrue(Long.compareUnsigned(earlier.getMostSignificantBits(), later.getMostSignificantBits()) < 0);
+        assertEquals(later, UUID.fromString(later.toString()));
+    }
+
+    @Test
+    void ids_from_the_same_millisecond_differ() {
+        Set<UUID> ids = new HashSet<>();
+        for (int i = 0; i < 100_000; i++) {
+            ids.add(ProbeIds.next(42L));
+        }
+        assertEquals(100_000, ids.size());
+    }
+}
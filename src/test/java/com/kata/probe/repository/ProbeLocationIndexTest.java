@@ -0,0 +1,96 @@
+package com.kata.probe.repository;
+
+import com.kata.probe.repository.ProbeLocationIndex.Location;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProbeLocationIndexTest {
+
+    @Test
+    void within_finds_probes_across_cells_and_follows_moves() {
+        ProbeLocationIndex index = new ProbeLocationIndex(2);
+        UUID a = UUID.randomUUID();
+        UUID b = UUID.randomUUID();
+        index.place(a, "mars", 1, 1);
+        index.place(b, "mars", 9, 9);
+
+        assertEquals(List.of(a), ids(index.within(0, 0, 5, 5, "mars", 10)));
+
+        index.place(b, "mars", 3, -2);
+        assertEquals(2, index.within(-5, -5, 5, 5, "mars", 10).size());
+        assertTrue(index.within(6, 6, 20, 20, "mars", 10).isEmpty());
+
+        index.remove(a);
+        assertEquals(List.of(b), ids(index.within(-5, -5, 5, 5, "mars", 10)));
+        assertEquals(1, index.size());
+    }
+
+    @Test
+    void within_only_sees_the_terrain_asked_for_and_stops_at_the_limit() {
+        ProbeLocationIndex index = new ProbeLocationIndex();
+        for (int i = 0; i < 15; i++) {
+            index.place(UUID.randomUUID(), i % 3 == 0 ? "mars" : i % 3 == 1 ? "moon" : null, i, i);
+        }
+
+        assertEquals(15, index.size());
+        assertEquals(5, index.within(0, 0, 100, 100, "mars", 100).size());
+        assertEquals(3, index.within(0, 0, 100, 100, "moon", 3).size());
+        assertTrue(index.within(0, 0, 100, 100, "venus", 100).isEmpty());
+        // A box far wider than the occupied cells walks those cells instead
+        assertEquals(5, index.within(Integer.MIN_VALUE, Integer.MIN_VALUE, Integer.MAX_VALUE, Integer.MAX_VALUE,
+                "moon", 100).size());
+        // Private grids have no coordinate space in common
+        assertThrows(IllegalArgumentException.class, () -> index.within(0, 0, 100, 100, null, 100));
+        assertThrows(IllegalArgumentException.class, () -> index.nearest(0, 0, 1, null));
+    }
+
+    @Test
+    void nearest_matches_a_brute_force_search() {
+        ProbeLocationIndex index = new ProbeLocationIndex(3);
+        Random random = new Random(42);
+        List<Location> all = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            Location l = new Location(UUID.randomUUID(), "mars", random.nextInt(1000), random.nextInt(1000));
+            index.place(l.id(), "mars", l.x(), l.y());
+            all.add(l);
+        }
+
+        for (int q = 0; q < 20; q++) {
+            int x = random.nextInt(1200) - 100;
+            int y = random.nextInt(1200) - 100;
+            List<Long> expected = all.stream()
+                    .map(l -> distance(l, x, y))
+                    .sorted(Comparator.naturalOrder())
+                    .limit(7)
+                    .toList();
+            List<Long> actual = index.nearest(x, y, 7, "mars").stream().map(l -> distance(l, x, y)).toList();
+            assertEquals(expected, actual);
+        }
+    }
+
+    @Test
+    void nearest_returns_fewer_when_the_fleet_is_small() {
+        ProbeLocationIndex index = new ProbeLocationIndex();
+        index.place(UUID.randomUUID(), "mars", 1_000_000, 1_000_000);
+
+        assertEquals(1, index.nearest(0, 0, 5, "mars").size());
+        assertTrue(index.nearest(0, 0, 5, "moon").isEmpty());
+    }
+
+    private static long distance(Location l, int x, int y) {
+        long dx = l.x() - x;
+        long dy = l.y() - y;
+        return dx * dx + dy * dy;
+    }
+
+    private static List<UUID> ids(List<Location> locations) {
+        return locations.stream().map(Location::id).toList();
+    }
+}
@@ -0,0 +1,150 @@
+package com.kata.probe.repository;
+
+import com.kata.probe.domain.Coordinate;
+import com.kata.probe.domain.Direction;
+import com.kata.probe.domain.ProbeAggregate;
+import com.kata.probe.repository.journal.ProbeJournal;
+import com.kata.probe.service.ProbeSpec;
+import com.kata.probe.service.ProbeStateService;
+import com.kata.probe.service.TerrainService;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProbeRepositoryConcurrencyTest {
+
+    private static final int THREADS = 8;
+    private static final int BATCHES_PER_THREAD = 500;
+
+    @Test
+    void concurrent_batches_on_one_probe_are_not_lost() throws Exception {
+        ProbeRepository repo = new ProbeRepository();
+        ProbeStateService service = newService(repo);
+
+        int moves = THREADS * BATCHES_PER_THREAD;
+        UUID id = service.create(moves + 1, 1, new Coordinate(0, 0), Direction.EAST);
+
+        runConcurrently(THREADS, t -> {
+            for (int i = 0; i < BATCHES_PER_THREAD; i++) {
+                service.apply(id, List.of("F"));
+            }
+        });
+
+        ProbeAggregate agg = service.get(id);
+        assertEquals(new Coordinate(moves, 0), agg.getProbe().getPosition());
+        assertEquals(moves + 1, agg.getVisited().size());
+    }
+
+    @Test
+    void concurrent_batches_on_different_probes_stay_isolated() throws Exception {
+        ProbeRepository repo = new ProbeRepository();
+        ProbeStateService service = newService(repo);
+
+        List<UUID> ids = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            ids.add(service.create(BATCHES_PER_THREAD + 1, 1, new Coordinate(0, 0), Direction.EAST));
+        }
+
+        runConcurrently(THREADS, t -> {
+            for (int i = 0; i < BATCHES_PER_THREAD; i++) {
+                service.apply(ids.get(t), List.of("F"));
+            }
+        });
+
+        assertEquals(THREADS, repo.size());
+        for (UUID id : ids) {
+            assertEquals(new Coordinate(BATCHES_PER_THREAD, 0), service.get(id).getProbe().getPosition());
+        }
+    }
+
+    @Test
+    void probes_on_a_shared_terrain_never_share_a_cell() throws Exception {
+        ProbeRepository repo = new ProbeRepository();
+        TerrainService terrains = new TerrainService(new TerrainRepository(), ProbeJournal.NONE, true);
+        ProbeStateService service = new ProbeStateService(repo, terrains);
+        terrains.register("arena", 8, 8, List.of());
+
+        // Two probes per row, so every move contends with the probe sharing its row
+        List<UUID> ids = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            ids.add(service.create(new ProbeSpec("arena", 8, 8, new Coordinate(t % 2 == 0 ? 0 : 7, t / 2),
+                    t % 2 == 0 ? Direction.EAST : Direction.WEST, null)));
+        }
+
+        runConcurrently(THREADS, t -> {
+            for (int i = 0; i < BATCHES_PER_THREAD; i++) {
+                service.apply(ids.get(t), List.of(i % 16 < 8 ? "F" : "B"));
+            }
+        });
+
+        Set<Coordinate> positions = new HashSet<>();
+        for (UUID id : ids) {
+            assertTrue(positions.add(service.get(id).getProbe().getPosition()));
+        }
+        assertEquals(THREADS, terrains.occupancy(terrains.get("arena")).count());
+    }
+
+    @Test
+    void a_held_probe_lock_does_not_block_probes_on_other_stripes() throws Exception {
+        ProbeRepository repo = new ProbeRepository();
+        ProbeStateService service = newService(repo);
+        UUID held = service.create(2, 2, new Coordinate(0, 0), Direction.NORTH);
+        UUID other;
+        do {
+            other = service.create(2, 2, new Coordinate(0, 0), Direction.NORTH);
+        } while (repo.stripeFor(other) == repo.stripeFor(held));
+
+        UUID free = other;
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        try {
+            // The batch on the other probe finishes while this thread still holds the first lock
+            long version = repo.withLock(held, () -> {
+                try {
+                    return pool.submit(() -> service.apply(free, List.of("R")).version()).get(60, TimeUnit.SECONDS);
+                } catch (Exception e) {
+                    throw new AssertionError(e);
+                }
+            });
+            assertEquals(1, version);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private static ProbeStateService newService(ProbeRepository repo) {
+        return new ProbeStateService(repo, new TerrainService(new TerrainRepository()));
+    }
+
+    private interface Worker {
+        void run(int threadIndex) throws Exception;
+    }
+
+    private static void runConcurrently(int threads, Worker worker) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int index = t;
+                futures.add(pool.submit(() -> {
+                    start.await();
+                    worker.run(index);
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> f : futures) {
+                f.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
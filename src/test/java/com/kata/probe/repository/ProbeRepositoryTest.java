@@ -0,0 +1,243 @@
+package com.kata.probe.repository;
+
+import com.kata.probe.domain.*;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProbeRepositoryTest {
+
+    private static ProbeAggregate newAggregate() {
+        Grid grid = new Grid(3, 3);
+        return new ProbeAggregate(grid, new Probe(new Coordinate(0,0), Direction.NORTH, grid, new ObstacleMap()));
+    }
+
+    @Test
+    void save_all_returns_ids_in_order_and_indexes_positions() {
+        ProbeRepository repo = new ProbeRepository();
+        List<ProbeAggregate> aggs = List.of(newAggregate(), newAggregate(), newAggregate());
+
+        List<UUID> ids = repo.saveAll(aggs);
+
+        assertEquals(3, ids.size());
+        for (int i = 0; i < ids.size(); i++) {
+            assertSame(aggs.get(i), repo.find(ids.get(i)).orElseThrow());
+        }
+        assertEquals(3, repo.size());
+        assertEquals(3, repo.locations().size());
+    }
+
+    @Test
+    void compare_and_update_advances_version() {
+        ProbeRepository repo = new ProbeRepository();
+        UUID id = repo.save(newAggregate());
+
+        ProbeAggregate replacement = newAggregate();
+        assertTrue(repo.compareAndUpdate(id, 0, replacement));
+
+        assertSame(replacement, repo.find(id).orElseThrow());
+        assertEquals(1, replacement.getVersion());
+    }
+
+    @Test
+    void compare_and_update_rejects_stale_version() {
+        ProbeRepository repo = new ProbeRepository();
+        ProbeAggregate original = newAggregate();
+        UUID id = repo.save(original);
+
+        assertTrue(repo.compareAndUpdate(id, 0, original));
+        assertFalse(repo.compareAndUpdate(id, 0, newAggregate()));
+
+        assertSame(original, repo.find(id).orElseThrow());
+        assertEquals(1, original.getVersion());
+    }
+
+    @Test
+    void compare_and_update_of_unknown_id_fails() {
+        assertFalse(new ProbeRepository().compareAndUpdate(UUID.randomUUID(), 0, newAggregate()));
+    }
+
+    @Test
+    void attached_source_is_loaded_once_per_probe_on_first_lookup() {
+        ProbeRepository repo = new ProbeRepository();
+        List<UUID> ids = List.of(UUID.randomUUID(), UUID.randomUUID(), UUID.randomUUID());
+        AtomicInteger loads = new AtomicInteger();
+        repo.attach(new ProbeSource() {
+            @Override
+            public ProbeAggregate load(UUID id) {
+                if (!ids.contains(id)) {
+                    return null;
+                }
+                loads.incrementAndGet();
+                return newAggregate();
+            }
+
+            @Override
+            public int size() {
+                return ids.size();
+            }
+
+            @Override
+            public void forEachId(Consumer<UUID> action) {
+                ids.forEach(action);
+            }
+
+            @Override
+            public void forEachLocation(LocationConsumer action) {
+                ids.forEach(id -> action.accept(id, null, 0, 0));
+            }
+        });
+
+        assertEquals(3, repo.size());
+        assertEquals(3, repo.locations().size());
+        assertEquals(0, loads.get());
+
+        ProbeAggregate first = repo.find(ids.get(0)).orElseThrow();
+        assertSame(first, repo.find(ids.get(0)).orElseThrow());
+        assertTrue(repo.find(UUID.randomUUID()).isEmpty());
+        assertEquals(1, loads.get());
+
+        List<UUID> visited = new ArrayList<>();
+        repo.forEach((id, agg) -> visited.add(id));
+        assertEquals(3, visited.size());
+        assertEquals(3, loads.get());
+        assertEquals(3, repo.size());
+    }
+
+    @Test
+    void evicted_probes_come_back_on_lookup() {
+        ProbeRepository repo = new ProbeRepository();
+        MapTier cold = new MapTier();
+        repo.enableTiering(cold);
+        List<UUID> ids = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            ids.add(repo.save(newAggregate()));
+        }
+        long each = repo.find(ids.get(0)).orElseThrow().memoryBytes();
+
+        // Nothing to do while under the limit
+        assertEquals(0, repo.evict(100 * each, 0));
+        assertEquals(6, repo.evict(0, 4 * each));
+
+        assertEquals(4 * each, repo.residentBytes());
+        assertEquals(6, repo.coldSize());
+        assertEquals(10, repo.size());
+        assertEquals(10, repo.locations().size());
+        assertEquals(6, cold.puts);
+
+        long misses = repo.tierMisses();
+        for (UUID id : ids) {
+            assertTrue(repo.find(id).isPresent());
+        }
+        assertEquals(misses + 6, repo.tierMisses());
+        assertEquals(0, repo.coldSize());
+        assertEquals(10, repo.size());
+
+        // Unchanged probes are not written again
+        assertEquals(10, repo.evict(0, 0));
+        assertEquals(10, cold.puts);
+    }
+
+    @Test
+    void for_each_visits_evicted_probes_once_without_reloading_them() {
+        ProbeRepository repo = new ProbeRepository();
+        repo.enableTiering(new MapTier());
+        UUID kept = repo.save(newAggregate());
+        UUID evicted = repo.save(newAggregate());
+        repo.evict(0, 0);
+        repo.find(kept);
+
+        List<UUID> visited = new ArrayList<>();
+        repo.forEach((id, agg) -> visited.add(id));
+
+        assertEquals(2, visited.size());
+        assertTrue(visited.containsAll(List.of(kept, evicted)));
+        assertEquals(1, repo.coldSize());
+    }
+
+    @Test
+    void removing_an_evicted_probe_drops_its_copy() {
+        ProbeRepository repo = new ProbeRepository();
+        MapTier cold = new MapTier();
+        repo.enableTiering(cold);
+        UUID id = repo.save(newAggregate());
+        repo.evict(0, 0);
+
+        repo.remove(id);
+
+        assertTrue(repo.find(id).isEmpty());
+        assertFalse(cold.contains(id));
+        assertEquals(0, repo.size());
+    }
+
+    @Test
+    void resident_bytes_follow_in_place_growth_replacement_and_removal() {
+        ProbeRepository repo = new ProbeRepository();
+        Grid grid = new Grid(1000, 1);
+        ProbeAggregate agg = new ProbeAggregate(grid,
+                new Probe(new Coordinate(0, 0), Direction.EAST, grid, new ObstacleMap(grid)));
+        UUID id = repo.save(agg);
+        UUID other = repo.save(newAggregate());
+        long small = repo.find(other).orElseThrow().memoryBytes();
+        assertEquals(agg.memoryBytes() + small, repo.residentBytes());
+
+        agg.getProbe().moveForward(500);
+        assertTrue(repo.compareAndUpdate(id, 0, agg));
+        assertEquals(agg.memoryBytes() + small, repo.residentBytes());
+
+        repo.update(id, newAggregate());
+        assertEquals(2 * small, repo.residentBytes());
+
+        repo.remove(id);
+        repo.remove(other);
+        assertEquals(0, repo.residentBytes());
+    }
+
+    /**
+     * Keeps the evicted aggregates themselves, so lookups return the same instance.
+     */
+    private static final class MapTier implements ColdTier {
+        final Map<UUID, ProbeAggregate> copies = new HashMap<>();
+        int puts;
+
+        @Override
+        public synchronized void put(UUID id, ProbeAggregate agg) {
+            copies.put(id, agg);
+            puts++;
+        }
+
+        @Override
+        public synchronized ProbeAggregate load(UUID id) {
+            return copies.get(id);
+        }
+
+        @Override
+        public synchronized boolean contains(UUID id) {
+            return copies.containsKey(id);
+        }
+
+        @Override
+        public synchronized long storedVersion(UUID id) {
+            ProbeAggregate agg = copies.get(id);
+            return agg == null ? -1 : agg.getVersion();
+        }
+
+        @Override
+        public synchronized boolean remove(UUID id) {
+            return copies.remove(id) != null;
+        }
+
+        @Override
+        public long bytes() {
+            return 0;
+        }
+    }
+}
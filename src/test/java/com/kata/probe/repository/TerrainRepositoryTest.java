@@ -0,0 +1,40 @@
+package com.kata.probe.repository;
+
+import com.kata.probe.domain.Grid;
+import com.kata.probe.domain.PathStore;
+import com.kata.probe.domain.Terrain;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TerrainRepositoryTest {
+
+    @Test
+    void a_rejected_name_leaves_no_layout_behind() {
+        TerrainRepository repo = new TerrainRepository();
+        Grid grid = new Grid(10, 10);
+        repo.register("mesa", grid, new long[] {PathStore.pack(1, 1)});
+
+        assertThrows(IllegalArgumentException.class,
+                () -> repo.register("mesa", grid, new long[] {PathStore.pack(2, 2)}));
+        assertThrows(IllegalArgumentException.class,
+                () -> repo.register("mesa", new Grid(20, 20), new long[] {PathStore.pack(1, 1)}));
+
+        assertEquals(1, repo.distinctLayouts());
+        assertTrue(repo.find("mesa").orElseThrow().obstacles().contains(1, 1));
+    }
+
+    @Test
+    void same_layout_is_shared_across_names_and_re_registering_is_a_no_op() {
+        TerrainRepository repo = new TerrainRepository();
+        Grid grid = new Grid(10, 10);
+        long[] cells = {PathStore.pack(1, 1), PathStore.pack(3, 4)};
+
+        Terrain first = repo.register("crater-a", grid, cells);
+        Terrain second = repo.register("crater-b", grid, new long[] {cells[1], cells[0]});
+
+        assertSame(first.obstacles(), second.obstacles());
+        assertSame(first, repo.register("crater-a", grid, cells));
+        assertEquals(1, repo.distinctLayouts());
+    }
+}
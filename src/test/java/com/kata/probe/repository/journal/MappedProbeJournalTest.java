@@ -0,0 +1,163 @@
+package com.kata.probe.repository.journal;
+
+import com.kata.probe.controller.response.ExecutionSummary;
+import com.kata.probe.domain.Direction;
+import com.kata.probe.domain.commands.CommandProgram;
+import com.kata.probe.repository.journal.JournalRecord.CommandsApplied;
+import com.kata.probe.repository.journal.JournalRecord.CommandsResolved;
+import com.kata.probe.repository.journal.JournalRecord.ProbeCreated;
+import com.kata.probe.repository.journal.JournalRecord.TerrainRegistered;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static java.nio.file.StandardOpenOption.WRITE;
+import static org.junit.jupiter.api.Assertions.*;
+
+class MappedProbeJournalTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void records_survive_a_reopen_in_order() {
+        UUID id = UUID.randomUUID();
+        try (ProbeJournal journal = open()) {
+            journal.replay(r -> fail("fresh journal has no records"));
+            journal.append(new TerrainRegistered("moon", 10, 10, new long[] {1L, 2L}));
+            journal.append(new ProbeCreated(id, "moon", 10, 10, 0, 0, Direction.EAST, new long[0]));
+            long last = journal.append(new CommandsApplied(id, 1, CommandProgram.parse("10000F2R")));
+            journal.awaitDurable(last);
+        }
+
+        List<JournalRecord> records = replayAll();
+
+        assertEquals(3, records.size());
+        assertEquals("moon", ((TerrainRegistered) records.get(0)).name());
+        assertEquals(Direction.EAST, ((ProbeCreated) records.get(1)).direction());
+        CommandsApplied applied = (CommandsApplied) records.get(2);
+        assertEquals(id, applied.id());
+        assertEquals(10_002, applied.program().length());
+        assertEquals(2, applied.program().runs());
+    }
+
+    @Test
+    void resolved_batches_keep_their_moves_cell_and_summary() {
+        UUID id = UUID.randomUUID();
+        try (ProbeJournal journal = open()) {
+            journal.awaitDurable(journal.append(new CommandsResolved(id, 7, CommandProgram.parse("300FR"), 3, 300,
+                    new ExecutionSummary(301, 2, 1))));
+        }
+
+        CommandsResolved resolved = (CommandsResolved) replayAll().get(0);
+
+        assertEquals(id, resolved.id());
+        assertEquals(7, resolved.version());
+        assertEquals("300FR", resolved.moves().toPacked());
+        assertEquals(3, resolved.x());
+        assertEquals(300, resolved.y());
+        assertEquals(301, resolved.summary().executed);
+        assertEquals(2, resolved.summary().blocked);
+        assertEquals(1, resolved.summary().invalid);
+    }
+
+    @Test
+    void records_roll_over_into_new_segments() throws IOException {
+        UUID id = UUID.randomUUID();
+        try (ProbeJournal journal = open()) {
+            journal.replay(r -> {});
+            for (int v = 1; v <= 200; v++) {
+                journal.append(new CommandsApplied(id, v, CommandProgram.parse("FRB")));
+            }
+        }
+
+        try (var files = Files.list(dir)) {
+            assertTrue(files.count() > 1);
+        }
+        List<JournalRecord> records = replayAll();
+        assertEquals(200, records.size());
+        assertEquals(200, ((CommandsApplied) records.get(199)).version());
+    }
+
+    @Test
+    void torn_tail_is_dropped_and_later_appends_are_kept() throws IOException {
+        UUID id = UUID.randomUUID();
+        try (ProbeJournal journal = open()) {
+            journal.replay(r -> {});
+            journal.append(new CommandsApplied(id, 1, CommandProgram.parse("F")));
+            journal.append(new CommandsApplied(id, 2, CommandProgram.parse("F")));
+        }
+        // Flip a payload byte of the second record, as a torn write would
+        Path segment;
+        try (var files = Files.list(dir)) {
+            segment = files.sorted().findFirst().orElseThrow();
+        }
+        int recordBytes = 8 + 1 + 16 + 8 + 4 + 2;
+        try (FileChannel channel = FileChannel.open(segment, WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[] {(byte) 0xFF}), recordBytes + 12);
+        }
+
+        try (ProbeJournal journal = open()) {
+            List<JournalRecord> records = new ArrayList<>();
+            journal.replay(records::add);
+            assertEquals(1, records.size());
+            journal.append(new CommandsApplied(id, 2, CommandProgram.parse("B")));
+        }
+
+        List<JournalRecord> records = replayAll();
+        assertEquals(2, records.size());
+        assertEquals(CommandProgram.BACKWARD, ((CommandsApplied) records.get(1)).program().codeAt(0));
+    }
+
+    @Test
+    void concurrent_writers_share_flushes() throws Exception {
+        int threads = 4;
+        int perThread = 500;
+        try (ProbeJournal journal = open()) {
+            journal.replay(r -> {});
+            ExecutorService pool = Executors.newFixedThreadPool(threads);
+            try {
+                List<Future<?>> futures = new ArrayList<>();
+                for (int t = 0; t < threads; t++) {
+                    UUID id = UUID.randomUUID();
+                    futures.add(pool.submit(() -> {
+                        for (int v = 1; v <= perThread; v++) {
+                            journal.awaitDurable(journal.append(new CommandsApplied(id, v, CommandProgram.parse("F"))));
+                        }
+                    }));
+                }
+                for (Future<?> f : futures) {
+                    f.get();
+                }
+            } finally {
+                pool.shutdownNow();
+            }
+        }
+
+        assertEquals(threads * perThread, replayAll().size());
+    }
+
+    private MappedProbeJournal open() {
+        return new MappedProbeJournal(dir, 4096, Duration.ofMillis(1), true);
+    }
+
+    private List<JournalRecord> replayAll() {
+        List<JournalRecord> records = new ArrayList<>();
+        try (ProbeJournal journal = open()) {
+            journal.replay(records::add);
+        }
+        return records;
+    }
+}
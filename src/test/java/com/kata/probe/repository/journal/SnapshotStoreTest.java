@@ -0,0 +1,73 @@
+package com.kata.probe.repository.journal;
+
+import com.kata.probe.domain.*;
+import com.kata.probe.repository.ProbeRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SnapshotStoreTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void mapped_snapshot_reads_back_any_probe_by_id() throws IOException {
+        Grid grid = new Grid(100, 100);
+        ObstacleIndex craterCells = ObstacleIndex.forGrid(grid);
+        craterCells.add(7, 7);
+        Terrain crater = new Terrain("crater", grid, craterCells.freeze());
+
+        ProbeRepository repo = new ProbeRepository();
+        UUID[] ids = new UUID[200];
+        for (int i = 0; i < ids.length; i++) {
+            ObstacleMap obstacles = i % 2 == 0 ? ObstacleMap.sharing(crater) : new ObstacleMap(grid);
+            obstacles.addObstacle(new Coordinate(99, i % 100));
+            Probe probe = new Probe(new Coordinate(0, i % 100), Direction.EAST, grid, obstacles);
+            probe.moveForward(i % 50);
+            ProbeAggregate agg = new ProbeAggregate(i % 2 == 0 ? "crater" : null, grid, probe);
+            agg.setVersion(i);
+            ids[i] = repo.save(agg);
+        }
+
+        SnapshotStore store = new SnapshotStore(dir);
+        store.write(3, List.of(crater), repo);
+        MappedSnapshot snapshot = store.openLatest();
+
+        assertEquals(200, snapshot.size());
+        assertEquals("crater", snapshot.terrains().get(0).name());
+        assertArrayEquals(new long[] {PathStore.pack(7, 7)}, snapshot.terrains().get(0).cells());
+        assertEquals(-1, snapshot.indexOf(UUID.randomUUID()));
+        for (int i = 0; i < ids.length; i++) {
+            ProbeAggregate expected = repo.find(ids[i]).orElseThrow();
+            ProbeSnapshot actual = snapshot.read(snapshot.indexOf(ids[i]));
+
+            assertEquals(ids[i], actual.id());
+            assertEquals(i, actual.version());
+            assertEquals(expected.getTerrain(), actual.terrain());
+            assertEquals(Direction.EAST, actual.direction());
+            assertEquals(expected.getVisited(), actual.path().asList());
+            assertArrayEquals(new long[] {PathStore.pack(99, i % 100)}, actual.obstacles());
+        }
+    }
+
+    @Test
+    void newest_snapshot_replaces_older_ones() throws IOException {
+        SnapshotStore store = new SnapshotStore(dir);
+        ProbeRepository repo = new ProbeRepository();
+        store.write(1, List.of(), repo);
+        Grid grid = new Grid(2, 2);
+        repo.save(new ProbeAggregate(grid, new Probe(new Coordinate(0, 0), Direction.NORTH, grid, new ObstacleMap())));
+        store.write(2, List.of(), repo);
+
+        MappedSnapshot snapshot = store.openLatest();
+        assertTrue(snapshot.file().getFileName().toString().contains("0002"));
+        assertEquals(1, snapshot.size());
+    }
+}
@@ -0,0 +1,129 @@
+package com.kata.probe.repository.journal;
+
+import com.kata.probe.domain.*;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SpillStoreTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void spilled_probe_reads_back_as_stored() throws IOException {
+        Grid grid = new Grid(50, 50);
+        ObstacleMap obstacles = new ObstacleMap(grid);
+        obstacles.addObstacle(new Coordinate(10, 0));
+        Probe probe = new Probe(new Coordinate(0, 0), Direction.EAST, grid, obstacles);
+        probe.moveForward(20);
+        ProbeAggregate agg = new ProbeAggregate("crater", grid, probe);
+        agg.setVersion(7);
+        UUID id = UUID.randomUUID();
+
+        ProbeSnapshot[] read = new ProbeSnapshot[1];
+        try (SpillStore store = new SpillStore(dir, 1 << 20, s -> {
+            read[0] = s;
+            return agg;
+        })) {
+            store.put(id, agg);
+
+            assertTrue(store.contains(id));
+            assertEquals(7, store.storedVersion(id));
+            assertSame(agg, store.load(id));
+        }
+
+        ProbeSnapshot copy = read[0];
+        assertEquals(id, copy.id());
+        assertEquals(7, copy.version());
+        assertEquals("crater", copy.terrain());
+        assertEquals(50, copy.width());
+        assertEquals(Direction.EAST, copy.direction());
+        assertEquals(probe.getVisited(), copy.path().asList());
+        assertArrayEquals(new long[] {PathStore.pack(10, 0)}, copy.obstacles());
+    }
+
+    @Test
+    void rewritten_probes_let_old_files_be_compacted_away() throws IOException {
+        Grid grid = new Grid(1000, 1);
+        UUID[] ids = new UUID[20];
+        try (SpillStore store = new SpillStore(dir, 4096, s -> null)) {
+            for (int round = 0; round < 10; round++) {
+                for (int i = 0; i < ids.length; i++) {
+                    if (ids[i] == null) {
+                        ids[i] = UUID.randomUUID();
+                    }
+                    Probe probe = new Probe(new Coordinate(0, 0), Direction.EAST, grid, new ObstacleMap(grid));
+                    probe.moveForward(i);
+                    ProbeAggregate agg = new ProbeAggregate(grid, probe);
+                    agg.setVersion(round);
+                    store.put(ids[i], agg);
+                }
+                store.compact();
+            }
+
+            assertEquals(ids.length, store.size());
+            for (UUID id : ids) {
+                assertEquals(9, store.storedVersion(id));
+            }
+            // 20 probes of at most ~200 bytes fit in two 4 KB files; nine stale rounds must be gone
+            assertTrue(store.segments() <= 3, "segments: " + store.segments());
+            assertTrue(store.bytes() < 3 * 4096 + 512, "bytes: " + store.bytes());
+
+            for (UUID id : ids) {
+                assertTrue(store.remove(id));
+            }
+            assertFalse(store.remove(ids[0]));
+            assertNull(store.load(ids[0]));
+        }
+        try (var files = Files.list(dir)) {
+            assertEquals(0, files.count());
+        }
+    }
+
+    @Test
+    void put_leaves_stale_files_for_compact() throws IOException {
+        Grid grid = new Grid(10, 1);
+        UUID[] ids = new UUID[12];
+        try (SpillStore store = new SpillStore(dir, 256, s -> null)) {
+            for (int round = 0; round < 2; round++) {
+                for (int i = 0; i < ids.length; i++) {
+                    // Rewrite all but every third probe, so each early file keeps one current copy
+                    if (round == 0 || i % 3 != 0) {
+                        ids[i] = round == 0 ? UUID.randomUUID() : ids[i];
+                        ProbeAggregate agg = new ProbeAggregate(grid,
+                                new Probe(new Coordinate(0, 0), Direction.EAST, grid, new ObstacleMap(grid)));
+                        agg.setVersion(round);
+                        store.put(ids[i], agg);
+                    }
+                }
+            }
+            int before = store.segments();
+            long bytes = store.bytes();
+
+            store.compact();
+
+            assertTrue(store.segments() < before, before + " -> " + store.segments());
+            assertTrue(store.bytes() < bytes, bytes + " -> " + store.bytes());
+            for (int i = 0; i < ids.length; i++) {
+                assertEquals(i % 3 == 0 ? 0 : 1, store.storedVersion(ids[i]));
+            }
+        }
+    }
+
+    @Test
+    void opening_clears_files_left_by_an_earlier_run() throws IOException {
+        Files.writeString(dir.resolve("spill-00000000.bin"), "stale");
+
+        try (SpillStore store = new SpillStore(dir, 4096, s -> null)) {
+            assertEquals(0, store.size());
+            assertEquals(1, store.segments());
+        }
+    }
+}
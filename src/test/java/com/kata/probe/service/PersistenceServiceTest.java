@@ -0,0 +1,190 @@
+package com.kata.probe.service;
+
+import com.kata.probe.controller.response.ExecutionSummary;
+import com.kata.probe.domain.Coordinate;
+import com.kata.probe.domain.Direction;
+import com.kata.probe.domain.ProbeView;
+import com.kata.probe.domain.commands.CommandProgram;
+import com.kata.probe.repository.ProbeRepository;
+import com.kata.probe.repository.TerrainRepository;
+import com.kata.probe.repository.journal.JournalRecord.CommandsResolved;
+import com.kata.probe.repository.journal.JournalRecord.ProbeCreated;
+import com.kata.probe.repository.journal.MappedProbeJournal;
+import com.kata.probe.repository.journal.PersistenceProperties;
+import com.kata.probe.repository.journal.SnapshotStore;
+import com.kata.probe.repository.journal.SpillStore;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PersistenceServiceTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void restart_restores_snapshot_plus_journal_tail() {
+        UUID plain;
+        UUID onTerrain;
+        ProbeView plainBefore;
+        ProbeView terrainBefore;
+        try (Node node = new Node(dir)) {
+            node.terrains.register("crater", 20, 20, List.of(new Coordinate(5, 0)));
+            plain = node.probes.create(new ProbeSpec(null, 10, 10, new Coordinate(0, 0), Direction.NORTH,
+                    List.of(new Coordinate(0, 4))));
+            onTerrain = node.probes.create(new ProbeSpec("crater", 0, 0, new Coordinate(0, 0), Direction.EAST, null));
+            node.probes.apply(plain, List.of("F", "F", "R", "F"));
+
+            node.persistence.snapshot();
+
+            // Written after the snapshot: only in the journal
+            node.probes.apply(plain, List.of("L", "F", "F", "F"));
+            node.probes.apply(onTerrain, List.of("F", "F", "F", "F", "F", "F"));
+            plainBefore = node.probes.view(plain);
+            terrainBefore = node.probes.view(onTerrain);
+        }
+
+        try (Node restarted = new Node(dir)) {
+            assertSameState(plainBefore, restarted.probes.view(plain));
+            assertSameState(terrainBefore, restarted.probes.view(onTerrain));
+            assertEquals(new Coordinate(4, 0), restarted.probes.view(onTerrain).position());
+            assertEquals(1, restarted.terrains.get("crater").obstacles().size());
+
+            // Still writable, and the next restart sees that too
+            restarted.probes.apply(plain, List.of("B"));
+        }
+        try (Node again = new Node(dir)) {
+            assertEquals(plainBefore.version() + 1, again.probes.view(plain).version());
+        }
+    }
+
+    @Test
+    void snapshot_covers_spilled_probes() throws Exception {
+        UUID id;
+        ProbeView before;
+        try (Node node = new Node(dir);
+             SpillStore spill = new SpillStore(dir.resolve("spill"), 1 << 16, node.probes::restore)) {
+            node.repo.enableTiering(spill);
+            id = node.probes.create(new ProbeSpec(null, 10, 10, new Coordinate(0, 0), Direction.EAST, null));
+            node.probes.create(new ProbeSpec(null, 10, 10, new Coordinate(3, 3), Direction.EAST, null));
+            node.probes.apply(id, List.of("F", "F", "L", "F"));
+            before = node.probes.view(id);
+            assertEquals(2, node.repo.evict(0, 0));
+
+            node.persistence.snapshot();
+            assertEquals(2, node.repo.coldSize());
+        }
+
+        try (Node restarted = new Node(dir)) {
+            assertEquals(2, restarted.repo.size());
+            assertSameState(before, restarted.probes.view(id));
+        }
+    }
+
+    @Test
+    void restart_with_collisions_keeps_where_other_probes_stopped_a_probe() {
+        UUID runner;
+        UUID blocker;
+        try (Node node = new Node(dir, true)) {
+            node.terrains.register("mesa", 10, 10, List.of());
+            runner = node.probes.create(new ProbeSpec("mesa", 0, 0, new Coordinate(0, 0), Direction.EAST, null));
+            blocker = node.probes.create(new ProbeSpec("mesa", 0, 0, new Coordinate(3, 0), Direction.NORTH, null));
+            node.probes.apply(runner, List.of("F", "F", "F", "F", "F"));
+            node.probes.apply(blocker, List.of("F"));
+        }
+
+        try (Node restarted = new Node(dir, true)) {
+            ProbeView view = restarted.probes.view(runner);
+            assertEquals(new Coordinate(2, 0), view.position());
+            assertEquals(3, view.summary().blocked);
+            assertEquals(new Coordinate(3, 1), restarted.probes.view(blocker).position());
+            // Cells are held again after recovery, and the one the blocker left is free
+            assertThrows(IllegalArgumentException.class, () -> restarted.probes.create(
+                    new ProbeSpec("mesa", 0, 0, new Coordinate(3, 1), Direction.NORTH, null)));
+            restarted.probes.create(new ProbeSpec("mesa", 0, 0, new Coordinate(3, 0), Direction.NORTH, null));
+        }
+    }
+
+    @Test
+    void replay_with_collisions_ignores_log_order_and_tolerates_taken_cells() {
+        UUID held;
+        UUID late = UUID.randomUUID();
+        UUID runner;
+        UUID mover;
+        try (Node node = new Node(dir, true)) {
+            node.terrains.register("mesa", 10, 10, List.of());
+            held = node.probes.create(new ProbeSpec("mesa", 0, 0, new Coordinate(0, 0), Direction.NORTH, null));
+            runner = node.probes.create(new ProbeSpec("mesa", 0, 0, new Coordinate(0, 5), Direction.EAST, null));
+            mover = node.probes.create(new ProbeSpec("mesa", 0, 0, new Coordinate(2, 5), Direction.NORTH, null));
+            node.persistence.snapshot();
+
+            // A probe the snapshot missed, created on the cell the snapshot gives to another probe
+            node.journal.append(new ProbeCreated(late, "mesa", 10, 10, 0, 0, Direction.NORTH, new long[0]));
+            node.journal.append(new CommandsResolved(late, 1, CommandProgram.parse("F"), 0, 1,
+                    new ExecutionSummary(1, 0, 0)));
+            // The mover stepped aside before the runner passed, but its batch was logged second
+            node.journal.append(new CommandsResolved(runner, 1, CommandProgram.parse("4F"), 4, 5,
+                    new ExecutionSummary(4, 0, 0)));
+            node.journal.awaitDurable(node.journal.append(new CommandsResolved(mover, 1, CommandProgram.parse("F"),
+                    2, 6, new ExecutionSummary(1, 0, 0))));
+        }
+
+        try (Node restarted = new Node(dir, true)) {
+            assertEquals(new Coordinate(0, 0), restarted.probes.view(held).position());
+            assertEquals(new Coordinate(0, 1), restarted.probes.view(late).position());
+            assertEquals(new Coordinate(4, 5), restarted.probes.view(runner).position());
+            assertEquals(new Coordinate(2, 6), restarted.probes.view(mover).position());
+            assertThrows(IllegalArgumentException.class, () -> restarted.probes.create(
+                    new ProbeSpec("mesa", 0, 0, new Coordinate(0, 1), Direction.NORTH, null)));
+        }
+    }
+
+    private static void assertSameState(ProbeView expected, ProbeView actual) {
+        assertEquals(expected.position(), actual.position());
+        assertEquals(expected.direction(), actual.direction());
+        assertEquals(expected.version(), actual.version());
+        assertEquals(expected.visited(), actual.visited());
+        assertEquals(expected.summary().executed, actual.summary().executed);
+        assertEquals(expected.summary().blocked, actual.summary().blocked);
+    }
+
+    /**
+     * One application instance wired by hand; closing it without a snapshot acts like a crash.
+     */
+    private static final class Node implements AutoCloseable {
+        final MappedProbeJournal journal;
+        final TerrainService terrains;
+        final ProbeStateService probes;
+        final PersistenceService persistence;
+        final ProbeRepository repo;
+
+        Node(Path dir) {
+            this(dir, false);
+        }
+
+        Node(Path dir, boolean collisions) {
+            PersistenceProperties properties = new PersistenceProperties(true, dir, DataSize.ofKilobytes(64),
+                    Duration.ofMillis(1), true, Duration.ofMinutes(5));
+            journal = new MappedProbeJournal(dir, 64 * 1024, Duration.ofMillis(1), true);
+            ProbeRepository probeRepo = repo = new ProbeRepository();
+            TerrainRepository terrainRepo = new TerrainRepository();
+            terrains = new TerrainService(terrainRepo, journal, collisions);
+            probes = new ProbeStateService(probeRepo, terrains, journal);
+            persistence = new PersistenceService(properties, journal, new SnapshotStore(dir),
+                    probeRepo, terrainRepo, probes, terrains);
+            persistence.recover();
+        }
+
+        @Override
+        public void close() {
+            journal.close();
+        }
+    }
+}
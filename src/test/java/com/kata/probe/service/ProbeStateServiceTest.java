@@ -0,0 +1,89 @@
+package com.kata.probe.service;
+
+import com.kata.probe.domain.Coordinate;
+import com.kata.probe.domain.Direction;
+import com.kata.probe.domain.commands.CommandProgram;
+import com.kata.probe.event.ProbeEventBus;
+import com.kata.probe.metrics.ProbeMetrics;
+import com.kata.probe.repository.ProbeRepository;
+import com.kata.probe.repository.TerrainRepository;
+import com.kata.probe.repository.journal.JournalRecord;
+import com.kata.probe.repository.journal.ProbeJournal;
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProbeStateServiceTest {
+
+    @Test
+    void batch_entries_waiting_on_the_journal_do_not_use_up_the_fork_join_pool() {
+        int entries = 4;
+        CountDownLatch waiting = new CountDownLatch(entries);
+        // Durable only once every entry is waiting, which a pool of one can only reach by adding threads
+        ProbeJournal journal = new BlockingJournal(waiting);
+        ForkJoinPool pool = new ForkJoinPool(1);
+        try {
+            ProbeRepository repo = new ProbeRepository();
+            TerrainService terrains = new TerrainService(new TerrainRepository());
+            // Probes are created without the journal, which would block the test thread
+            ProbeStateService setup = new ProbeStateService(repo, terrains);
+            ProbeStateService probes = new ProbeStateService(repo, terrains, journal, pool,
+                    ProbeEventBus.NONE, ProbeMetrics.NONE);
+            Map<UUID, String> batch = new LinkedHashMap<>();
+            for (int i = 0; i < entries; i++) {
+                batch.put(setup.create(5, 5, new Coordinate(0, 0), Direction.NORTH), "F");
+            }
+
+            Map<UUID, BatchOutcome> outcomes = probes.applyBatch(batch, CommandProgram::parse);
+
+            assertEquals(entries, outcomes.size());
+            outcomes.values().forEach(outcome -> assertNull(outcome.error()));
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private record BlockingJournal(CountDownLatch waiting) implements ProbeJournal {
+        @Override
+        public long append(JournalRecord record) {
+            return 1;
+        }
+
+        @Override
+        public void awaitDurable(long position) {
+            waiting.countDown();
+            try {
+                if (!waiting.await(10, TimeUnit.SECONDS)) {
+                    throw new IllegalStateException("Journal waits were not concurrent");
+                }
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        @Override
+        public void replay(Consumer<JournalRecord> sink) {
+        }
+
+        @Override
+        public long roll() {
+            return 0;
+        }
+
+        @Override
+        public void deleteBefore(long segment) {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
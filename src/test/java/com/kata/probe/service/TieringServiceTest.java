@@ -0,0 +1,62 @@
+package com.kata.probe.service;
+
+import com.kata.probe.domain.Coordinate;
+import com.kata.probe.domain.Direction;
+import com.kata.probe.domain.ProbeView;
+import com.kata.probe.domain.commands.CommandProgram;
+import com.kata.probe.repository.ProbeRepository;
+import com.kata.probe.repository.TerrainRepository;
+import com.kata.probe.repository.journal.ProbeJournal;
+import com.kata.probe.repository.journal.TieringProperties;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TieringServiceTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void spilled_probes_pick_up_where_they_left_off() {
+        ProbeRepository repo = new ProbeRepository();
+        TerrainService terrains = new TerrainService(new TerrainRepository(), ProbeJournal.NONE, true);
+        ProbeStateService probes = new ProbeStateService(repo, terrains);
+        TieringService tiering = new TieringService(new TieringProperties(true, DataSize.ofBytes(0), dir,
+                DataSize.ofKilobytes(64), Duration.ofHours(1)), repo, probes);
+        tiering.start();
+        try {
+            terrains.register("ridge", 10, 1, List.of());
+            UUID plain = probes.create(new ProbeSpec(null, 10, 10, new Coordinate(0, 0), Direction.NORTH,
+                    List.of(new Coordinate(1, 5))));
+            UUID left = probes.create(new ProbeSpec("ridge", 0, 0, new Coordinate(0, 0), Direction.EAST, null));
+            UUID right = probes.create(new ProbeSpec("ridge", 0, 0, new Coordinate(5, 0), Direction.WEST, null));
+            probes.apply(plain, List.of("F", "F", "R", "F"));
+            ProbeView before = probes.view(plain);
+
+            assertEquals(3, tiering.evict());
+            assertEquals(3, repo.coldSize());
+            assertTrue(repo.coldBytes() > 0);
+
+            ProbeView reloaded = probes.apply(plain, List.of("L", "F", "F", "F", "F"));
+            assertEquals(before.version() + 1, reloaded.version());
+            // Stopped by its own obstacle, which came back with it
+            assertEquals(new Coordinate(1, 4), reloaded.position());
+            assertEquals(before.visited(), reloaded.visited().subList(0, before.visited().size()));
+
+            // The spilled probe on the right still holds its cell
+            assertEquals(new Coordinate(4, 0), probes.apply(left, CommandProgram.parse("9F"), null).position());
+            assertEquals(1, repo.coldSize());
+            assertEquals(3, repo.size());
+        } finally {
+            tiering.stop();
+        }
+    }
+}